@@ -3,26 +3,45 @@
 grammar Sylect;
 
 // GENERAL PROGRAM STRUCTURE
-program: importSection? classDefinition (fieldDefinition | methodDefinition)*;
+program: importSection? classDefinition
+    (fieldDefinition | lazyFieldDefinition | methodDefinition | staticInitializer)*;
 
 importSection: 'import' '{' IDENTIFIER+ '}';
 
 classDefinition:
-    ('interface' | 'class') IDENTIFIER ('<:' baseClass)?
+    classModifiers classKind IDENTIFIER typeParameters? ('<:' baseClass)?
     (':' (interfaceClass)+)?
+    ('permits' permittedClass+)?
     annotationBlock?;
-baseClass: IDENTIFIER;
-interfaceClass: IDENTIFIER;
-
-fieldDefinition: 'static'? IDENTIFIER ':' type annotationBlock?;
+classModifiers: ('final' | 'sealed')?;
+// "record" and "struct" are contextual keywords, so variables, fields and methods can still be named so
+classKind:
+    'interface' | 'class' |
+    {_input.LT(1).getText().equals("record")}? IDENTIFIER | {_input.LT(1).getText().equals("struct")}? IDENTIFIER;
+baseClass: IDENTIFIER typeArguments?;
+interfaceClass: IDENTIFIER typeArguments?;
+permittedClass: IDENTIFIER;
+
+fieldDefinition: fieldModifiers IDENTIFIER ':' type ('=' constantValue)? annotationBlock?;
+fieldModifiers: ('static'? ('final' | 'volatile')?) | 'const';
+constantValue: '-'? LITERAL | STRING_LITERAL;
+// Static field computed on first access, "lazy" is a contextual keyword
+lazyFieldDefinition: {_input.LT(1).getText().equals("lazy")}? IDENTIFIER IDENTIFIER ':' type codeBlock;
+
+staticInitializer: 'static' codeBlock;
 
 methodDefinition:
-    methodModifiers IDENTIFIER '(' parameter* ')' ':' type
+    methodModifiers IDENTIFIER typeParameters? '(' parameter* ')' ':' type
     annotationBlock?
     codeBlock?;
-methodModifiers: 'static'? 'native'?;
+methodModifiers: 'static'? 'final'? 'native'?;
 parameter: IDENTIFIER ':' type annotationBlock?;
 
+// Generic classes and methods are compiled separately for each type a parameter can take,
+// all reference types share a single instantiation erased to the reference type
+typeParameters: '<' typeParameter+ '>';
+typeParameter: IDENTIFIER (':' type ('|' type)*)?;
+
 annotationBlock: '[' annotationDefinition+ ']';
 annotationDefinition: type ('[' annotationParameter+ ']')?;
 annotationParameter: IDENTIFIER '{' (LITERAL+ | STRING_LITERAL+ | IDENTIFIER+ | annotationDefinition+) '}';
@@ -30,10 +49,12 @@ annotationParameter: IDENTIFIER '{' (LITERAL+ | STRING_LITERAL+ | IDENTIFIER+ |
 // CODE BLOCKS AND STATEMENTS
 codeBlock: '{' statement* '}';
 
+// Expression statement goes last: statement starting with contextual keyword may also parse as expressions
+// followed by other statements (e.g. "parallel for"), the first matching alternative is taken then
 statement:
-    variableDefinitionStatement | assignmentStatement | expressionStatement |
-    conditionalStatement | loopStatement | breakContinueStatement |
-    returnStatement;
+    variableDefinitionStatement | assignmentStatement |
+    conditionalStatement | whenStatement | loopStatement | forStatement | breakContinueStatement |
+    returnStatement | scopeStatement | synchronizedStatement | measureStatement | expressionStatement;
 
 variableDefinitionStatement: 'var' IDENTIFIER '=' expression;
 assignmentStatement: IDENTIFIER '=' expression;
@@ -42,18 +63,42 @@ expressionStatement: expression;
 conditionalStatement: 'if' expression codeBlock elseBranch?;
 elseBranch: 'else' codeBlock;
 
+// "when" is a contextual keyword, so variables, fields and methods can still be named so
+whenStatement: {_input.LT(1).getText().equals("when")}? IDENTIFIER expression '{' whenBranch* whenElse? '}';
+whenBranch: whenKey+ codeBlock;
+whenKey: '-'? LITERAL | STRING_LITERAL | IDENTIFIER;
+whenElse: 'else' codeBlock;
+
 loopStatement: 'while' expression codeBlock eachBlock?;
 eachBlock: 'each' codeBlock;
+forStatement: parallelClause? 'for' IDENTIFIER 'in' (rangeExpression | expression) reduceClause? codeBlock;
+rangeExpression: expression '..' expression;
+// Range is split between threads of ForkJoinPool (the common one unless given)
+parallelClause: {_input.LT(1).getText().equals("parallel")}? IDENTIFIER ('(' expression ')')?;
+// Each thread accumulates its own partial values of variables (e.g. sum(total)), they are combined after the loop
+reduceClause: {_input.LT(1).getText().equals("reduce")}? IDENTIFIER reduction+;
+reduction: IDENTIFIER '(' IDENTIFIER ')';
 breakContinueStatement: 'break' | 'continue';
 
 returnStatement: 'return' expression?;
 
+// Waits for all tasks spawned inside the block, failure of any task cancels the others ("scope" is contextual)
+scopeStatement: {_input.LT(1).getText().equals("scope")}? IDENTIFIER codeBlock;
+
+// Holds monitor of the object while the block runs, it's released when the block completes in any way
+synchronizedStatement: 'synchronized' expression codeBlock;
+
+// Times the block with JFR event, which is committed unless an exception leaves the block ("measure" is contextual)
+measureStatement: {_input.LT(1).getText().equals("measure")}? IDENTIFIER expression codeBlock;
+
 // EXPRESSIONS
 expression: andExpression ('||' andExpression)*;
 andExpression: mathExpression ('&&' mathExpression)*;
 
 mathExpression: mathTerm (operator mathTerm)*;
-mathTerm: unaryOperator* (LITERAL | objectExpression | '(' expression ')');
+mathTerm:
+    unaryOperator*
+    (LITERAL | functionExpression | spawnExpression | atomicExpression | objectExpression | '(' expression ')');
 
 unaryOperator: '-' | '!' | '[' type ']';
 operator:
@@ -67,15 +112,33 @@ operator:
     '|';
 
 objectExpression: objectTerm ('.' objectTerm)*;
-objectTerm: 'super'? IDENTIFIER ('(' expression* ')')? | STRING_LITERAL;
+objectTerm: 'super'? memberName typeArguments? ('(' expression* ')')? | STRING_LITERAL;
+// Soft keywords are allowed as member names (e.g. System.in)
+memberName: IDENTIFIER | 'in';
+
+// Lambdas and method references implementing functional interface, "fn" is a contextual keyword
+functionExpression:
+    {_input.LT(1).getText().equals("fn")}? IDENTIFIER IDENTIFIER (lambdaSignature codeBlock | methodReference);
+lambdaSignature: '(' lambdaParameter* ')' (':' type)?;
+lambdaParameter: IDENTIFIER (':' type)?;
+methodReference: objectExpression '::' memberName;
+
+// Runs code block in a new thread, evaluates to Future of its completion ("spawn" is contextual)
+spawnExpression: {_input.LT(1).getText().equals("spawn")}? IDENTIFIER codeBlock;
+
+// Atomic operation on a field of current class, e.g. atomic count.getAndAdd(1) ("atomic" is contextual)
+atomicExpression:
+    {_input.LT(1).getText().equals("atomic")}? IDENTIFIER IDENTIFIER '.' IDENTIFIER '(' expression* ')';
 
 // TYPES
 type: ('void' | 'int' | 'long' | 'float' | 'double' |
-    'bool' | 'byte' | 'char' | 'short' | IDENTIFIER) '[]'? '!'?;
+    'bool' | 'byte' | 'char' | 'short' | IDENTIFIER typeArguments?) '[]'? '!'?;
+typeArguments: '<' type+ '>';
 
 // LEXER DEFINITIONS
 LITERAL: [0-9]+ ('.' [0-9]+)? ('L' | 'F')?;
-STRING_LITERAL: '"' .*? '"';
+// Escape sequences are the same as in Java strings
+STRING_LITERAL: '"' ('\\' . | ~["\\])* '"';
 IDENTIFIER: [a-zA-Z] ([a-zA-Z0-9_$/])*;
 
 LINE_COMMENT: '//' ~[\r\n]* -> skip;
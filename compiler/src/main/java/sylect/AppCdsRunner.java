@@ -0,0 +1,352 @@
+// SPDX-License-Identifier: MIT
+
+package sylect;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sylect.util.Pair;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Creates class data archive of compiled application, so that its classes are mapped from the archive
+ * already parsed and verified instead of being loaded from class files on every start. This matters
+ * for short-lived tools, which spend most of their run time loading classes.
+ * <p>
+ * Archive is recorded by a training run of the application, then a launcher script runs it with the archive:
+ * <ul>
+ *     <li>AppCDS - dynamic archive dumped with {@code -XX:ArchiveClassesAtExit}, available since JDK 13</li>
+ *     <li>AOT cache - classes are also linked and profiles are kept ({@code -XX:AOTCache}), since JDK 24</li>
+ * </ul>
+ * CDS only archives classes from JAR files, so class directories are packed into JARs. Together with
+ * dependencies they are placed in {@code lib} next to the archive and the script, class path has to be
+ * the same as in the training run.
+ * <p>
+ * Failures of file operations and of the runs are reported as {@link IOException}.
+ */
+public class AppCdsRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AppCdsRunner.class);
+
+    private static final int AOT_CACHE_MIN_VERSION = 24;
+    private static final String AOT_CACHE_ENV_VARIABLE = "AOT_CACHE";
+    private static final String BENCHMARK_ENV_VARIABLE = "BENCHMARK_RUNS";
+    private static final String JVM_OPTIONS_ENV_VARIABLE = "JVM_OPTIONS";
+    private static final Pattern VERSION_PATTERN = Pattern.compile("version \"(1\\.)?(\\d+)");
+
+    /**
+     * @param java         Java executable used for training and benchmark
+     * @param name         name of the application, the script and the archive are named after it
+     * @param mainClass    Java name of the class with main method
+     * @param classPath    class directories and JAR files, application classes first
+     * @param trainingArgs arguments of the training run, it should load the classes a usual run does
+     * @param jvmOptions   options of every run, e.g. {@code -XX:TieredStopAtLevel=1} for short-lived tools
+     * @param aotCache     whether to create AOT cache instead of AppCDS archive
+     * @param outputDir    directory for the archive, the script and the libraries
+     */
+    public record ArchiveOptions(
+            Path java, String name, String mainClass, List<Path> classPath,
+            List<String> trainingArgs, List<String> jvmOptions, boolean aotCache, Path outputDir) {
+    }
+
+    /**
+     * @return path of the launcher script
+     */
+    public static Path createArchive(ArchiveOptions options, Consumer<String> logger) throws IOException {
+        if (options.aotCache()) {
+            var version = getJavaVersion(options.java());
+            if (version < AOT_CACHE_MIN_VERSION) {
+                throw new IOException(
+                        "AOT cache requires JDK " + AOT_CACHE_MIN_VERSION + " or higher, got: " + version);
+            }
+        }
+
+        var classPath = prepareClassPath(options);
+        logger.accept("Class Path: " + classPath);
+
+        var archive = getArchive(options);
+        logger.accept("Training: " + options.mainClass() + " " + String.join(" ", options.trainingArgs()));
+        if (options.aotCache()) {
+            // Training run only records configuration, the cache is created from it by a separate run
+            var configuration = options.outputDir().resolve(options.name() + ".aotconf");
+            var record = new ArrayList<>(List.of(options.java().toString()));
+            record.addAll(options.jvmOptions());
+            record.addAll(List.of(
+                    "-XX:AOTMode=record",
+                    "-XX:AOTConfiguration=" + configuration,
+                    "-cp", classPath,
+                    options.mainClass()));
+            record.addAll(options.trainingArgs());
+            run(record, options.outputDir(), logger);
+
+            // JVM rejects the cache if it's used with options that differ from the ones it was created with
+            var create = new ArrayList<>(List.of(options.java().toString()));
+            create.addAll(options.jvmOptions());
+            create.addAll(List.of(
+                    "-XX:AOTMode=create",
+                    "-XX:AOTConfiguration=" + configuration,
+                    "-XX:AOTCache=" + archive,
+                    "-cp", classPath));
+            run(create, options.outputDir(), logger);
+        } else {
+            var training = new ArrayList<>(List.of(options.java().toString()));
+            training.addAll(options.jvmOptions());
+            training.addAll(List.of(
+                    "-XX:ArchiveClassesAtExit=" + archive,
+                    "-cp", classPath,
+                    options.mainClass()));
+            training.addAll(options.trainingArgs());
+            run(training, options.outputDir(), logger);
+        }
+        if (!Files.exists(archive)) {
+            throw new IOException("archive was not created: " + archive);
+        }
+        logger.accept("Archive: " + archive);
+
+        var script = writeLauncher(options);
+        logger.accept("Launcher: " + script);
+        return script;
+    }
+
+    /**
+     * Measures wall time of the training run with and without the archive. Runs alternate,
+     * so that both variants are equally affected by file cache and other processes.
+     *
+     * @return mean times in milliseconds: without and with the archive
+     */
+    public static double[] benchmark(ArchiveOptions options, int runs, Consumer<String> logger)
+            throws IOException {
+        var classPath = getClassPath(options);
+        var plain = new ArrayList<>(List.of(options.java().toString()));
+        plain.addAll(options.jvmOptions());
+        plain.addAll(List.of("-cp", classPath, options.mainClass()));
+        plain.addAll(options.trainingArgs());
+        var archived = new ArrayList<>(List.of(options.java().toString()));
+        archived.addAll(options.jvmOptions());
+        archived.addAll(List.of(
+                getArchiveOption(options, getArchive(options).toString()), "-cp", classPath, options.mainClass()));
+        archived.addAll(options.trainingArgs());
+
+        // The first runs only warm up file cache
+        time(plain, options.outputDir());
+        time(archived, options.outputDir());
+        var plainTotal = 0L;
+        var archivedTotal = 0L;
+        for (int i = 0; i < runs; i++) {
+            plainTotal += time(plain, options.outputDir());
+            archivedTotal += time(archived, options.outputDir());
+        }
+
+        var result = new double[] {plainTotal / 1e6 / runs, archivedTotal / 1e6 / runs};
+        logger.accept(String.format("Startup: %.1f ms without archive, %.1f ms with archive (%.0f%%), %d runs",
+                result[0], result[1], 100 * result[1] / result[0], runs));
+        return result;
+    }
+
+    /**
+     * Copies JAR files and packs class directories into {@code lib}.
+     */
+    private static String prepareClassPath(ArchiveOptions options) throws IOException {
+        var lib = options.outputDir().resolve("lib");
+        Files.createDirectories(lib);
+        for (var entry : getLibraries(options)) {
+            var source = entry.left();
+            if (Files.isDirectory(source)) {
+                packDirectory(source, entry.right());
+            } else {
+                Files.copy(source, entry.right(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        return getClassPath(options);
+    }
+
+    private static String getClassPath(ArchiveOptions options) {
+        return getLibraries(options).stream()
+                .map(entry -> entry.right().toAbsolutePath().toString())
+                .collect(Collectors.joining(File.pathSeparator));
+    }
+
+    /**
+     * @return class path entries with their locations in {@code lib}, the first directory is named after
+     * the application, since it's expected to contain its classes
+     */
+    private static List<Pair<Path, Path>> getLibraries(ArchiveOptions options) {
+        var lib = options.outputDir().resolve("lib");
+        var names = new HashSet<String>();
+        var result = new ArrayList<Pair<Path, Path>>();
+        for (int i = 0; i < options.classPath().size(); i++) {
+            var source = options.classPath().get(i);
+            var name = !Files.isDirectory(source) ? source.getFileName().toString()
+                    : names.isEmpty() ? options.name() + ".jar"
+                    : options.name() + "-" + i + ".jar";
+            if (!names.add(name)) {
+                name = i + "-" + name;
+                names.add(name);
+            }
+            result.add(new Pair<>(source, lib.resolve(name)));
+        }
+        return result;
+    }
+
+    private static void packDirectory(Path directory, Path jar) throws IOException {
+        var manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        try (var output = new JarOutputStream(Files.newOutputStream(jar), manifest);
+             var files = Files.walk(directory)) {
+            List<Path> regularFiles;
+            try {
+                regularFiles = files.filter(Files::isRegularFile).sorted().toList();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            for (var file : regularFiles) {
+                var entry = new JarEntry(directory.relativize(file).toString().replace('\\', '/'));
+                if (entry.getName().equals("META-INF/MANIFEST.MF")) {
+                    continue;
+                }
+                output.putNextEntry(entry);
+                Files.copy(file, output);
+                output.closeEntry();
+            }
+        }
+    }
+
+    private static Path writeLauncher(ArchiveOptions options) throws IOException {
+        var classPath = getLibraries(options).stream()
+                .map(entry -> "$DIR/lib/" + entry.right().getFileName())
+                .collect(Collectors.joining(":"));
+        var archiveOption = getArchiveOption(options, "$DIR/" + getArchive(options).getFileName());
+        var jvmOptions = options.jvmOptions().stream()
+                .map(option -> quote(option) + " ")
+                .collect(Collectors.joining());
+
+        var script = options.outputDir().resolve(options.name() + ".sh");
+        var content = "#!/bin/sh\n" +
+                "# Runs " + options.mainClass() + " with classes mapped from archive created by training run.\n" +
+                "# JVM ignores the archive if class path or JDK differs from the training run.\n" +
+                "DIR=\"$(cd \"$(dirname \"$0\")\" && pwd)\"\n" +
+                "exec \"${JAVA:-java}\" " + jvmOptions + "\"" + archiveOption + "\" -cp \"" + classPath + "\" " +
+                quote(options.mainClass()) + " \"$@\"\n";
+        Files.writeString(script, content, StandardCharsets.UTF_8);
+        script.toFile().setExecutable(true);
+        return script;
+    }
+
+    /**
+     * Quotes shell word, so that its characters (e.g. {@code $} of nested class names) are taken literally.
+     * Single quote can't be escaped within single quotes, so the quoting is closed around it.
+     */
+    static String quote(String word) {
+        return "'" + word.replace("'", "'\\''") + "'";
+    }
+
+    private static Path getArchive(ArchiveOptions options) {
+        return options.outputDir().resolve(options.name() + (options.aotCache() ? ".aot" : ".jsa"))
+                .toAbsolutePath();
+    }
+
+    private static String getArchiveOption(ArchiveOptions options, String archive) {
+        return (options.aotCache() ? "-XX:AOTCache=" : "-XX:SharedArchiveFile=") + archive;
+    }
+
+    private static int getJavaVersion(Path java) throws IOException {
+        var output = new StringBuilder();
+        run(List.of(java.toString(), "-version"), null, line -> output.append(line).append('\n'));
+        var matcher = VERSION_PATTERN.matcher(output);
+        if (!matcher.find()) {
+            throw new IOException("could not determine Java version: " + output);
+        }
+        return Integer.parseInt(matcher.group(2));
+    }
+
+    private static void run(List<String> command, Path directory, Consumer<String> logger) throws IOException {
+        var process = new ProcessBuilder(command)
+                .directory(directory == null ? null : directory.toFile())
+                .redirectErrorStream(true)
+                .start();
+        try (var reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                logger.accept(line);
+            }
+        }
+
+        int exitCode;
+        try {
+            exitCode = process.waitFor();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroy();
+            throw new InterruptedIOException("interrupted: " + command);
+        }
+        if (exitCode != 0) {
+            throw new IOException("command failed with exit code " + exitCode + ": " + command);
+        }
+    }
+
+    /**
+     * @return wall time of the command in nanoseconds, from process start to its exit
+     */
+    private static long time(List<String> command, Path directory) throws IOException {
+        var start = System.nanoTime();
+        run(command, directory, line -> {
+        });
+        return System.nanoTime() - start;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            LOGGER.error("usage: sylect.AppCdsRunner MAIN_CLASS CLASS_PATH OUTPUT_DIR [TRAINING_ARGS...]");
+            LOGGER.error("Class path entries are separated with '{}', application classes go first",
+                    File.pathSeparator);
+            LOGGER.error("Use AOT_CACHE=true environment variable to create AOT cache (JDK 24+) instead of AppCDS");
+            LOGGER.error("Use BENCHMARK_RUNS environment variable to compare startup with and without archive");
+            LOGGER.error("Use JVM_OPTIONS environment variable to pass space-separated options to every run");
+            System.exit(1);
+        }
+
+        var outputDir = Paths.get(args[2]).toAbsolutePath();
+        var options = new ArchiveOptions(
+                Paths.get(System.getProperty("java.home"), "bin", "java"),
+                outputDir.getFileName().toString(),
+                args[0],
+                Arrays.stream(args[1].split(Pattern.quote(File.pathSeparator)))
+                        .map(Paths::get)
+                        .map(Path::toAbsolutePath)
+                        .toList(),
+                Arrays.asList(args).subList(3, args.length),
+                Arrays.stream(System.getProperty(JVM_OPTIONS_ENV_VARIABLE, "").split(" "))
+                        .filter(option -> !option.isEmpty())
+                        .toList(),
+                Boolean.parseBoolean(System.getProperty(AOT_CACHE_ENV_VARIABLE, "false")),
+                outputDir);
+
+        createArchive(options, LOGGER::info);
+        var runs = Integer.parseInt(System.getProperty(BENCHMARK_ENV_VARIABLE, "0"));
+        if (runs > 0) {
+            benchmark(options, runs, LOGGER::info);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+// SPDX-License-Identifier: MIT
+
+package sylect;
+
+import java.util.Locale;
+
+/**
+ * Options controlling code generation.
+ *
+ * @param target            target JVM version
+ * @param optimizationLevel 0 - no optimizations,
+ *                          1 - inline methods annotated with {@link Inline} and devirtualize calls,
+ *                          2 - also inline small methods automatically
+ * @param debugLevel        debug attributes written to class files
+ * @param profiling         whether to count method invocations, loop iterations and calls,
+ *                          see {@code sylect.runtime.Profiler}
+ */
+public record CompilerOptions(int target, int optimizationLevel, DebugLevel debugLevel, boolean profiling) {
+
+    public static final int DEFAULT_OPTIMIZATION_LEVEL = 1;
+
+    public CompilerOptions(int target, int optimizationLevel) {
+        this(target, optimizationLevel, DebugLevel.ALL);
+    }
+
+    public CompilerOptions(int target, int optimizationLevel, DebugLevel debugLevel) {
+        this(target, optimizationLevel, debugLevel, false);
+    }
+
+    public static CompilerOptions forTarget(int target) {
+        return new CompilerOptions(target, DEFAULT_OPTIMIZATION_LEVEL);
+    }
+
+    public boolean inlineAnnotated() {
+        return optimizationLevel >= 1;
+    }
+
+    public boolean devirtualize() {
+        return optimizationLevel >= 1;
+    }
+
+    public boolean inlineAutomatically() {
+        return optimizationLevel >= 2;
+    }
+
+    /**
+     * Debug attributes, similar to {@code javac -g} options. Source file name is written unless it's {@link #NONE}.
+     */
+    public enum DebugLevel {
+        // No debug attributes at all, the smallest class files
+        NONE,
+        // Line numbers for stack traces and profilers
+        LINES,
+        // Names of local variables for debuggers
+        VARS,
+        ALL;
+
+        public static DebugLevel parse(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new CompilationException("unknown debug level (none/lines/vars/all expected): " + value);
+            }
+        }
+
+        public boolean sourceFile() {
+            return this != NONE;
+        }
+
+        public boolean lineNumbers() {
+            return this == LINES || this == ALL;
+        }
+
+        public boolean localVariables() {
+            return this == VARS || this == ALL;
+        }
+    }
+}
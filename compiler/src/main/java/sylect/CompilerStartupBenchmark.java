@@ -0,0 +1,75 @@
+// SPDX-License-Identifier: MIT
+
+package sylect;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Measures time to first class file of the compiler, i.e. wall time of compiling a small source like
+ * {@code HelloWorld.sy} from the command line, which is dominated by JVM startup and class loading.
+ * Compiler runs the way {@code sylectc} launcher runs it, with and without class data archive recorded
+ * by a training compilation of the same source, see {@link AppCdsRunner}.
+ */
+public class CompilerStartupBenchmark {
+
+    private static final int DEFAULT_RUNS = 10;
+    private static final List<String> JVM_OPTIONS = List.of("-XX:TieredStopAtLevel=1", "-Xlog:cds=error", "-Dsylect.log.debug=false");
+
+    /**
+     * @return mean times in milliseconds: without and with the archive
+     */
+    public static double[] run(Path source, int runs, Path outputDir, Consumer<String> logger) throws IOException {
+        // Class file is written next to the source, which is the working directory of the runs
+        var sourceFile = outputDir.resolve(source.getFileName());
+        Files.createDirectories(outputDir);
+        Files.copy(source, sourceFile, StandardCopyOption.REPLACE_EXISTING);
+
+        var options = new AppCdsRunner.ArchiveOptions(
+                Paths.get(System.getProperty("java.home"), "bin", "java"),
+                "sylectc",
+                SylectCompilerRunner.class.getName(),
+                List.of(getCompilerJar()),
+                List.of(sourceFile.getFileName().toString()),
+                JVM_OPTIONS,
+                false,
+                outputDir);
+        AppCdsRunner.createArchive(options, logger);
+
+        var classFile = outputDir.resolve(sourceFile.getFileName().toString().replaceAll("\\.sy$", ".class"));
+        if (!Files.exists(classFile)) {
+            throw new IOException("class file was not written: " + classFile);
+        }
+        return AppCdsRunner.benchmark(options, runs, logger);
+    }
+
+    private static Path getCompilerJar() {
+        try {
+            var location = Paths.get(
+                    SylectCompilerRunner.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            if (Files.isDirectory(location)) {
+                throw new IllegalStateException("benchmark runs the shaded compiler JAR, got: " + location);
+            }
+            return location;
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException("could not locate compiler JAR", e);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0 || args.length > 2) {
+            System.err.println("usage: sylect.CompilerStartupBenchmark SOURCE_FILE [RUNS]");
+            System.err.println("Run it from the shaded compiler JAR, e.g. java -cp compiler-0.1.jar ...");
+            System.exit(1);
+        }
+
+        var runs = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_RUNS;
+        run(Paths.get(args[0]), runs, Files.createTempDirectory("sylect-startup"), System.out::println);
+    }
+}
@@ -0,0 +1,35 @@
+// SPDX-License-Identifier: MIT
+
+package sylect;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds static native method to C function with Foreign Function & Memory API instead of JNI.
+ * Compiler generates method body that invokes downcall handle, the handle is created on first call.
+ * Primitive values are passed as C values of the same size and memory segments are passed as pointers.
+ * Requires target 22 or higher.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.METHOD)
+public @interface Foreign {
+
+    /**
+     * Name or path of shared library as accepted by dlopen/LoadLibrary, standard C library is used when empty.
+     */
+    String library() default "";
+
+    /**
+     * Name of C function, name of method is used when empty.
+     */
+    String symbol() default "";
+
+    /**
+     * Critical functions are short, they neither block nor call back to Java,
+     * so JVM doesn't have to change thread state when calling them.
+     */
+    boolean critical() default false;
+}
@@ -0,0 +1,18 @@
+// SPDX-License-Identifier: MIT
+
+package sylect;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks method as hot, i.e. called often enough that it should be inlined by JIT into its callers.
+ * Compiler warns when bytecode of the method exceeds {@code MaxInlineSize}, see {@link InliningReport}.
+ * The annotation doesn't change generated code.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.METHOD)
+public @interface Hot {
+}
@@ -0,0 +1,17 @@
+// SPDX-License-Identifier: MIT
+
+package sylect;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Asks compiler to inline static method at call sites within the same class.
+ * Only methods consisting of a single return statement (or a single expression for void methods) are inlined.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.METHOD)
+public @interface Inline {
+}
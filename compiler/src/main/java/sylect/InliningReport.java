@@ -0,0 +1,214 @@
+// SPDX-License-Identifier: MIT
+
+package sylect;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Summarizes compiled methods and checks their bytecode size against default limits of HotSpot JIT:
+ * <ul>
+ *     <li>{@code MaxInlineSize} - methods larger than 35 bytes are only inlined when they are hot</li>
+ *     <li>{@code FreqInlineSize} - methods larger than 325 bytes are never inlined</li>
+ *     <li>{@code HugeMethodLimit} - methods larger than 8000 bytes are never compiled</li>
+ * </ul>
+ * Limits are checked on final bytecode, so inlined calls, memoization and profiling counters are accounted for.
+ */
+public final class InliningReport {
+
+    public static final int MAX_INLINE_SIZE = 35;
+    public static final int FREQ_INLINE_SIZE = 325;
+    public static final int HUGE_METHOD_LIMIT = 8000;
+
+    private static final String HOT_DESCRIPTOR = "Lsylect/Hot;";
+
+    private InliningReport() {
+    }
+
+    /**
+     * @param codeSize    length of bytecode, 0 for abstract and native methods
+     * @param invokeCount number of method calls, including dynamic ones
+     * @param loopCount   number of backward jumps, each loop has at least one
+     * @param hot         whether the method is annotated with {@link Hot}
+     */
+    public record MethodSummary(
+            String className, String name, String descriptor,
+            int codeSize, int maxStack, int maxLocals,
+            int invokeCount, int loopCount,
+            boolean hot) {
+
+        public List<String> warnings() {
+            return warnings(HUGE_METHOD_LIMIT);
+        }
+
+        /**
+         * @param maxMethodSize budget for size of any method, limits of JIT are checked regardless of it
+         */
+        public List<String> warnings(int maxMethodSize) {
+            var result = new ArrayList<String>();
+            if (codeSize > HUGE_METHOD_LIMIT) {
+                result.add(codeSize + " bytes exceed HugeMethodLimit (" + HUGE_METHOD_LIMIT + "), method is not compiled");
+            } else if (codeSize > maxMethodSize) {
+                result.add(codeSize + " bytes exceed budget of " + maxMethodSize + " bytes");
+            }
+            // Static initializers run once and are never inlined
+            if ("<clinit>".equals(name)) {
+                return result;
+            }
+            if (codeSize > FREQ_INLINE_SIZE) {
+                result.add(codeSize + " bytes exceed FreqInlineSize (" + FREQ_INLINE_SIZE + "), method is not inlined");
+            } else if (hot && codeSize > MAX_INLINE_SIZE) {
+                result.add(codeSize + " bytes of hot method exceed MaxInlineSize (" + MAX_INLINE_SIZE +
+                        "), it's inlined only while call site is hot");
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return className.replace('/', '.') + "." + name + descriptor;
+        }
+    }
+
+    /**
+     * @return summaries of methods in the order they are declared in class file
+     */
+    public static List<MethodSummary> analyze(byte[] bytecode) {
+        var reader = new ClassReader(bytecode);
+        var codeAttributes = readCodeAttributes(reader);
+
+        var result = new ArrayList<MethodSummary>();
+        reader.accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public MethodVisitor visitMethod(
+                    int access, String name, String descriptor, String signature, String[] exceptions) {
+                return new MethodVisitor(Opcodes.ASM9) {
+                    private final Set<Label> visitedLabels = new HashSet<>();
+                    private int invokeCount;
+                    private int loopCount;
+                    private boolean hot;
+
+                    @Override
+                    public AnnotationVisitor visitAnnotation(String annotationDescriptor, boolean visible) {
+                        hot |= HOT_DESCRIPTOR.equals(annotationDescriptor);
+                        return null;
+                    }
+
+                    @Override
+                    public void visitLabel(Label label) {
+                        visitedLabels.add(label);
+                    }
+
+                    @Override
+                    public void visitJumpInsn(int opcode, Label label) {
+                        // Labels are visited in code order, so jumps to visited labels go backwards
+                        if (visitedLabels.contains(label)) {
+                            loopCount++;
+                        }
+                    }
+
+                    @Override
+                    public void visitMethodInsn(
+                            int opcode, String owner, String name, String descriptor, boolean isInterface) {
+                        invokeCount++;
+                    }
+
+                    @Override
+                    public void visitInvokeDynamicInsn(
+                            String name, String descriptor, Handle bootstrapMethodHandle, Object... arguments) {
+                        invokeCount++;
+                    }
+
+                    @Override
+                    public void visitEnd() {
+                        var code = codeAttributes.getOrDefault(name + descriptor, new int[3]);
+                        result.add(new MethodSummary(
+                                reader.getClassName(), name, descriptor,
+                                code[0], code[1], code[2],
+                                invokeCount, loopCount, hot));
+                    }
+                };
+            }
+        }, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        return result;
+    }
+
+    /**
+     * @return table with a line per method, warnings are listed below the method
+     */
+    public static String format(List<MethodSummary> methods, int maxMethodSize) {
+        var builder = new StringBuilder(String.format(
+                "%6s %6s %6s %7s %5s  %s%n", "size", "stack", "locals", "invokes", "loops", "method"));
+        for (var method : methods) {
+            builder.append(String.format("%6d %6d %6d %7d %5d  %s%s",
+                    method.codeSize(), method.maxStack(), method.maxLocals(),
+                    method.invokeCount(), method.loopCount(),
+                    method, method.hot() ? " [hot]" : ""));
+            for (var warning : method.warnings(maxMethodSize)) {
+                builder.append(System.lineSeparator()).append(" ".repeat(36)).append("warning: ").append(warning);
+            }
+            builder.append(System.lineSeparator());
+        }
+        return builder.toString();
+    }
+
+    /**
+     * ASM doesn't expose size of method code, so Code attributes are read from class file directly.
+     *
+     * @return code size, max stack and max locals by method name and descriptor
+     */
+    private static Map<String, int[]> readCodeAttributes(ClassReader reader) {
+        var buffer = new char[reader.getMaxStringLength()];
+
+        // Skip access flags, this class, super class and interfaces
+        var offset = reader.header + 6;
+        offset += 2 + reader.readUnsignedShort(offset) * 2;
+        // Skip fields
+        var fieldCount = reader.readUnsignedShort(offset);
+        offset += 2;
+        for (int i = 0; i < fieldCount; i++) {
+            offset = skipAttributes(reader, offset + 6);
+        }
+
+        var result = new HashMap<String, int[]>();
+        var methodCount = reader.readUnsignedShort(offset);
+        offset += 2;
+        for (int i = 0; i < methodCount; i++) {
+            var name = reader.readUTF8(offset + 2, buffer);
+            var descriptor = reader.readUTF8(offset + 4, buffer);
+            var attributeCount = reader.readUnsignedShort(offset + 6);
+            offset += 8;
+            for (int j = 0; j < attributeCount; j++) {
+                if ("Code".equals(reader.readUTF8(offset, buffer))) {
+                    result.put(name + descriptor, new int[] {
+                            reader.readInt(offset + 10),
+                            reader.readUnsignedShort(offset + 6),
+                            reader.readUnsignedShort(offset + 8)});
+                }
+                offset += 6 + reader.readInt(offset + 2);
+            }
+        }
+        return result;
+    }
+
+    private static int skipAttributes(ClassReader reader, int offset) {
+        var attributeCount = reader.readUnsignedShort(offset);
+        offset += 2;
+        for (int i = 0; i < attributeCount; i++) {
+            offset += 6 + reader.readInt(offset + 2);
+        }
+        return offset;
+    }
+}
@@ -0,0 +1,31 @@
+// SPDX-License-Identifier: MIT
+
+package sylect;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Caches results of static method by its arguments, so the method should be pure.
+ * Compiler moves method body into a synthetic method and makes the annotated method look up the cache first.
+ * Arguments of primitive types fitting into 64 bits together are packed into a single {@code long} key,
+ * so that neither keys nor primitive results are boxed. Requires target 17 or higher
+ * and {@code sylect.runtime} library at run time.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.METHOD)
+public @interface Memoize {
+
+    /**
+     * Maximum number of cached results, entries that were not used recently are evicted first.
+     */
+    int maxSize() default 10000;
+
+    /**
+     * Whether the method is called from multiple threads, thread-safe cache is split into stripes
+     * guarded by separate locks.
+     */
+    boolean threadSafe() default false;
+}
@@ -2,6 +2,10 @@
 
 package sylect;
 
+import org.antlr.v4.runtime.IntStream;
+
+import java.util.Map;
+
 /**
  * Interface for Sylect programming language compilers.
  */
@@ -18,7 +22,18 @@ public interface SylectCompiler {
      * @param source source code in Sylect
      * @return AST
      */
-    SylectParser.ProgramContext generateTree(String source);
+    default SylectParser.ProgramContext generateTree(String source) {
+        return generateTree(source, IntStream.UNKNOWN_SOURCE_NAME);
+    }
+
+    /**
+     * Generate AST from provided source string.
+     *
+     * @param source     source code in Sylect
+     * @param sourceName name of source file, written to class files as debug information
+     * @return AST
+     */
+    SylectParser.ProgramContext generateTree(String source, String sourceName);
 
     /**
      * Compile AST to class file.
@@ -27,4 +42,14 @@ public interface SylectCompiler {
      * @return class file as byte array
      */
     byte[] compile(SylectParser.ProgramContext tree);
+
+    /**
+     * Compile AST to class files. Generic classes produce a class file for each instantiation.
+     *
+     * @param tree AST
+     * @return class files by class name
+     */
+    default Map<String, byte[]> compileClasses(SylectParser.ProgramContext tree) {
+        return Map.of(tree.classDefinition().IDENTIFIER().getText(), compile(tree));
+    }
 }
@@ -2,9 +2,8 @@
 
 package sylect;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import sylect.bootstrap.BootstrapCompiler;
+import sylect.bootstrap.metadata.ClassMeta;
 import sylect.util.Pair;
 
 import java.io.IOException;
@@ -13,21 +12,28 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.function.Consumer;
 
 public class SylectCompilerRunner {
 
-    private static final Logger LOGGER = LoggerFactory.getLogger(SylectCompilerRunner.class);
-
     private static final String SOURCE_FILE_EXTENSION = ".sy";
     private static final String TARGET_ENV_VARIABLE = "JVM_VERSION";
+    private static final String OPTIMIZATION_ENV_VARIABLE = "OPTIMIZATION_LEVEL";
+    private static final String DEBUG_ENV_VARIABLE = "DEBUG_LEVEL";
+    private static final String PROFILING_ENV_VARIABLE = "PROFILING";
 
     public static void compileSourceTrees(
-            ClassLoader classLoader, int target,
+            ClassLoader classLoader, CompilerOptions options,
             List<Path> sources, Path targetDir,
             Consumer<String> logger) {
-        logger.accept("JVM Target: " + target);
-        var compiler = (SylectCompiler) new BootstrapCompiler(classLoader, target);
+        logger.accept("JVM Target: " + options.target());
+        logger.accept("Optimization Level: " + options.optimizationLevel());
+        logger.accept("Debug Level: " + options.debugLevel().name().toLowerCase(Locale.ROOT));
+        if (options.profiling()) {
+            logger.accept("Profiling: counters are collected by sylect.runtime.Profiler");
+        }
+        var compiler = (SylectCompiler) new BootstrapCompiler(classLoader, options);
 
         logger.accept("Sources: " + sources);
         var sourceTrees = sources.stream()
@@ -41,7 +47,9 @@ public class SylectCompilerRunner {
                                     try {
                                         return new Pair<>(
                                                 source.equals(sourceFile) ? sourceFile : source.relativize(sourceFile),
-                                                compiler.generateTree(Files.readString(sourceFile)));
+                                                compiler.generateTree(
+                                                        Files.readString(sourceFile),
+                                                        sourceFile.getFileName().toString()));
                                     } catch (IOException e) {
                                         throw new CompilationException("failed to read source: " + source, e);
                                     }
@@ -60,36 +68,48 @@ public class SylectCompilerRunner {
                     var classFileName = sourceFile.getFileName().toString()
                             .replaceAll("(?i)\\" + SOURCE_FILE_EXTENSION + "$", ".class");
                     var classPath = sourceFile.getParent() == null ? targetDir : targetDir.resolve(sourceFile.getParent());
-                    var classFilePath = classPath.resolve(classFileName);
-
-                    try {
-                        Files.createDirectories(classPath);
+                    var className = pair.right().classDefinition().IDENTIFIER().getText();
 
-                        logger.accept("Compiling: " + sourceFile + " -> " + classFilePath);
-                        Files.write(classFilePath, compiler.compile(pair.right()));
-                    } catch (IOException e) {
-                        throw new CompilationException("could not write: " + classFilePath);
-                    }
+                    logger.accept("Compiling: " + sourceFile + " -> " + classPath.resolve(classFileName));
+                    compiler.compileClasses(pair.right()).forEach((name, bytecode) -> {
+                        // Instantiations of generic classes are placed next to the class
+                        var classFilePath = classPath.resolve(
+                                name.equals(className) ? classFileName : ClassMeta.shortClassName(name) + ".class");
+                        try {
+                            Files.createDirectories(classPath);
+                            Files.write(classFilePath, bytecode);
+                        } catch (IOException e) {
+                            throw new CompilationException("could not write: " + classFilePath);
+                        }
+                    });
                 });
     }
 
     public static void main(String[] args) {
         if (args.length == 0) {
-            LOGGER.error("usage: sylect.SylectCompilerRunner DIR/FILE...");
-            LOGGER.error("Use JVM_VERSION environment variable to control target JVM version");
-            LOGGER.error("By default, target JVM version is the same as the version of JVM compiler runs on");
+            System.err.println("usage: sylect.SylectCompilerRunner DIR/FILE...");
+            System.err.println("Use JVM_VERSION environment variable to control target JVM version");
+            System.err.println("By default, target JVM version is the same as the version of JVM compiler runs on");
+            System.err.println("Use OPTIMIZATION_LEVEL environment variable to control inlining (0 - off, 1 - annotated, 2 - auto)");
+            System.err.println("Use DEBUG_LEVEL environment variable to control debug attributes (none, lines, vars, all)");
+            System.err.println("Use PROFILING=true environment variable to count invocations, loop iterations and calls");
             System.exit(1);
         }
 
         var target = Integer.parseInt(
                 System.getProperty(TARGET_ENV_VARIABLE, String.valueOf(SylectCompiler.DEFAULT_TARGET)));
+        var optimizationLevel = Integer.parseInt(
+                System.getProperty(OPTIMIZATION_ENV_VARIABLE, String.valueOf(CompilerOptions.DEFAULT_OPTIMIZATION_LEVEL)));
+        var debugLevel = CompilerOptions.DebugLevel.parse(System.getProperty(DEBUG_ENV_VARIABLE, "all"));
+        var profiling = Boolean.parseBoolean(System.getProperty(PROFILING_ENV_VARIABLE, "false"));
         var pwd = System.getProperty("user.dir");
 
+        // Progress is printed directly, configuring logging backend takes longer than compiling a small program
         compileSourceTrees(
                 SylectCompiler.class.getClassLoader(),
-                target,
+                new CompilerOptions(target, optimizationLevel, debugLevel, profiling),
                 Arrays.stream(args).map(Paths::get).map(Path::toAbsolutePath).toList(),
                 Paths.get(pwd).toAbsolutePath(),
-                LOGGER::info);
+                System.out::println);
     }
 }
@@ -4,17 +4,22 @@ package sylect.bootstrap;
 
 import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
-import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import sylect.CompilationException;
+import sylect.CompilerOptions;
 import sylect.SylectCompiler;
 import sylect.SylectLexer;
 import sylect.SylectParser;
 import sylect.SylectParser.ProgramContext;
 import sylect.bootstrap.context.ClassMetaManager;
 import sylect.bootstrap.metadata.ClassMeta;
+import sylect.bootstrap.util.GenericUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class BootstrapCompiler implements SylectCompiler {
 
-    private final int target;
+    private final CompilerOptions options;
     private final ClassMetaManager classMetaManager;
 
     public BootstrapCompiler() {
@@ -22,24 +27,45 @@ public class BootstrapCompiler implements SylectCompiler {
     }
 
     public BootstrapCompiler(ClassLoader classLoader, int target) {
-        this.target = target;
+        this(classLoader, CompilerOptions.forTarget(target));
+    }
+
+    public BootstrapCompiler(ClassLoader classLoader, CompilerOptions options) {
+        this.options = options;
         this.classMetaManager = new ClassMetaManager(classLoader);
     }
 
+    /**
+     * Compiles non-generic class or erased instantiation of generic class.
+     */
     @Override
     public byte[] compile(ProgramContext tree) {
-        var walker = new ParseTreeWalker();
+        var className = tree.classDefinition().IDENTIFIER().getText();
+        var bytecode = compileClasses(tree).get(className);
+        if (bytecode == null) {
+            throw new CompilationException("generic class has no reference instantiation: " + className);
+        }
+        return bytecode;
+    }
+
+    @Override
+    public Map<String, byte[]> compileClasses(ProgramContext tree) {
+        var walker = new SourceTreeWalker();
 
-        var bytecodeTargetListener = new BytecodeTargetListener(target, classMetaManager);
-        walker.walk(bytecodeTargetListener, tree);
-        return bytecodeTargetListener.getBytecode();
+        var result = new LinkedHashMap<String, byte[]>();
+        for (var typeBindings : GenericUtils.getClassBindings(tree)) {
+            var bytecodeTargetListener = new BytecodeTargetListener(options, classMetaManager, typeBindings);
+            walker.walk(bytecodeTargetListener, tree);
+            result.put(bytecodeTargetListener.getClassName(), bytecodeTargetListener.getBytecode());
+        }
+        return result;
     }
 
     @Override
-    public ProgramContext generateTree(String source) {
+    public ProgramContext generateTree(String source, String sourceName) {
         var errorListener = new ExceptionErrorListener();
 
-        var lexer = new SylectLexer(CharStreams.fromString(source));
+        var lexer = new SylectLexer(CharStreams.fromString(source, sourceName));
         lexer.removeErrorListeners();
         lexer.addErrorListener(errorListener);
 
@@ -51,8 +77,9 @@ public class BootstrapCompiler implements SylectCompiler {
 
         var tree = parser.program();
 
-        var classMeta = ClassMeta.fromSylectTree(tree);
-        classMetaManager.addToSourceSet(classMeta);
+        for (var typeBindings : GenericUtils.getClassBindings(tree)) {
+            classMetaManager.addToSourceSet(ClassMeta.fromSylectTree(tree, typeBindings));
+        }
 
         return tree;
     }
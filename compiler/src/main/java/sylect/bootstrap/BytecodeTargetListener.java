@@ -2,13 +2,16 @@
 
 package sylect.bootstrap;
 
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.tree.ParseTree;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.objectweb.asm.Type;
 import sylect.CompilationException;
+import sylect.CompilerOptions;
+import sylect.InliningReport;
 import sylect.SylectBaseListener;
 import sylect.SylectParser;
 import sylect.SylectParser.AssignmentStatementContext;
@@ -17,63 +20,144 @@ import sylect.SylectParser.ConditionalStatementContext;
 import sylect.SylectParser.ElseBranchContext;
 import sylect.SylectParser.ExpressionStatementContext;
 import sylect.SylectParser.FieldDefinitionContext;
+import sylect.SylectParser.ForStatementContext;
+import sylect.SylectParser.FunctionExpressionContext;
+import sylect.SylectParser.LazyFieldDefinitionContext;
 import sylect.SylectParser.LoopStatementContext;
+import sylect.SylectParser.MeasureStatementContext;
 import sylect.SylectParser.MethodDefinitionContext;
+import sylect.SylectParser.ObjectTermContext;
 import sylect.SylectParser.ProgramContext;
+import sylect.SylectParser.RangeExpressionContext;
 import sylect.SylectParser.ReturnStatementContext;
+import sylect.SylectParser.ScopeStatementContext;
+import sylect.SylectParser.StatementContext;
+import sylect.SylectParser.SpawnExpressionContext;
+import sylect.SylectParser.StaticInitializerContext;
+import sylect.SylectParser.SynchronizedStatementContext;
+import sylect.SylectParser.WhenBranchContext;
+import sylect.SylectParser.WhenElseContext;
+import sylect.SylectParser.WhenStatementContext;
 import sylect.bootstrap.context.ClassMetaManager;
+import sylect.bootstrap.context.FinalFieldTracker;
 import sylect.bootstrap.context.ImportManager;
 import sylect.bootstrap.context.ScopeManager;
+import sylect.bootstrap.metadata.ClassMeta;
 import sylect.bootstrap.metadata.FieldMeta;
+import sylect.bootstrap.metadata.LambdaMeta;
 import sylect.bootstrap.metadata.LocalMeta;
 import sylect.bootstrap.metadata.MethodMeta;
+import sylect.bootstrap.metadata.ParallelLoopMeta;
+import sylect.bootstrap.metadata.ParameterMeta;
 import sylect.bootstrap.metadata.TypeMeta;
 import sylect.bootstrap.metadata.TypeMeta.Kind;
+import sylect.bootstrap.metadata.TypeParameterMeta;
 import sylect.bootstrap.metadata.statement.LoopContext;
+import sylect.bootstrap.metadata.statement.GuardedBlock;
+import sylect.bootstrap.metadata.statement.MeasureContext;
+import sylect.bootstrap.metadata.statement.SynchronizedContext;
+import sylect.bootstrap.metadata.statement.WhenContext;
 import sylect.bootstrap.support.AnnotationCompiler;
 import sylect.bootstrap.support.ExpressionCompiler;
+import sylect.bootstrap.support.ForeignCompiler;
+import sylect.bootstrap.support.MeasureCompiler;
+import sylect.bootstrap.support.MemoizeCompiler;
+import sylect.bootstrap.support.ParallelLoopCompiler;
+import sylect.bootstrap.support.ProfilingCompiler;
+import sylect.bootstrap.support.RecordCompiler;
+import sylect.bootstrap.support.StructCompiler;
+import sylect.bootstrap.support.SwitchCompiler;
+import sylect.bootstrap.support.SynchronizedCompiler;
+import sylect.bootstrap.support.TaskCompiler;
 import sylect.bootstrap.util.ClassUtils;
+import sylect.bootstrap.util.GenericUtils;
+import sylect.util.LazyLogger;
 import sylect.util.Pair;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Stack;
+import java.util.stream.Collectors;
 
 public class BytecodeTargetListener extends SylectBaseListener {
-    private static final Logger LOGGER = LoggerFactory.getLogger(BytecodeTargetListener.class);
+    private static final LazyLogger LOGGER = LazyLogger.getLogger(BytecodeTargetListener.class);
 
+    private static final String ITERABLE = "java/lang/Iterable";
+    private static final String ITERATOR = "java/util/Iterator";
+
+    private static final String INLINE_ANNOTATION = "sylect/Inline";
+    private static final String FOREIGN_ANNOTATION = "sylect/Foreign";
+    private static final String MEMOIZE_ANNOTATION = "sylect/Memoize";
+    // Roughly corresponds to bodies HotSpot inlines regardless of call frequency (MaxInlineSize)
+    private static final int AUTO_INLINE_MAX_TOKENS = 16;
+
+    private final CompilerOptions options;
     private final int target;
+    private final Map<String, TypeMeta> typeBindings;
     private final ClassMetaManager classMetaManager;
     private final ImportManager importManager;
     private final ScopeManager scopeManager;
 
     private final ClassWriter cw;
     private final AnnotationCompiler annotationCompiler;
+    private final ForeignCompiler foreignCompiler;
+    private final MemoizeCompiler memoizeCompiler;
 
     private MethodMeta methodMeta;
     private MethodVisitor mv;
     private Label methodStart;
     private Label methodEnd;
+    // Whether the last statement compiled is a return, then code after it would be unreachable
+    private boolean endsWithReturn;
 
     private final Stack<Pair<Label, Label>> conditionalBlocks;
+    private final Stack<WhenContext> whenBlocks;
     private final Stack<LoopContext> loopBlocks;
+    private final Stack<Runnable> forLoopEnds;
+    private final Stack<GuardedBlock> guardedBlocks;
+    private final FinalFieldTracker finalFields;
+
+    // Loop compiled into current synthetic method, its body cannot return
+    private ParallelLoopMeta parallelLoop;
 
-    public BytecodeTargetListener(int target, ClassMetaManager classMetaManager) {
-        this.target = target;
+    public BytecodeTargetListener(CompilerOptions options, ClassMetaManager classMetaManager) {
+        this(options, classMetaManager, Map.of());
+    }
+
+    /**
+     * @param typeBindings types bound to type parameters of generic class, determine the instantiation to compile
+     */
+    public BytecodeTargetListener(
+            CompilerOptions options, ClassMetaManager classMetaManager, Map<String, TypeMeta> typeBindings) {
+        this.options = options;
+        this.target = options.target();
+        this.typeBindings = typeBindings;
 
         this.classMetaManager = classMetaManager;
         this.importManager = new ImportManager();
-        this.scopeManager = new ScopeManager(classMetaManager, importManager);
+        this.scopeManager = new ScopeManager(options, classMetaManager, importManager);
 
         this.cw = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES);
         this.annotationCompiler = new AnnotationCompiler(classMetaManager, importManager);
+        this.foreignCompiler = new ForeignCompiler(cw);
+        this.memoizeCompiler = new MemoizeCompiler();
 
         this.conditionalBlocks = new Stack<>();
+        this.whenBlocks = new Stack<>();
         this.loopBlocks = new Stack<>();
+        this.forLoopEnds = new Stack<>();
+        this.guardedBlocks = new Stack<>();
+        this.finalFields = new FinalFieldTracker();
     }
 
     @Override
     public void enterProgram(ProgramContext ctx) {
         LOGGER.debug("program start");
         importManager.enterSource(ctx);
+        importManager.bindTypeParameters(typeBindings);
     }
 
     @Override
@@ -81,57 +165,306 @@ public class BytecodeTargetListener extends SylectBaseListener {
         var classMeta = scopeManager.enterClass(ctx);
         LOGGER.debug("class definition: {}", classMeta);
 
+        checkInheritance(classMeta);
+
+        // Interfaces are listed in declaration order to match the signature
+        var interfaces = ctx.interfaceClass().stream()
+                .map(iface -> GenericUtils.resolveClassName(
+                        importManager, iface.IDENTIFIER().getText(), iface.typeArguments()))
+                .toArray(String[]::new);
         cw.visit(ClassUtils.getVersion(target),
                 Opcodes.ACC_PUBLIC +
-                        (classMeta.iface() ? Opcodes.ACC_INTERFACE + Opcodes.ACC_ABSTRACT : Opcodes.ACC_SUPER),
+                        (classMeta.iface() ? Opcodes.ACC_INTERFACE + Opcodes.ACC_ABSTRACT : Opcodes.ACC_SUPER) +
+                        (classMeta.isFinal() ? Opcodes.ACC_FINAL : 0),
                 classMeta.name(),
-                null,
+                GenericUtils.getClassSignature(classMetaManager, importManager, ctx, classMeta.baseClassName()),
                 classMeta.baseClassName(),
-                classMeta.interfaces().toArray(String[]::new));
-        annotationCompiler.visitAnnotationBlock(ctx.annotationBlock(), desc -> cw.visitAnnotation(desc, true));
+                interfaces);
+        if (options.debugLevel().sourceFile()) {
+            cw.visitSource(getSourceFileName(ctx), null);
+        }
+        // Counters are dynamic constants bootstrapped by the runtime library, which is compiled for Java 17
+        if (options.profiling() && target < 17) {
+            throw new CompilationException("profiling requires target 17 or higher");
+        }
+        // Generated code uses runtime library, which should be available to the project
+        if (options.profiling()) {
+            classMetaManager.resolveClass(ProfilingCompiler.PROFILER);
+        }
+
+        // Older JVMs don't enforce sealed hierarchies, it's only checked during compilation then
+        if (target >= 17) {
+            classMeta.permittedSubclasses().stream().sorted().forEach(cw::visitPermittedSubclass);
+        }
+
+        if (classMeta.isRecord()) {
+            var programCtx = (ProgramContext) ctx.getParent();
+            var declaredMethods = programCtx.methodDefinition().stream()
+                    .flatMap(methodCtx -> MethodMeta.instantiationsFromContext(importManager, methodCtx).stream())
+                    .collect(Collectors.toSet());
+            new RecordCompiler(cw, target).compile(classMeta, ClassMeta.getRecordComponents(programCtx), declaredMethods);
+        }
+
+        if (classMeta.isStruct()) {
+            if (target < 22) {
+                throw new CompilationException("structs require target 22 or higher");
+            }
+            new StructCompiler(cw).compile(classMeta, ClassMeta.getStructFields((ProgramContext) ctx.getParent()));
+        }
+
+        annotationCompiler.visitAnnotationBlock(ctx.annotationBlock(), cw::visitAnnotation);
+
+        collectInlineCandidates((ProgramContext) ctx.getParent());
+    }
+
+    private void checkInheritance(ClassMeta classMeta) {
+        var supertypes = new ArrayList<>(classMeta.interfaces());
+        if (!classMeta.iface()) {
+            supertypes.add(classMeta.baseClassName());
+        }
+
+        for (var supertypeName : supertypes) {
+            var supertype = classMetaManager.resolveClass(supertypeName);
+            if (supertype.isFinal()) {
+                throw new CompilationException("could not extend final class: " + supertypeName);
+            }
+            if (supertype.isSealed() && !supertype.permittedSubclasses().contains(classMeta.name())) {
+                throw new CompilationException("class is not permitted to extend sealed class: " + supertypeName);
+            }
+        }
+
+        if (classMeta.iface()) {
+            return;
+        }
+
+        var baseClass = classMetaManager.resolveClass(classMeta.baseClassName());
+        for (var method : classMeta.methods()) {
+            if (method.isStatic() || "<init>".equals(method.name())) {
+                continue;
+            }
+
+            var parameterTypes = method.parameters().stream().map(ParameterMeta::type).toList();
+            var overridden = scopeManager.getMethod(baseClass, method.name(), parameterTypes);
+            if (overridden != null && overridden.isFinal()) {
+                throw new CompilationException("could not override final method: " + method.name());
+            }
+        }
+    }
+
+    private void collectInlineCandidates(ProgramContext ctx) {
+        for (var methodCtx : ctx.methodDefinition()) {
+            // Instantiations of generic methods are small enough for JIT to inline them
+            if (methodCtx.typeParameters() != null) {
+                continue;
+            }
+            // Calls of memoized methods have to go through the cache
+            if (annotationCompiler.hasAnnotation(methodCtx.annotationBlock(), MEMOIZE_ANNOTATION)) {
+                continue;
+            }
+
+            var annotated = annotationCompiler.hasAnnotation(methodCtx.annotationBlock(), INLINE_ANNOTATION);
+            var methodMeta = MethodMeta.fromContext(importManager, methodCtx);
+
+            var body = getInlinableBody(methodMeta, methodCtx);
+            if (body == null) {
+                if (annotated) {
+                    LOGGER.warn("method can't be inlined: {}", methodMeta.name());
+                }
+                continue;
+            }
+
+            var small = body.getStop().getTokenIndex() - body.getStart().getTokenIndex() < AUTO_INLINE_MAX_TOKENS;
+            if ((annotated && options.inlineAnnotated()) || (small && options.inlineAutomatically())) {
+                LOGGER.debug("inline candidate: {}", methodMeta);
+                scopeManager.addInlineCandidate(methodMeta, body);
+            }
+        }
+    }
+
+    /**
+     * Only static methods that consist of a single return statement (or a single expression for void methods)
+     * can be inlined, so that their body could be compiled as a part of calling expression.
+     */
+    private static SylectParser.ExpressionContext getInlinableBody(MethodMeta methodMeta, MethodDefinitionContext ctx) {
+        if (!methodMeta.isStatic() || ctx.codeBlock() == null || ctx.codeBlock().statement().size() != 1) {
+            return null;
+        }
+
+        var statement = ctx.codeBlock().statement(0);
+        var body = methodMeta.returnType().kind() == Kind.VOID ?
+                Optional.ofNullable(statement.expressionStatement())
+                        .map(ExpressionStatementContext::expression)
+                        .orElse(null) :
+                Optional.ofNullable(statement.returnStatement())
+                        .map(ReturnStatementContext::expression)
+                        .orElse(null);
+
+        // Lambdas are compiled to separate methods, capturing locals of inlined method is not supported
+        return body == null || containsLambda(body) ? null : body;
+    }
+
+    private static boolean containsLambda(ParseTree tree) {
+        if (tree instanceof FunctionExpressionContext || tree instanceof SpawnExpressionContext) {
+            return true;
+        }
+        for (int i = 0; i < tree.getChildCount(); i++) {
+            if (containsLambda(tree.getChild(i))) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
     public void enterFieldDefinition(FieldDefinitionContext ctx) {
-        var fieldMeta = FieldMeta.fromContext(importManager, ctx);
+        // Fields of records are implicitly final, so class meta is used
+        var fieldMeta = scopeManager.getField(ctx.IDENTIFIER().getText());
         LOGGER.debug("field definition: {}", fieldMeta);
 
+        // Instance fields of structs are stored in memory segment
+        if (scopeManager.getClassMeta().isStruct() && !fieldMeta.isStatic()) {
+            if (ctx.annotationBlock() != null) {
+                throw new CompilationException("struct fields cannot be annotated: " + fieldMeta.name());
+            }
+            if (fieldMeta.isVolatile()) {
+                throw new CompilationException("struct fields cannot be volatile: " + fieldMeta.name());
+            }
+            return;
+        }
+
+        // Interfaces can only have constants, which are always public
+        var iface = scopeManager.getClassMeta().iface();
         var fv = cw.visitField(
-                Opcodes.ACC_PROTECTED + (fieldMeta.isStatic() ? Opcodes.ACC_STATIC : 0),
+                (iface ? Opcodes.ACC_PUBLIC : Opcodes.ACC_PROTECTED) +
+                        (fieldMeta.isStatic() ? Opcodes.ACC_STATIC : 0) +
+                        (fieldMeta.isFinal() ? Opcodes.ACC_FINAL : 0) +
+                        (fieldMeta.isVolatile() ? Opcodes.ACC_VOLATILE : 0),
                 fieldMeta.name(),
                 fieldMeta.asDescriptor(),
-                null,
-                null);
-        annotationCompiler.visitAnnotationBlock(ctx.annotationBlock(), desc -> fv.visitAnnotation(desc, true));
+                GenericUtils.getFieldSignature(importManager, ctx.type()),
+                fieldMeta.constantValue());
+        annotationCompiler.visitAnnotationBlock(ctx.annotationBlock(), fv::visitAnnotation);
     }
 
     @Override
     public void enterMethodDefinition(MethodDefinitionContext ctx) {
+        if (ctx.typeParameters() != null) {
+            compileGenericMethod(ctx);
+        } else {
+            visitMethodDefinitionStart(ctx);
+        }
+    }
+
+    /**
+     * Compiles method body for each combination of types its type parameters can take.
+     */
+    private void compileGenericMethod(MethodDefinitionContext ctx) {
+        var typeParameters = TypeParameterMeta.fromContext(importManager, ctx.typeParameters());
+        var walker = new SourceTreeWalker();
+        for (var binding : GenericUtils.getBindings(typeParameters)) {
+            importManager.bindTypeParameters(binding);
+            visitMethodDefinitionStart(ctx);
+            walker.walkChildren(this, ctx);
+            visitMethodDefinitionEnd();
+            importManager.unbindTypeParameters(binding.keySet());
+        }
+    }
+
+    private void visitMethodDefinitionStart(MethodDefinitionContext ctx) {
         methodMeta = scopeManager.enterMethod(ctx);
         LOGGER.debug("method definition start: {}", methodMeta);
 
+        var foreignParameters = methodMeta.isNative() ?
+                annotationCompiler.getAnnotationParameters(ctx.annotationBlock(), FOREIGN_ANNOTATION) : null;
+
         mv = cw.visitMethod(Opcodes.ACC_PUBLIC +
                         (methodMeta.isStatic() ? Opcodes.ACC_STATIC : 0) +
-                        (methodMeta.isNative() ? Opcodes.ACC_NATIVE : 0) +
-                        (methodMeta.isAbstract() ? Opcodes.ACC_ABSTRACT : 0),
+                        (methodMeta.isNative() && foreignParameters == null ? Opcodes.ACC_NATIVE : 0) +
+                        (methodMeta.isAbstract() ? Opcodes.ACC_ABSTRACT : 0) +
+                        (methodMeta.isFinal() ? Opcodes.ACC_FINAL : 0),
                 methodMeta.name(),
                 methodMeta.asDescriptor(),
-                null,
+                GenericUtils.getMethodSignature(classMetaManager, importManager, ctx, methodMeta.asDescriptor()),
                 null);
 
-        annotationCompiler.visitAnnotationBlock(ctx.annotationBlock(), desc -> mv.visitAnnotation(desc, true));
+        annotationCompiler.visitAnnotationBlock(ctx.annotationBlock(), mv::visitAnnotation);
         for (int i = 0; i < ctx.parameter().size(); i++) {
             int index = i; // Lambda needs a final variable
             annotationCompiler.visitAnnotationBlock(
                     ctx.parameter(i).annotationBlock(),
-                    desc -> mv.visitParameterAnnotation(index, desc, true));
+                    (desc, visible) -> mv.visitParameterAnnotation(index, desc, visible));
         }
 
-        methodStart = new Label();
-        methodEnd = new Label();
-        mv.visitLabel(methodStart);
+        var memoizeParameters = annotationCompiler.getAnnotationParameters(ctx.annotationBlock(), MEMOIZE_ANNOTATION);
+        if (memoizeParameters != null) {
+            compileMemoizedMethod(memoizeParameters);
+        }
 
-        scopeManager.forEachLocal(this::visitLocalVariable);
+        visitMethodStart();
+
+        if (options.profiling() && !methodMeta.isAbstract() && (!methodMeta.isNative() || foreignParameters != null)) {
+            new ProfilingCompiler(mv).compileMethodCounter(scopeManager.getMethodName(), ctx.getStart().getLine());
+        }
+
+        if (foreignParameters != null) {
+            compileForeignMethod(foreignParameters);
+        }
+    }
+
+    /**
+     * Native method annotated as foreign calls C function through FFM API instead of being bound with JNI.
+     */
+    private void compileForeignMethod(Map<String, String> parameters) {
+        if (target < 22) {
+            throw new CompilationException("foreign methods require target 22 or higher");
+        }
+        if (!methodMeta.isStatic()) {
+            throw new CompilationException("foreign methods must be static: " + methodMeta.name());
+        }
+
+        var symbol = parameters.getOrDefault("symbol", "");
+        foreignCompiler.compile(
+                scopeManager.getClassMeta(), methodMeta, mv,
+                parameters.getOrDefault("library", ""),
+                symbol.isEmpty() ? methodMeta.name() : symbol,
+                Boolean.parseBoolean(parameters.get("critical")));
+    }
+
+    /**
+     * Memoized method looks up the cache, the body is compiled into implementation method called on cache miss.
+     * Since method meta stays the same, recursive calls in the body go through the cache as well,
+     * except self tail calls that are still compiled into jumps.
+     */
+    private void compileMemoizedMethod(Map<String, String> parameters) {
+        // Caches are runtime library classes, which are compiled for Java 17
+        if (target < 17) {
+            throw new CompilationException("memoized methods require target 17 or higher");
+        }
+
+        var maxSize = parameters.getOrDefault("maxSize", "10000");
+        int cacheSize;
+        try {
+            cacheSize = Integer.parseInt(maxSize);
+        } catch (NumberFormatException e) {
+            throw new CompilationException("maxSize of memoized method should be an integer: " + maxSize, e);
+        }
+
+        var threadSafe = Boolean.parseBoolean(parameters.get("threadSafe"));
+        classMetaManager.resolveClass(MemoizeCompiler.getCacheClassName(methodMeta, threadSafe));
+        memoizeCompiler.compile(scopeManager.getClassMeta(), methodMeta, mv, cacheSize, threadSafe);
+
+        mv = cw.visitMethod(Opcodes.ACC_PRIVATE + Opcodes.ACC_STATIC + Opcodes.ACC_SYNTHETIC,
+                MemoizeCompiler.getImplementationName(methodMeta), methodMeta.asDescriptor(), null, null);
+    }
+
+    @Override
+    public void enterStatement(StatementContext ctx) {
+        ClassUtils.visitLineNumber(mv, options, ctx.getStart().getLine());
+    }
+
+    @Override
+    public void exitStatement(StatementContext ctx) {
+        endsWithReturn = ctx.returnStatement() != null;
     }
 
     @Override
@@ -154,8 +487,13 @@ public class BytecodeTargetListener extends SylectBaseListener {
         if (localMeta != null) {
             LOGGER.debug("assignment statement: {} to {}", ctx.expression().getText(), localMeta);
 
+            if (scopeManager.isReadOnlyLocal(name)) {
+                throw new CompilationException("captured variable cannot be assigned inside lambda: " + name);
+            }
+            scopeManager.assignLocal(localMeta);
+
             var expressionType = new ExpressionCompiler(classMetaManager, importManager, scopeManager, mv)
-                    .compile(ctx.expression());
+                    .compile(ctx.expression(), localMeta.type());
             if (!expressionType.equals(localMeta.type())) {
                 throw new CompilationException("cannot assign " + expressionType + " to " + localMeta.type());
             }
@@ -178,6 +516,10 @@ public class BytecodeTargetListener extends SylectBaseListener {
     public void enterExpressionStatement(ExpressionStatementContext ctx) {
         LOGGER.debug("expression statement: {}", ctx.expression().getText());
 
+        if ("<init>".equals(methodMeta.name()) && ctx.expression().getText().startsWith("constructor(")) {
+            finalFields.delegate();
+        }
+
         var expressionType = new ExpressionCompiler(classMetaManager, importManager, scopeManager, mv)
                 .compile(ctx.expression());
         switch (expressionType.getLocalSize()) {
@@ -192,8 +534,8 @@ public class BytecodeTargetListener extends SylectBaseListener {
 
         var expressionType = new ExpressionCompiler(classMetaManager, importManager, scopeManager, mv)
                 .compile(ctx.expression());
-        if (expressionType.kind() != Kind.INTEGER) {
-            throw new CompilationException("expected integer return type: " + ctx.expression().getText());
+        if (!expressionType.isConditionType()) {
+            throw new CompilationException("expected integer or bool type: " + ctx.expression().getText());
         }
 
         var elseBranch = new Label();
@@ -206,6 +548,9 @@ public class BytecodeTargetListener extends SylectBaseListener {
             mv.visitJumpInsn(Opcodes.IFEQ, elseBranch);
             conditionalBlocks.push(new Pair<>(elseBranch, otherCode));
         }
+
+        finalFields.enterBranches();
+        finalFields.enterBranch();
     }
 
     @Override
@@ -215,6 +560,9 @@ public class BytecodeTargetListener extends SylectBaseListener {
         var conditionalBlock = conditionalBlocks.peek();
         mv.visitJumpInsn(Opcodes.GOTO, conditionalBlock.right());
         mv.visitLabel(conditionalBlock.left());
+
+        finalFields.exitBranch();
+        finalFields.enterBranch();
     }
 
     @Override
@@ -223,6 +571,57 @@ public class BytecodeTargetListener extends SylectBaseListener {
 
         var conditionalBlock = conditionalBlocks.pop();
         mv.visitLabel(conditionalBlock.right());
+
+        finalFields.exitBranch();
+        finalFields.exitBranches(ctx.elseBranch() != null);
+    }
+
+    @Override
+    public void enterWhenStatement(WhenStatementContext ctx) {
+        LOGGER.debug("when statement start: {}", ctx.expression().getText());
+
+        var branches = new HashMap<WhenBranchContext, Label>();
+        ctx.whenBranch().forEach(branch -> branches.put(branch, new Label()));
+
+        var otherCode = new Label();
+        var whenContext = new WhenContext(branches, ctx.whenElse() == null ? otherCode : new Label(), otherCode);
+
+        new SwitchCompiler(classMetaManager, importManager, scopeManager, mv).compile(ctx, whenContext);
+        whenBlocks.push(whenContext);
+        finalFields.enterBranches();
+    }
+
+    @Override
+    public void enterWhenBranch(WhenBranchContext ctx) {
+        LOGGER.debug("when statement branch: {}", ctx.whenKey().size());
+        mv.visitLabel(whenBlocks.peek().branches().get(ctx));
+        finalFields.enterBranch();
+    }
+
+    @Override
+    public void exitWhenBranch(WhenBranchContext ctx) {
+        // There is no fall-through between branches
+        mv.visitJumpInsn(Opcodes.GOTO, whenBlocks.peek().otherCode());
+        finalFields.exitBranch();
+    }
+
+    @Override
+    public void enterWhenElse(WhenElseContext ctx) {
+        LOGGER.debug("when statement: else");
+        mv.visitLabel(whenBlocks.peek().elseBranch());
+        finalFields.enterBranch();
+    }
+
+    @Override
+    public void exitWhenElse(WhenElseContext ctx) {
+        finalFields.exitBranch();
+    }
+
+    @Override
+    public void exitWhenStatement(WhenStatementContext ctx) {
+        LOGGER.debug("when statement end: {}", ctx.expression().getText());
+        mv.visitLabel(whenBlocks.pop().otherCode());
+        finalFields.exitBranches(ctx.whenElse() != null);
     }
 
     @Override
@@ -238,8 +637,8 @@ public class BytecodeTargetListener extends SylectBaseListener {
 
         var expressionType = new ExpressionCompiler(classMetaManager, importManager, scopeManager, mv)
                 .compile(ctx.expression());
-        if (expressionType.kind() != Kind.INTEGER) {
-            throw new CompilationException("expected integer return type: " + ctx.expression().getText());
+        if (!expressionType.isConditionType()) {
+            throw new CompilationException("expected integer or bool type: " + ctx.expression().getText());
         }
 
         mv.visitJumpInsn(Opcodes.IFEQ, otherCode);
@@ -252,9 +651,25 @@ public class BytecodeTargetListener extends SylectBaseListener {
         if (loopBlocks.empty()) {
             throw new CompilationException("break/continue should be inside loop");
         }
+        var taskScope = scopeManager.getTaskScope();
+        if (taskScope != null && taskScope.loopDepth() == loopBlocks.size()) {
+            throw new CompilationException("break/continue cannot leave scope block");
+        }
         var currentLoop = loopBlocks.peek();
 
+        // Monitors entered and events started inside the loop are finished, since the jump leaves their blocks
+        for (int i = guardedBlocks.size() - 1; i >= 0; i--) {
+            var block = guardedBlocks.get(i);
+            if (block.loopDepth() < loopBlocks.size()) {
+                break;
+            }
+            compileGuardedBlockExit(block);
+        }
+
         if ("break".equals(ctx.getText())) {
+            if (currentLoop.otherCode() == null) {
+                throw new CompilationException("break is not allowed in parallel loop");
+            }
             mv.visitJumpInsn(Opcodes.GOTO, currentLoop.otherCode());
         } else {
             mv.visitJumpInsn(Opcodes.GOTO, currentLoop.eachBlock());
@@ -272,20 +687,161 @@ public class BytecodeTargetListener extends SylectBaseListener {
         LOGGER.debug("loop statement end: {}", ctx.expression().getText());
 
         var loopBlock = loopBlocks.pop();
+        if (options.profiling()) {
+            new ProfilingCompiler(mv).compileLoopCounter(scopeManager.getMethodName(), ctx.getStart().getLine());
+        }
         mv.visitJumpInsn(Opcodes.GOTO, loopBlock.loopStart());
         mv.visitLabel(loopBlock.otherCode());
     }
 
+    @Override
+    public void enterForStatement(ForStatementContext ctx) {
+        LOGGER.debug("for statement start: {}", ctx.IDENTIFIER().getText());
+
+        if (ctx.parallelClause() != null) {
+            new ParallelLoopCompiler(classMetaManager, importManager, scopeManager, mv).compile(ctx);
+            return;
+        }
+        if (ctx.reduceClause() != null) {
+            throw new CompilationException("only parallel loops can have reductions: " + ctx.IDENTIFIER().getText());
+        }
+
+        var name = ctx.IDENTIFIER().getText();
+        var body = new Label();
+        var condition = new Label();
+
+        // Loops are rotated: condition is checked at the end of each iteration, like javac does
+        if (ctx.rangeExpression() != null) {
+            compileRangeLoop(name, ctx.rangeExpression(), body, condition);
+        } else {
+            var expressionType = new ExpressionCompiler(classMetaManager, importManager, scopeManager, mv)
+                    .compile(ctx.expression());
+            if (expressionType.isArray()) {
+                compileArrayLoop(name, expressionType, body, condition);
+            } else {
+                compileIterableLoop(name, expressionType, body, condition);
+            }
+        }
+
+        loopBlocks.push(new LoopContext(condition, new Label(), new Label()));
+    }
+
+    @Override
+    public void exitForStatement(ForStatementContext ctx) {
+        LOGGER.debug("for statement end: {}", ctx.IDENTIFIER().getText());
+
+        if (ctx.parallelClause() != null) {
+            return;
+        }
+
+        var loopBlock = loopBlocks.pop();
+        mv.visitLabel(loopBlock.eachBlock());
+        if (options.profiling()) {
+            new ProfilingCompiler(mv).compileLoopCounter(scopeManager.getMethodName(), ctx.getStart().getLine());
+        }
+        forLoopEnds.pop().run();
+        mv.visitLabel(loopBlock.otherCode());
+
+        scopeManager.removeLocal(ctx.IDENTIFIER().getText());
+    }
+
+    @Override
+    public void enterScopeStatement(ScopeStatementContext ctx) {
+        LOGGER.debug("scope statement start");
+
+        new TaskCompiler(classMetaManager, importManager, scopeManager, mv).compileScopeStart(loopBlocks.size());
+    }
+
+    @Override
+    public void exitScopeStatement(ScopeStatementContext ctx) {
+        LOGGER.debug("scope statement end");
+
+        new TaskCompiler(classMetaManager, importManager, scopeManager, mv)
+                .compileScopeEnd(!ctx.codeBlock().statement().isEmpty());
+    }
+
+    @Override
+    public void enterSynchronizedStatement(SynchronizedStatementContext ctx) {
+        LOGGER.debug("synchronized statement start: {}", ctx.expression().getText());
+
+        guardedBlocks.push(new SynchronizedCompiler(classMetaManager, importManager, scopeManager, mv)
+                .compileStart(ctx, loopBlocks.size()));
+    }
+
+    @Override
+    public void exitSynchronizedStatement(SynchronizedStatementContext ctx) {
+        LOGGER.debug("synchronized statement end: {}", ctx.expression().getText());
+
+        new SynchronizedCompiler(classMetaManager, importManager, scopeManager, mv)
+                .compileEnd((SynchronizedContext) guardedBlocks.pop());
+    }
+
+    @Override
+    public void enterMeasureStatement(MeasureStatementContext ctx) {
+        LOGGER.debug("measure statement start: {}", ctx.expression().getText());
+
+        guardedBlocks.push(new MeasureCompiler(classMetaManager, importManager, scopeManager, mv)
+                .compileStart(ctx, loopBlocks.size()));
+    }
+
+    @Override
+    public void exitMeasureStatement(MeasureStatementContext ctx) {
+        LOGGER.debug("measure statement end: {}", ctx.expression().getText());
+
+        new MeasureCompiler(classMetaManager, importManager, scopeManager, mv)
+                .compileCommit((MeasureContext) guardedBlocks.pop());
+    }
+
+    /**
+     * Compiles code finishing the block before control leaves it with return, break or continue.
+     */
+    private void compileGuardedBlockExit(GuardedBlock block) {
+        if (block instanceof SynchronizedContext synchronizedBlock) {
+            new SynchronizedCompiler(classMetaManager, importManager, scopeManager, mv)
+                    .compileRelease(synchronizedBlock);
+        } else if (block instanceof MeasureContext measureBlock) {
+            new MeasureCompiler(classMetaManager, importManager, scopeManager, mv)
+                    .compileCommit(measureBlock);
+        }
+    }
+
     @Override
     public void enterReturnStatement(ReturnStatementContext ctx) {
-        var expressionType = ctx.expression() == null ? new TypeMeta(Kind.VOID, false, null)
-                : new ExpressionCompiler(classMetaManager, importManager, scopeManager, mv).compile(ctx.expression());
+        // Tasks of the scope would be left running
+        if (scopeManager.getTaskScope() != null) {
+            throw new CompilationException("return is not allowed inside scope block");
+        }
+        // Chunk of the range would be left unfinished
+        if (parallelLoop != null) {
+            throw new CompilationException("return is not allowed in parallel loop");
+        }
+        finalFields.exitPath(!loopBlocks.isEmpty());
+
+        var tailCall = findSelfTailCall(ctx);
+        var expressionType = (TypeMeta) null;
+
+        if (tailCall != null) {
+            expressionType = compileSelfTailCall(tailCall);
+            if (expressionType == null) {
+                LOGGER.debug("return statement: tail call to {}", methodMeta.name());
+                return;
+            }
+        } else {
+            expressionType = ctx.expression() == null ? new TypeMeta(Kind.VOID, false, null)
+                    : new ExpressionCompiler(classMetaManager, importManager, scopeManager, mv)
+                            .compile(ctx.expression(), methodMeta.returnType());
+        }
         LOGGER.debug("return statement: {} from {}", expressionType, methodMeta.returnType());
 
         if (!methodMeta.returnType().equals(expressionType)) {
             throw new CompilationException("cannot return " + expressionType + " as " + methodMeta.returnType());
         }
 
+        // Returned value is computed while monitors are still held and events are not ended
+        for (int i = guardedBlocks.size() - 1; i >= 0; i--) {
+            compileGuardedBlockExit(guardedBlocks.get(i));
+        }
+
         if (expressionType.isArray()) {
             mv.visitInsn(Opcodes.ARETURN);
         } else {
@@ -307,10 +863,168 @@ public class BytecodeTargetListener extends SylectBaseListener {
 
     @Override
     public void exitMethodDefinition(MethodDefinitionContext ctx) {
+        // Instantiations of generic methods are completed when they are compiled
+        if (ctx.typeParameters() == null) {
+            visitMethodDefinitionEnd();
+        }
+    }
+
+    private void visitMethodDefinitionEnd() {
         LOGGER.debug("method definition end: {}", methodMeta);
+        visitMethodEnd();
+        compileLambdas();
+    }
 
-        // Guard to protect from lack of return statement
-        if (!methodMeta.isAbstract() && !methodMeta.isNative()) {
+    @Override
+    public void enterStaticInitializer(StaticInitializerContext ctx) {
+        methodMeta = new MethodMeta("<clinit>", true, false, false, new TypeMeta(Kind.VOID, false, null), List.of());
+        scopeManager.enterMethod(methodMeta);
+        LOGGER.debug("static initializer start");
+
+        mv = cw.visitMethod(Opcodes.ACC_STATIC, methodMeta.name(), methodMeta.asDescriptor(), null, null);
+        visitMethodStart();
+    }
+
+    @Override
+    public void exitStaticInitializer(StaticInitializerContext ctx) {
+        LOGGER.debug("static initializer end");
+        visitMethodEnd();
+        compileLambdas();
+    }
+
+    /**
+     * Lazy field body is compiled to a bootstrap method of dynamic constant, parameters are not accessible by name.
+     */
+    @Override
+    public void enterLazyFieldDefinition(LazyFieldDefinitionContext ctx) {
+        if (target < 11) {
+            throw new CompilationException("lazy fields require target 11 or higher");
+        }
+
+        var fieldMeta = FieldMeta.fromContext(importManager, ctx);
+        LOGGER.debug("lazy field definition start: {}", fieldMeta);
+
+        methodMeta = new MethodMeta(
+                ClassUtils.getLazyMethodName(fieldMeta), true, false, false,
+                fieldMeta.type(),
+                List.of(new ParameterMeta("$lookup", new TypeMeta(Kind.CLASS, false, ClassUtils.LOOKUP)),
+                        new ParameterMeta("$name", new TypeMeta(Kind.CLASS, false, "java/lang/String")),
+                        new ParameterMeta("$type", new TypeMeta(Kind.CLASS, false, "java/lang/Class"))));
+        scopeManager.enterMethod(methodMeta);
+
+        mv = cw.visitMethod(Opcodes.ACC_PRIVATE + Opcodes.ACC_STATIC + Opcodes.ACC_SYNTHETIC,
+                methodMeta.name(),
+                ClassUtils.getLazyBootstrapDescriptor(fieldMeta),
+                null,
+                null);
+        visitMethodStart();
+    }
+
+    @Override
+    public void exitLazyFieldDefinition(LazyFieldDefinitionContext ctx) {
+        var fieldMeta = FieldMeta.fromContext(importManager, ctx);
+        LOGGER.debug("lazy field definition end: {}", fieldMeta);
+        visitMethodEnd();
+        compileLambdas();
+
+        var owner = scopeManager.getClassMeta().name();
+        mv = cw.visitMethod(Opcodes.ACC_PUBLIC + Opcodes.ACC_STATIC + Opcodes.ACC_SYNTHETIC,
+                ClassUtils.getLazyMethodName(fieldMeta),
+                "()" + fieldMeta.asDescriptor(),
+                null,
+                null);
+        mv.visitLdcInsn(ClassUtils.getLazyConstant(owner, fieldMeta));
+        mv.visitInsn(Type.getType(fieldMeta.asDescriptor()).getOpcode(Opcodes.IRETURN));
+        mv.visitMaxs(-1, -1);
+        mv.visitEnd();
+    }
+
+    private void compileLambdas() {
+        // Lambdas may be nested, so their synthetic methods may produce other lambdas and parallel loops
+        while (true) {
+            var lambdaMeta = scopeManager.pollLambda();
+            if (lambdaMeta != null) {
+                compileLambda(lambdaMeta);
+                continue;
+            }
+            var parallelLoopMeta = scopeManager.pollParallelLoop();
+            if (parallelLoopMeta == null) {
+                break;
+            }
+            compileParallelLoop(parallelLoopMeta);
+        }
+    }
+
+    private void compileParallelLoop(ParallelLoopMeta parallelLoopMeta) {
+        methodMeta = scopeManager.enterParallelLoop(parallelLoopMeta);
+        LOGGER.debug("parallel loop definition start: {}", methodMeta);
+
+        mv = cw.visitMethod(Opcodes.ACC_PRIVATE + Opcodes.ACC_SYNTHETIC +
+                        (methodMeta.isStatic() ? Opcodes.ACC_STATIC : 0),
+                methodMeta.name(),
+                methodMeta.asDescriptor(),
+                null,
+                null);
+
+        visitMethodStart();
+
+        var parallelLoopCompiler = new ParallelLoopCompiler(classMetaManager, importManager, scopeManager, mv);
+        var chunk = parallelLoopCompiler.compileChunkStart(parallelLoopMeta);
+        visitLocalVariable(chunk.index());
+        chunk.reductions().forEach(this::visitLocalVariable);
+
+        // Iterations of other chunks may still run, so break is not supported
+        parallelLoop = parallelLoopMeta;
+        loopBlocks.push(new LoopContext(chunk.condition(), chunk.eachBlock(), null));
+        new SourceTreeWalker().walk(this, parallelLoopMeta.loop().codeBlock());
+        loopBlocks.pop();
+        parallelLoop = null;
+
+        parallelLoopCompiler.compileChunkEnd(parallelLoopMeta, chunk);
+
+        LOGGER.debug("parallel loop definition end: {}", methodMeta);
+        visitMethodEnd();
+    }
+
+    private void compileLambda(LambdaMeta lambdaMeta) {
+        if (target < 8) {
+            throw new CompilationException("lambdas require target 8 or higher");
+        }
+
+        methodMeta = scopeManager.enterLambda(lambdaMeta);
+        LOGGER.debug("lambda definition start: {}", methodMeta);
+
+        mv = cw.visitMethod(Opcodes.ACC_PRIVATE + Opcodes.ACC_SYNTHETIC +
+                        (methodMeta.isStatic() ? Opcodes.ACC_STATIC : 0),
+                methodMeta.name(),
+                methodMeta.asDescriptor(),
+                null,
+                null);
+
+        visitMethodStart();
+
+        new SourceTreeWalker().walk(this, lambdaMeta.body());
+
+        LOGGER.debug("lambda definition end: {}", methodMeta);
+        visitMethodEnd();
+    }
+
+    private void visitMethodStart() {
+        methodStart = new Label();
+        methodEnd = new Label();
+        mv.visitLabel(methodStart);
+        endsWithReturn = false;
+        finalFields.enterMethod(methodMeta.name(), scopeManager.getClassMeta());
+
+        scopeManager.forEachLocal(this::visitLocalVariable);
+    }
+
+    private void visitMethodEnd() {
+        finalFields.exitMethod();
+
+        // Guard to protect from lack of return statement. It's omitted after return, since ASM would replace
+        // unreachable code with NOPs, which still count towards inlining limits of JIT
+        if (!methodMeta.isAbstract() && !methodMeta.isNative() && !endsWithReturn) {
             if (methodMeta.returnType().kind() == Kind.VOID) {
                 mv.visitInsn(Opcodes.RETURN);
             } else {
@@ -338,11 +1052,41 @@ public class BytecodeTargetListener extends SylectBaseListener {
         cw.visitEnd();
     }
 
+    public String getClassName() {
+        return scopeManager.getClassMeta().name();
+    }
+
+    /**
+     * Warns about methods that JIT won't inline or compile, limits are checked on the final bytecode.
+     */
     public byte[] getBytecode() {
-        return cw.toByteArray();
+        var bytecode = cw.toByteArray();
+        if (scopeManager.getClassMeta().isRecord() && RecordCompiler.isPlainClass(target)) {
+            bytecode = RecordCompiler.toPlainClass(bytecode);
+        }
+        for (var method : InliningReport.analyze(bytecode)) {
+            for (var warning : method.warnings()) {
+                LOGGER.warn("{}: {}", method, warning);
+            }
+        }
+        return bytecode;
+    }
+
+    /**
+     * Sources compiled from strings have no name, then the file is assumed to be named after the class.
+     */
+    private static String getSourceFileName(ClassDefinitionContext ctx) {
+        var sourceName = ctx.getStart().getInputStream().getSourceName();
+        if (sourceName == null || IntStream.UNKNOWN_SOURCE_NAME.equals(sourceName)) {
+            return ClassMeta.shortClassName(ctx.IDENTIFIER().getText()) + ".sy";
+        }
+        return sourceName;
     }
 
     private void visitLocalVariable(LocalMeta localMeta) {
+        if (!options.debugLevel().localVariables()) {
+            return;
+        }
         mv.visitLocalVariable(
                 localMeta.name(),
                 localMeta.type().asDescriptor(), null,
@@ -350,16 +1094,253 @@ public class BytecodeTargetListener extends SylectBaseListener {
                 localMeta.offset());
     }
 
+    /**
+     * Finds "return method(args)" where method has the same name as current one and cannot be overridden.
+     */
+    private ObjectTermContext findSelfTailCall(ReturnStatementContext ctx) {
+        // Jump to method start would skip releasing monitors and committing events
+        if (!methodMeta.isStatic() || ctx.expression() == null || !guardedBlocks.isEmpty()) {
+            return null;
+        }
+
+        var expression = ctx.expression();
+        if (expression.andExpression().size() != 1 || expression.andExpression(0).mathExpression().size() != 1) {
+            return null;
+        }
+
+        var mathExpression = expression.andExpression(0).mathExpression(0);
+        if (mathExpression.mathTerm().size() != 1) {
+            return null;
+        }
+
+        var mathTerm = mathExpression.mathTerm(0);
+        if (!mathTerm.unaryOperator().isEmpty() || mathTerm.objectExpression() == null ||
+                mathTerm.objectExpression().objectTerm().size() != 1) {
+            return null;
+        }
+
+        var objectTerm = mathTerm.objectExpression().objectTerm(0);
+        if (objectTerm.memberName() == null || !objectTerm.getText().contains("(") ||
+                objectTerm.getText().startsWith("super")) {
+            return null;
+        }
+
+        // Instantiation of generic method may call itself with the same type arguments
+        var calledName = objectTerm.memberName().getText();
+        if (objectTerm.typeArguments() != null) {
+            calledName = GenericUtils.getSpecializedName(
+                    calledName, GenericUtils.getTypeArguments(importManager, objectTerm.typeArguments()));
+        }
+        if (!methodMeta.name().equals(calledName)) {
+            return null;
+        }
+
+        // Calls to identifiers which are class names construct objects
+        try {
+            classMetaManager.resolveClass(importManager.resolveImport(methodMeta.name()));
+            return null;
+        } catch (CompilationException e) {
+            return objectTerm;
+        }
+    }
+
+    /**
+     * Replaces self tail call with parameter assignment and jump to method start.
+     * When arguments do not match parameters (e.g. overloaded method is called), makes a usual call instead.
+     *
+     * @return type of called method or null if tail call was eliminated
+     */
+    private TypeMeta compileSelfTailCall(ObjectTermContext ctx) {
+        var argumentTypes = ctx.expression().stream()
+                .map(expressionCtx -> new ExpressionCompiler(classMetaManager, importManager, scopeManager, mv)
+                        .compile(expressionCtx))
+                .toList();
+
+        var parameters = methodMeta.parameters();
+        if (argumentTypes.equals(parameters.stream().map(ParameterMeta::type).toList())) {
+            // All arguments are evaluated before any parameter is changed
+            for (int i = parameters.size() - 1; i >= 0; i--) {
+                var parameter = scopeManager.getLocal(parameters.get(i).name());
+                assignLocalVariable(parameter, parameter.type());
+            }
+            mv.visitJumpInsn(Opcodes.GOTO, methodStart);
+            return null;
+        }
+
+        var classMeta = scopeManager.getClassMeta();
+        var calledMethod = scopeManager.getMethod(classMeta, methodMeta.name(), argumentTypes);
+        if (calledMethod == null) {
+            throw new CompilationException("unknown method: " + methodMeta.name() + " in " + classMeta);
+        }
+        if (!calledMethod.isStatic()) {
+            throw new CompilationException("method is not static: " + calledMethod.name() + " in " + classMeta.name());
+        }
+
+        mv.visitMethodInsn(
+                Opcodes.INVOKESTATIC, classMeta.name(), calledMethod.name(), calledMethod.asDescriptor(), false);
+        return calledMethod.returnType();
+    }
+
+    private void compileRangeLoop(String name, RangeExpressionContext ctx, Label body, Label condition) {
+        var startType = new ExpressionCompiler(classMetaManager, importManager, scopeManager, mv)
+                .compile(ctx.expression(0));
+        var endType = new ExpressionCompiler(classMetaManager, importManager, scopeManager, mv)
+                .compile(ctx.expression(1));
+        if (!startType.equals(endType)) {
+            throw new CompilationException("range bounds type mismatch: " + startType + " and " + endType);
+        }
+        if (startType.isArray() || (startType.kind() != Kind.INTEGER && startType.kind() != Kind.LONG)) {
+            throw new CompilationException("range bounds should be int or long: " + startType);
+        }
+
+        // Upper bound is evaluated only once
+        var limit = scopeManager.addSyntheticLocal(endType);
+        assignLocalVariable(limit, endType);
+
+        var variable = scopeManager.addLocal(name, startType);
+        visitLocalVariable(variable);
+        assignLocalVariable(variable, startType);
+
+        mv.visitJumpInsn(Opcodes.GOTO, condition);
+        mv.visitLabel(body);
+
+        forLoopEnds.push(() -> {
+            if (startType.kind() == Kind.INTEGER) {
+                mv.visitIincInsn(variable.offset(), 1);
+            } else {
+                mv.visitVarInsn(Opcodes.LLOAD, variable.offset());
+                mv.visitInsn(Opcodes.LCONST_1);
+                mv.visitInsn(Opcodes.LADD);
+                mv.visitVarInsn(Opcodes.LSTORE, variable.offset());
+            }
+
+            mv.visitLabel(condition);
+            loadLocalVariable(variable);
+            loadLocalVariable(limit);
+            if (startType.kind() == Kind.INTEGER) {
+                mv.visitJumpInsn(Opcodes.IF_ICMPLT, body);
+            } else {
+                mv.visitInsn(Opcodes.LCMP);
+                mv.visitJumpInsn(Opcodes.IFLT, body);
+            }
+        });
+    }
+
+    private void compileArrayLoop(String name, TypeMeta arrayType, Label body, Label condition) {
+        var intType = new TypeMeta(Kind.INTEGER, false, null);
+
+        // Both array and its length are evaluated only once
+        var array = scopeManager.addSyntheticLocal(arrayType);
+        assignLocalVariable(array, arrayType);
+
+        var length = scopeManager.addSyntheticLocal(intType);
+        loadLocalVariable(array);
+        mv.visitInsn(Opcodes.ARRAYLENGTH);
+        assignLocalVariable(length, intType);
+
+        var index = scopeManager.addSyntheticLocal(intType);
+        mv.visitInsn(Opcodes.ICONST_0);
+        assignLocalVariable(index, intType);
+
+        var elementType = arrayType.arrayElementType();
+        var variable = scopeManager.addLocal(name, elementType);
+        visitLocalVariable(variable);
+
+        mv.visitJumpInsn(Opcodes.GOTO, condition);
+        mv.visitLabel(body);
+
+        loadLocalVariable(array);
+        loadLocalVariable(index);
+        switch (elementType.kind()) {
+            case INTEGER -> mv.visitInsn(Opcodes.IALOAD);
+            case LONG -> mv.visitInsn(Opcodes.LALOAD);
+            case FLOAT -> mv.visitInsn(Opcodes.FALOAD);
+            case DOUBLE -> mv.visitInsn(Opcodes.DALOAD);
+            case CLASS -> mv.visitInsn(Opcodes.AALOAD);
+
+            case BOOLEAN, BYTE -> mv.visitInsn(Opcodes.BALOAD);
+            case CHAR -> mv.visitInsn(Opcodes.CALOAD);
+            case SHORT -> mv.visitInsn(Opcodes.SALOAD);
+
+            default -> throw new CompilationException("unsupported array type: " + arrayType);
+        }
+        assignLocalVariable(variable, elementType);
+
+        forLoopEnds.push(() -> {
+            mv.visitIincInsn(index.offset(), 1);
+
+            mv.visitLabel(condition);
+            loadLocalVariable(index);
+            loadLocalVariable(length);
+            mv.visitJumpInsn(Opcodes.IF_ICMPLT, body);
+        });
+    }
+
+    private void compileIterableLoop(String name, TypeMeta iterableType, Label body, Label condition) {
+        if (iterableType.kind() != Kind.CLASS) {
+            throw new CompilationException("expected array or iterable: " + iterableType);
+        }
+
+        var classMeta = classMetaManager.resolveClass(iterableType.className());
+        if (!classMetaManager.isSubclassOf(classMeta, ITERABLE)) {
+            throw new CompilationException("expected array or iterable: " + iterableType);
+        }
+
+        mv.visitMethodInsn(
+                classMeta.iface() ? Opcodes.INVOKEINTERFACE : Opcodes.INVOKEVIRTUAL,
+                classMeta.name(), "iterator", "()L" + ITERATOR + ";", classMeta.iface());
+
+        var iteratorType = new TypeMeta(Kind.CLASS, false, ITERATOR);
+        var iterator = scopeManager.addSyntheticLocal(iteratorType);
+        assignLocalVariable(iterator, iteratorType);
+
+        var elementType = new TypeMeta(Kind.CLASS, false, ClassMeta.JAVA_OBJECT);
+        var variable = scopeManager.addLocal(name, elementType);
+        visitLocalVariable(variable);
+
+        mv.visitJumpInsn(Opcodes.GOTO, condition);
+        mv.visitLabel(body);
+
+        loadLocalVariable(iterator);
+        mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, ITERATOR, "next", "()Ljava/lang/Object;", true);
+        assignLocalVariable(variable, elementType);
+
+        forLoopEnds.push(() -> {
+            mv.visitLabel(condition);
+            loadLocalVariable(iterator);
+            mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, ITERATOR, "hasNext", "()Z", true);
+            mv.visitJumpInsn(Opcodes.IFNE, body);
+        });
+    }
+
+    private void loadLocalVariable(LocalMeta localMeta) {
+        if (localMeta.type().isArray()) {
+            mv.visitVarInsn(Opcodes.ALOAD, localMeta.offset());
+        } else {
+            switch (localMeta.type().kind()) {
+                case INTEGER, BOOLEAN, BYTE, CHAR, SHORT -> mv.visitVarInsn(Opcodes.ILOAD, localMeta.offset());
+                case LONG -> mv.visitVarInsn(Opcodes.LLOAD, localMeta.offset());
+                case FLOAT -> mv.visitVarInsn(Opcodes.FLOAD, localMeta.offset());
+                case DOUBLE -> mv.visitVarInsn(Opcodes.DLOAD, localMeta.offset());
+                case CLASS -> mv.visitVarInsn(Opcodes.ALOAD, localMeta.offset());
+                default -> throw new CompilationException("unsupported variable type: " + localMeta.type());
+            }
+        }
+    }
+
     private void assignLocalVariable(LocalMeta localMeta, TypeMeta expressionType) {
         if (expressionType.isArray()) {
-            mv.visitIntInsn(Opcodes.ASTORE, localMeta.offset());
+            mv.visitVarInsn(Opcodes.ASTORE, localMeta.offset());
         } else {
             switch (expressionType.kind()) {
-                case INTEGER -> mv.visitIntInsn(Opcodes.ISTORE, localMeta.offset());
-                case LONG -> mv.visitIntInsn(Opcodes.LSTORE, localMeta.offset());
-                case FLOAT -> mv.visitIntInsn(Opcodes.FSTORE, localMeta.offset());
-                case DOUBLE -> mv.visitIntInsn(Opcodes.DSTORE, localMeta.offset());
-                case CLASS -> mv.visitIntInsn(Opcodes.ASTORE, localMeta.offset());
+                case INTEGER -> mv.visitVarInsn(Opcodes.ISTORE, localMeta.offset());
+                case LONG -> mv.visitVarInsn(Opcodes.LSTORE, localMeta.offset());
+                case FLOAT -> mv.visitVarInsn(Opcodes.FSTORE, localMeta.offset());
+                case DOUBLE -> mv.visitVarInsn(Opcodes.DSTORE, localMeta.offset());
+                case CLASS -> mv.visitVarInsn(Opcodes.ASTORE, localMeta.offset());
+
+                case BOOLEAN, BYTE, CHAR, SHORT -> mv.visitVarInsn(Opcodes.ISTORE, localMeta.offset());
+
                 default -> throw new CompilationException("unsupported assignment type: " + expressionType);
             }
         }
@@ -370,18 +1351,50 @@ public class BytecodeTargetListener extends SylectBaseListener {
             throw new CompilationException("could not assign non-static field in static method: " + fieldMeta.name());
         }
 
+        if (fieldMeta.isFinal()) {
+            checkFinalFieldAssignment(fieldMeta);
+        }
+
         if (!fieldMeta.isStatic()) {
             mv.visitVarInsn(Opcodes.ALOAD, 0);
         }
 
-        var expressionType = new ExpressionCompiler(classMetaManager, importManager, scopeManager, mv).compile(ctx);
+        var expressionType = new ExpressionCompiler(classMetaManager, importManager, scopeManager, mv)
+                .compile(ctx, fieldMeta.type());
         if (!expressionType.equals(fieldMeta.type())) {
             throw new CompilationException("cannot assign " + expressionType + " to " + fieldMeta.type());
         }
 
         var owner = scopeManager.getClassMeta().name();
-        mv.visitFieldInsn(
-                fieldMeta.isStatic() ? Opcodes.PUTSTATIC : Opcodes.PUTFIELD,
-                owner, fieldMeta.name(), fieldMeta.asDescriptor());
+        if (scopeManager.getClassMeta().isStruct() && !fieldMeta.isStatic()) {
+            mv.visitMethodInsn(
+                    Opcodes.INVOKEVIRTUAL, owner, fieldMeta.name(), "(" + fieldMeta.asDescriptor() + ")V", false);
+        } else {
+            mv.visitFieldInsn(
+                    fieldMeta.isStatic() ? Opcodes.PUTSTATIC : Opcodes.PUTFIELD,
+                    owner, fieldMeta.name(), fieldMeta.asDescriptor());
+        }
+    }
+
+    /**
+     * Final fields can be assigned only in constructors (or static initializer for static fields) of the class
+     * that declares them, never in loops. Each constructor assigns each final field exactly once on every path,
+     * see {@link FinalFieldTracker}.
+     */
+    private void checkFinalFieldAssignment(FieldMeta fieldMeta) {
+        if (fieldMeta.isLazy() || fieldMeta.constantValue() != null) {
+            throw new CompilationException("could not assign constant: " + fieldMeta.name());
+        }
+
+        var initializer = fieldMeta.isStatic() ? "<clinit>" : "<init>";
+        if (!initializer.equals(methodMeta.name()) || !scopeManager.getClassMeta().fields().contains(fieldMeta)) {
+            throw new CompilationException(
+                    "final field can only be assigned in " +
+                            (fieldMeta.isStatic() ? "static initializer: " : "constructor: ") + fieldMeta.name());
+        }
+        if (!loopBlocks.isEmpty()) {
+            throw new CompilationException("could not assign final field in loop: " + fieldMeta.name());
+        }
+        finalFields.assign(fieldMeta.name());
     }
 }
@@ -0,0 +1,47 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.bootstrap;
+
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.antlr.v4.runtime.tree.RuleNode;
+import sylect.SylectParser.ForStatementContext;
+import sylect.SylectParser.FunctionExpressionContext;
+import sylect.SylectParser.MethodDefinitionContext;
+import sylect.SylectParser.SpawnExpressionContext;
+
+/**
+ * Tree walker that does not descend into lambdas and spawn expressions: their bodies are compiled into
+ * separate synthetic methods.
+ * Generic methods are only entered and exited, the listener walks their bodies once per instantiation.
+ * Parallel loops are only entered and exited too, their bodies are compiled into synthetic methods.
+ */
+public class SourceTreeWalker extends ParseTreeWalker {
+    @Override
+    public void walk(ParseTreeListener listener, ParseTree t) {
+        if (t instanceof FunctionExpressionContext || t instanceof SpawnExpressionContext) {
+            return;
+        }
+        if (t instanceof MethodDefinitionContext ctx && ctx.typeParameters() != null) {
+            enterRule(listener, ctx);
+            exitRule(listener, ctx);
+            return;
+        }
+        if (t instanceof ForStatementContext ctx && ctx.parallelClause() != null) {
+            enterRule(listener, ctx);
+            exitRule(listener, ctx);
+            return;
+        }
+        super.walk(listener, t);
+    }
+
+    /**
+     * Walks children of the node without entering the node itself.
+     */
+    public void walkChildren(ParseTreeListener listener, RuleNode node) {
+        for (int i = 0; i < node.getChildCount(); i++) {
+            walk(listener, node.getChild(i));
+        }
+    }
+}
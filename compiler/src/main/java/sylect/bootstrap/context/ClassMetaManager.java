@@ -5,11 +5,16 @@ package sylect.bootstrap.context;
 import sylect.CompilationException;
 import sylect.bootstrap.metadata.ClassMeta;
 
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class ClassMetaManager {
 
+    private static final String COMPILER_PACKAGE = "sylect";
+    private static final String RUNTIME_PACKAGE = "sylect.runtime";
+
     private final ClassLoader classLoader;
     private final Map<String, ClassMeta> classMetaMap = new ConcurrentHashMap<>();
 
@@ -19,15 +24,80 @@ public class ClassMetaManager {
 
     public ClassMeta resolveClass(String identifier) {
         return classMetaMap.computeIfAbsent(identifier, id -> {
+            // JDK classes are always loaded by the bootstrap class loader, so the snapshot is valid for any loader
+            var snapshot = JdkSymbolSnapshot.lookup(id);
+            if (snapshot != null) {
+                return snapshot;
+            }
+
+            var className = ClassMeta.sylectClassNameToJavaClassName(id);
             try {
-                return ClassMeta.fromJavaClass(classLoader.loadClass(ClassMeta.sylectClassNameToJavaClassName(id)));
+                return ClassMeta.fromJavaClass(classLoader.loadClass(className));
             } catch (ClassNotFoundException e) {
-                throw new CompilationException("unknown class: " + id);
+                return ClassMeta.fromJavaClass(loadCompilerClass(className));
             }
         });
     }
 
+    /**
+     * Compiler annotations like {@link sylect.Inline} are available even when compiler is not on the classpath
+     * of the project being compiled, they are not needed at run time. Runtime library classes like
+     * {@link sylect.runtime.IntList} are, so they are resolved only with the class loader of the project.
+     */
+    private static Class<?> loadCompilerClass(String className) {
+        if (className.startsWith(RUNTIME_PACKAGE + ".")) {
+            throw new CompilationException("runtime library is not on the classpath of the project: " +
+                    ClassMeta.javaClassNameToSylectClassName(className));
+        }
+
+        try {
+            var clazz = ClassMetaManager.class.getClassLoader().loadClass(className);
+            if (clazz.isAnnotation() && clazz.getPackageName().equals(COMPILER_PACKAGE)) {
+                return clazz;
+            }
+        } catch (ClassNotFoundException e) {
+            // Handled below
+        }
+        throw new CompilationException("unknown class: " + ClassMeta.javaClassNameToSylectClassName(className));
+    }
+
     public void addToSourceSet(ClassMeta classMeta) {
         classMetaMap.put(classMeta.name(), classMeta);
     }
+
+    /**
+     * Determines where annotations of given class are kept. Annotations without {@link Retention}
+     * are stored in class files, but are not visible to reflection.
+     */
+    public RetentionPolicy resolveRetention(ClassMeta classMeta) {
+        var className = ClassMeta.sylectClassNameToJavaClassName(classMeta.name());
+        Class<?> clazz;
+        try {
+            clazz = classLoader.loadClass(className);
+        } catch (ClassNotFoundException e) {
+            clazz = loadCompilerClass(className);
+        }
+        if (!clazz.isAnnotation()) {
+            throw new CompilationException("not an annotation: " + classMeta.name());
+        }
+
+        var retention = clazz.getAnnotation(Retention.class);
+        return retention == null ? RetentionPolicy.CLASS : retention.value();
+    }
+
+    public boolean isSubclassOf(ClassMeta classMeta, String className) {
+        if (classMeta.name().equals(className)) {
+            return true;
+        }
+
+        if (classMeta.baseClassName() != null && isSubclassOf(resolveClass(classMeta.baseClassName()), className)) {
+            return true;
+        }
+        for (var interfaceName : classMeta.interfaces()) {
+            if (isSubclassOf(resolveClass(interfaceName), className)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,148 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.bootstrap.context;
+
+import sylect.CompilationException;
+import sylect.bootstrap.metadata.ClassMeta;
+import sylect.bootstrap.metadata.FieldMeta;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Definite assignment of final instance fields in constructors. Each field has to be assigned exactly once on every
+ * code path that completes the constructor, or the constructor has to delegate to another one of the same class.
+ * <p>
+ * Code paths fork at branches of conditional and when statements and join after them. Assignments in loops are
+ * rejected by the caller, so loops don't change assigned fields, but a return inside a loop doesn't complete the
+ * enclosing path either, since the loop may run no iterations.
+ */
+public class FinalFieldTracker {
+
+    private final Deque<Branches> branches = new ArrayDeque<>();
+
+    private Set<String> required = Set.of();
+    // Fields assigned on every path reaching the current statement and on some of them
+    private Set<String> definitelyAssigned = new HashSet<>();
+    private Set<String> possiblyAssigned = new HashSet<>();
+    // Whether the current path has already returned, the statements after it are unreachable
+    private boolean completed;
+
+    public void enterMethod(String methodName, ClassMeta classMeta) {
+        required = new TreeSet<>();
+        if ("<init>".equals(methodName)) {
+            classMeta.fields().stream()
+                    .filter(field -> field.isFinal() && !field.isStatic())
+                    .map(FieldMeta::name)
+                    .forEach(required::add);
+        }
+
+        branches.clear();
+        definitelyAssigned = new HashSet<>();
+        possiblyAssigned = new HashSet<>();
+        completed = false;
+    }
+
+    public void assign(String name) {
+        if (!possiblyAssigned.add(name)) {
+            throw new CompilationException("final field is already assigned: " + name);
+        }
+        definitelyAssigned.add(name);
+    }
+
+    /**
+     * Fields are assigned by the constructor called.
+     */
+    public void delegate() {
+        for (var name : required) {
+            if (possiblyAssigned.contains(name)) {
+                throw new CompilationException("final field is assigned before calling other constructor: " + name);
+            }
+        }
+        definitelyAssigned.addAll(required);
+        possiblyAssigned.addAll(required);
+    }
+
+    /**
+     * @param inLoop whether the return is inside a loop, then the path after the loop is still reachable
+     */
+    public void exitPath(boolean inLoop) {
+        checkAssigned();
+        if (!inLoop) {
+            completed = true;
+        }
+    }
+
+    public void exitMethod() {
+        if (!completed) {
+            checkAssigned();
+        }
+    }
+
+    public void enterBranches() {
+        branches.push(new Branches(definitelyAssigned, possiblyAssigned));
+    }
+
+    public void enterBranch() {
+        var current = branches.peek();
+        definitelyAssigned = new HashSet<>(current.definitelyAssigned);
+        possiblyAssigned = new HashSet<>(current.possiblyAssigned);
+        completed = false;
+    }
+
+    public void exitBranch() {
+        branches.peek().join(definitelyAssigned, possiblyAssigned, completed);
+    }
+
+    /**
+     * @param exhaustive whether one of the branches is always taken, otherwise the path may skip all of them
+     */
+    public void exitBranches(boolean exhaustive) {
+        var current = branches.pop();
+        if (!exhaustive) {
+            current.join(current.definitelyAssigned, current.possiblyAssigned, false);
+        }
+
+        completed = current.joinedDefinitely == null;
+        definitelyAssigned = completed ? current.definitelyAssigned : current.joinedDefinitely;
+        possiblyAssigned = current.joinedPossibly;
+    }
+
+    private void checkAssigned() {
+        for (var name : required) {
+            if (!definitelyAssigned.contains(name)) {
+                throw new CompilationException("final field is not assigned on every path: " + name);
+            }
+        }
+    }
+
+    private static class Branches {
+
+        private final Set<String> definitelyAssigned;
+        private final Set<String> possiblyAssigned;
+        // Joined paths of the branches that don't return, null until there is one
+        private Set<String> joinedDefinitely;
+        private final Set<String> joinedPossibly;
+
+        Branches(Set<String> definitelyAssigned, Set<String> possiblyAssigned) {
+            this.definitelyAssigned = new HashSet<>(definitelyAssigned);
+            this.possiblyAssigned = new HashSet<>(possiblyAssigned);
+            this.joinedPossibly = new HashSet<>(possiblyAssigned);
+        }
+
+        void join(Set<String> definitely, Set<String> possibly, boolean completed) {
+            if (completed) {
+                return;
+            }
+            if (joinedDefinitely == null) {
+                joinedDefinitely = new HashSet<>(definitely);
+            } else {
+                joinedDefinitely.retainAll(definitely);
+            }
+            joinedPossibly.addAll(possibly);
+        }
+    }
+}
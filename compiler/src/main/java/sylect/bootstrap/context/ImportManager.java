@@ -5,7 +5,9 @@ package sylect.bootstrap.context;
 import org.antlr.v4.runtime.tree.TerminalNode;
 import sylect.SylectParser;
 import sylect.bootstrap.metadata.ClassMeta;
+import sylect.bootstrap.metadata.TypeMeta;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -16,6 +18,7 @@ import java.util.stream.Stream;
 public class ImportManager {
 
     private final Map<String, String> imports = new HashMap<>();
+    private final Map<String, TypeMeta> typeParameters = new HashMap<>();
 
     public void enterSource(SylectParser.ProgramContext ctx) {
         imports.putAll(
@@ -31,4 +34,22 @@ public class ImportManager {
     public String resolveImport(String identifier) {
         return imports.getOrDefault(identifier, identifier);
     }
+
+    /**
+     * Makes type parameters of generic class or method resolve to types of the instantiation being compiled.
+     */
+    public void bindTypeParameters(Map<String, TypeMeta> bindings) {
+        typeParameters.putAll(bindings);
+    }
+
+    public void unbindTypeParameters(Collection<String> names) {
+        names.forEach(typeParameters::remove);
+    }
+
+    /**
+     * @return type bound to type parameter or null if identifier is not a type parameter
+     */
+    public TypeMeta resolveTypeParameter(String identifier) {
+        return typeParameters.get(identifier);
+    }
 }
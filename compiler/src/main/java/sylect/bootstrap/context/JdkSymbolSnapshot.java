@@ -0,0 +1,281 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.bootstrap.context;
+
+import sylect.CompilationException;
+import sylect.bootstrap.metadata.ClassMeta;
+import sylect.bootstrap.metadata.FieldMeta;
+import sylect.bootstrap.metadata.MethodMeta;
+import sylect.bootstrap.metadata.ParameterMeta;
+import sylect.bootstrap.metadata.TypeMeta;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Member;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Prebuilt metadata of common JDK classes, so that resolving them doesn't need reflection. Reflecting over a class
+ * loads the types of all its members, {@code java/lang/String} alone pulls in dozens of classes, which is a good part
+ * of compiling a small program.
+ * <p>
+ * Snapshot is taken per JDK feature release and contains public and protected members only, the API doesn't change
+ * within a release while private members may. Classes missing from the snapshot, or all classes when there is
+ * no snapshot for the running JDK, are resolved with reflection. Snapshot is regenerated on the JDK it's taken of:
+ * <pre>
+ * java -cp compiler/target/compiler-0.1.jar sylect.bootstrap.context.JdkSymbolSnapshot compiler/src/main/resources
+ * </pre>
+ */
+public final class JdkSymbolSnapshot {
+
+    // Supertypes of the classes are included as well
+    public static final List<String> COMMON_CLASSES = List.of(
+            "java/lang/Object", "java/lang/String", "java/lang/StringBuilder", "java/lang/CharSequence",
+            "java/lang/System", "java/lang/Math", "java/lang/Number", "java/lang/Integer", "java/lang/Long",
+            "java/lang/Double", "java/lang/Float", "java/lang/Boolean", "java/lang/Character", "java/lang/Byte",
+            "java/lang/Short", "java/lang/Enum", "java/lang/Record", "java/lang/Iterable", "java/lang/Comparable",
+            "java/lang/Runnable", "java/lang/Thread", "java/lang/AutoCloseable",
+            "java/lang/Throwable", "java/lang/Exception", "java/lang/RuntimeException",
+            "java/lang/IllegalArgumentException", "java/lang/IllegalStateException",
+            "java/lang/UnsupportedOperationException", "java/lang/NullPointerException",
+            "java/lang/ArithmeticException", "java/lang/IndexOutOfBoundsException",
+            "java/io/PrintStream",
+            "java/util/Collection", "java/util/List", "java/util/ArrayList", "java/util/LinkedList",
+            "java/util/Map", "java/util/HashMap", "java/util/LinkedHashMap", "java/util/TreeMap",
+            "java/util/Set", "java/util/HashSet", "java/util/LinkedHashSet", "java/util/TreeSet",
+            "java/util/Deque", "java/util/ArrayDeque", "java/util/Iterator", "java/util/Comparator",
+            "java/util/Arrays", "java/util/Collections", "java/util/Objects", "java/util/Optional",
+            "java/util/Random", "java/util/StringJoiner",
+            "java/util/function/Function", "java/util/function/BiFunction", "java/util/function/Supplier",
+            "java/util/function/Consumer", "java/util/function/Predicate");
+
+    private static final String RESOURCE = "/sylect/jdk/symbols-%d.txt";
+    private static final String NONE = "-";
+
+    private static final class Holder {
+        private static final Map<String, List<String>> CLASSES = read(Runtime.version().feature());
+    }
+
+    private JdkSymbolSnapshot() {
+    }
+
+    /**
+     * @return metadata of JDK class, or null if it's not in the snapshot of the running JDK
+     */
+    public static ClassMeta lookup(String className) {
+        var lines = Holder.CLASSES.get(className);
+        return lines == null ? null : parse(lines);
+    }
+
+    /**
+     * Reflects over the class the same way snapshot is taken.
+     */
+    public static ClassMeta fromJavaClass(Class<?> clazz) {
+        return ClassMeta.fromJavaClass(clazz, JdkSymbolSnapshot::isAccessible);
+    }
+
+    /**
+     * @return lines of each class in the snapshot, they're parsed on lookup since a program uses only a few classes
+     */
+    static Map<String, List<String>> read(int feature) {
+        var resource = JdkSymbolSnapshot.class.getResourceAsStream(String.format(RESOURCE, feature));
+        if (resource == null) {
+            return Map.of();
+        }
+
+        var classes = new HashMap<String, List<String>>();
+        try (var reader = new BufferedReader(new InputStreamReader(resource, StandardCharsets.UTF_8))) {
+            List<String> lines = null;
+            for (var line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                if (line.startsWith("class\t")) {
+                    lines = new ArrayList<>();
+                    classes.put(line.substring(6, line.indexOf('\t', 6)), lines);
+                } else if (lines == null) {
+                    throw new CompilationException("bad symbol snapshot line: " + line);
+                }
+                lines.add(line);
+            }
+        } catch (IOException e) {
+            throw new CompilationException("failed to read symbol snapshot of JDK " + feature, e);
+        }
+        return classes;
+    }
+
+    /**
+     * @param lines class line followed by lines of its members
+     */
+    static ClassMeta parse(List<String> lines) {
+        var classLine = lines.get(0).split("\t", -1);
+        var fields = new HashSet<FieldMeta>();
+        var methods = new HashSet<MethodMeta>();
+        for (var line : lines.subList(1, lines.size())) {
+            var parts = line.split("\t", -1);
+            switch (parts[0]) {
+                case "field" -> fields.add(new FieldMeta(
+                        parts[1],
+                        parts[2].contains("s"), parts[2].contains("f"), parts[2].contains("v"),
+                        parseType(parts[3])));
+                case "method" -> methods.add(new MethodMeta(
+                        parts[1],
+                        parts[2].contains("s"), parts[2].contains("n"), parts[2].contains("a"), parts[2].contains("f"),
+                        parseType(parts[3]),
+                        parseParameters(parts[4])));
+                default -> throw new CompilationException("bad symbol snapshot line: " + line);
+            }
+        }
+        return new ClassMeta(
+                classLine[1], classLine[2].contains("i"), classLine[2].contains("f"), false,
+                NONE.equals(classLine[3]) ? null : classLine[3],
+                parseNames(classLine[4]), parseNames(classLine[5]),
+                fields, methods);
+    }
+
+    static List<String> format(Collection<ClassMeta> classes) {
+        var lines = new ArrayList<String>();
+        classes.stream()
+                .sorted(Comparator.comparing(ClassMeta::name))
+                .forEach(classMeta -> {
+                    lines.add(String.join("\t",
+                            "class",
+                            classMeta.name(),
+                            flags(flag(classMeta.iface(), "i") + flag(classMeta.isFinal(), "f")),
+                            classMeta.baseClassName() == null ? NONE : classMeta.baseClassName(),
+                            formatNames(classMeta.interfaces()),
+                            formatNames(classMeta.permittedSubclasses())));
+                    classMeta.fields().stream()
+                            .map(fieldMeta -> String.join("\t",
+                                    "field",
+                                    fieldMeta.name(),
+                                    flags(flag(fieldMeta.isStatic(), "s") + flag(fieldMeta.isFinal(), "f") +
+                                            flag(fieldMeta.isVolatile(), "v")),
+                                    formatType(fieldMeta.type())))
+                            .sorted()
+                            .forEach(lines::add);
+                    classMeta.methods().stream()
+                            .map(methodMeta -> String.join("\t",
+                                    "method",
+                                    methodMeta.name(),
+                                    flags(flag(methodMeta.isStatic(), "s") + flag(methodMeta.isNative(), "n") +
+                                            flag(methodMeta.isAbstract(), "a") + flag(methodMeta.isFinal(), "f")),
+                                    formatType(methodMeta.returnType()),
+                                    methodMeta.parameters().isEmpty() ? NONE : methodMeta.parameters().stream()
+                                            .map(parameter -> parameter.name() + "=" + formatType(parameter.type()))
+                                            .collect(Collectors.joining(","))))
+                            .sorted()
+                            .forEach(lines::add);
+                });
+        return lines;
+    }
+
+    /**
+     * Takes snapshot of the common classes and their supertypes on the running JDK.
+     */
+    static List<ClassMeta> take() {
+        var classes = new ArrayList<ClassMeta>();
+        var pending = new ArrayList<>(COMMON_CLASSES);
+        var visited = new HashSet<String>();
+        while (!pending.isEmpty()) {
+            var className = pending.remove(pending.size() - 1);
+            if (!visited.add(className)) {
+                continue;
+            }
+
+            Class<?> clazz;
+            try {
+                clazz = Class.forName(ClassMeta.sylectClassNameToJavaClassName(className), false, null);
+            } catch (ClassNotFoundException e) {
+                throw new CompilationException("unknown class: " + className);
+            }
+            var classMeta = fromJavaClass(clazz);
+            classes.add(classMeta);
+            if (classMeta.baseClassName() != null) {
+                pending.add(classMeta.baseClassName());
+            }
+            pending.addAll(classMeta.interfaces());
+        }
+        return classes;
+    }
+
+    private static boolean isAccessible(Member member) {
+        return (member.getModifiers() & (Modifier.PUBLIC | Modifier.PROTECTED)) != 0;
+    }
+
+    private static List<ParameterMeta> parseParameters(String value) {
+        var parameters = new ArrayList<ParameterMeta>();
+        if (!NONE.equals(value)) {
+            for (var parameter : value.split(",")) {
+                var separator = parameter.indexOf('=');
+                parameters.add(new ParameterMeta(
+                        parameter.substring(0, separator), parseType(parameter.substring(separator + 1))));
+            }
+        }
+        return parameters;
+    }
+
+    private static TypeMeta parseType(String value) {
+        var separator = value.indexOf(':');
+        var kind = separator < 0 ? value : value.substring(0, separator);
+        var isArray = kind.endsWith("[]");
+        if (isArray) {
+            kind = kind.substring(0, kind.length() - 2);
+        }
+        return new TypeMeta(TypeMeta.Kind.valueOf(kind), isArray, separator < 0 ? null : value.substring(separator + 1));
+    }
+
+    private static String formatType(TypeMeta type) {
+        return type.kind().name() + flag(type.isArray(), "[]") +
+                (type.className() == null ? "" : ":" + type.className());
+    }
+
+    private static Set<String> parseNames(String value) {
+        return NONE.equals(value) ? Set.of() : Set.of(value.split(","));
+    }
+
+    private static String formatNames(Set<String> names) {
+        return names.isEmpty() ? NONE : String.join(",", new TreeSet<>(names));
+    }
+
+    private static String flags(String flags) {
+        return flags.isEmpty() ? NONE : flags;
+    }
+
+    private static String flag(boolean value, String flag) {
+        return value ? flag : "";
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("usage: sylect.bootstrap.context.JdkSymbolSnapshot RESOURCES_DIR");
+            System.exit(1);
+        }
+
+        var feature = Runtime.version().feature();
+        var file = Paths.get(args[0]).resolve(String.format(RESOURCE, feature).substring(1));
+        var lines = new ArrayList<String>();
+        lines.add("# Public and protected members of common classes of JDK " + feature);
+        lines.add("# Generated by sylect.bootstrap.context.JdkSymbolSnapshot, do not edit");
+        lines.addAll(format(take()));
+
+        Files.createDirectories(file.getParent());
+        Files.write(file, lines, StandardCharsets.UTF_8);
+        System.out.println("Snapshot of " + lines.size() + " symbols: " + file.toAbsolutePath());
+    }
+}
@@ -3,39 +3,71 @@
 package sylect.bootstrap.context;
 
 import sylect.CompilationException;
+import sylect.CompilerOptions;
 import sylect.SylectParser.ClassDefinitionContext;
+import sylect.SylectParser.ExpressionContext;
 import sylect.SylectParser.MethodDefinitionContext;
 import sylect.bootstrap.metadata.ClassMeta;
 import sylect.bootstrap.metadata.FieldMeta;
+import sylect.bootstrap.metadata.LambdaMeta;
 import sylect.bootstrap.metadata.LocalMeta;
 import sylect.bootstrap.metadata.MethodMeta;
+import sylect.bootstrap.metadata.ParallelLoopMeta;
 import sylect.bootstrap.metadata.ParameterMeta;
 import sylect.bootstrap.metadata.TypeMeta;
+import sylect.bootstrap.metadata.statement.TaskScopeContext;
+import sylect.bootstrap.util.GenericUtils;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
 import java.util.function.Consumer;
 
 public class ScopeManager {
 
+    // Limits code growth for chains of inlined calls
+    private static final int MAX_INLINE_DEPTH = 4;
+
+    private final CompilerOptions options;
     private final ClassMetaManager classMetaManager;
     private final ImportManager importManager;
 
     private final Map<String, LocalMeta> locals = new HashMap<>();
+    private final Set<String> readOnlyLocals = new HashSet<>();
+    // Lambdas, spawned tasks and parallel loops get copies of captured locals, so like in Java a local
+    // cannot be both captured and assigned after its definition. Slots are not reused within a method.
+    private final Set<LocalMeta> capturedLocals = new HashSet<>();
+    private final Set<LocalMeta> assignedLocals = new HashSet<>();
+    // Slots holding values within a single instruction sequence, e.g. operands of sealed dispatch. Sequences
+    // don't overlap, so the slots are shared by all of them in a method.
+    private final List<LocalMeta> scratchLocals = new ArrayList<>();
+    private final Queue<LambdaMeta> lambdas = new ArrayDeque<>();
+    private final Queue<ParallelLoopMeta> parallelLoops = new ArrayDeque<>();
+    private final Map<String, ExpressionContext> inlineCandidates = new HashMap<>();
+    private final Deque<InlineScope> inlineScopes = new ArrayDeque<>();
+    private final Deque<TaskScopeContext> taskScopes = new ArrayDeque<>();
 
     private ClassMeta classMeta;
 
     private boolean staticMethod = false;
     private int currentOffset = 0;
+    private int lambdaCounter = 0;
+    private String methodName;
 
-    public ScopeManager(ClassMetaManager classMetaManager, ImportManager importManager) {
+    public ScopeManager(CompilerOptions options, ClassMetaManager classMetaManager, ImportManager importManager) {
+        this.options = options;
         this.classMetaManager = classMetaManager;
         this.importManager = importManager;
     }
 
     public ClassMeta enterClass(ClassDefinitionContext ctx) {
-        var className = ctx.IDENTIFIER().getText();
+        var className = GenericUtils.getSpecializedName(importManager, ctx.IDENTIFIER().getText(), ctx.typeParameters());
         classMeta = classMetaManager.resolveClass(className);
 
         if (classMeta == null) {
@@ -45,16 +77,50 @@ public class ScopeManager {
         }
     }
 
+    public CompilerOptions getOptions() {
+        return options;
+    }
+
     public ClassMeta getClassMeta() {
         return classMeta;
     }
 
     public MethodMeta enterMethod(MethodDefinitionContext ctx) {
+        // TODO: Use class meta to get this
+        var methodMeta = MethodMeta.fromContext(importManager, ctx);
+        enterMethod(methodMeta);
+        return methodMeta;
+    }
+
+    public MethodMeta enterLambda(LambdaMeta lambdaMeta) {
+        enterSyntheticMethod(lambdaMeta.methodMeta(), lambdaMeta.captured());
+        return lambdaMeta.methodMeta();
+    }
+
+    public MethodMeta enterParallelLoop(ParallelLoopMeta parallelLoopMeta) {
+        enterSyntheticMethod(parallelLoopMeta.methodMeta(), parallelLoopMeta.captured());
+        return parallelLoopMeta.methodMeta();
+    }
+
+    private void enterSyntheticMethod(MethodMeta methodMeta, Set<String> captured) {
+        // Synthetic methods are named after the method they are defined in
+        var enclosingMethodName = methodName;
+        enterMethod(methodMeta);
+        methodName = enclosingMethodName;
+
+        readOnlyLocals.addAll(captured);
+    }
+
+    public void enterMethod(MethodMeta methodMeta) {
         currentOffset = 0;
         locals.clear();
+        readOnlyLocals.clear();
+        capturedLocals.clear();
+        assignedLocals.clear();
+        scratchLocals.clear();
+        taskScopes.clear();
 
-        // TODO: Use class meta to get this
-        var methodMeta = MethodMeta.fromContext(importManager, ctx);
+        methodName = methodMeta.name();
         staticMethod = methodMeta.isStatic();
 
         if (!staticMethod) {
@@ -63,8 +129,122 @@ public class ScopeManager {
         for (var parameter : methodMeta.parameters()) {
             addLocal(parameter.name(), parameter.type());
         }
+    }
 
-        return methodMeta;
+    /**
+     * @return name of current method, synthetic methods are named after the method they are defined in
+     */
+    public String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * Generates a name for lambda synthetic method defined in current method.
+     */
+    public String nextLambdaName() {
+        var prefix = switch (methodName) {
+            case "<init>" -> "new";
+            case "<clinit>" -> "static";
+            default -> methodName;
+        };
+        return "lambda$" + prefix + "$" + lambdaCounter++;
+    }
+
+    public void addLambda(LambdaMeta lambdaMeta) {
+        lambdas.add(lambdaMeta);
+    }
+
+    public LambdaMeta pollLambda() {
+        return lambdas.poll();
+    }
+
+    public void addParallelLoop(ParallelLoopMeta parallelLoopMeta) {
+        parallelLoops.add(parallelLoopMeta);
+    }
+
+    public ParallelLoopMeta pollParallelLoop() {
+        return parallelLoops.poll();
+    }
+
+    /**
+     * Registers static method of current class whose body is a single expression, so it could be inlined.
+     */
+    public void addInlineCandidate(MethodMeta methodMeta, ExpressionContext body) {
+        inlineCandidates.put(inlineKey(methodMeta), body);
+    }
+
+    /**
+     * Returns the body of method to be inlined or null when call should not be inlined,
+     * e.g. when method is already being inlined (recursion).
+     */
+    public ExpressionContext getInlineCandidate(MethodMeta methodMeta) {
+        var key = inlineKey(methodMeta);
+        if (inlineScopes.size() >= MAX_INLINE_DEPTH ||
+                inlineScopes.stream().anyMatch(scope -> scope.method().equals(key))) {
+            return null;
+        }
+        return inlineCandidates.get(key);
+    }
+
+    /**
+     * Replaces visible locals with parameters of inlined method. Parameters get fresh slots,
+     * so locals of the caller are preserved.
+     */
+    public List<LocalMeta> enterInline(MethodMeta methodMeta) {
+        inlineScopes.push(new InlineScope(
+                inlineKey(methodMeta), new HashMap<>(locals), new HashSet<>(readOnlyLocals), staticMethod));
+
+        locals.clear();
+        readOnlyLocals.clear();
+        staticMethod = methodMeta.isStatic();
+
+        return methodMeta.parameters().stream()
+                .map(parameter -> addLocal(parameter.name(), parameter.type()))
+                .toList();
+    }
+
+    /**
+     * Inlined code is attributed to the line of the call, since the body belongs to another method.
+     */
+    public boolean isInlining() {
+        return !inlineScopes.isEmpty();
+    }
+
+    public void exitInline() {
+        var scope = inlineScopes.pop();
+
+        locals.clear();
+        locals.putAll(scope.locals());
+        readOnlyLocals.clear();
+        readOnlyLocals.addAll(scope.readOnlyLocals());
+        staticMethod = scope.staticMethod();
+    }
+
+    private static String inlineKey(MethodMeta methodMeta) {
+        return methodMeta.name() + methodMeta.asDescriptor();
+    }
+
+    private record InlineScope(
+            String method, Map<String, LocalMeta> locals, Set<String> readOnlyLocals, boolean staticMethod) {
+    }
+
+    /**
+     * Makes tasks spawned until {@link #exitTaskScope()} belong to the given scope, scopes may be nested.
+     * Lambdas are compiled into separate methods, so tasks spawned in their bodies don't belong to the scope.
+     */
+    public void enterTaskScope(TaskScopeContext scope) {
+        taskScopes.push(scope);
+    }
+
+    public TaskScopeContext exitTaskScope() {
+        return taskScopes.pop();
+    }
+
+    /**
+     * @return the innermost scope, or null if there is no scope
+     */
+    public TaskScopeContext getTaskScope() {
+        return taskScopes.peek();
     }
 
     public boolean isStaticMethod() {
@@ -82,10 +262,72 @@ public class ScopeManager {
         return localMeta;
     }
 
+    /**
+     * Allocates a local variable slot that is not accessible by name (e.g. loop counters).
+     */
+    public LocalMeta addSyntheticLocal(TypeMeta type) {
+        var localMeta = new LocalMeta(null, type, currentOffset);
+        currentOffset += type.getLocalSize();
+        return localMeta;
+    }
+
+    /**
+     * @return slots for values of the types, reused by the next call in the same method
+     */
+    public List<LocalMeta> getScratchLocals(List<TypeMeta> types) {
+        var available = new ArrayList<>(scratchLocals);
+        var result = new ArrayList<LocalMeta>();
+        for (var type : types) {
+            var slot = available.stream()
+                    .filter(local -> local.type().getLocalSize() == type.getLocalSize())
+                    .findFirst()
+                    .orElse(null);
+            if (slot == null) {
+                slot = addSyntheticLocal(type);
+                scratchLocals.add(slot);
+            } else {
+                available.remove(slot);
+            }
+            result.add(new LocalMeta(null, type, slot.offset()));
+        }
+        return result;
+    }
+
+    /**
+     * Makes local variable inaccessible by name. Its slot is not reused.
+     */
+    public void removeLocal(String name) {
+        locals.remove(name);
+    }
+
     public LocalMeta getLocal(String name) {
         return locals.get(name);
     }
 
+    public boolean isReadOnlyLocal(String name) {
+        return readOnlyLocals.contains(name);
+    }
+
+    /**
+     * Records that the local is copied into lambda, spawned task or parallel loop body.
+     */
+    public void captureLocal(LocalMeta localMeta) {
+        if (assignedLocals.contains(localMeta)) {
+            throw new CompilationException("captured variable should be effectively final: " + localMeta.name());
+        }
+        capturedLocals.add(localMeta);
+    }
+
+    /**
+     * Records that the local is assigned after its definition.
+     */
+    public void assignLocal(LocalMeta localMeta) {
+        if (capturedLocals.contains(localMeta)) {
+            throw new CompilationException("captured variable should be effectively final: " + localMeta.name());
+        }
+        assignedLocals.add(localMeta);
+    }
+
     public void forEachLocal(Consumer<LocalMeta> action) {
         locals.values().forEach(action);
     }
@@ -108,6 +350,27 @@ public class ScopeManager {
         return currentClassFieldMeta;
     }
 
+    /**
+     * Finds all methods with given name in class, its base classes and interfaces.
+     */
+    public List<MethodMeta> findMethods(ClassMeta classMeta, String name) {
+        var result = new ArrayList<MethodMeta>();
+        classMeta.methods().stream()
+                .filter(methodMeta -> name.equals(methodMeta.name()))
+                .forEach(result::add);
+
+        // Constructors are not inherited
+        if (!"<init>".equals(name)) {
+            if (classMeta.baseClassName() != null) {
+                result.addAll(findMethods(classMetaManager.resolveClass(classMeta.baseClassName()), name));
+            }
+            for (var interfaceName : classMeta.interfaces()) {
+                result.addAll(findMethods(classMetaManager.resolveClass(interfaceName), name));
+            }
+        }
+        return result;
+    }
+
     public MethodMeta getMethod(ClassMeta classMeta, String name, List<TypeMeta> parameterTypes) {
         var currentClassMethodMeta = classMeta.methods().stream()
                 .filter(methodMeta -> name.equals(methodMeta.name()))
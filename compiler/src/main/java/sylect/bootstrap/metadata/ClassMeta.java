@@ -5,25 +5,42 @@ package sylect.bootstrap.metadata;
 import org.antlr.v4.runtime.tree.TerminalNode;
 import sylect.CompilationException;
 import sylect.SylectParser;
-import sylect.SylectParser.BaseClassContext;
 import sylect.SylectParser.ClassDefinitionContext;
 import sylect.SylectParser.ProgramContext;
 import sylect.bootstrap.context.ImportManager;
+import sylect.bootstrap.util.GenericUtils;
 
+import java.lang.reflect.Member;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Parameter;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-public record ClassMeta(String name, boolean iface,
-                        String baseClassName, Set<String> interfaces,
+/**
+ * @param isStruct            struct class is a flyweight over memory segment, its instance fields are stored
+ *                            in the segment and accessed with generated accessor methods
+ * @param permittedSubclasses subclasses of sealed class, empty if class is not sealed
+ */
+public record ClassMeta(String name, boolean iface, boolean isFinal, boolean isStruct,
+                        String baseClassName, Set<String> interfaces, Set<String> permittedSubclasses,
                         Set<FieldMeta> fields, Set<MethodMeta> methods) {
 
     public static final String JAVA_OBJECT = "java/lang/Object";
+    public static final String JAVA_RECORD = "java/lang/Record";
+
+    public static final String MEMORY_SEGMENT = "java/lang/foreign/MemorySegment";
+    public static final String ARENA = "java/lang/foreign/Arena";
+    // Size of struct in bytes, public constant of struct class
+    public static final String STRUCT_SIZE_FIELD = "BYTES";
+    private static final Set<String> STRUCT_METHODS = Set.of("allocate", "at", "count", "segment");
 
     public static String javaClassNameToSylectClassName(String className) {
         return className.replace('.', '/');
@@ -39,18 +56,48 @@ public record ClassMeta(String name, boolean iface,
     }
 
     public static ClassMeta fromSylectTree(ProgramContext ctx) {
+        return fromSylectTree(ctx, Map.of());
+    }
+
+    /**
+     * @param typeBindings types bound to type parameters of generic class, determine the instantiation
+     */
+    public static ClassMeta fromSylectTree(ProgramContext ctx, Map<String, TypeMeta> typeBindings) {
         var importManager = new ImportManager();
         importManager.enterSource(ctx);
+        importManager.bindTypeParameters(typeBindings);
 
-        var iface = ctx.classDefinition().getText().startsWith("interface");
+        var kind = ctx.classDefinition().classKind().getText();
+        var iface = "interface".equals(kind);
+        var isRecord = "record".equals(kind);
+        var isStruct = "struct".equals(kind);
+        var modifiers = ctx.classDefinition().classModifiers().getText();
+        // Records and structs are always final
+        var isFinal = isRecord || isStruct || "final".equals(modifiers);
 
-        var className = ctx.classDefinition().IDENTIFIER().getText();
+        var className = GenericUtils.getSpecializedName(
+                importManager, ctx.classDefinition().IDENTIFIER().getText(), ctx.classDefinition().typeParameters());
         var baseClassName = Optional.of(ctx.classDefinition())
                 .map(ClassDefinitionContext::baseClass)
-                .map(BaseClassContext::IDENTIFIER)
-                .map(TerminalNode::getText)
-                .map(importManager::resolveImport)
-                .orElse(JAVA_OBJECT);
+                .map(base -> GenericUtils.resolveClassName(
+                        importManager, base.IDENTIFIER().getText(), base.typeArguments()))
+                .orElse(isRecord ? JAVA_RECORD : JAVA_OBJECT);
+
+        if (isRecord && (ctx.classDefinition().baseClass() != null || !modifiers.isEmpty())) {
+            throw new CompilationException("records cannot extend other classes or have modifiers");
+        }
+        if (isRecord && ctx.classDefinition().typeParameters() != null) {
+            throw new CompilationException("records cannot be generic");
+        }
+
+        if (isStruct && (ctx.classDefinition().baseClass() != null ||
+                !ctx.classDefinition().interfaceClass().isEmpty() || !modifiers.isEmpty())) {
+            throw new CompilationException(
+                    "structs cannot extend other classes, implement interfaces or have modifiers");
+        }
+        if (isStruct && ctx.classDefinition().typeParameters() != null) {
+            throw new CompilationException("structs cannot be generic");
+        }
 
         if (iface && ctx.classDefinition().baseClass() != null) {
             throw new CompilationException("interface classes cannot extend other classes");
@@ -59,19 +106,40 @@ public record ClassMeta(String name, boolean iface,
         var interfaces = Optional.of(ctx.classDefinition())
                 .map(ClassDefinitionContext::interfaceClass)
                 .map(interfaceList -> interfaceList.stream()
-                        .map(SylectParser.InterfaceClassContext::IDENTIFIER)
-                        .map(TerminalNode::getText)
-                        .map(importManager::resolveImport)
-                        .collect(Collectors.toSet()))
-                .orElse(Set.of());
-        var fields = Optional.ofNullable(ctx.fieldDefinition())
-                .map(fieldDefinitions -> fieldDefinitions.stream()
-                        .map(fieldDefinition -> FieldMeta.fromContext(importManager, fieldDefinition))
+                        .map(interfaceClass -> GenericUtils.resolveClassName(
+                                importManager, interfaceClass.IDENTIFIER().getText(), interfaceClass.typeArguments()))
                         .collect(Collectors.toSet()))
                 .orElse(Set.of());
+        var permittedSubclasses = ctx.classDefinition().permittedClass().stream()
+                .map(SylectParser.PermittedClassContext::IDENTIFIER)
+                .map(TerminalNode::getText)
+                .map(importManager::resolveImport)
+                .collect(Collectors.toSet());
 
-        if (iface && !fields.isEmpty()) {
-            throw new CompilationException("interface classes cannot contain fields");
+        if ("sealed".equals(modifiers) == permittedSubclasses.isEmpty()) {
+            throw new CompilationException("sealed classes must list permitted subclasses and vice versa");
+        }
+        if (iface && isFinal) {
+            throw new CompilationException("interface classes cannot be final");
+        }
+
+        var fields = Stream.concat(
+                        ctx.fieldDefinition().stream()
+                                .map(fieldDefinition -> FieldMeta.fromContext(importManager, fieldDefinition))
+                                .map(fieldMeta -> isRecord ? asRecordComponent(fieldMeta) : fieldMeta),
+                        ctx.lazyFieldDefinition().stream()
+                                .map(fieldDefinition -> FieldMeta.fromContext(importManager, fieldDefinition)))
+                .collect(Collectors.toSet());
+
+        if (iface && fields.stream().anyMatch(fieldMeta -> fieldMeta.constantValue() == null)) {
+            throw new CompilationException("interface classes may only contain constant fields");
+        }
+
+        // Static initializer is compiled to <clinit> method, so there can be only one
+        if (ctx.staticInitializer().size() > (iface ? 0 : 1)) {
+            throw new CompilationException(iface ?
+                    "interface classes cannot contain static initializers" :
+                    "class may only contain one static initializer");
         }
 
         var methods = Optional.ofNullable(ctx.methodDefinition())
@@ -81,21 +149,61 @@ public record ClassMeta(String name, boolean iface,
                                 throw new CompilationException("interface classes may only contain abstract methods");
                             }
                         })
-                        .map(methodDefinition -> MethodMeta.fromContext(importManager, methodDefinition))
+                        .flatMap(methodDefinition ->
+                                MethodMeta.instantiationsFromContext(importManager, methodDefinition).stream())
                         .collect(Collectors.toSet()))
                 .orElse(Set.of());
 
+        if (isRecord) {
+            methods = new HashSet<>(methods);
+            methods.addAll(getRecordMethods(getRecordComponents(ctx), methods));
+        }
+
+        if (isStruct) {
+            var structFields = getStructFields(ctx);
+            if (fields.stream().anyMatch(fieldMeta -> STRUCT_SIZE_FIELD.equals(fieldMeta.name()))) {
+                throw new CompilationException("struct field name is reserved: " + STRUCT_SIZE_FIELD);
+            }
+            fields = new HashSet<>(fields);
+            fields.add(new FieldMeta(
+                    STRUCT_SIZE_FIELD, true, true, false, false,
+                    new TypeMeta(TypeMeta.Kind.LONG, false, null),
+                    getStructLayout(structFields).size()));
+
+            if (methods.stream().anyMatch(method -> "<init>".equals(method.name()))) {
+                throw new CompilationException("structs cannot declare constructors");
+            }
+            var structMethods = getStructMethods(className, structFields);
+            for (var method : structMethods) {
+                if (methods.stream().anyMatch(declared -> declared.name().equals(method.name()))) {
+                    throw new CompilationException("struct method name is reserved: " + method.name());
+                }
+            }
+            methods = new HashSet<>(methods);
+            methods.addAll(structMethods);
+        }
+
         if (iface && methods.stream().anyMatch(MethodMeta::isStatic)) {
             throw new CompilationException("interface classes cannot contain static methods");
         }
+        if (iface && methods.stream().anyMatch(MethodMeta::isFinal)) {
+            throw new CompilationException("interface classes cannot contain final methods");
+        }
 
         return new ClassMeta(
-                className, iface,
-                baseClassName, interfaces,
+                className, iface, isFinal, isStruct,
+                baseClassName, interfaces, permittedSubclasses,
                 fields, methods);
     }
 
     public static ClassMeta fromJavaClass(Class<?> clazz) {
+        return fromJavaClass(clazz, member -> true);
+    }
+
+    /**
+     * @param memberFilter selects fields, constructors and methods of the class to include
+     */
+    public static ClassMeta fromJavaClass(Class<?> clazz, Predicate<Member> memberFilter) {
         var className = ClassMeta.javaClassNameToSylectClassName(clazz.getName());
         var baseClassName = Optional.ofNullable(clazz.getSuperclass())
                 .map(Class::getName)
@@ -103,15 +211,27 @@ public record ClassMeta(String name, boolean iface,
                 .orElse(null);
         var interfaces = Arrays.stream(clazz.getInterfaces())
                 .map(Class::getName)
+                .map(ClassMeta::javaClassNameToSylectClassName)
                 .collect(Collectors.toSet());
+        var permittedSubclasses = Optional.ofNullable(clazz.getPermittedSubclasses())
+                .map(Arrays::stream)
+                .map(classes -> classes
+                        .map(Class::getName)
+                        .map(ClassMeta::javaClassNameToSylectClassName)
+                        .collect(Collectors.toSet()))
+                .orElse(Set.of());
         var fields = Arrays.stream(clazz.getDeclaredFields())
+                .filter(memberFilter)
                 .map(field -> new FieldMeta(
                         field.getName(),
                         Modifier.isStatic(field.getModifiers()),
+                        Modifier.isFinal(field.getModifiers()),
+                        Modifier.isVolatile(field.getModifiers()),
                         TypeMeta.fromJavaType(field.getType())))
                 .collect(Collectors.toSet());
         var methods = Stream.concat(
                         Arrays.stream(clazz.getDeclaredConstructors())
+                                .filter(memberFilter)
                                 .map(constructor -> new MethodMeta(
                                         "<init>",
                                         false, false, false,
@@ -119,15 +239,162 @@ public record ClassMeta(String name, boolean iface,
                                         convertParameters(constructor.getParameters()))),
                         Arrays.stream(clazz.getDeclaredMethods())
                                 .filter(method -> !method.isSynthetic())
+                                .filter(memberFilter)
                                 .map(method -> new MethodMeta(
                                         method.getName(),
                                         Modifier.isStatic(method.getModifiers()),
                                         Modifier.isNative(method.getModifiers()),
                                         Modifier.isAbstract(method.getModifiers()),
+                                        Modifier.isFinal(method.getModifiers()),
                                         TypeMeta.fromJavaType(method.getReturnType()),
                                         convertParameters(method.getParameters()))))
                 .collect(Collectors.toSet());
-        return new ClassMeta(className, clazz.isInterface(), baseClassName, interfaces, fields, methods);
+        return new ClassMeta(
+                className, clazz.isInterface(), Modifier.isFinal(clazz.getModifiers()), false,
+                baseClassName, interfaces, permittedSubclasses,
+                fields, methods);
+    }
+
+    /**
+     * Instance fields of record in order of declaration, they are final.
+     */
+    public static List<FieldMeta> getRecordComponents(ProgramContext ctx) {
+        var importManager = new ImportManager();
+        importManager.enterSource(ctx);
+
+        return ctx.fieldDefinition().stream()
+                .map(fieldDefinition -> FieldMeta.fromContext(importManager, fieldDefinition))
+                .filter(fieldMeta -> !fieldMeta.isStatic())
+                .map(ClassMeta::asRecordComponent)
+                .toList();
+    }
+
+    /**
+     * Canonical constructor and accessors are generated for records unless they are defined explicitly.
+     */
+    public static List<MethodMeta> getRecordMethods(List<FieldMeta> components, Set<MethodMeta> declaredMethods) {
+        var result = new ArrayList<MethodMeta>();
+
+        var constructor = new MethodMeta(
+                "<init>", false, false, false,
+                new TypeMeta(TypeMeta.Kind.VOID, false, null),
+                components.stream()
+                        .map(component -> new ParameterMeta(component.name(), component.type()))
+                        .toList());
+        if (declaredMethods.stream().noneMatch(method -> isSameSignature(method, constructor))) {
+            result.add(constructor);
+        }
+
+        for (var component : components) {
+            var accessor = new MethodMeta(component.name(), false, false, false, component.type(), List.of());
+            if (declaredMethods.stream().noneMatch(method -> isSameSignature(method, accessor))) {
+                result.add(accessor);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Instance fields of struct in order of declaration, they determine the layout of struct in memory.
+     */
+    public static List<FieldMeta> getStructFields(ProgramContext ctx) {
+        var importManager = new ImportManager();
+        importManager.enterSource(ctx);
+
+        var result = ctx.fieldDefinition().stream()
+                .map(fieldDefinition -> FieldMeta.fromContext(importManager, fieldDefinition))
+                .filter(fieldMeta -> !fieldMeta.isStatic())
+                .peek(fieldMeta -> {
+                    var type = fieldMeta.type();
+                    if (type.isArray() || type.kind() == TypeMeta.Kind.CLASS || fieldMeta.isFinal()) {
+                        throw new CompilationException(
+                                "struct fields must be non-final primitive values: " + fieldMeta.name());
+                    }
+                    if (STRUCT_METHODS.contains(fieldMeta.name())) {
+                        throw new CompilationException("struct field name is reserved: " + fieldMeta.name());
+                    }
+                })
+                .toList();
+        if (result.isEmpty()) {
+            throw new CompilationException("structs must have at least one instance field");
+        }
+        return result;
+    }
+
+    /**
+     * Each field is aligned to its size like C compilers do, the size of struct is padded to be a multiple
+     * of the largest alignment, so that fields of all elements in array of structs stay aligned.
+     *
+     * @param offsets offsets of fields in order of declaration
+     */
+    public record StructLayout(List<Long> offsets, long size, long alignment) {
+    }
+
+    public static StructLayout getStructLayout(List<FieldMeta> fields) {
+        var offsets = new ArrayList<Long>();
+        var offset = 0L;
+        var alignment = 1L;
+        for (var field : fields) {
+            var size = field.type().getByteSize();
+            offset = (offset + size - 1) / size * size;
+            offsets.add(offset);
+            offset += size;
+            alignment = Math.max(alignment, size);
+        }
+        return new StructLayout(offsets, (offset + alignment - 1) / alignment * alignment, alignment);
+    }
+
+    /**
+     * Struct class wraps a memory segment and points to one of its elements, it's moved with {@code at} method.
+     * Accessors named after fields read and write values at their offsets.
+     */
+    public static List<MethodMeta> getStructMethods(String className, List<FieldMeta> fields) {
+        var structType = new TypeMeta(TypeMeta.Kind.CLASS, false, className);
+        var segmentType = new TypeMeta(TypeMeta.Kind.CLASS, false, MEMORY_SEGMENT);
+        var longType = new TypeMeta(TypeMeta.Kind.LONG, false, null);
+        var voidType = new TypeMeta(TypeMeta.Kind.VOID, false, null);
+
+        var result = new ArrayList<MethodMeta>();
+        result.add(new MethodMeta("<init>", false, false, false, voidType,
+                List.of(new ParameterMeta("segment", segmentType))));
+        result.add(new MethodMeta("allocate", true, false, false, structType, List.of(
+                new ParameterMeta("arena", new TypeMeta(TypeMeta.Kind.CLASS, false, ARENA)),
+                new ParameterMeta("count", longType))));
+        result.add(new MethodMeta("at", false, false, false, true, structType,
+                List.of(new ParameterMeta("index", longType))));
+        result.add(new MethodMeta("count", false, false, false, true, longType, List.of()));
+        result.add(new MethodMeta("segment", false, false, false, true, segmentType, List.of()));
+
+        for (var field : fields) {
+            result.add(new MethodMeta(field.name(), false, false, false, true, field.type(), List.of()));
+            result.add(new MethodMeta(field.name(), false, false, false, true, voidType,
+                    List.of(new ParameterMeta("value", field.type()))));
+        }
+        return result;
+    }
+
+    private static boolean isSameSignature(MethodMeta a, MethodMeta b) {
+        return a.name().equals(b.name()) &&
+                a.parameters().stream().map(ParameterMeta::type).toList()
+                        .equals(b.parameters().stream().map(ParameterMeta::type).toList());
+    }
+
+    private static FieldMeta asRecordComponent(FieldMeta fieldMeta) {
+        if (fieldMeta.isStatic()) {
+            return fieldMeta;
+        }
+        if (fieldMeta.isVolatile()) {
+            throw new CompilationException("record fields cannot be volatile: " + fieldMeta.name());
+        }
+        return new FieldMeta(fieldMeta.name(), false, true, fieldMeta.type());
+    }
+
+    public boolean isRecord() {
+        return JAVA_RECORD.equals(baseClassName);
+    }
+
+    public boolean isSealed() {
+        return !permittedSubclasses.isEmpty();
     }
 
     public TypeMeta asTypeMeta() {
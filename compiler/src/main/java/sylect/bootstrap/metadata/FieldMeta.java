@@ -2,16 +2,85 @@
 
 package sylect.bootstrap.metadata;
 
+import sylect.CompilationException;
 import sylect.SylectParser.FieldDefinitionContext;
+import sylect.SylectParser.LazyFieldDefinitionContext;
 import sylect.bootstrap.context.ImportManager;
+import sylect.bootstrap.util.ClassUtils;
 
-public record FieldMeta(String name, boolean isStatic, TypeMeta type) {
+/**
+ * @param isLazy        static final field computed on first access, it's backed by methods instead of a field
+ * @param isVolatile    field whose reads and writes are ordered with other threads' reads and writes of it
+ * @param constantValue value of static final field known at compile time, inlined at use sites
+ */
+public record FieldMeta(
+        String name,
+        boolean isStatic, boolean isFinal, boolean isLazy, boolean isVolatile,
+        TypeMeta type,
+        Object constantValue
+) {
+
+    public FieldMeta(String name, boolean isStatic, boolean isFinal, TypeMeta type) {
+        this(name, isStatic, isFinal, false, false, type, null);
+    }
+
+    public FieldMeta(String name, boolean isStatic, boolean isFinal, boolean isVolatile, TypeMeta type) {
+        this(name, isStatic, isFinal, false, isVolatile, type, null);
+    }
+
+    public static FieldMeta fromContext(ImportManager importManager, LazyFieldDefinitionContext ctx) {
+        var type = TypeMeta.fromContext(importManager, ctx.type());
+        if (type.kind() == TypeMeta.Kind.VOID) {
+            throw new CompilationException("lazy field cannot be void: " + ctx.IDENTIFIER(1).getText());
+        }
+        return new FieldMeta(ctx.IDENTIFIER(1).getText(), true, true, true, false, type, null);
+    }
 
     public static FieldMeta fromContext(ImportManager importManager, FieldDefinitionContext ctx) {
         var name = ctx.IDENTIFIER().getText();
-        var isStatic = ctx.getText().startsWith("static");
+        var modifiers = ctx.fieldModifiers().getText();
+        var isConst = modifiers.equals("const");
+        var isStatic = isConst || modifiers.startsWith("static");
+        var isFinal = isConst || modifiers.endsWith("final");
+        var isVolatile = modifiers.endsWith("volatile");
         var type = TypeMeta.fromContext(importManager, ctx.type());
-        return new FieldMeta(name, isStatic, type);
+
+        // Static final fields without constant value are assigned in static initializer
+        if (ctx.constantValue() == null) {
+            return new FieldMeta(name, isStatic, isFinal, isVolatile, type);
+        }
+
+        if (!isStatic || !isFinal) {
+            throw new CompilationException("only static final fields can have constant values: " + name);
+        }
+
+        var value = new Object[1];
+        var valueType = ClassUtils.visitConstant(ctx.constantValue(), constant -> value[0] = constant);
+        if (isNarrowConstant(type, valueType)) {
+            // Narrow constants are stored as int, like javac does
+            var intValue = (int) value[0];
+            if (!fitsNarrowType(type.kind(), intValue)) {
+                throw new CompilationException("constant " + intValue + " is out of range of " + type + ": " + name);
+            }
+        } else if (!valueType.equals(type)) {
+            throw new CompilationException("bad constant type " + valueType + ", expected: " + type);
+        }
+        return new FieldMeta(name, true, true, false, false, type, value[0]);
+    }
+
+    private static boolean isNarrowConstant(TypeMeta type, TypeMeta valueType) {
+        return !type.isArray() && valueType.kind() == TypeMeta.Kind.INTEGER &&
+                (type.kind() == TypeMeta.Kind.BYTE || type.kind() == TypeMeta.Kind.SHORT ||
+                        type.kind() == TypeMeta.Kind.CHAR);
+    }
+
+    private static boolean fitsNarrowType(TypeMeta.Kind kind, int value) {
+        return switch (kind) {
+            case BYTE -> value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE;
+            case SHORT -> value >= Short.MIN_VALUE && value <= Short.MAX_VALUE;
+            case CHAR -> value >= Character.MIN_VALUE && value <= Character.MAX_VALUE;
+            default -> false;
+        };
     }
 
     public String asDescriptor() {
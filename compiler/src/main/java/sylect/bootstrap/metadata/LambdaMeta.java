@@ -0,0 +1,17 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.bootstrap.metadata;
+
+import sylect.SylectParser.CodeBlockContext;
+
+import java.util.Set;
+
+/**
+ * Lambda body waiting to be compiled into synthetic method.
+ *
+ * @param methodMeta synthetic method: captured variables are passed before lambda parameters
+ * @param captured   names of captured variables, they cannot be assigned inside lambda
+ * @param body       lambda body
+ */
+public record LambdaMeta(MethodMeta methodMeta, Set<String> captured, CodeBlockContext body) {
+}
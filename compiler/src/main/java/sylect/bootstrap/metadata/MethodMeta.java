@@ -5,38 +5,71 @@ package sylect.bootstrap.metadata;
 import sylect.SylectParser.MethodDefinitionContext;
 import sylect.CompilationException;
 import sylect.bootstrap.context.ImportManager;
+import sylect.bootstrap.util.GenericUtils;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
 public record MethodMeta(
         String name,
-        boolean isStatic, boolean isNative, boolean isAbstract,
+        boolean isStatic, boolean isNative, boolean isAbstract, boolean isFinal,
         TypeMeta returnType,
         List<ParameterMeta> parameters
 ) {
 
+    public MethodMeta(
+            String name,
+            boolean isStatic, boolean isNative, boolean isAbstract,
+            TypeMeta returnType,
+            List<ParameterMeta> parameters) {
+        this(name, isStatic, isNative, isAbstract, false, returnType, parameters);
+    }
+
     public static MethodMeta fromContext(ImportManager importManager, MethodDefinitionContext ctx) {
         var name = ctx.IDENTIFIER().getText();
         if ("constructor".equals(name)) {
+            if (ctx.typeParameters() != null) {
+                throw new CompilationException("constructors cannot be generic");
+            }
             name = "<init>";
         }
+        // Generic methods are compiled for each instantiation of their type parameters
+        name = GenericUtils.getSpecializedName(importManager, name, ctx.typeParameters());
 
         var isStatic = ctx.methodModifiers().getText().contains("static");
         var isNative = ctx.methodModifiers().getText().contains("native");
+        var isFinal = ctx.methodModifiers().getText().contains("final");
 
         // Native methods don't have code blocks too
         var isAbstract = ctx.codeBlock() == null && !isNative;
         if (isStatic && isAbstract) {
             throw new CompilationException("Static method cannot be abstract");
         }
+        if (isFinal && isAbstract) {
+            throw new CompilationException("Abstract method cannot be final");
+        }
 
         var returnType = TypeMeta.fromContext(importManager, ctx.type());
         var parameters = ctx.parameter().stream()
                 .map(parameter -> new ParameterMeta(parameter.IDENTIFIER().getText(),
                         TypeMeta.fromContext(importManager, parameter.type())))
                 .collect(Collectors.toList());
-        return new MethodMeta(name, isStatic, isNative, isAbstract, returnType, parameters);
+        return new MethodMeta(name, isStatic, isNative, isAbstract, isFinal, returnType, parameters);
+    }
+
+    /**
+     * @return metadata of each instantiation of generic method, or of the method itself if it's not generic
+     */
+    public static List<MethodMeta> instantiationsFromContext(ImportManager importManager, MethodDefinitionContext ctx) {
+        var typeParameters = TypeParameterMeta.fromContext(importManager, ctx.typeParameters());
+        var result = new ArrayList<MethodMeta>();
+        for (var binding : GenericUtils.getBindings(typeParameters)) {
+            importManager.bindTypeParameters(binding);
+            result.add(fromContext(importManager, ctx));
+            importManager.unbindTypeParameters(binding.keySet());
+        }
+        return result;
     }
 
     public String asDescriptor() {
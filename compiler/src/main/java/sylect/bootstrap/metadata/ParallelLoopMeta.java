@@ -0,0 +1,29 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.bootstrap.metadata;
+
+import sylect.SylectParser.ForStatementContext;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Parallel loop body waiting to be compiled into synthetic method that runs one chunk of the range.
+ *
+ * @param methodMeta synthetic method: captured variables are passed before partial values array,
+ *                   range start, chunk size, range end and chunk index
+ * @param captured   names of captured variables, they cannot be assigned inside the loop
+ * @param loop       loop statement
+ * @param indexType  type of loop variable
+ * @param reductions reduction variables, they are locals of synthetic method
+ */
+public record ParallelLoopMeta(
+        MethodMeta methodMeta, Set<String> captured, ForStatementContext loop,
+        TypeMeta indexType, List<Reduction> reductions) {
+
+    /**
+     * @param operation sum, min or max
+     */
+    public record Reduction(String operation, String name, TypeMeta type) {
+    }
+}
@@ -5,6 +5,7 @@ package sylect.bootstrap.metadata;
 import sylect.CompilationException;
 import sylect.SylectParser.TypeContext;
 import sylect.bootstrap.context.ImportManager;
+import sylect.bootstrap.util.GenericUtils;
 
 public record TypeMeta(Kind kind, boolean isArray, String className) {
 
@@ -20,10 +21,29 @@ public record TypeMeta(Kind kind, boolean isArray, String className) {
         boolean isArray = false;
         if (typeString.endsWith("[]")) {
             isArray = true;
-            typeString = typeString.substring(0, typeString.length() - 2);
         }
 
-        var kind = switch (typeString) {
+        if (!isBlackBox && isArray) {
+            throw new CompilationException("arrays have only black-box support");
+        }
+
+        if (ctx.IDENTIFIER() != null) {
+            var identifier = ctx.IDENTIFIER().getText();
+
+            // Type parameters are replaced with types of the instantiation being compiled
+            var typeParameter = importManager.resolveTypeParameter(identifier);
+            if (typeParameter != null) {
+                if (ctx.typeArguments() != null) {
+                    throw new CompilationException("type parameter cannot have type arguments: " + identifier);
+                }
+                return new TypeMeta(typeParameter.kind(), isArray, typeParameter.className());
+            }
+
+            var className = GenericUtils.resolveClassName(importManager, identifier, ctx.typeArguments());
+            return new TypeMeta(Kind.CLASS, isArray, className);
+        }
+
+        var kind = switch (ctx.getChild(0).getText()) {
             case "void" -> Kind.VOID;
             case "int" -> Kind.INTEGER;
             case "long" -> Kind.LONG;
@@ -35,16 +55,9 @@ public record TypeMeta(Kind kind, boolean isArray, String className) {
             case "char" -> Kind.CHAR;
             case "short" -> Kind.SHORT;
 
-            default -> Kind.CLASS;
+            default -> throw new CompilationException("unknown type: " + typeString);
         };
-
-        if (!isBlackBox && (isArray || kind.isBlackBox())) {
-            throw new CompilationException("arrays, bools, bytes, chars and shorts have only black-box support");
-        }
-
-        return new TypeMeta(
-                kind, isArray,
-                kind == Kind.CLASS ? importManager.resolveImport(typeString) : null);
+        return new TypeMeta(kind, isArray, null);
     }
 
     public static TypeMeta fromJavaType(Class<?> clazz) {
@@ -91,7 +104,14 @@ public record TypeMeta(Kind kind, boolean isArray, String className) {
     }
 
     public boolean isBlackBoxType() {
-        return isArray || kind.isBlackBox();
+        return isArray;
+    }
+
+    /**
+     * Checks whether value of this type can be used as a condition in if/while statements and boolean operators.
+     */
+    public boolean isConditionType() {
+        return !isArray && (kind == Kind.INTEGER || kind == Kind.BOOLEAN);
     }
 
     public int getLocalSize() {
@@ -106,6 +126,43 @@ public record TypeMeta(Kind kind, boolean isArray, String className) {
         }
     }
 
+    /**
+     * @return number of bytes primitive value takes in memory, it's also its natural alignment
+     */
+    public int getByteSize() {
+        if (kind == Kind.CLASS || kind == Kind.VOID || isArray) {
+            throw new CompilationException("not a primitive value type: " + this);
+        }
+        return switch (kind) {
+            case BOOLEAN, BYTE -> 1;
+            case CHAR, SHORT -> 2;
+            case INTEGER, FLOAT -> 4;
+            case LONG, DOUBLE -> 8;
+            case VOID, CLASS -> throw new IllegalStateException();
+        };
+    }
+
+    /**
+     * @return keyword of primitive type as written in source
+     */
+    public String asKeyword() {
+        if (kind == Kind.CLASS || isArray) {
+            throw new CompilationException("not a primitive type: " + this);
+        }
+        return switch (kind) {
+            case VOID -> "void";
+            case INTEGER -> "int";
+            case LONG -> "long";
+            case FLOAT -> "float";
+            case DOUBLE -> "double";
+            case BOOLEAN -> "bool";
+            case BYTE -> "byte";
+            case CHAR -> "char";
+            case SHORT -> "short";
+            case CLASS -> throw new IllegalStateException();
+        };
+    }
+
     public String asDescriptor() {
         return (isArray ? "[" : "") + switch (kind) {
             case VOID -> "V";
@@ -124,14 +181,24 @@ public record TypeMeta(Kind kind, boolean isArray, String className) {
     }
 
     public enum Kind {
-        // Supported by Sylect
         VOID, INTEGER, LONG, FLOAT, DOUBLE, CLASS,
 
-        // Supported by Java: black-box support from Sylect
+        // Stored as integers on operand stack and in local variables
         BOOLEAN, BYTE, CHAR, SHORT;
 
-        public boolean isBlackBox() {
-            return this == Kind.BOOLEAN || this == Kind.BYTE || this == Kind.CHAR || this == Kind.SHORT;
+        /**
+         * Checks whether JVM represents values of this kind as int on operand stack.
+         */
+        public boolean isIntBased() {
+            return this == Kind.INTEGER ||
+                    this == Kind.BOOLEAN || this == Kind.BYTE || this == Kind.CHAR || this == Kind.SHORT;
+        }
+
+        /**
+         * Checks whether values of this kind should be narrowed after int arithmetic.
+         */
+        public boolean isNarrowInt() {
+            return this == Kind.BYTE || this == Kind.CHAR || this == Kind.SHORT;
         }
     }
 }
@@ -0,0 +1,63 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.bootstrap.metadata;
+
+import sylect.CompilationException;
+import sylect.SylectParser.TypeParameterContext;
+import sylect.SylectParser.TypeParametersContext;
+import sylect.bootstrap.context.ImportManager;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * @param instantiations types the parameter can take, at most one of them is a reference type
+ *                       that all reference type arguments are erased to
+ */
+public record TypeParameterMeta(String name, List<TypeMeta> instantiations) {
+
+    public static final List<TypeMeta> DEFAULT_INSTANTIATIONS = List.of(
+            new TypeMeta(TypeMeta.Kind.INTEGER, false, null),
+            new TypeMeta(TypeMeta.Kind.LONG, false, null),
+            new TypeMeta(TypeMeta.Kind.DOUBLE, false, null),
+            new TypeMeta(TypeMeta.Kind.CLASS, false, ClassMeta.JAVA_OBJECT));
+
+    public static List<TypeParameterMeta> fromContext(ImportManager importManager, TypeParametersContext ctx) {
+        var result = Optional.ofNullable(ctx)
+                .map(TypeParametersContext::typeParameter)
+                .map(parameters -> parameters.stream()
+                        .map(parameter -> fromContext(importManager, parameter))
+                        .toList())
+                .orElse(List.of());
+
+        var names = new HashSet<String>();
+        for (var parameter : result) {
+            if (!names.add(parameter.name())) {
+                throw new CompilationException("duplicate type parameter: " + parameter.name());
+            }
+        }
+        return result;
+    }
+
+    private static TypeParameterMeta fromContext(ImportManager importManager, TypeParameterContext ctx) {
+        var name = ctx.IDENTIFIER().getText();
+        if (ctx.type().isEmpty()) {
+            return new TypeParameterMeta(name, DEFAULT_INSTANTIATIONS);
+        }
+
+        var instantiations = ctx.type().stream()
+                .map(type -> TypeMeta.fromContext(importManager, type))
+                .distinct()
+                .toList();
+        for (var type : instantiations) {
+            if (type.kind() == TypeMeta.Kind.VOID || type.isArray()) {
+                throw new CompilationException("type parameter cannot be void or array: " + name);
+            }
+        }
+        if (instantiations.stream().filter(type -> type.kind() == TypeMeta.Kind.CLASS).count() > 1) {
+            throw new CompilationException("type parameter can have only one reference type: " + name);
+        }
+        return new TypeParameterMeta(name, instantiations);
+    }
+}
@@ -0,0 +1,15 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.bootstrap.metadata.statement;
+
+/**
+ * Block that needs code on every path out of it, so return, break and continue leaving the block
+ * have to compile its exit first.
+ */
+public sealed interface GuardedBlock permits SynchronizedContext, MeasureContext {
+
+    /**
+     * @return number of enclosing loops, break/continue of inner loops don't leave the block
+     */
+    int loopDepth();
+}
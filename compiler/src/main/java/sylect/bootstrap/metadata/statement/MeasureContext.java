@@ -0,0 +1,14 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.bootstrap.metadata.statement;
+
+import sylect.bootstrap.metadata.LocalMeta;
+import sylect.bootstrap.metadata.TypeMeta;
+
+/**
+ * @param event     local holding the event being timed
+ * @param eventType type of the event, methods are called on it
+ * @param loopDepth number of enclosing loops, break/continue of inner loops don't commit the event
+ */
+public record MeasureContext(LocalMeta event, TypeMeta eventType, int loopDepth) implements GuardedBlock {
+}
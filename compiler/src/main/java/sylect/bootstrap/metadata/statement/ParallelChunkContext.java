@@ -0,0 +1,20 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.bootstrap.metadata.statement;
+
+import org.objectweb.asm.Label;
+import sylect.bootstrap.metadata.LocalMeta;
+
+import java.util.List;
+
+/**
+ * @param index      loop variable
+ * @param limit      end of the chunk
+ * @param reductions partial values of reduction variables
+ * @param body       start of loop body
+ * @param eachBlock  code executed after each iteration, target of continue
+ * @param condition  loop condition
+ */
+public record ParallelChunkContext(
+        LocalMeta index, LocalMeta limit, List<LocalMeta> reductions, Label body, Label eachBlock, Label condition) {
+}
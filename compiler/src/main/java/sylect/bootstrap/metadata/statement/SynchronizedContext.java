@@ -0,0 +1,14 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.bootstrap.metadata.statement;
+
+import org.objectweb.asm.Label;
+import sylect.bootstrap.metadata.LocalMeta;
+
+/**
+ * @param lock      local holding the object whose monitor is entered
+ * @param bodyStart start of the code guarded by the monitor
+ * @param loopDepth number of enclosing loops, break/continue of inner loops don't release the monitor
+ */
+public record SynchronizedContext(LocalMeta lock, Label bodyStart, int loopDepth) implements GuardedBlock {
+}
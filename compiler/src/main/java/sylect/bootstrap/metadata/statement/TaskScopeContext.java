@@ -0,0 +1,17 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.bootstrap.metadata.statement;
+
+import org.objectweb.asm.Label;
+import sylect.bootstrap.metadata.LocalMeta;
+
+/**
+ * @param executor   local holding executor service running tasks of the scope
+ * @param completion local holding completion service, it returns tasks in order of completion
+ * @param count      local holding number of spawned tasks
+ * @param bodyStart  start of the code guarded by the scope
+ * @param loopDepth  number of enclosing loops, break/continue cannot leave the scope
+ */
+public record TaskScopeContext(
+        LocalMeta executor, LocalMeta completion, LocalMeta count, Label bodyStart, int loopDepth) {
+}
@@ -0,0 +1,11 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.bootstrap.metadata.statement;
+
+import org.objectweb.asm.Label;
+import sylect.SylectParser.WhenBranchContext;
+
+import java.util.Map;
+
+public record WhenContext(Map<WhenBranchContext, Label> branches, Label elseBranch, Label otherCode) {
+}
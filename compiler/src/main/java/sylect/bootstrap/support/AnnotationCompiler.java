@@ -13,6 +13,10 @@ import sylect.bootstrap.metadata.MethodMeta;
 import sylect.bootstrap.metadata.TypeMeta;
 import sylect.bootstrap.util.ClassUtils;
 
+import java.lang.annotation.RetentionPolicy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 
 public class AnnotationCompiler {
@@ -25,16 +29,70 @@ public class AnnotationCompiler {
         this.importManager = importManager;
     }
 
+    /**
+     * Visits annotations according to their retention: runtime ones are visible to reflection,
+     * class ones are only stored in class file and source ones are omitted.
+     *
+     * @param visitorGenerator creates visitor for annotation descriptor and its visibility
+     */
     public void visitAnnotationBlock(
             SylectParser.AnnotationBlockContext ctx,
-            Function<String, AnnotationVisitor> visitorGenerator) {
+            BiFunction<String, Boolean, AnnotationVisitor> visitorGenerator) {
         if (ctx == null) {
             return;
         }
 
         for (var definition : ctx.annotationDefinition()) {
-            visitAnnotationDefinition(definition, visitorGenerator, null);
+            var classMeta = classMetaManager.resolveClass(importManager.resolveImport(definition.type().getText()));
+            var retention = classMetaManager.resolveRetention(classMeta);
+            if (retention == RetentionPolicy.SOURCE) {
+                continue;
+            }
+
+            var visible = retention == RetentionPolicy.RUNTIME;
+            visitAnnotationDefinition(definition, desc -> visitorGenerator.apply(desc, visible), null);
+        }
+    }
+
+    /**
+     * Checks if annotation block contains annotation of given class.
+     */
+    public boolean hasAnnotation(SylectParser.AnnotationBlockContext ctx, String className) {
+        if (ctx == null) {
+            return false;
         }
+
+        return ctx.annotationDefinition().stream()
+                .map(definition -> importManager.resolveImport(definition.type().getText()))
+                .anyMatch(className::equals);
+    }
+
+    /**
+     * Reads parameters of annotation at compile time, e.g. to configure code generation.
+     *
+     * @return parameter values as written in source with string literals unquoted,
+     * null if annotation block doesn't contain annotation of given class
+     */
+    public Map<String, String> getAnnotationParameters(SylectParser.AnnotationBlockContext ctx, String className) {
+        if (!hasAnnotation(ctx, className)) {
+            return null;
+        }
+
+        var definition = ctx.annotationDefinition().stream()
+                .filter(annotation -> className.equals(importManager.resolveImport(annotation.type().getText())))
+                .findFirst()
+                .orElseThrow();
+        var result = new HashMap<String, String>();
+        for (var param : definition.annotationParameter()) {
+            if (param.getChildCount() != 4) {
+                throw new CompilationException("single value is expected: " + param.IDENTIFIER(0).getText());
+            }
+            var value = param.STRING_LITERAL().size() == 1 ?
+                    ClassUtils.unquoteStringLiteral(param.STRING_LITERAL(0)) :
+                    param.getChild(2).getText();
+            result.put(param.IDENTIFIER(0).getText(), value);
+        }
+        return result;
     }
 
     private void visitAnnotationDefinition(
@@ -85,7 +143,14 @@ public class AnnotationCompiler {
         if (!param.STRING_LITERAL().isEmpty()) {
             ClassUtils.visitStringLiteral(param.STRING_LITERAL(0), value -> visitor.visit(name, value));
         }
-        if (param.IDENTIFIER().size() > 1) {
+        if (param.IDENTIFIER().size() > 1 && paramType.kind() == TypeMeta.Kind.BOOLEAN) {
+            // Boolean values are written as identifiers
+            var value = param.IDENTIFIER(1).getText();
+            if (!"true".equals(value) && !"false".equals(value)) {
+                throw new CompilationException("bad boolean value " + value + ", expected: true or false");
+            }
+            visitor.visit(name, Boolean.parseBoolean(value));
+        } else if (param.IDENTIFIER().size() > 1) {
             visitor.visit(name, Type.getType(
                     classMetaManager.resolveClass(importManager.resolveImport(param.IDENTIFIER(1).getText()))
                             .asTypeMeta()
@@ -120,8 +185,9 @@ public class AnnotationCompiler {
                     ctx -> ClassUtils.visitStringLiteral(ctx, value -> arrayVisitor.visit(null, value)));
         }
         if (param.IDENTIFIER().size() > 1) {
-            param.IDENTIFIER().forEach(ctx ->
-                    visitor.visit(name, Type.getType(
+            // First identifier is the parameter name
+            param.IDENTIFIER().stream().skip(1).forEach(ctx ->
+                    arrayVisitor.visit(null, Type.getType(
                             classMetaManager.resolveClass(importManager.resolveImport(ctx.getText()))
                                     .asTypeMeta()
                                     .asDescriptor())));
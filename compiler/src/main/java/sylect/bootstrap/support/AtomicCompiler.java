@@ -0,0 +1,161 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.bootstrap.support;
+
+import org.objectweb.asm.ConstantDynamic;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import sylect.CompilationException;
+import sylect.SylectParser.AtomicExpressionContext;
+import sylect.bootstrap.context.ClassMetaManager;
+import sylect.bootstrap.context.ImportManager;
+import sylect.bootstrap.context.ScopeManager;
+import sylect.bootstrap.metadata.FieldMeta;
+import sylect.bootstrap.metadata.TypeMeta;
+import sylect.bootstrap.metadata.TypeMeta.Kind;
+
+import java.util.Objects;
+
+/**
+ * Compiles atomic operations on fields of current class, e.g. {@code atomic count.getAndAdd(1)}.
+ * Operations are invoked on var handle of the field, which is a dynamic constant of the class,
+ * so JIT treats it as a true constant and compiles the call to a single atomic instruction.
+ * Unlike atomic wrappers from {@code java.util.concurrent.atomic}, no objects are allocated per field.
+ * <p>
+ * Supported operations:
+ * <ul>
+ *     <li>{@code cas(expected value)} - compares and sets the field, returns whether it was set</li>
+ *     <li>{@code getAndSet(value)} - sets the field, returns its previous value</li>
+ *     <li>{@code getAndAdd(delta)} - adds to numeric field, returns its previous value</li>
+ * </ul>
+ */
+public class AtomicCompiler {
+
+    private static final String VAR_HANDLE = "java/lang/invoke/VarHandle";
+    private static final String CONSTANT_BOOTSTRAPS = "java/lang/invoke/ConstantBootstraps";
+
+    private static final Handle FIELD_BOOTSTRAP = new Handle(
+            Opcodes.H_INVOKESTATIC,
+            CONSTANT_BOOTSTRAPS,
+            "fieldVarHandle",
+            "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;" +
+                    "Ljava/lang/Class;Ljava/lang/Class;)L" + VAR_HANDLE + ";",
+            false);
+    private static final Handle STATIC_FIELD_BOOTSTRAP = new Handle(
+            Opcodes.H_INVOKESTATIC,
+            CONSTANT_BOOTSTRAPS,
+            "staticFieldVarHandle",
+            "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;" +
+                    "Ljava/lang/Class;Ljava/lang/Class;)L" + VAR_HANDLE + ";",
+            false);
+    private static final Handle PRIMITIVE_CLASS_BOOTSTRAP = new Handle(
+            Opcodes.H_INVOKESTATIC,
+            CONSTANT_BOOTSTRAPS,
+            "primitiveClass",
+            "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;)Ljava/lang/Class;",
+            false);
+
+    private final ClassMetaManager classMetaManager;
+    private final ImportManager importManager;
+    private final ScopeManager scopeManager;
+
+    private final MethodVisitor mv;
+
+    public AtomicCompiler(
+            ClassMetaManager classMetaManager,
+            ImportManager importManager,
+            ScopeManager scopeManager,
+            MethodVisitor mv) {
+
+        this.classMetaManager = Objects.requireNonNull(classMetaManager);
+        this.importManager = Objects.requireNonNull(importManager);
+        this.scopeManager = Objects.requireNonNull(scopeManager);
+
+        this.mv = Objects.requireNonNull(mv);
+    }
+
+    public TypeMeta compile(AtomicExpressionContext ctx) {
+        // Var handles are loaded as dynamic constants
+        if (scopeManager.getOptions().target() < 11) {
+            throw new CompilationException("atomic operations require target 11 or higher");
+        }
+
+        // The first identifier is the keyword
+        var name = ctx.IDENTIFIER(1).getText();
+        var operation = ctx.IDENTIFIER(2).getText();
+        var field = getField(name);
+        var type = field.type();
+
+        var resultType = switch (operation) {
+            case "cas" -> new TypeMeta(Kind.BOOLEAN, false, null);
+            case "getAndSet" -> type;
+            case "getAndAdd" -> {
+                if (type.isArray() || type.kind() == Kind.CLASS || type.kind() == Kind.BOOLEAN) {
+                    throw new CompilationException("getAndAdd requires numeric field: " + name);
+                }
+                yield type;
+            }
+            default -> throw new CompilationException("unknown atomic operation: " + operation);
+        };
+        var argumentCount = "cas".equals(operation) ? 2 : 1;
+        if (ctx.expression().size() != argumentCount) {
+            throw new CompilationException(
+                    "atomic " + operation + " expects " + argumentCount + " arguments, got " + ctx.expression().size());
+        }
+
+        var owner = scopeManager.getClassMeta().name();
+        mv.visitLdcInsn(getVarHandle(owner, field));
+        if (!field.isStatic()) {
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+        }
+        for (var expressionCtx : ctx.expression()) {
+            var argumentType = new ExpressionCompiler(classMetaManager, importManager, scopeManager, mv)
+                    .compile(expressionCtx);
+            if (!argumentType.equals(type)) {
+                throw new CompilationException(
+                        "cannot use " + argumentType + " as " + type + " in atomic " + operation);
+            }
+        }
+
+        // Var handle methods are signature polymorphic, so the call is linked with the exact descriptor
+        var descriptor = "(" + (field.isStatic() ? "" : "L" + owner + ";") +
+                type.asDescriptor().repeat(argumentCount) + ")" + resultType.asDescriptor();
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, VAR_HANDLE,
+                "cas".equals(operation) ? "compareAndSet" : operation, descriptor, false);
+        return resultType;
+    }
+
+    /**
+     * Var handle is created with lookup of current class, so only fields declared in it are accessible.
+     */
+    private FieldMeta getField(String name) {
+        var classMeta = scopeManager.getClassMeta();
+        var field = scopeManager.getField(name);
+        if (field == null || !classMeta.fields().contains(field)) {
+            throw new CompilationException("unknown field of current class: " + name);
+        }
+        if (field.isFinal()) {
+            throw new CompilationException("atomic operations are not allowed on final fields: " + name);
+        }
+        if (classMeta.isStruct() && !field.isStatic()) {
+            throw new CompilationException("atomic operations are not allowed on struct fields: " + name);
+        }
+        if (!field.isStatic() && scopeManager.isStaticMethod()) {
+            throw new CompilationException("could not access non-static field in static method: " + name);
+        }
+        return field;
+    }
+
+    private static ConstantDynamic getVarHandle(String owner, FieldMeta field) {
+        var type = Type.getType(field.asDescriptor());
+        var fieldType = type.getSort() == Type.OBJECT || type.getSort() == Type.ARRAY
+                ? (Object) type
+                : new ConstantDynamic(type.getDescriptor(), "Ljava/lang/Class;", PRIMITIVE_CLASS_BOOTSTRAP);
+        return new ConstantDynamic(
+                field.name(), "L" + VAR_HANDLE + ";",
+                field.isStatic() ? STATIC_FIELD_BOOTSTRAP : FIELD_BOOTSTRAP,
+                Type.getObjectType(owner), fieldType);
+    }
+}
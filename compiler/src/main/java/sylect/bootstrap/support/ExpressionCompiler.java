@@ -11,6 +11,8 @@ import sylect.bootstrap.context.ClassMetaManager;
 import sylect.bootstrap.context.ImportManager;
 import sylect.bootstrap.context.ScopeManager;
 import sylect.bootstrap.metadata.TypeMeta;
+import sylect.bootstrap.metadata.expression.OperatorMeta;
+import sylect.bootstrap.metadata.expression.UnaryOperatorMeta;
 
 import java.util.Objects;
 
@@ -47,8 +49,8 @@ public class ExpressionCompiler {
 
         for (var andExpression : ctx.andExpression()) {
             var typeMeta = compileAndExpression(andExpression);
-            if (!BOOLEAN_PSEUDO_TYPE.equals(typeMeta)) {
-                throw new CompilationException("boolean expression term should evaluate to integer");
+            if (!typeMeta.isConditionType()) {
+                throw new CompilationException("boolean expression term should evaluate to integer or bool");
             }
 
             // Short-circuit to end if not zero (like in C)
@@ -67,6 +69,51 @@ public class ExpressionCompiler {
         return BOOLEAN_PSEUDO_TYPE;
     }
 
+    /**
+     * Compiles expression whose value is stored as given type. Comparisons and boolean operators evaluate
+     * to integers 0 and 1, so they are taken as bool when bool is expected.
+     */
+    public TypeMeta compile(SylectParser.ExpressionContext ctx, TypeMeta expectedType) {
+        var typeMeta = compile(ctx);
+        if (expectedType.kind() == TypeMeta.Kind.BOOLEAN && !expectedType.isArray() &&
+                typeMeta.equals(BOOLEAN_PSEUDO_TYPE) && isCondition(ctx)) {
+            return expectedType;
+        }
+        return typeMeta;
+    }
+
+    private static boolean isCondition(SylectParser.ExpressionContext ctx) {
+        if (ctx.andExpression().size() > 1 || ctx.andExpression(0).mathExpression().size() > 1) {
+            return true;
+        }
+
+        var mathExpression = ctx.andExpression(0).mathExpression(0);
+        if (mathExpression.operator().isEmpty()) {
+            return isCondition(mathExpression.mathTerm(0));
+        }
+
+        // Operator with the lowest precedence is applied last, the rightmost one since operators are left-associative
+        var last = (OperatorMeta) null;
+        for (var operatorContext : mathExpression.operator()) {
+            var operatorMeta = OperatorMeta.fromContext(operatorContext);
+            if (last == null || last.comparePrecedence(operatorMeta) >= 0) {
+                last = operatorMeta;
+            }
+        }
+        return switch (last) {
+            case LESSER, GREATER, LESSER_EQUAL, GREATER_EQUAL, EQUALS, NOT_EQUALS -> true;
+            default -> false;
+        };
+    }
+
+    private static boolean isCondition(SylectParser.MathTermContext ctx) {
+        // The first unary operator is applied last
+        if (!ctx.unaryOperator().isEmpty()) {
+            return UnaryOperatorMeta.fromContext(ctx.unaryOperator(0)) == UnaryOperatorMeta.NOT;
+        }
+        return ctx.expression() != null && isCondition(ctx.expression());
+    }
+
     private TypeMeta compileAndExpression(SylectParser.AndExpressionContext ctx) {
         // If there's only one term - compile and return it as-is
         if (ctx.mathExpression().size() == 1) {
@@ -81,8 +128,8 @@ public class ExpressionCompiler {
             var typeMeta = new MathExpressionCompiler(classMetaManager, importManager, scopeManager, mv)
                     .compile(mathExpression);
 
-            if (!BOOLEAN_PSEUDO_TYPE.equals(typeMeta)) {
-                throw new CompilationException("boolean expression term should evaluate to integer");
+            if (!typeMeta.isConditionType()) {
+                throw new CompilationException("boolean expression term should evaluate to integer or bool");
             }
 
             // Short-circuit to end
@@ -0,0 +1,192 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.bootstrap.support;
+
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ConstantDynamic;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import sylect.CompilationException;
+import sylect.bootstrap.metadata.ClassMeta;
+import sylect.bootstrap.metadata.MethodMeta;
+import sylect.bootstrap.metadata.ParameterMeta;
+import sylect.bootstrap.metadata.TypeMeta;
+import sylect.bootstrap.util.ClassUtils;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Compiles bodies of foreign methods: each of them invokes downcall handle of C function.
+ * The handle is a dynamic constant created by generated bootstrap method on first call,
+ * after that JIT treats it as a true constant and inlines the call down to the native stub.
+ */
+public class ForeignCompiler {
+
+    private static final String LINKER = "java/lang/foreign/Linker";
+    private static final String LINKER_OPTION = "java/lang/foreign/Linker$Option";
+    private static final String SYMBOL_LOOKUP = "java/lang/foreign/SymbolLookup";
+    private static final String FUNCTION_DESCRIPTOR = "java/lang/foreign/FunctionDescriptor";
+    private static final String MEMORY_LAYOUT = "java/lang/foreign/MemoryLayout";
+    private static final String VALUE_LAYOUT = "java/lang/foreign/ValueLayout";
+    private static final String METHOD_HANDLE = "java/lang/invoke/MethodHandle";
+    private static final String OPTIONAL = "java/util/Optional";
+
+    private final ClassVisitor cv;
+    private final Set<String> bootstrapMethods;
+
+    public ForeignCompiler(ClassVisitor cv) {
+        this.cv = cv;
+        this.bootstrapMethods = new HashSet<>();
+    }
+
+    /**
+     * @param library  name or path of shared library, empty for standard C library
+     * @param symbol   name of C function
+     * @param critical whether function can be called without thread state transition
+     */
+    public void compile(
+            ClassMeta classMeta, MethodMeta methodMeta, MethodVisitor mv,
+            String library, String symbol, boolean critical) {
+        var bootstrapName = "foreign$" + methodMeta.name();
+        if (!bootstrapMethods.add(bootstrapName)) {
+            throw new CompilationException("foreign methods cannot be overloaded: " + methodMeta.name());
+        }
+        compileBootstrap(bootstrapName, methodMeta, library, symbol, critical);
+
+        mv.visitLdcInsn(new ConstantDynamic(
+                symbol, "L" + METHOD_HANDLE + ";",
+                new Handle(
+                        Opcodes.H_INVOKESTATIC, classMeta.name(),
+                        bootstrapName, getBootstrapDescriptor(),
+                        false)));
+
+        var offset = 0;
+        for (var parameter : methodMeta.parameters()) {
+            var type = Type.getType(parameter.type().asDescriptor());
+            mv.visitVarInsn(type.getOpcode(Opcodes.ILOAD), offset);
+            offset += type.getSize();
+        }
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, METHOD_HANDLE, "invokeExact", methodMeta.asDescriptor(), false);
+        mv.visitInsn(Type.getType(methodMeta.returnType().asDescriptor()).getOpcode(Opcodes.IRETURN));
+    }
+
+    /**
+     * Finds the symbol and links it with the native linker, failing with {@link UnsatisfiedLinkError}
+     * like JNI does when the symbol is missing.
+     */
+    private void compileBootstrap(
+            String bootstrapName, MethodMeta methodMeta,
+            String library, String symbol, boolean critical) {
+        var mv = cv.visitMethod(
+                Opcodes.ACC_PRIVATE + Opcodes.ACC_STATIC + Opcodes.ACC_SYNTHETIC,
+                bootstrapName, getBootstrapDescriptor(), null, null);
+
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, LINKER, "nativeLinker", "()L" + LINKER + ";", true);
+        if (library.isEmpty()) {
+            mv.visitInsn(Opcodes.DUP);
+            mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, LINKER, "defaultLookup", "()L" + SYMBOL_LOOKUP + ";", true);
+        } else {
+            // Library stays loaded for the lifetime of JVM, like libraries loaded with System.loadLibrary
+            mv.visitLdcInsn(library);
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, ClassMeta.ARENA, "global", "()L" + ClassMeta.ARENA + ";", true);
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, SYMBOL_LOOKUP, "libraryLookup",
+                    "(Ljava/lang/String;L" + ClassMeta.ARENA + ";)L" + SYMBOL_LOOKUP + ";", true);
+        }
+        mv.visitLdcInsn(symbol);
+        mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, SYMBOL_LOOKUP, "find",
+                "(Ljava/lang/String;)L" + OPTIONAL + ";", true);
+
+        var found = new Label();
+        mv.visitInsn(Opcodes.DUP);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, OPTIONAL, "isPresent", "()Z", false);
+        mv.visitJumpInsn(Opcodes.IFNE, found);
+        mv.visitTypeInsn(Opcodes.NEW, "java/lang/UnsatisfiedLinkError");
+        mv.visitInsn(Opcodes.DUP);
+        mv.visitLdcInsn("unknown symbol: " + symbol + (library.isEmpty() ? "" : " in " + library));
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/UnsatisfiedLinkError", "<init>",
+                "(Ljava/lang/String;)V", false);
+        mv.visitInsn(Opcodes.ATHROW);
+
+        mv.visitLabel(found);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, OPTIONAL, "get", "()Ljava/lang/Object;", false);
+        mv.visitTypeInsn(Opcodes.CHECKCAST, ClassMeta.MEMORY_SEGMENT);
+
+        compileFunctionDescriptor(mv, methodMeta);
+
+        mv.visitInsn(critical ? Opcodes.ICONST_1 : Opcodes.ICONST_0);
+        mv.visitTypeInsn(Opcodes.ANEWARRAY, LINKER_OPTION);
+        if (critical) {
+            mv.visitInsn(Opcodes.DUP);
+            mv.visitInsn(Opcodes.ICONST_0);
+            // Heap segments would need to be pinned, so only native memory can be passed to critical functions
+            mv.visitInsn(Opcodes.ICONST_0);
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, LINKER_OPTION, "critical", "(Z)L" + LINKER_OPTION + ";", true);
+            mv.visitInsn(Opcodes.AASTORE);
+        }
+
+        mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, LINKER, "downcallHandle",
+                "(L" + ClassMeta.MEMORY_SEGMENT + ";L" + FUNCTION_DESCRIPTOR + ";[L" + LINKER_OPTION + ";)L" +
+                        METHOD_HANDLE + ";",
+                true);
+        mv.visitInsn(Opcodes.ARETURN);
+        mv.visitMaxs(-1, -1);
+        mv.visitEnd();
+    }
+
+    private static void compileFunctionDescriptor(MethodVisitor mv, MethodMeta methodMeta) {
+        var returnType = methodMeta.returnType();
+        if (returnType.kind() != TypeMeta.Kind.VOID) {
+            compileLayout(mv, returnType);
+        }
+
+        var parameterTypes = methodMeta.parameters().stream().map(ParameterMeta::type).toList();
+        compileLayoutArray(mv, parameterTypes);
+
+        if (returnType.kind() == TypeMeta.Kind.VOID) {
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, FUNCTION_DESCRIPTOR, "ofVoid",
+                    "([L" + MEMORY_LAYOUT + ";)L" + FUNCTION_DESCRIPTOR + ";", true);
+        } else {
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, FUNCTION_DESCRIPTOR, "of",
+                    "(L" + MEMORY_LAYOUT + ";[L" + MEMORY_LAYOUT + ";)L" + FUNCTION_DESCRIPTOR + ";", true);
+        }
+    }
+
+    private static void compileLayoutArray(MethodVisitor mv, List<TypeMeta> types) {
+        mv.visitLdcInsn(types.size());
+        mv.visitTypeInsn(Opcodes.ANEWARRAY, MEMORY_LAYOUT);
+        for (int i = 0; i < types.size(); i++) {
+            mv.visitInsn(Opcodes.DUP);
+            mv.visitLdcInsn(i);
+            compileLayout(mv, types.get(i));
+            mv.visitInsn(Opcodes.AASTORE);
+        }
+    }
+
+    /**
+     * Loads value layout constant corresponding to type, e.g. {@code ValueLayout.JAVA_INT}.
+     */
+    private static void compileLayout(MethodVisitor mv, TypeMeta type) {
+        if (type.kind() == TypeMeta.Kind.CLASS && !type.isArray() &&
+                ClassMeta.MEMORY_SEGMENT.equals(type.className())) {
+            mv.visitFieldInsn(Opcodes.GETSTATIC, VALUE_LAYOUT, "ADDRESS", "Ljava/lang/foreign/AddressLayout;");
+            return;
+        }
+        if (type.kind() == TypeMeta.Kind.CLASS || type.kind() == TypeMeta.Kind.VOID || type.isArray()) {
+            throw new CompilationException("unsupported type of foreign function: " + type);
+        }
+
+        var carrier = Type.getType(type.asDescriptor()).getClassName();
+        mv.visitFieldInsn(Opcodes.GETSTATIC, VALUE_LAYOUT, "JAVA_" + carrier.toUpperCase(Locale.ROOT),
+                "L" + VALUE_LAYOUT + "$Of" + Character.toUpperCase(carrier.charAt(0)) + carrier.substring(1) + ";");
+    }
+
+    private static String getBootstrapDescriptor() {
+        return "(L" + ClassUtils.LOOKUP + ";Ljava/lang/String;Ljava/lang/Class;)L" + METHOD_HANDLE + ";";
+    }
+}
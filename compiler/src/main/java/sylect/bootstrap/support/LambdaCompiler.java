@@ -0,0 +1,454 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.bootstrap.support;
+
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import sylect.CompilationException;
+import sylect.SylectParser;
+import sylect.SylectParser.CodeBlockContext;
+import sylect.SylectParser.FunctionExpressionContext;
+import sylect.SylectParser.LambdaSignatureContext;
+import sylect.SylectParser.MethodReferenceContext;
+import sylect.bootstrap.context.ClassMetaManager;
+import sylect.bootstrap.context.ImportManager;
+import sylect.bootstrap.context.ScopeManager;
+import sylect.bootstrap.metadata.ClassMeta;
+import sylect.bootstrap.metadata.LambdaMeta;
+import sylect.bootstrap.metadata.LocalMeta;
+import sylect.bootstrap.metadata.MethodMeta;
+import sylect.bootstrap.metadata.ParameterMeta;
+import sylect.bootstrap.metadata.TypeMeta;
+import sylect.bootstrap.metadata.TypeMeta.Kind;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Class that compiles lambdas and method references to invokedynamic instructions bootstrapped with
+ * LambdaMetafactory. Lambda bodies are registered in {@link ScopeManager} and compiled into private synthetic
+ * methods after the enclosing method. Lambdas that capture nothing are linked to a constant call site,
+ * so the same instance is returned every time.
+ */
+public class LambdaCompiler {
+
+    static final Handle METAFACTORY = new Handle(
+            Opcodes.H_INVOKESTATIC,
+            "java/lang/invoke/LambdaMetafactory",
+            "metafactory",
+            "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;" +
+                    "Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodHandle;Ljava/lang/invoke/MethodType;)" +
+                    "Ljava/lang/invoke/CallSite;",
+            false);
+
+    // Interfaces may redeclare public methods of Object, they are not implemented by lambdas
+    private static final Set<String> OBJECT_METHODS = Set.of(
+            "equals(Ljava/lang/Object;)Z",
+            "hashCode()I",
+            "toString()Ljava/lang/String;");
+
+    private static final String RUNNABLE = "java/lang/Runnable";
+
+    private final ClassMetaManager classMetaManager;
+    private final ImportManager importManager;
+    private final ScopeManager scopeManager;
+
+    private final MethodVisitor mv;
+
+    public LambdaCompiler(
+            ClassMetaManager classMetaManager,
+            ImportManager importManager,
+            ScopeManager scopeManager,
+            MethodVisitor mv) {
+
+        this.classMetaManager = Objects.requireNonNull(classMetaManager);
+        this.importManager = Objects.requireNonNull(importManager);
+        this.scopeManager = Objects.requireNonNull(scopeManager);
+
+        this.mv = Objects.requireNonNull(mv);
+    }
+
+    public TypeMeta compile(FunctionExpressionContext ctx) {
+        var interfaceMeta = classMetaManager.resolveClass(importManager.resolveImport(ctx.IDENTIFIER(1).getText()));
+        if (!interfaceMeta.iface()) {
+            throw new CompilationException("functional interface expected: " + interfaceMeta.name());
+        }
+        var functionalMethod = findFunctionalMethod(interfaceMeta);
+
+        if (ctx.methodReference() != null) {
+            compileMethodReference(interfaceMeta, functionalMethod, ctx.methodReference());
+        } else {
+            compileLambda(interfaceMeta, functionalMethod, ctx.lambdaSignature(), ctx.codeBlock());
+        }
+        return interfaceMeta.asTypeMeta();
+    }
+
+    private MethodMeta findFunctionalMethod(ClassMeta interfaceMeta) {
+        var abstractMethods = new LinkedHashMap<String, MethodMeta>();
+        var defaultMethods = new HashSet<String>();
+        collectInterfaceMethods(interfaceMeta, abstractMethods, defaultMethods);
+
+        defaultMethods.forEach(abstractMethods::remove);
+        OBJECT_METHODS.forEach(abstractMethods::remove);
+
+        if (abstractMethods.size() != 1) {
+            throw new CompilationException("not a functional interface: " + interfaceMeta.name());
+        }
+        return abstractMethods.values().iterator().next();
+    }
+
+    private void collectInterfaceMethods(
+            ClassMeta classMeta,
+            Map<String, MethodMeta> abstractMethods, Set<String> defaultMethods) {
+
+        for (var methodMeta : classMeta.methods()) {
+            var key = methodMeta.name() + methodMeta.asDescriptor();
+            if (methodMeta.isAbstract()) {
+                abstractMethods.putIfAbsent(key, methodMeta);
+            } else if (!methodMeta.isStatic()) {
+                defaultMethods.add(key);
+            }
+        }
+
+        for (var interfaceName : classMeta.interfaces()) {
+            collectInterfaceMethods(classMetaManager.resolveClass(interfaceName), abstractMethods, defaultMethods);
+        }
+    }
+
+    private void compileLambda(
+            ClassMeta interfaceMeta, MethodMeta functionalMethod,
+            LambdaSignatureContext signature, CodeBlockContext body) {
+
+        var parameterContexts = signature.lambdaParameter();
+        if (parameterContexts.size() != functionalMethod.parameters().size()) {
+            throw new CompilationException("lambda should have " + functionalMethod.parameters().size() +
+                    " parameters to implement " + interfaceMeta.name());
+        }
+
+        // Parameter and return types may be omitted: they are taken from functional interface then
+        var parameters = new ArrayList<ParameterMeta>();
+        for (int i = 0; i < parameterContexts.size(); i++) {
+            var parameterContext = parameterContexts.get(i);
+            var type = parameterContext.type() == null
+                    ? functionalMethod.parameters().get(i).type()
+                    : TypeMeta.fromContext(importManager, parameterContext.type());
+            parameters.add(new ParameterMeta(parameterContext.IDENTIFIER().getText(), type));
+        }
+        var returnType = signature.type() == null
+                ? functionalMethod.returnType()
+                : TypeMeta.fromContext(importManager, signature.type());
+
+        compileLambda(interfaceMeta, functionalMethod, parameters, returnType, body);
+    }
+
+    /**
+     * Compiles code block to {@link Runnable} that captures locals used in the block, e.g. body of spawn expression.
+     */
+    public TypeMeta compileRunnable(CodeBlockContext body) {
+        var interfaceMeta = classMetaManager.resolveClass(RUNNABLE);
+        compileLambda(interfaceMeta, findFunctionalMethod(interfaceMeta),
+                List.of(), new TypeMeta(Kind.VOID, false, null), body);
+        return interfaceMeta.asTypeMeta();
+    }
+
+    private void compileLambda(
+            ClassMeta interfaceMeta, MethodMeta functionalMethod,
+            List<ParameterMeta> parameters, TypeMeta returnType, CodeBlockContext body) {
+
+        var captures = collectCaptures(body, parameters.stream().map(ParameterMeta::name).collect(Collectors.toSet()));
+        var captured = captures.locals();
+        var captureThis = captures.captureThis();
+
+        var syntheticParameters = new ArrayList<ParameterMeta>();
+        captured.forEach(localMeta -> syntheticParameters.add(new ParameterMeta(localMeta.name(), localMeta.type())));
+        syntheticParameters.addAll(parameters);
+
+        var syntheticMethod = new MethodMeta(
+                scopeManager.nextLambdaName(),
+                !captureThis, false, false,
+                returnType,
+                syntheticParameters);
+        scopeManager.addLambda(new LambdaMeta(
+                syntheticMethod,
+                captured.stream().map(LocalMeta::name).collect(Collectors.toSet()),
+                body));
+
+        // Captured values are passed to the factory: they become fields of lambda object
+        var capturedTypes = new ArrayList<TypeMeta>();
+        var classMeta = scopeManager.getClassMeta();
+        if (captureThis) {
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            capturedTypes.add(classMeta.asTypeMeta());
+        }
+        for (var localMeta : captured) {
+            mv.visitVarInsn(Type.getType(localMeta.type().asDescriptor()).getOpcode(Opcodes.ILOAD), localMeta.offset());
+            capturedTypes.add(localMeta.type());
+        }
+
+        var implementation = new Handle(
+                captureThis ? Opcodes.H_INVOKESPECIAL : Opcodes.H_INVOKESTATIC,
+                classMeta.name(), syntheticMethod.name(), syntheticMethod.asDescriptor(),
+                classMeta.iface());
+        compileInvokeDynamic(
+                interfaceMeta, functionalMethod, capturedTypes, implementation,
+                parameters.stream().map(ParameterMeta::type).toList(), returnType);
+    }
+
+    /**
+     * Locals of enclosing method and "this" used by code compiled into synthetic method.
+     */
+    record Captures(List<LocalMeta> locals, boolean captureThis) {
+    }
+
+    /**
+     * Only locals mentioned in the code are captured, "this" is captured only when instance members are used.
+     *
+     * @param declared names declared by the code itself (e.g. lambda parameters), they shadow locals
+     */
+    Captures collectCaptures(ParseTree code, Set<String> declared) {
+        var identifiers = new HashSet<String>();
+        var usesSuper = collectIdentifiers(code, identifiers);
+
+        var captured = new ArrayList<LocalMeta>();
+        scopeManager.forEachLocal(localMeta -> {
+            if (!"this".equals(localMeta.name()) &&
+                    identifiers.contains(localMeta.name()) && !declared.contains(localMeta.name())) {
+                captured.add(localMeta);
+            }
+        });
+        captured.sort(Comparator.comparingInt(LocalMeta::offset));
+        captured.forEach(scopeManager::captureLocal);
+
+        var captureThis = !scopeManager.isStaticMethod() &&
+                (usesSuper || identifiers.contains("this") || identifiers.stream().anyMatch(this::isInstanceMember));
+        return new Captures(captured, captureThis);
+    }
+
+    private void compileMethodReference(
+            ClassMeta interfaceMeta, MethodMeta functionalMethod,
+            MethodReferenceContext ctx) {
+
+        var name = ctx.memberName().getText();
+        var arity = functionalMethod.parameters().size();
+
+        var objectMeta = new ObjectExpressionCompiler(classMetaManager, importManager, scopeManager, mv)
+                .compileChain(ctx.objectExpression());
+
+        // Receiver object is bound to lambda
+        if (objectMeta.isTypeMeta()) {
+            var receiverType = objectMeta.typeMeta();
+            if (receiverType.isArray() || receiverType.kind() != Kind.CLASS) {
+                throw new CompilationException("method reference on primitive type: " + receiverType);
+            }
+
+            // Fail early on null receiver, like javac does
+            mv.visitInsn(Opcodes.DUP);
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC,
+                    "java/util/Objects", "requireNonNull", "(Ljava/lang/Object;)Ljava/lang/Object;", false);
+            mv.visitInsn(Opcodes.POP);
+
+            var classMeta = classMetaManager.resolveClass(receiverType.className());
+            var method = findReferencedMethod(classMeta, name,
+                    methodMeta -> !methodMeta.isStatic() && methodMeta.parameters().size() == arity);
+
+            compileInvokeDynamic(
+                    interfaceMeta, functionalMethod, List.of(receiverType),
+                    virtualHandle(classMeta, method),
+                    parameterTypes(method), method.returnType());
+            return;
+        }
+
+        var classMeta = objectMeta.classMeta();
+
+        // Constructor reference creates a new object
+        if ("constructor".equals(name)) {
+            var method = findReferencedMethod(classMeta, "<init>",
+                    methodMeta -> methodMeta.parameters().size() == arity);
+
+            compileInvokeDynamic(
+                    interfaceMeta, functionalMethod, List.of(),
+                    new Handle(Opcodes.H_NEWINVOKESPECIAL, classMeta.name(), "<init>", method.asDescriptor(), false),
+                    parameterTypes(method), classMeta.asTypeMeta());
+            return;
+        }
+
+        // Static method or instance method which takes receiver as the first parameter
+        var method = findReferencedMethod(classMeta, name,
+                methodMeta -> methodMeta.parameters().size() == (methodMeta.isStatic() ? arity : arity - 1));
+        if (method.isStatic()) {
+            compileInvokeDynamic(
+                    interfaceMeta, functionalMethod, List.of(),
+                    new Handle(Opcodes.H_INVOKESTATIC,
+                            classMeta.name(), method.name(), method.asDescriptor(), classMeta.iface()),
+                    parameterTypes(method), method.returnType());
+        } else {
+            var implementationParameters = new ArrayList<TypeMeta>();
+            implementationParameters.add(classMeta.asTypeMeta());
+            implementationParameters.addAll(parameterTypes(method));
+
+            compileInvokeDynamic(
+                    interfaceMeta, functionalMethod, List.of(),
+                    virtualHandle(classMeta, method),
+                    implementationParameters, method.returnType());
+        }
+    }
+
+    private MethodMeta findReferencedMethod(ClassMeta classMeta, String name, Predicate<MethodMeta> filter) {
+        // Methods overridden in derived classes come first
+        var candidates = new LinkedHashMap<String, MethodMeta>();
+        scopeManager.findMethods(classMeta, name).stream()
+                .filter(filter)
+                .forEach(methodMeta -> candidates.putIfAbsent(methodMeta.asDescriptor(), methodMeta));
+
+        if (candidates.isEmpty()) {
+            throw new CompilationException("unknown method: " + name + " in " + classMeta.name());
+        }
+        if (candidates.size() > 1) {
+            throw new CompilationException("ambiguous method reference: " + name + " in " + classMeta.name());
+        }
+        return candidates.values().iterator().next();
+    }
+
+    private Handle virtualHandle(ClassMeta classMeta, MethodMeta method) {
+        return new Handle(
+                classMeta.iface() ? Opcodes.H_INVOKEINTERFACE : Opcodes.H_INVOKEVIRTUAL,
+                classMeta.name(), method.name(), method.asDescriptor(), classMeta.iface());
+    }
+
+    private void compileInvokeDynamic(
+            ClassMeta interfaceMeta, MethodMeta functionalMethod,
+            List<TypeMeta> capturedTypes, Handle implementation,
+            List<TypeMeta> implementationParameters, TypeMeta implementationReturnType) {
+
+        var factoryDescriptor = "(" + capturedTypes.stream()
+                .map(TypeMeta::asDescriptor)
+                .collect(Collectors.joining()) + ")" + interfaceMeta.asTypeMeta().asDescriptor();
+
+        mv.visitInvokeDynamicInsn(
+                functionalMethod.name(), factoryDescriptor, METAFACTORY,
+                Type.getMethodType(functionalMethod.asDescriptor()),
+                implementation,
+                Type.getMethodType(instantiatedDescriptor(
+                        functionalMethod, implementationParameters, implementationReturnType)));
+    }
+
+    /**
+     * Determines the most specific signature of functional method that implementation method accepts.
+     * LambdaMetafactory then inserts casts, boxing and unboxing where needed.
+     */
+    private String instantiatedDescriptor(
+            MethodMeta functionalMethod,
+            List<TypeMeta> implementationParameters, TypeMeta implementationReturnType) {
+
+        var parameters = new StringBuilder();
+        for (int i = 0; i < implementationParameters.size(); i++) {
+            parameters.append(adaptType(
+                    functionalMethod.parameters().get(i).type(), implementationParameters.get(i), true
+            ).asDescriptor());
+        }
+
+        // Result of implementation method is dropped when functional method returns nothing
+        var returnType = functionalMethod.returnType();
+        if (returnType.kind() != Kind.VOID) {
+            returnType = adaptType(returnType, implementationReturnType, false);
+        }
+
+        return "(" + parameters + ")" + returnType.asDescriptor();
+    }
+
+    private TypeMeta adaptType(TypeMeta functionalType, TypeMeta implementationType, boolean isParameter) {
+        if (functionalType.equals(implementationType)) {
+            return functionalType;
+        }
+
+        if (isReference(functionalType)) {
+            if (isReference(implementationType)) {
+                if (isAssignable(implementationType, functionalType)) {
+                    return implementationType;
+                }
+                // Implementation may accept more general parameters
+                if (isParameter && isAssignable(functionalType, implementationType)) {
+                    return functionalType;
+                }
+            } else if (implementationType.kind() != Kind.VOID) {
+                var boxedType = boxedType(implementationType);
+                if (isAssignable(boxedType, functionalType)) {
+                    return boxedType;
+                }
+            }
+        }
+
+        throw new CompilationException("incompatible types: " + implementationType + " and " + functionalType);
+    }
+
+    private boolean isAssignable(TypeMeta from, TypeMeta to) {
+        if (to.kind() == Kind.CLASS && !to.isArray() && ClassMeta.JAVA_OBJECT.equals(to.className())) {
+            return true;
+        }
+        if (from.isArray() || to.isArray()) {
+            return from.equals(to);
+        }
+        return classMetaManager.isSubclassOf(classMetaManager.resolveClass(from.className()), to.className());
+    }
+
+    private boolean isInstanceMember(String name) {
+        var fieldMeta = scopeManager.getField(name);
+        if (fieldMeta != null && !fieldMeta.isStatic()) {
+            return true;
+        }
+        return scopeManager.findMethods(scopeManager.getClassMeta(), name).stream()
+                .anyMatch(methodMeta -> !methodMeta.isStatic());
+    }
+
+    private static boolean collectIdentifiers(ParseTree tree, Set<String> identifiers) {
+        if (tree instanceof TerminalNode terminalNode) {
+            if (terminalNode.getSymbol().getType() == SylectParser.IDENTIFIER) {
+                identifiers.add(terminalNode.getText());
+            }
+            return "super".equals(terminalNode.getText());
+        }
+
+        var usesSuper = false;
+        for (int i = 0; i < tree.getChildCount(); i++) {
+            usesSuper |= collectIdentifiers(tree.getChild(i), identifiers);
+        }
+        return usesSuper;
+    }
+
+    private static List<TypeMeta> parameterTypes(MethodMeta methodMeta) {
+        return methodMeta.parameters().stream().map(ParameterMeta::type).toList();
+    }
+
+    private static boolean isReference(TypeMeta typeMeta) {
+        return typeMeta.isArray() || typeMeta.kind() == Kind.CLASS;
+    }
+
+    private static TypeMeta boxedType(TypeMeta typeMeta) {
+        var className = switch (typeMeta.kind()) {
+            case INTEGER -> "java/lang/Integer";
+            case LONG -> "java/lang/Long";
+            case FLOAT -> "java/lang/Float";
+            case DOUBLE -> "java/lang/Double";
+
+            case BOOLEAN -> "java/lang/Boolean";
+            case BYTE -> "java/lang/Byte";
+            case CHAR -> "java/lang/Character";
+            case SHORT -> "java/lang/Short";
+
+            default -> throw new CompilationException("could not box: " + typeMeta);
+        };
+        return new TypeMeta(Kind.CLASS, false, className);
+    }
+}
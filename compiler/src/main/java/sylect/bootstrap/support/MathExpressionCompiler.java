@@ -85,6 +85,21 @@ public class MathExpressionCompiler {
             operandType = ClassUtils.visitLiteral(ctx.LITERAL(), mv::visitLdcInsn);
         }
 
+        if (ctx.functionExpression() != null) {
+            operandType = new LambdaCompiler(classMetaManager, importManager, scopeManager, mv)
+                    .compile(ctx.functionExpression());
+        }
+
+        if (ctx.spawnExpression() != null) {
+            operandType = new TaskCompiler(classMetaManager, importManager, scopeManager, mv)
+                    .compileSpawn(ctx.spawnExpression());
+        }
+
+        if (ctx.atomicExpression() != null) {
+            operandType = new AtomicCompiler(classMetaManager, importManager, scopeManager, mv)
+                    .compile(ctx.atomicExpression());
+        }
+
         if (ctx.objectExpression() != null) {
             operandType = new ObjectExpressionCompiler(classMetaManager, importManager, scopeManager, mv)
                     .compile(ctx.objectExpression());
@@ -112,19 +127,29 @@ public class MathExpressionCompiler {
         var unaryOp = UnaryOperatorMeta.fromContext(ctx);
         return switch (unaryOp) {
             case MINUS -> {
+                if (operandType.isArray()) {
+                    throw new CompilationException("could not negate: " + operandType);
+                }
+
                 switch (operandType.kind()) {
                     case INTEGER -> mv.visitInsn(Opcodes.INEG);
                     case LONG -> mv.visitInsn(Opcodes.LNEG);
                     case FLOAT -> mv.visitInsn(Opcodes.FNEG);
                     case DOUBLE -> mv.visitInsn(Opcodes.DNEG);
+
+                    case BYTE, CHAR, SHORT -> {
+                        mv.visitInsn(Opcodes.INEG);
+                        compileNarrowing(operandType);
+                    }
+
                     default -> throw new CompilationException("could not negate: " + operandType);
                 }
                 yield operandType;
             }
 
             case NOT -> {
-                if (operandType.kind() != Kind.INTEGER) {
-                    throw new CompilationException("NOT operator works only on integers: " + operandType);
+                if (!operandType.isConditionType()) {
+                    throw new CompilationException("NOT operator works only on integers and bools: " + operandType);
                 }
 
                 var whenZero = new Label();
@@ -140,7 +165,7 @@ public class MathExpressionCompiler {
 
                 mv.visitLabel(otherCode);
 
-                yield operandType; // always integer
+                yield operandType; // always integer or bool
             }
 
             case TYPE_CONVERSION -> {
@@ -148,9 +173,9 @@ public class MathExpressionCompiler {
 
                 if (targetType.isBlackBoxType() || operandType.isBlackBoxType()) {
                     compileBlackBoxTypeConversion(targetType, operandType);
-                } else {
+                } else if (!targetType.equals(operandType)) {
                     switch (operandType.kind()) {
-                        case INTEGER -> compileTypeConversion(
+                        case INTEGER, BOOLEAN, BYTE, CHAR, SHORT -> compileTypeConversion(
                                 targetType, Opcodes.NOP, Opcodes.I2L, Opcodes.I2F, Opcodes.I2D);
                         case LONG -> compileTypeConversion(
                                 targetType, Opcodes.L2I, Opcodes.NOP, Opcodes.L2F, Opcodes.L2D);
@@ -173,14 +198,43 @@ public class MathExpressionCompiler {
 
     private void compileTypeConversion(TypeMeta targetType, int toInt, int toLong, int toFloat, int toDouble) {
         switch (targetType.kind()) {
-            case INTEGER -> mv.visitInsn(toInt);
-            case LONG -> mv.visitInsn(toLong);
-            case FLOAT -> mv.visitInsn(toFloat);
-            case DOUBLE -> mv.visitInsn(toDouble);
+            case INTEGER -> compileConversionInsn(toInt);
+            case LONG -> compileConversionInsn(toLong);
+            case FLOAT -> compileConversionInsn(toFloat);
+            case DOUBLE -> compileConversionInsn(toDouble);
+
+            case BYTE, CHAR, SHORT -> {
+                compileConversionInsn(toInt);
+                compileNarrowing(targetType);
+            }
+
+            case BOOLEAN -> {
+                // Only integer types could be converted to bool: any non-zero value is true
+                if (toInt != Opcodes.NOP) {
+                    throw new CompilationException("could not convert to: " + targetType);
+                }
+                compileIntegerComparison(Opcodes.IFNE);
+            }
+
             default -> throw new CompilationException("could not convert to: " + targetType);
         }
     }
 
+    private void compileConversionInsn(int op) {
+        if (op != Opcodes.NOP) {
+            mv.visitInsn(op);
+        }
+    }
+
+    private void compileNarrowing(TypeMeta typeMeta) {
+        switch (typeMeta.kind()) {
+            case BYTE -> mv.visitInsn(Opcodes.I2B);
+            case CHAR -> mv.visitInsn(Opcodes.I2C);
+            case SHORT -> mv.visitInsn(Opcodes.I2S);
+            default -> { /* Value is already in range */ }
+        }
+    }
+
     private void compileBlackBoxTypeConversion(TypeMeta targetType, TypeMeta operandType) {
         // We can convert between object array types
         if (operandType.isArray() && targetType.isArray() &&
@@ -197,27 +251,6 @@ public class MathExpressionCompiler {
             return;
         }
 
-        // We can convert other black box types to integer by doing nothing
-        if (operandType.isBlackBoxType()) {
-            if (Kind.INTEGER.equals(targetType.kind())) {
-                return;
-            } else {
-                throw new CompilationException("could not convert " + operandType + " to non-integer type");
-            }
-        }
-
-        // We can convert integer to other black box types
-        if (Kind.INTEGER.equals(operandType.kind()) && targetType.isBlackBoxType()) {
-            switch (targetType.kind()) {
-                case BOOLEAN -> { /* Just do nothing */ }
-                case BYTE -> mv.visitInsn(Opcodes.I2B);
-                case CHAR -> mv.visitInsn(Opcodes.I2C);
-                case SHORT -> mv.visitInsn(Opcodes.I2S);
-                default -> throw new CompilationException("integer could not be converted to: " + targetType);
-            }
-            return;
-        }
-
         throw new CompilationException("could not convert " + operandType + " to: " + targetType);
     }
 
@@ -253,24 +286,43 @@ public class MathExpressionCompiler {
             throw new CompilationException("type mismatch: " + left + " (op) " + right);
         }
 
+        if (left.isArray()) {
+            throw new CompilationException("unsupported operand type: " + left);
+        }
+
         switch (left.kind()) {
             case INTEGER -> mv.visitInsn(intOp);
             case LONG -> mv.visitInsn(longOp);
             case FLOAT -> mv.visitInsn(floatOp);
             case DOUBLE -> mv.visitInsn(doubleOp);
+
+            case BYTE, CHAR, SHORT -> {
+                mv.visitInsn(intOp);
+                compileNarrowing(left);
+            }
+
             default -> throw new CompilationException("unsupported operand type: " + left);
         }
         operands.push(left);
     }
 
     private void shiftOperator(TypeMeta left, TypeMeta right, int intOp, int longOp) {
-        if (right.kind() != Kind.INTEGER) {
+        if (right.isArray() || !right.kind().isIntBased() || right.kind() == Kind.BOOLEAN) {
             throw new CompilationException("operand should be integer: " + right);
         }
+        if (left.isArray()) {
+            throw new CompilationException("unsupported operand type: " + left);
+        }
 
         switch (left.kind()) {
             case INTEGER -> mv.visitInsn(intOp);
             case LONG -> mv.visitInsn(longOp);
+
+            case BYTE, CHAR, SHORT -> {
+                mv.visitInsn(intOp);
+                compileNarrowing(left);
+            }
+
             default -> throw new CompilationException("unsupported operand type: " + left);
         }
         operands.push(left);
@@ -281,8 +333,13 @@ public class MathExpressionCompiler {
             throw new CompilationException("type mismatch: " + left + " (op) " + right);
         }
 
+        if (left.isArray()) {
+            throw new CompilationException("unsupported operand type: " + left);
+        }
+
+        // Bitwise operations on values of the same narrow type never leave its range
         switch (left.kind()) {
-            case INTEGER -> mv.visitInsn(intOp);
+            case INTEGER, BOOLEAN, BYTE, CHAR, SHORT -> mv.visitInsn(intOp);
             case LONG -> mv.visitInsn(longOp);
             default -> throw new CompilationException("unsupported operand type: " + left);
         }
@@ -294,8 +351,12 @@ public class MathExpressionCompiler {
             throw new CompilationException("type mismatch: " + left + " (op) " + right);
         }
 
+        if (left.isArray()) {
+            throw new CompilationException("unsupported operand type: " + left);
+        }
+
         switch (left.kind()) {
-            case INTEGER -> {
+            case INTEGER, BYTE, CHAR, SHORT -> {
                 switch (operatorMeta) {
                     case LESSER -> compileIntegerComparison(Opcodes.IF_ICMPLT);
                     case GREATER -> compileIntegerComparison(Opcodes.IF_ICMPGT);
@@ -308,6 +369,14 @@ public class MathExpressionCompiler {
                     default -> throw new CompilationException("unknown comparison operator: " + operatorMeta);
                 }
             }
+            case BOOLEAN -> {
+                switch (operatorMeta) {
+                    case EQUALS -> compileIntegerComparison(Opcodes.IF_ICMPEQ);
+                    case NOT_EQUALS -> compileIntegerComparison(Opcodes.IF_ICMPNE);
+
+                    default -> throw new CompilationException("bools could only be compared for equality");
+                }
+            }
             case LONG -> compileTwoStepComparison(operatorMeta, Opcodes.LCMP);
 
             // TODO: Proper NaN treatment
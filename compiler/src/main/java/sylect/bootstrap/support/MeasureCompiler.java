@@ -0,0 +1,89 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.bootstrap.support;
+
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import sylect.CompilationException;
+import sylect.SylectParser.MeasureStatementContext;
+import sylect.bootstrap.context.ClassMetaManager;
+import sylect.bootstrap.context.ImportManager;
+import sylect.bootstrap.context.ScopeManager;
+import sylect.bootstrap.metadata.TypeMeta;
+import sylect.bootstrap.metadata.statement.MeasureContext;
+
+import java.util.Objects;
+
+/**
+ * Compiles measure blocks timing the code with JFR event, e.g. {@code measure event { ... }}.
+ * Event is created before the block, its duration is recorded with {@code begin()} and {@code end()}.
+ * The event is committed only if {@code shouldCommit()} returns true, i.e. recording of the event is enabled
+ * and its duration exceeds the threshold. JFR instruments event classes when they are registered,
+ * so while recording is disabled these calls are empty and JIT removes them, usually along with the allocation.
+ * <p>
+ * Event is committed when the block completes normally or is left with return, break or continue.
+ * Exceptions leave the event uncommitted, since the measured operation hasn't completed.
+ */
+public class MeasureCompiler {
+
+    private static final String EVENT_CLASS = "jdk/jfr/Event";
+
+    private final ClassMetaManager classMetaManager;
+    private final ImportManager importManager;
+    private final ScopeManager scopeManager;
+
+    private final MethodVisitor mv;
+
+    public MeasureCompiler(
+            ClassMetaManager classMetaManager,
+            ImportManager importManager,
+            ScopeManager scopeManager,
+            MethodVisitor mv) {
+
+        this.classMetaManager = Objects.requireNonNull(classMetaManager);
+        this.importManager = Objects.requireNonNull(importManager);
+        this.scopeManager = Objects.requireNonNull(scopeManager);
+
+        this.mv = Objects.requireNonNull(mv);
+    }
+
+    /**
+     * Evaluates the event once and stores it in a local, so the same event is committed.
+     * To set its fields in the block, the event should be assigned to a variable first.
+     *
+     * @param loopDepth number of loops enclosing the block
+     */
+    public MeasureContext compileStart(MeasureStatementContext ctx, int loopDepth) {
+        var eventType = new ExpressionCompiler(classMetaManager, importManager, scopeManager, mv)
+                .compile(ctx.expression());
+        if (eventType.isArray() || eventType.kind() != TypeMeta.Kind.CLASS ||
+                !classMetaManager.isSubclassOf(classMetaManager.resolveClass(eventType.className()), EVENT_CLASS)) {
+            throw new CompilationException("measure requires subclass of " + EVENT_CLASS + ", got: " + eventType);
+        }
+
+        var event = scopeManager.addSyntheticLocal(eventType);
+        mv.visitInsn(Opcodes.DUP);
+        mv.visitVarInsn(Opcodes.ASTORE, event.offset());
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, eventType.className(), "begin", "()V", false);
+        return new MeasureContext(event, eventType, loopDepth);
+    }
+
+    /**
+     * Ends the event and commits it if it passes recording settings, also before control leaves the block
+     * with return, break or continue.
+     */
+    public void compileCommit(MeasureContext block) {
+        var owner = block.eventType().className();
+        var otherCode = new Label();
+
+        mv.visitVarInsn(Opcodes.ALOAD, block.event().offset());
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, owner, "end", "()V", false);
+        mv.visitVarInsn(Opcodes.ALOAD, block.event().offset());
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, owner, "shouldCommit", "()Z", false);
+        mv.visitJumpInsn(Opcodes.IFEQ, otherCode);
+        mv.visitVarInsn(Opcodes.ALOAD, block.event().offset());
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, owner, "commit", "()V", false);
+        mv.visitLabel(otherCode);
+    }
+}
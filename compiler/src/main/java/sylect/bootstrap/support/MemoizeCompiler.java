@@ -0,0 +1,290 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.bootstrap.support;
+
+import org.objectweb.asm.ConstantDynamic;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import sylect.CompilationException;
+import sylect.bootstrap.metadata.ClassMeta;
+import sylect.bootstrap.metadata.MethodMeta;
+import sylect.bootstrap.metadata.ParameterMeta;
+import sylect.bootstrap.metadata.TypeMeta.Kind;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Compiles memoized methods: annotated method looks up the cache and calls the implementation method
+ * containing the original body only on miss. The cache is a dynamic constant created on first call,
+ * so memoization doesn't need static fields or class initialization code.
+ * <p>
+ * Primitive arguments are packed into a {@code long} key when they fit, a single reference argument is a key
+ * itself, otherwise arguments are boxed into a list. Primitive results are stored as {@code long} bits.
+ */
+public class MemoizeCompiler {
+
+    private static final String RUNTIME_PACKAGE = "sylect/runtime/";
+    private static final String OBJECT = "java/lang/Object";
+
+    // Cached primitive value may be equal to it, so the cache is asked again whether the key is present
+    private static final long ABSENT = Long.MIN_VALUE;
+
+    private static final Handle INVOKE_BOOTSTRAP = new Handle(
+            Opcodes.H_INVOKESTATIC,
+            "java/lang/invoke/ConstantBootstraps",
+            "invoke",
+            "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;" +
+                    "Ljava/lang/invoke/MethodHandle;[Ljava/lang/Object;)Ljava/lang/Object;",
+            false);
+
+    private final Set<String> memoizedMethods;
+
+    public MemoizeCompiler() {
+        this.memoizedMethods = new HashSet<>();
+    }
+
+    public static String getImplementationName(MethodMeta methodMeta) {
+        return "memoized$" + methodMeta.name();
+    }
+
+    /**
+     * @return runtime library class caching results of the method
+     */
+    public static String getCacheClassName(MethodMeta methodMeta, boolean threadSafe) {
+        var packed = isPacked(methodMeta.parameters());
+        return RUNTIME_PACKAGE + (threadSafe ? "Striped" : "") + (packed ? "Long" : "Object") + "Cache";
+    }
+
+    /**
+     * @param maxSize    maximum number of cached results
+     * @param threadSafe whether striped cache guarded by locks should be used
+     */
+    public void compile(ClassMeta classMeta, MethodMeta methodMeta, MethodVisitor mv, int maxSize, boolean threadSafe) {
+        validate(methodMeta, maxSize);
+
+        var packed = isPacked(methodMeta.parameters());
+        var cacheClass = getCacheClassName(methodMeta, threadSafe);
+        var cache = new ConstantDynamic(
+                getImplementationName(methodMeta), "L" + cacheClass + ";", INVOKE_BOOTSTRAP,
+                new Handle(Opcodes.H_NEWINVOKESPECIAL, cacheClass, "<init>", "(I)V", false),
+                maxSize);
+        var keyType = packed ? Type.LONG_TYPE : Type.getObjectType(OBJECT);
+        var resultType = Type.getType(methodMeta.returnType().asDescriptor());
+
+        var keySlot = compileLoadParameters(null, methodMeta.parameters());
+        var resultSlot = keySlot + keyType.getSize();
+        compileKey(mv, methodMeta.parameters(), packed);
+        mv.visitVarInsn(keyType.getOpcode(Opcodes.ISTORE), keySlot);
+
+        var hit = new Label();
+        if (resultType.getSort() == Type.OBJECT || resultType.getSort() == Type.ARRAY) {
+            // Null results are not cached, since null means missing key
+            var miss = new Label();
+            mv.visitLdcInsn(cache);
+            mv.visitVarInsn(keyType.getOpcode(Opcodes.ILOAD), keySlot);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, cacheClass, "get",
+                    "(" + keyType.getDescriptor() + ")L" + OBJECT + ";", false);
+            mv.visitInsn(Opcodes.DUP);
+            mv.visitJumpInsn(Opcodes.IFNULL, miss);
+            mv.visitTypeInsn(Opcodes.CHECKCAST, resultType.getInternalName());
+            mv.visitInsn(Opcodes.ARETURN);
+
+            mv.visitLabel(miss);
+            mv.visitInsn(Opcodes.POP);
+            compileLoadParameters(mv, methodMeta.parameters());
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, classMeta.name(),
+                    getImplementationName(methodMeta), methodMeta.asDescriptor(), false);
+            mv.visitVarInsn(Opcodes.ASTORE, resultSlot);
+            mv.visitLdcInsn(cache);
+            mv.visitVarInsn(keyType.getOpcode(Opcodes.ILOAD), keySlot);
+            mv.visitVarInsn(Opcodes.ALOAD, resultSlot);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, cacheClass, "put",
+                    "(" + keyType.getDescriptor() + "L" + OBJECT + ";)V", false);
+            mv.visitVarInsn(Opcodes.ALOAD, resultSlot);
+            mv.visitInsn(Opcodes.ARETURN);
+        } else {
+            mv.visitLdcInsn(cache);
+            mv.visitVarInsn(keyType.getOpcode(Opcodes.ILOAD), keySlot);
+            mv.visitLdcInsn(ABSENT);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, cacheClass, "getLong",
+                    "(" + keyType.getDescriptor() + "J)J", false);
+            mv.visitInsn(Opcodes.DUP2);
+            mv.visitVarInsn(Opcodes.LSTORE, resultSlot);
+            mv.visitLdcInsn(ABSENT);
+            mv.visitInsn(Opcodes.LCMP);
+            mv.visitJumpInsn(Opcodes.IFNE, hit);
+            mv.visitLdcInsn(cache);
+            mv.visitVarInsn(keyType.getOpcode(Opcodes.ILOAD), keySlot);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, cacheClass, "containsKey",
+                    "(" + keyType.getDescriptor() + ")Z", false);
+            mv.visitJumpInsn(Opcodes.IFNE, hit);
+
+            compileLoadParameters(mv, methodMeta.parameters());
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, classMeta.name(),
+                    getImplementationName(methodMeta), methodMeta.asDescriptor(), false);
+            compileToBits(mv, resultType);
+            mv.visitVarInsn(Opcodes.LSTORE, resultSlot);
+            mv.visitLdcInsn(cache);
+            mv.visitVarInsn(keyType.getOpcode(Opcodes.ILOAD), keySlot);
+            mv.visitVarInsn(Opcodes.LLOAD, resultSlot);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, cacheClass, "putLong",
+                    "(" + keyType.getDescriptor() + "J)V", false);
+
+            mv.visitLabel(hit);
+            mv.visitVarInsn(Opcodes.LLOAD, resultSlot);
+            compileFromBits(mv, resultType);
+            mv.visitInsn(resultType.getOpcode(Opcodes.IRETURN));
+        }
+        mv.visitMaxs(-1, -1);
+        mv.visitEnd();
+    }
+
+    private void validate(MethodMeta methodMeta, int maxSize) {
+        if (!methodMeta.isStatic() || methodMeta.isNative() || methodMeta.isAbstract()) {
+            throw new CompilationException("memoized methods must be static and have body: " + methodMeta.name());
+        }
+        if (methodMeta.returnType().kind() == Kind.VOID) {
+            throw new CompilationException("memoized methods must return value: " + methodMeta.name());
+        }
+        // Arrays are compared by identity, so the cache would be useless or even wrong after they are modified
+        if (methodMeta.parameters().stream().anyMatch(parameter -> parameter.type().isArray())) {
+            throw new CompilationException("memoized methods cannot have array parameters: " + methodMeta.name());
+        }
+        if (maxSize <= 0) {
+            throw new CompilationException("cache size should be positive: " + maxSize);
+        }
+        if (!memoizedMethods.add(methodMeta.name())) {
+            throw new CompilationException("memoized methods cannot be overloaded: " + methodMeta.name());
+        }
+    }
+
+    private static boolean isPacked(List<ParameterMeta> parameters) {
+        var bits = 0;
+        for (var parameter : parameters) {
+            if (parameter.type().kind() == Kind.CLASS) {
+                return false;
+            }
+            bits += getBits(parameter.type().kind());
+        }
+        return bits <= Long.SIZE;
+    }
+
+    private static int getBits(Kind kind) {
+        return switch (kind) {
+            case BOOLEAN, BYTE -> Byte.SIZE;
+            case CHAR, SHORT -> Short.SIZE;
+            case INTEGER, FLOAT -> Integer.SIZE;
+            case LONG, DOUBLE -> Long.SIZE;
+            default -> throw new IllegalArgumentException("not a primitive kind: " + kind);
+        };
+    }
+
+    /**
+     * Loads parameters onto the stack, when visitor is null only counts their slots.
+     *
+     * @return number of slots taken by parameters
+     */
+    private static int compileLoadParameters(MethodVisitor mv, List<ParameterMeta> parameters) {
+        var offset = 0;
+        for (var parameter : parameters) {
+            var type = Type.getType(parameter.type().asDescriptor());
+            if (mv != null) {
+                mv.visitVarInsn(type.getOpcode(Opcodes.ILOAD), offset);
+            }
+            offset += type.getSize();
+        }
+        return offset;
+    }
+
+    private static void compileKey(MethodVisitor mv, List<ParameterMeta> parameters, boolean packed) {
+        if (packed) {
+            // Each argument is shifted by sizes of arguments following it, masks keep higher bits clear
+            mv.visitInsn(Opcodes.LCONST_0);
+            var offset = 0;
+            for (var parameter : parameters) {
+                var type = Type.getType(parameter.type().asDescriptor());
+                var bits = getBits(parameter.type().kind());
+                if (bits < Long.SIZE) {
+                    mv.visitLdcInsn(bits);
+                    mv.visitInsn(Opcodes.LSHL);
+                }
+                mv.visitVarInsn(type.getOpcode(Opcodes.ILOAD), offset);
+                compileToBits(mv, type);
+                if (bits < Long.SIZE) {
+                    mv.visitLdcInsn((1L << bits) - 1);
+                    mv.visitInsn(Opcodes.LAND);
+                }
+                mv.visitInsn(Opcodes.LOR);
+                offset += type.getSize();
+            }
+        } else if (parameters.size() == 1) {
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+        } else {
+            mv.visitLdcInsn(parameters.size());
+            mv.visitTypeInsn(Opcodes.ANEWARRAY, OBJECT);
+            var offset = 0;
+            for (int i = 0; i < parameters.size(); i++) {
+                var type = Type.getType(parameters.get(i).type().asDescriptor());
+                mv.visitInsn(Opcodes.DUP);
+                mv.visitLdcInsn(i);
+                mv.visitVarInsn(type.getOpcode(Opcodes.ILOAD), offset);
+                compileBox(mv, type);
+                mv.visitInsn(Opcodes.AASTORE);
+                offset += type.getSize();
+            }
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/util/Arrays", "asList",
+                    "([L" + OBJECT + ";)Ljava/util/List;", false);
+        }
+    }
+
+    private static void compileToBits(MethodVisitor mv, Type type) {
+        switch (type.getSort()) {
+            case Type.FLOAT -> {
+                mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Float", "floatToRawIntBits", "(F)I", false);
+                mv.visitInsn(Opcodes.I2L);
+            }
+            case Type.DOUBLE -> mv.visitMethodInsn(
+                    Opcodes.INVOKESTATIC, "java/lang/Double", "doubleToRawLongBits", "(D)J", false);
+            case Type.LONG -> {
+            }
+            default -> mv.visitInsn(Opcodes.I2L);
+        }
+    }
+
+    private static void compileFromBits(MethodVisitor mv, Type type) {
+        switch (type.getSort()) {
+            case Type.FLOAT -> {
+                mv.visitInsn(Opcodes.L2I);
+                mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Float", "intBitsToFloat", "(I)F", false);
+            }
+            case Type.DOUBLE -> mv.visitMethodInsn(
+                    Opcodes.INVOKESTATIC, "java/lang/Double", "longBitsToDouble", "(J)D", false);
+            case Type.LONG -> {
+            }
+            default -> mv.visitInsn(Opcodes.L2I);
+        }
+    }
+
+    private static void compileBox(MethodVisitor mv, Type type) {
+        var wrapper = switch (type.getSort()) {
+            case Type.BOOLEAN -> "java/lang/Boolean";
+            case Type.BYTE -> "java/lang/Byte";
+            case Type.CHAR -> "java/lang/Character";
+            case Type.SHORT -> "java/lang/Short";
+            case Type.INT -> "java/lang/Integer";
+            case Type.LONG -> "java/lang/Long";
+            case Type.FLOAT -> "java/lang/Float";
+            case Type.DOUBLE -> "java/lang/Double";
+            default -> null;
+        };
+        if (wrapper != null) {
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, wrapper, "valueOf",
+                    "(" + type.getDescriptor() + ")L" + wrapper + ";", false);
+        }
+    }
+}
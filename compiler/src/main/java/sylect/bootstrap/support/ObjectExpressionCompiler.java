@@ -2,6 +2,7 @@
 
 package sylect.bootstrap.support;
 
+import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
@@ -12,11 +13,18 @@ import sylect.SylectParser.ObjectTermContext;
 import sylect.bootstrap.context.ClassMetaManager;
 import sylect.bootstrap.context.ImportManager;
 import sylect.bootstrap.context.ScopeManager;
+import sylect.bootstrap.metadata.ClassMeta;
+import sylect.bootstrap.metadata.FieldMeta;
+import sylect.bootstrap.metadata.LocalMeta;
+import sylect.bootstrap.metadata.MethodMeta;
+import sylect.bootstrap.metadata.ParameterMeta;
 import sylect.bootstrap.metadata.TypeMeta;
 import sylect.bootstrap.metadata.expression.CallTargetMeta;
 import sylect.bootstrap.metadata.expression.ObjectMeta;
 import sylect.bootstrap.util.ClassUtils;
+import sylect.bootstrap.util.GenericUtils;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
@@ -27,6 +35,9 @@ import java.util.Objects;
  */
 public class ObjectExpressionCompiler {
 
+    // JIT inlines virtual calls with at most two receiver types seen, type checks don't help beyond that
+    private static final int MAX_SEALED_DISPATCH = 2;
+
     private final ClassMetaManager classMetaManager;
     private final ImportManager importManager;
     private final ScopeManager scopeManager;
@@ -47,11 +58,7 @@ public class ObjectExpressionCompiler {
     }
 
     public TypeMeta compile(ObjectExpressionContext ctx) {
-        // Follow chain of field access operations/method calls
-        var objectMeta = (ObjectMeta) null;
-        for (var objectTermCtx : ctx.objectTerm()) {
-            objectMeta = compileObjectTerm(objectMeta, objectTermCtx);
-        }
+        var objectMeta = compileChain(ctx);
 
         // If we end up with object/value - return it, otherwise create and return Class<?> object
         if (objectMeta.isTypeMeta()) {
@@ -62,6 +69,17 @@ public class ObjectExpressionCompiler {
         }
     }
 
+    /**
+     * Compiles chain of field access operations/method calls without converting class to Class object at the end.
+     */
+    public ObjectMeta compileChain(ObjectExpressionContext ctx) {
+        var objectMeta = (ObjectMeta) null;
+        for (var objectTermCtx : ctx.objectTerm()) {
+            objectMeta = compileObjectTerm(objectMeta, objectTermCtx);
+        }
+        return objectMeta;
+    }
+
     private ObjectMeta compileObjectTerm(ObjectMeta objectMeta, ObjectTermContext ctx) {
         if (ctx.STRING_LITERAL() != null) {
             if (objectMeta != null) {
@@ -70,10 +88,23 @@ public class ObjectExpressionCompiler {
             return new ObjectMeta(null, ClassUtils.visitStringLiteral(ctx.STRING_LITERAL(), mv::visitLdcInsn));
         }
 
-        var identifier = ctx.IDENTIFIER().getText();
+        var identifier = ctx.memberName().getText();
+        var typeArguments = ctx.typeArguments() == null ?
+                null : GenericUtils.getTypeArguments(importManager, ctx.typeArguments());
 
         if (ctx.getText().contains("(")) {
-            return compileMethodCall(objectMeta, ctx.getText().startsWith("super"), identifier, ctx.expression());
+            return compileMethodCall(
+                    objectMeta, ctx.getText().startsWith("super"), identifier, typeArguments, ctx.expression(),
+                    ctx.getStart().getLine());
+        }
+
+        // Type arguments are only allowed for generic classes, e.g. when accessing static fields
+        if (typeArguments != null) {
+            if (objectMeta != null) {
+                throw new CompilationException("unexpected type arguments: " + identifier);
+            }
+            var className = GenericUtils.getSpecializedName(importManager.resolveImport(identifier), typeArguments);
+            return new ObjectMeta(classMetaManager.resolveClass(className), null);
         }
 
         // If we immediately start with method call/field access - we are working within current class
@@ -90,14 +121,17 @@ public class ObjectExpressionCompiler {
         if (local != null) {
             var type = local.type();
             if (type.isArray()) {
-                mv.visitIntInsn(Opcodes.ALOAD, local.offset());
+                mv.visitVarInsn(Opcodes.ALOAD, local.offset());
             } else {
                 switch (local.type().kind()) {
-                    case INTEGER -> mv.visitIntInsn(Opcodes.ILOAD, local.offset());
-                    case LONG -> mv.visitIntInsn(Opcodes.LLOAD, local.offset());
-                    case FLOAT -> mv.visitIntInsn(Opcodes.FLOAD, local.offset());
-                    case DOUBLE -> mv.visitIntInsn(Opcodes.DLOAD, local.offset());
-                    case CLASS -> mv.visitIntInsn(Opcodes.ALOAD, local.offset());
+                    case INTEGER -> mv.visitVarInsn(Opcodes.ILOAD, local.offset());
+                    case LONG -> mv.visitVarInsn(Opcodes.LLOAD, local.offset());
+                    case FLOAT -> mv.visitVarInsn(Opcodes.FLOAD, local.offset());
+                    case DOUBLE -> mv.visitVarInsn(Opcodes.DLOAD, local.offset());
+                    case CLASS -> mv.visitVarInsn(Opcodes.ALOAD, local.offset());
+
+                    case BOOLEAN, BYTE, CHAR, SHORT -> mv.visitVarInsn(Opcodes.ILOAD, local.offset());
+
                     default -> throw new CompilationException("unsupported variable type: " + local.type());
                 }
             }
@@ -111,12 +145,16 @@ public class ObjectExpressionCompiler {
             return new ObjectMeta(classMeta, null);
         }
 
-        var owner = scopeManager.getClassMeta().name();
+        if (!field.isStatic() && scopeManager.isStaticMethod()) {
+            throw new CompilationException("could not access non-static field in static method: " + identifier);
+        }
+
+        var classMeta = scopeManager.getClassMeta();
         if (field.isStatic()) {
-            mv.visitFieldInsn(Opcodes.GETSTATIC, owner, identifier, field.asDescriptor());
+            compileStaticFieldAccess(classMeta.name(), field);
         } else {
             mv.visitVarInsn(Opcodes.ALOAD, 0);
-            mv.visitFieldInsn(Opcodes.GETFIELD, owner, identifier, field.asDescriptor());
+            compileInstanceFieldAccess(classMeta, field);
         }
         return new ObjectMeta(null, field.type());
     }
@@ -135,8 +173,7 @@ public class ObjectExpressionCompiler {
                         "field is not static: " + identifier + " in " + objectMeta.classMeta().name());
             }
 
-            var owner = objectMeta.classMeta().name();
-            mv.visitFieldInsn(Opcodes.GETSTATIC, owner, identifier, field.asDescriptor());
+            compileStaticFieldAccess(objectMeta.classMeta().name(), field);
             return new ObjectMeta(null, field.type());
         }
 
@@ -152,12 +189,11 @@ public class ObjectExpressionCompiler {
                 throw new CompilationException("unknown field: " + identifier + " in " + classMeta);
             }
 
-            var owner = classMeta.name();
             if (field.isStatic()) {
                 mv.visitInsn(Opcodes.POP);
-                mv.visitFieldInsn(Opcodes.GETSTATIC, owner, identifier, field.asDescriptor());
+                compileStaticFieldAccess(classMeta.name(), field);
             } else {
-                mv.visitFieldInsn(Opcodes.GETFIELD, owner, identifier, field.asDescriptor());
+                compileInstanceFieldAccess(classMeta, field);
             }
 
             return new ObjectMeta(null, field.type());
@@ -167,16 +203,57 @@ public class ObjectExpressionCompiler {
         throw new CompilationException("unsupported access type: " + objectMeta);
     }
 
+    /**
+     * Object is expected at the top of the stack. Fields of structs are read with accessors,
+     * they are small enough for JIT to always inline them.
+     */
+    private void compileInstanceFieldAccess(ClassMeta classMeta, FieldMeta field) {
+        if (classMeta.isStruct()) {
+            mv.visitMethodInsn(
+                    Opcodes.INVOKEVIRTUAL, classMeta.name(), field.name(), "()" + field.asDescriptor(), false);
+        } else {
+            mv.visitFieldInsn(Opcodes.GETFIELD, classMeta.name(), field.name(), field.asDescriptor());
+        }
+    }
+
+    private void compileStaticFieldAccess(String owner, FieldMeta field) {
+        // Constants are inlined, so the class declaring them doesn't have to be loaded
+        if (field.constantValue() != null) {
+            mv.visitLdcInsn(field.constantValue());
+        } else if (field.isLazy()) {
+            // Each class has its own constant pool, so other classes use accessor to compute value once
+            if (owner.equals(scopeManager.getClassMeta().name())) {
+                mv.visitLdcInsn(ClassUtils.getLazyConstant(owner, field));
+            } else {
+                mv.visitMethodInsn(
+                        Opcodes.INVOKESTATIC, owner,
+                        ClassUtils.getLazyMethodName(field), "()" + field.asDescriptor(), false);
+            }
+        } else {
+            mv.visitFieldInsn(Opcodes.GETSTATIC, owner, field.name(), field.asDescriptor());
+        }
+    }
+
+    /**
+     * @param typeArguments type arguments of generic method or class being constructed, null if there are none
+     * @param line          source line of the call
+     */
     private ObjectMeta compileMethodCall(
             ObjectMeta objectMeta,
-            boolean isSuper, String identifier, List<ExpressionContext> arguments) {
+            boolean isSuper, String identifier, List<TypeMeta> typeArguments, List<ExpressionContext> arguments,
+            int line) {
 
         // Prepare target for method class (new object/this object/simply class meta)
-        var target = prepareTarget(objectMeta, isSuper, identifier);
+        var target = prepareTarget(objectMeta, isSuper, identifier, typeArguments);
 
         // Compile arguments to determine parameter types
         var parameterTypes = compileArguments(arguments);
 
+        // Each instantiation of generic method is a separate method
+        if (typeArguments != null && !target.isNewObject()) {
+            identifier = GenericUtils.getSpecializedName(identifier, typeArguments);
+        }
+
         var method = scopeManager.getMethod(
                 target.classMeta(),
                 target.isConstructor() ? "<init>" : identifier,
@@ -193,18 +270,30 @@ public class ObjectExpressionCompiler {
             }
         }
 
+        // Arguments may span several lines, so the call itself is attributed to the line of method name
+        if (!scopeManager.isInlining()) {
+            ClassUtils.visitLineNumber(mv, scopeManager.getOptions(), line);
+            if (scopeManager.getOptions().profiling()) {
+                new ProfilingCompiler(mv).compileCallCounter(scopeManager.getMethodName(), line, method.name());
+            }
+        }
+
         // Determine the exact call instruction
         var owner = target.classMeta().name();
         if (method.isStatic()) {
-            mv.visitMethodInsn(
-                    Opcodes.INVOKESTATIC, owner, method.name(), method.asDescriptor(), target.classMeta().iface());
+            var inlineBody = owner.equals(scopeManager.getClassMeta().name()) ?
+                    scopeManager.getInlineCandidate(method) : null;
+            if (inlineBody != null) {
+                compileInlineCall(method, inlineBody);
+            } else {
+                mv.visitMethodInsn(
+                        Opcodes.INVOKESTATIC, owner, method.name(), method.asDescriptor(), target.classMeta().iface());
+            }
         } else {
-            if (target.isConstructor() || target.isSpecial()) {
+            if (target.isConstructor() || target.isSpecial() || (objectMeta == null && isUniqueTarget(method))) {
                 mv.visitMethodInsn(Opcodes.INVOKESPECIAL, owner, method.name(), method.asDescriptor(), false);
-            } else if (target.classMeta().iface()) {
-                mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, owner, method.name(), method.asDescriptor(), true);
-            } else {
-                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, owner, method.name(), method.asDescriptor(), false);
+            } else if (!compileSealedDispatch(target.classMeta(), method)) {
+                compileVirtualCall(target.classMeta(), method);
             }
         }
 
@@ -215,22 +304,152 @@ public class ObjectExpressionCompiler {
                     // Second case: calling a static method on an object
                     (objectMeta != null && objectMeta.isTypeMeta())) {
                 // Preserve the result on stack
-                if (method.returnType().kind() != TypeMeta.Kind.VOID) {
-                    mv.visitInsn(Opcodes.SWAP);
+                switch (method.returnType().getLocalSize()) {
+                    case 0 -> mv.visitInsn(Opcodes.POP);
+                    case 1 -> {
+                        mv.visitInsn(Opcodes.SWAP);
+                        mv.visitInsn(Opcodes.POP);
+                    }
+                    case 2 -> {
+                        mv.visitInsn(Opcodes.DUP2_X1);
+                        mv.visitInsn(Opcodes.POP2);
+                        mv.visitInsn(Opcodes.POP);
+                    }
                 }
-                mv.visitInsn(Opcodes.POP);
             }
         }
 
         return new ObjectMeta(null, target.isNewObject() ? target.classMeta().asTypeMeta() : method.returnType());
     }
 
-    private CallTargetMeta prepareTarget(ObjectMeta objectMeta, boolean isSuper, String identifier) {
+    private void compileVirtualCall(ClassMeta classMeta, MethodMeta method) {
+        if (classMeta.iface()) {
+            mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, classMeta.name(), method.name(), method.asDescriptor(), true);
+        } else {
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, classMeta.name(), method.name(), method.asDescriptor(), false);
+        }
+    }
+
+    /**
+     * Method of current class called on this object can't be overridden when either method or class is final,
+     * so we call it directly.
+     */
+    private boolean isUniqueTarget(MethodMeta method) {
+        var classMeta = scopeManager.getClassMeta();
+        return scopeManager.getOptions().devirtualize() &&
+                !classMeta.iface() &&
+                (classMeta.isFinal() || method.isFinal()) &&
+                classMeta.methods().contains(method);
+    }
+
+    /**
+     * When all permitted subclasses of sealed class are final and the call has at most two receiver types
+     * (sealed class itself counts, unless it's an interface), the call is replaced with type checks followed
+     * by direct calls. It's guarded dispatch rather than devirtualization: JIT still checks types, but the call
+     * sites are monomorphic and can be inlined before profile is collected. The original call remains for
+     * instances of sealed class itself and subclasses compiled separately.
+     */
+    private boolean compileSealedDispatch(ClassMeta classMeta, MethodMeta method) {
+        var receiverTypes = classMeta.permittedSubclasses().size() + (classMeta.iface() ? 0 : 1);
+        if (!scopeManager.getOptions().devirtualize() ||
+                !classMeta.isSealed() || receiverTypes > MAX_SEALED_DISPATCH) {
+            return false;
+        }
+
+        var parameterTypes = method.parameters().stream().map(ParameterMeta::type).toList();
+        var implementations = new ArrayList<ClassMeta>();
+        for (var subclassName : classMeta.permittedSubclasses().stream().sorted().toList()) {
+            var subclass = classMetaManager.resolveClass(subclassName);
+            if (subclass.iface() || !subclass.isFinal()) {
+                return false;
+            }
+
+            var implementation = scopeManager.getMethod(subclass, method.name(), parameterTypes);
+            if (implementation == null || implementation.isStatic() ||
+                    !implementation.asDescriptor().equals(method.asDescriptor())) {
+                return false;
+            }
+            implementations.add(subclass);
+        }
+
+        // Type checks need object at the top of the stack, so we move arguments to local variables
+        var scratchTypes = new ArrayList<>(parameterTypes);
+        scratchTypes.add(classMeta.asTypeMeta());
+        var scratch = scopeManager.getScratchLocals(scratchTypes);
+        var arguments = scratch.subList(0, parameterTypes.size());
+        for (int i = arguments.size() - 1; i >= 0; i--) {
+            var argument = arguments.get(i);
+            mv.visitVarInsn(Type.getType(argument.type().asDescriptor()).getOpcode(Opcodes.ISTORE), argument.offset());
+        }
+        var object = scratch.get(parameterTypes.size());
+        mv.visitVarInsn(Opcodes.ASTORE, object.offset());
+
+        var end = new Label();
+        for (var implementation : implementations) {
+            var next = new Label();
+            mv.visitVarInsn(Opcodes.ALOAD, object.offset());
+            mv.visitTypeInsn(Opcodes.INSTANCEOF, implementation.name());
+            mv.visitJumpInsn(Opcodes.IFEQ, next);
+
+            mv.visitVarInsn(Opcodes.ALOAD, object.offset());
+            mv.visitTypeInsn(Opcodes.CHECKCAST, implementation.name());
+            loadArguments(arguments);
+            mv.visitMethodInsn(
+                    Opcodes.INVOKEVIRTUAL, implementation.name(), method.name(), method.asDescriptor(), false);
+            mv.visitJumpInsn(Opcodes.GOTO, end);
+
+            mv.visitLabel(next);
+        }
+
+        mv.visitVarInsn(Opcodes.ALOAD, object.offset());
+        loadArguments(arguments);
+        compileVirtualCall(classMeta, method);
+        mv.visitLabel(end);
+        return true;
+    }
+
+    private void loadArguments(List<LocalMeta> arguments) {
+        for (var argument : arguments) {
+            mv.visitVarInsn(Type.getType(argument.type().asDescriptor()).getOpcode(Opcodes.ILOAD), argument.offset());
+        }
+    }
+
+    /**
+     * Compiles method body in place of the call. Arguments are already on stack, so we move them
+     * to fresh local variables that play the role of parameters.
+     */
+    private void compileInlineCall(MethodMeta method, ExpressionContext body) {
+        var parameters = scopeManager.enterInline(method);
+        for (int i = parameters.size() - 1; i >= 0; i--) {
+            var parameter = parameters.get(i);
+            mv.visitVarInsn(
+                    Type.getType(parameter.type().asDescriptor()).getOpcode(Opcodes.ISTORE), parameter.offset());
+        }
+
+        var resultType = new ExpressionCompiler(classMetaManager, importManager, scopeManager, mv).compile(body);
+        scopeManager.exitInline();
+
+        if (method.returnType().kind() == TypeMeta.Kind.VOID) {
+            switch (resultType.getLocalSize()) {
+                case 1 -> mv.visitInsn(Opcodes.POP);
+                case 2 -> mv.visitInsn(Opcodes.POP2);
+            }
+        } else if (!resultType.equals(method.returnType())) {
+            throw new CompilationException("bad return type " + resultType + ", expected: " + method.returnType());
+        }
+    }
+
+    private CallTargetMeta prepareTarget(
+            ObjectMeta objectMeta, boolean isSuper, String identifier, List<TypeMeta> typeArguments) {
         // If we immediately start with method call - we are working within current class
         if (objectMeta == null) {
             // If identifier is a valid class name - we are constructing an object
             try {
-                var classMeta = classMetaManager.resolveClass(importManager.resolveImport(identifier));
+                var className = importManager.resolveImport(identifier);
+                if (typeArguments != null) {
+                    className = GenericUtils.getSpecializedName(className, typeArguments);
+                }
+                var classMeta = classMetaManager.resolveClass(className);
                 mv.visitTypeInsn(Opcodes.NEW, classMeta.name());
                 mv.visitInsn(Opcodes.DUP); // one for constructor call and one for next chain terms
 
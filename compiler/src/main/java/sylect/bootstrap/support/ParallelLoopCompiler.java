@@ -0,0 +1,508 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.bootstrap.support;
+
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import sylect.CompilationException;
+import sylect.SylectParser.ExpressionContext;
+import sylect.SylectParser.ForStatementContext;
+import sylect.bootstrap.context.ClassMetaManager;
+import sylect.bootstrap.context.ImportManager;
+import sylect.bootstrap.context.ScopeManager;
+import sylect.bootstrap.metadata.LocalMeta;
+import sylect.bootstrap.metadata.MethodMeta;
+import sylect.bootstrap.metadata.ParallelLoopMeta;
+import sylect.bootstrap.metadata.ParallelLoopMeta.Reduction;
+import sylect.bootstrap.metadata.ParameterMeta;
+import sylect.bootstrap.metadata.TypeMeta;
+import sylect.bootstrap.metadata.TypeMeta.Kind;
+import sylect.bootstrap.metadata.statement.ParallelChunkContext;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Compiles parallel range loops. The range is divided into chunks (a few per thread of the pool to balance the load),
+ * and the loop body is compiled into a synthetic method that runs one chunk sequentially. Chunks are processed by
+ * parallel {@link java.util.stream.LongStream}, which splits them recursively between threads of ForkJoinPool.
+ * <p>
+ * Reduction variables are locals of the chunk method, so the loop body updates them without synchronization.
+ * Each chunk stores its partial values to its own slots of an array, they are combined after the loop.
+ */
+public class ParallelLoopCompiler {
+
+    private static final String LONG_STREAM = "java/util/stream/LongStream";
+    private static final String LONG_CONSUMER = "java/util/function/LongConsumer";
+    private static final String FORK_JOIN_POOL = "java/util/concurrent/ForkJoinPool";
+    private static final String FORK_JOIN_TASK = "java/util/concurrent/ForkJoinTask";
+    private static final String RUNNABLE = "java/lang/Runnable";
+
+    private static final Set<String> OPERATIONS = Set.of("sum", "min", "max");
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private static final TypeMeta LONG = new TypeMeta(Kind.LONG, false, null);
+    private static final TypeMeta PARTIALS = new TypeMeta(Kind.LONG, true, null);
+
+    // Parameters of chunk method following captured variables, names are not valid identifiers
+    private static final String PARTIALS_PARAMETER = "$partials";
+    private static final String START_PARAMETER = "$start";
+    private static final String SIZE_PARAMETER = "$size";
+    private static final String END_PARAMETER = "$end";
+    private static final String CHUNK_PARAMETER = "$chunk";
+
+    private final ClassMetaManager classMetaManager;
+    private final ImportManager importManager;
+    private final ScopeManager scopeManager;
+
+    private final MethodVisitor mv;
+
+    public ParallelLoopCompiler(
+            ClassMetaManager classMetaManager,
+            ImportManager importManager,
+            ScopeManager scopeManager,
+            MethodVisitor mv) {
+
+        this.classMetaManager = Objects.requireNonNull(classMetaManager);
+        this.importManager = Objects.requireNonNull(importManager);
+        this.scopeManager = Objects.requireNonNull(scopeManager);
+
+        this.mv = Objects.requireNonNull(mv);
+    }
+
+    /**
+     * Compiles the loop in enclosing method: it runs chunks and combines partial values of reduction variables.
+     */
+    public void compile(ForStatementContext ctx) {
+        if (scopeManager.getOptions().target() < 8) {
+            throw new CompilationException("parallel loops require target 8 or higher");
+        }
+        if (ctx.rangeExpression() == null) {
+            throw new CompilationException("parallel loop should iterate over range: " + ctx.IDENTIFIER().getText());
+        }
+
+        var name = ctx.IDENTIFIER().getText();
+        if (scopeManager.getLocal(name) != null) {
+            throw new CompilationException("variable already present: " + name);
+        }
+        var reductions = getReductions(ctx);
+
+        var start = scopeManager.addSyntheticLocal(LONG);
+        var end = scopeManager.addSyntheticLocal(LONG);
+        var indexType = compileBound(ctx.rangeExpression().expression(0), start);
+        var endType = compileBound(ctx.rangeExpression().expression(1), end);
+        if (!indexType.equals(endType)) {
+            throw new CompilationException("range bounds type mismatch: " + indexType + " and " + endType);
+        }
+
+        var pool = (LocalMeta) null;
+        if (ctx.parallelClause().expression() != null) {
+            var poolType = new ExpressionCompiler(classMetaManager, importManager, scopeManager, mv)
+                    .compile(ctx.parallelClause().expression());
+            if (!new TypeMeta(Kind.CLASS, false, FORK_JOIN_POOL).equals(poolType)) {
+                throw new CompilationException("parallel loop pool should be ForkJoinPool: " + poolType);
+            }
+            pool = scopeManager.addSyntheticLocal(poolType);
+            mv.visitVarInsn(Opcodes.ASTORE, pool.offset());
+        }
+
+        // Loop variable and reduction variables are declared by the loop, so they are not captured
+        var declared = new HashSet<String>();
+        declared.add(name);
+        reductions.forEach(reduction -> declared.add(reduction.name()));
+        var captures = new LambdaCompiler(classMetaManager, importManager, scopeManager, mv)
+                .collectCaptures(ctx.codeBlock(), declared);
+
+        var parameters = new ArrayList<ParameterMeta>();
+        captures.locals().forEach(localMeta -> parameters.add(new ParameterMeta(localMeta.name(), localMeta.type())));
+        parameters.add(new ParameterMeta(PARTIALS_PARAMETER, PARTIALS));
+        parameters.add(new ParameterMeta(START_PARAMETER, LONG));
+        parameters.add(new ParameterMeta(SIZE_PARAMETER, LONG));
+        parameters.add(new ParameterMeta(END_PARAMETER, LONG));
+        parameters.add(new ParameterMeta(CHUNK_PARAMETER, LONG));
+
+        var chunkMethod = new MethodMeta(
+                scopeManager.nextLambdaName(),
+                !captures.captureThis(), false, false,
+                new TypeMeta(Kind.VOID, false, null),
+                parameters);
+        scopeManager.addParallelLoop(new ParallelLoopMeta(
+                chunkMethod,
+                captures.locals().stream().map(LocalMeta::name).collect(Collectors.toSet()),
+                ctx, indexType, reductions));
+
+        var chunks = scopeManager.addSyntheticLocal(LONG);
+        var size = scopeManager.addSyntheticLocal(LONG);
+        var partials = scopeManager.addSyntheticLocal(PARTIALS);
+        var otherCode = new Label();
+
+        // Number of chunks doesn't exceed the number of iterations, so that each chunk has work
+        if (pool == null) {
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, FORK_JOIN_POOL, "getCommonPoolParallelism", "()I", false);
+        } else {
+            mv.visitVarInsn(Opcodes.ALOAD, pool.offset());
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, FORK_JOIN_POOL, "getParallelism", "()I", false);
+        }
+        mv.visitInsn(Opcodes.I2L);
+        mv.visitLdcInsn((long) CHUNKS_PER_THREAD);
+        mv.visitInsn(Opcodes.LMUL);
+        mv.visitVarInsn(Opcodes.LLOAD, end.offset());
+        mv.visitVarInsn(Opcodes.LLOAD, start.offset());
+        mv.visitInsn(Opcodes.LSUB);
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Math", "min", "(JJ)J", false);
+        mv.visitVarInsn(Opcodes.LSTORE, chunks.offset());
+
+        mv.visitVarInsn(Opcodes.LLOAD, chunks.offset());
+        mv.visitInsn(Opcodes.LCONST_0);
+        mv.visitInsn(Opcodes.LCMP);
+        mv.visitJumpInsn(Opcodes.IFLE, otherCode);
+
+        // Chunk size is rounded up, trailing chunks may be shorter or even empty
+        mv.visitVarInsn(Opcodes.LLOAD, end.offset());
+        mv.visitVarInsn(Opcodes.LLOAD, start.offset());
+        mv.visitInsn(Opcodes.LSUB);
+        mv.visitVarInsn(Opcodes.LLOAD, chunks.offset());
+        mv.visitInsn(Opcodes.LADD);
+        mv.visitInsn(Opcodes.LCONST_1);
+        mv.visitInsn(Opcodes.LSUB);
+        mv.visitVarInsn(Opcodes.LLOAD, chunks.offset());
+        mv.visitInsn(Opcodes.LDIV);
+        mv.visitVarInsn(Opcodes.LSTORE, size.offset());
+
+        if (reductions.isEmpty()) {
+            mv.visitInsn(Opcodes.ACONST_NULL);
+        } else {
+            mv.visitVarInsn(Opcodes.LLOAD, chunks.offset());
+            mv.visitInsn(Opcodes.L2I);
+            mv.visitLdcInsn(reductions.size());
+            mv.visitInsn(Opcodes.IMUL);
+            mv.visitIntInsn(Opcodes.NEWARRAY, Opcodes.T_LONG);
+        }
+        mv.visitVarInsn(Opcodes.ASTORE, partials.offset());
+
+        mv.visitInsn(Opcodes.LCONST_0);
+        mv.visitVarInsn(Opcodes.LLOAD, chunks.offset());
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, LONG_STREAM, "range", "(JJ)L" + LONG_STREAM + ";", true);
+        mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, LONG_STREAM, "parallel", "()L" + LONG_STREAM + ";", true);
+        compileChunkConsumer(chunkMethod, captures, partials, start, size, end);
+
+        if (pool == null) {
+            mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, LONG_STREAM, "forEach", "(L" + LONG_CONSUMER + ";)V", true);
+        } else {
+            // Tasks forked by parallel stream go to the pool of the thread running the stream
+            mv.visitInvokeDynamicInsn("run", "(L" + LONG_STREAM + ";L" + LONG_CONSUMER + ";)L" + RUNNABLE + ";",
+                    LambdaCompiler.METAFACTORY,
+                    Type.getMethodType("()V"),
+                    new Handle(Opcodes.H_INVOKEINTERFACE, LONG_STREAM, "forEach", "(L" + LONG_CONSUMER + ";)V", true),
+                    Type.getMethodType("()V"));
+            mv.visitVarInsn(Opcodes.ALOAD, pool.offset());
+            mv.visitInsn(Opcodes.SWAP);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, FORK_JOIN_POOL, "submit",
+                    "(L" + RUNNABLE + ";)L" + FORK_JOIN_TASK + ";", false);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, FORK_JOIN_TASK, "join", "()Ljava/lang/Object;", false);
+            mv.visitInsn(Opcodes.POP);
+        }
+
+        if (!reductions.isEmpty()) {
+            compileCombine(reductions, chunks, partials);
+        }
+        mv.visitLabel(otherCode);
+    }
+
+    private List<Reduction> getReductions(ForStatementContext ctx) {
+        var reductions = new ArrayList<Reduction>();
+        if (ctx.reduceClause() == null) {
+            return reductions;
+        }
+        if (ctx.parallelClause() == null) {
+            throw new CompilationException("only parallel loops can have reductions: " + ctx.IDENTIFIER().getText());
+        }
+
+        var names = new HashSet<String>();
+        for (var reductionCtx : ctx.reduceClause().reduction()) {
+            var operation = reductionCtx.IDENTIFIER(0).getText();
+            var name = reductionCtx.IDENTIFIER(1).getText();
+            if (!OPERATIONS.contains(operation)) {
+                throw new CompilationException("unknown reduction: " + operation);
+            }
+            if (!names.add(name)) {
+                throw new CompilationException("variable is reduced twice: " + name);
+            }
+
+            var localMeta = scopeManager.getLocal(name);
+            if (localMeta == null) {
+                throw new CompilationException("unknown local to reduce: " + name);
+            }
+            if (scopeManager.isReadOnlyLocal(name)) {
+                throw new CompilationException("captured variable cannot be assigned inside lambda: " + name);
+            }
+            // Partial values are combined into the variable after the loop
+            scopeManager.assignLocal(localMeta);
+            var type = localMeta.type();
+            if (type.isArray() || (type.kind() != Kind.INTEGER && type.kind() != Kind.LONG &&
+                    type.kind() != Kind.FLOAT && type.kind() != Kind.DOUBLE)) {
+                throw new CompilationException("reduced variable should be int, long, float or double: " + name);
+            }
+            reductions.add(new Reduction(operation, name, type));
+        }
+        return reductions;
+    }
+
+    private TypeMeta compileBound(ExpressionContext ctx, LocalMeta bound) {
+        var type = new ExpressionCompiler(classMetaManager, importManager, scopeManager, mv).compile(ctx);
+        if (type.isArray() || (type.kind() != Kind.INTEGER && type.kind() != Kind.LONG)) {
+            throw new CompilationException("range bounds should be int or long: " + type);
+        }
+        if (type.kind() == Kind.INTEGER) {
+            mv.visitInsn(Opcodes.I2L);
+        }
+        mv.visitVarInsn(Opcodes.LSTORE, bound.offset());
+        return type;
+    }
+
+    /**
+     * Binds captured values and range to chunk method, the consumer accepts chunk index.
+     */
+    private void compileChunkConsumer(
+            MethodMeta chunkMethod, LambdaCompiler.Captures captures,
+            LocalMeta partials, LocalMeta start, LocalMeta size, LocalMeta end) {
+
+        var capturedTypes = new StringBuilder();
+        var classMeta = scopeManager.getClassMeta();
+        if (captures.captureThis()) {
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            capturedTypes.append(classMeta.asTypeMeta().asDescriptor());
+        }
+        for (var localMeta : captures.locals()) {
+            mv.visitVarInsn(Type.getType(localMeta.type().asDescriptor()).getOpcode(Opcodes.ILOAD), localMeta.offset());
+            capturedTypes.append(localMeta.type().asDescriptor());
+        }
+        mv.visitVarInsn(Opcodes.ALOAD, partials.offset());
+        mv.visitVarInsn(Opcodes.LLOAD, start.offset());
+        mv.visitVarInsn(Opcodes.LLOAD, size.offset());
+        mv.visitVarInsn(Opcodes.LLOAD, end.offset());
+        capturedTypes.append(PARTIALS.asDescriptor()).append("JJJ");
+
+        mv.visitInvokeDynamicInsn("accept", "(" + capturedTypes + ")L" + LONG_CONSUMER + ";",
+                LambdaCompiler.METAFACTORY,
+                Type.getMethodType("(J)V"),
+                new Handle(
+                        captures.captureThis() ? Opcodes.H_INVOKESPECIAL : Opcodes.H_INVOKESTATIC,
+                        classMeta.name(), chunkMethod.name(), chunkMethod.asDescriptor(),
+                        false),
+                Type.getMethodType("(J)V"));
+    }
+
+    /**
+     * Combines partial values of chunks with values reduced variables had before the loop.
+     */
+    private void compileCombine(List<Reduction> reductions, LocalMeta chunks, LocalMeta partials) {
+        var chunk = scopeManager.addSyntheticLocal(new TypeMeta(Kind.INTEGER, false, null));
+        var loop = new Label();
+        var otherCode = new Label();
+
+        mv.visitInsn(Opcodes.ICONST_0);
+        mv.visitVarInsn(Opcodes.ISTORE, chunk.offset());
+        mv.visitLabel(loop);
+        mv.visitVarInsn(Opcodes.ILOAD, chunk.offset());
+        mv.visitVarInsn(Opcodes.LLOAD, chunks.offset());
+        mv.visitInsn(Opcodes.L2I);
+        mv.visitJumpInsn(Opcodes.IF_ICMPGE, otherCode);
+
+        for (int i = 0; i < reductions.size(); i++) {
+            var reduction = reductions.get(i);
+            var variable = scopeManager.getLocal(reduction.name());
+            var type = Type.getType(reduction.type().asDescriptor());
+
+            mv.visitVarInsn(type.getOpcode(Opcodes.ILOAD), variable.offset());
+            mv.visitVarInsn(Opcodes.ALOAD, partials.offset());
+            mv.visitVarInsn(Opcodes.ILOAD, chunk.offset());
+            compilePartialIndex(reductions.size(), i);
+            mv.visitInsn(Opcodes.LALOAD);
+            compileFromBits(reduction.type());
+            compileOperation(reduction);
+            mv.visitVarInsn(type.getOpcode(Opcodes.ISTORE), variable.offset());
+        }
+
+        mv.visitIincInsn(chunk.offset(), 1);
+        mv.visitJumpInsn(Opcodes.GOTO, loop);
+        mv.visitLabel(otherCode);
+    }
+
+    /**
+     * Declares loop variable and reduction variables in chunk method and starts the loop over its part of range.
+     */
+    public ParallelChunkContext compileChunkStart(ParallelLoopMeta loopMeta) {
+        var indexType = loopMeta.indexType();
+        var first = scopeManager.addSyntheticLocal(LONG);
+        var limit = scopeManager.addSyntheticLocal(indexType);
+
+        // Trailing chunks are empty when there are more chunks than elements, bounds are clamped to the end
+        // in long arithmetic, so they don't overflow when narrowed to int
+        mv.visitVarInsn(Opcodes.LLOAD, scopeManager.getLocal(START_PARAMETER).offset());
+        mv.visitVarInsn(Opcodes.LLOAD, scopeManager.getLocal(CHUNK_PARAMETER).offset());
+        mv.visitVarInsn(Opcodes.LLOAD, scopeManager.getLocal(SIZE_PARAMETER).offset());
+        mv.visitInsn(Opcodes.LMUL);
+        mv.visitInsn(Opcodes.LADD);
+        mv.visitVarInsn(Opcodes.LLOAD, scopeManager.getLocal(END_PARAMETER).offset());
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Math", "min", "(JJ)J", false);
+        mv.visitVarInsn(Opcodes.LSTORE, first.offset());
+
+        // limit = first + min(size, end - first)
+        mv.visitVarInsn(Opcodes.LLOAD, first.offset());
+        mv.visitVarInsn(Opcodes.LLOAD, scopeManager.getLocal(SIZE_PARAMETER).offset());
+        mv.visitVarInsn(Opcodes.LLOAD, scopeManager.getLocal(END_PARAMETER).offset());
+        mv.visitVarInsn(Opcodes.LLOAD, first.offset());
+        mv.visitInsn(Opcodes.LSUB);
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Math", "min", "(JJ)J", false);
+        mv.visitInsn(Opcodes.LADD);
+        if (indexType.kind() == Kind.INTEGER) {
+            mv.visitInsn(Opcodes.L2I);
+        }
+        mv.visitVarInsn(Type.getType(indexType.asDescriptor()).getOpcode(Opcodes.ISTORE), limit.offset());
+
+        var reductions = new ArrayList<LocalMeta>();
+        for (var reduction : loopMeta.reductions()) {
+            var localMeta = scopeManager.addLocal(reduction.name(), reduction.type());
+            compileIdentity(reduction);
+            mv.visitVarInsn(
+                    Type.getType(reduction.type().asDescriptor()).getOpcode(Opcodes.ISTORE), localMeta.offset());
+            reductions.add(localMeta);
+        }
+
+        var index = scopeManager.addLocal(loopMeta.loop().IDENTIFIER().getText(), indexType);
+        mv.visitVarInsn(Opcodes.LLOAD, first.offset());
+        if (indexType.kind() == Kind.INTEGER) {
+            mv.visitInsn(Opcodes.L2I);
+        }
+        mv.visitVarInsn(Type.getType(indexType.asDescriptor()).getOpcode(Opcodes.ISTORE), index.offset());
+
+        var chunk = new ParallelChunkContext(index, limit, reductions, new Label(), new Label(), new Label());
+        mv.visitJumpInsn(Opcodes.GOTO, chunk.condition());
+        mv.visitLabel(chunk.body());
+        return chunk;
+    }
+
+    /**
+     * Finishes the loop over chunk and stores partial values of reduction variables.
+     */
+    public void compileChunkEnd(ParallelLoopMeta loopMeta, ParallelChunkContext chunk) {
+        var index = chunk.index();
+        var indexType = Type.getType(loopMeta.indexType().asDescriptor());
+
+        mv.visitLabel(chunk.eachBlock());
+        if (loopMeta.indexType().kind() == Kind.INTEGER) {
+            mv.visitIincInsn(index.offset(), 1);
+        } else {
+            mv.visitVarInsn(Opcodes.LLOAD, index.offset());
+            mv.visitInsn(Opcodes.LCONST_1);
+            mv.visitInsn(Opcodes.LADD);
+            mv.visitVarInsn(Opcodes.LSTORE, index.offset());
+        }
+
+        mv.visitLabel(chunk.condition());
+        mv.visitVarInsn(indexType.getOpcode(Opcodes.ILOAD), index.offset());
+        mv.visitVarInsn(indexType.getOpcode(Opcodes.ILOAD), chunk.limit().offset());
+        if (loopMeta.indexType().kind() == Kind.INTEGER) {
+            mv.visitJumpInsn(Opcodes.IF_ICMPLT, chunk.body());
+        } else {
+            mv.visitInsn(Opcodes.LCMP);
+            mv.visitJumpInsn(Opcodes.IFLT, chunk.body());
+        }
+
+        var reductions = loopMeta.reductions();
+        for (int i = 0; i < reductions.size(); i++) {
+            var variable = chunk.reductions().get(i);
+            mv.visitVarInsn(Opcodes.ALOAD, scopeManager.getLocal(PARTIALS_PARAMETER).offset());
+            mv.visitVarInsn(Opcodes.LLOAD, scopeManager.getLocal(CHUNK_PARAMETER).offset());
+            mv.visitInsn(Opcodes.L2I);
+            compilePartialIndex(reductions.size(), i);
+            mv.visitVarInsn(Type.getType(variable.type().asDescriptor()).getOpcode(Opcodes.ILOAD), variable.offset());
+            compileToBits(variable.type());
+            mv.visitInsn(Opcodes.LASTORE);
+        }
+    }
+
+    private void compilePartialIndex(int reductionCount, int reduction) {
+        mv.visitLdcInsn(reductionCount);
+        mv.visitInsn(Opcodes.IMUL);
+        if (reduction != 0) {
+            mv.visitLdcInsn(reduction);
+            mv.visitInsn(Opcodes.IADD);
+        }
+    }
+
+    private void compileIdentity(Reduction reduction) {
+        var kind = reduction.type().kind();
+        var value = switch (reduction.operation()) {
+            // Boxed separately, otherwise numeric promotion would turn every arm into double
+            case "sum" -> switch (kind) {
+                case INTEGER -> (Object) 0;
+                case LONG -> (Object) 0L;
+                case FLOAT -> (Object) 0.0F;
+                default -> (Object) 0.0;
+            };
+            case "min" -> switch (kind) {
+                case INTEGER -> (Object) Integer.MAX_VALUE;
+                case LONG -> (Object) Long.MAX_VALUE;
+                case FLOAT -> (Object) Float.POSITIVE_INFINITY;
+                default -> (Object) Double.POSITIVE_INFINITY;
+            };
+            default -> switch (kind) {
+                case INTEGER -> (Object) Integer.MIN_VALUE;
+                case LONG -> (Object) Long.MIN_VALUE;
+                case FLOAT -> (Object) Float.NEGATIVE_INFINITY;
+                default -> (Object) Double.NEGATIVE_INFINITY;
+            };
+        };
+        mv.visitLdcInsn(value);
+    }
+
+    private void compileOperation(Reduction reduction) {
+        var descriptor = reduction.type().asDescriptor();
+        if ("sum".equals(reduction.operation())) {
+            mv.visitInsn(Type.getType(descriptor).getOpcode(Opcodes.IADD));
+        } else {
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Math", reduction.operation(),
+                    "(" + descriptor + descriptor + ")" + descriptor, false);
+        }
+    }
+
+    /**
+     * Partial values are stored in long array, floating point values are stored as their bits.
+     */
+    private void compileToBits(TypeMeta type) {
+        switch (type.kind()) {
+            case INTEGER -> mv.visitInsn(Opcodes.I2L);
+            case FLOAT -> {
+                mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Float", "floatToRawIntBits", "(F)I", false);
+                mv.visitInsn(Opcodes.I2L);
+            }
+            case DOUBLE -> mv.visitMethodInsn(
+                    Opcodes.INVOKESTATIC, "java/lang/Double", "doubleToRawLongBits", "(D)J", false);
+            default -> {
+            }
+        }
+    }
+
+    private void compileFromBits(TypeMeta type) {
+        switch (type.kind()) {
+            case INTEGER -> mv.visitInsn(Opcodes.L2I);
+            case FLOAT -> {
+                mv.visitInsn(Opcodes.L2I);
+                mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Float", "intBitsToFloat", "(I)F", false);
+            }
+            case DOUBLE -> mv.visitMethodInsn(
+                    Opcodes.INVOKESTATIC, "java/lang/Double", "longBitsToDouble", "(J)D", false);
+            default -> {
+            }
+        }
+    }
+}
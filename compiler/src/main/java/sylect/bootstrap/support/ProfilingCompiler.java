@@ -0,0 +1,58 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.bootstrap.support;
+
+import org.objectweb.asm.ConstantDynamic;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import sylect.bootstrap.util.ClassUtils;
+
+import java.util.Objects;
+
+/**
+ * Compiles counters of profiling mode. Each counter is a dynamic constant registered in
+ * {@code sylect.runtime.Profiler} on first use, so incrementing it costs a single call JIT inlines.
+ * Sites with the same kind, method, line and target share a counter.
+ */
+public class ProfilingCompiler {
+
+    public static final String PROFILER = "sylect/runtime/Profiler";
+    private static final String LONG_ADDER = "java/util/concurrent/atomic/LongAdder";
+
+    private static final Handle COUNTER_BOOTSTRAP = new Handle(
+            Opcodes.H_INVOKESTATIC,
+            PROFILER,
+            "counter",
+            "(L" + ClassUtils.LOOKUP + ";Ljava/lang/String;Ljava/lang/Class;" +
+                    "Ljava/lang/String;Ljava/lang/String;ILjava/lang/String;)L" + LONG_ADDER + ";",
+            false);
+
+    private final MethodVisitor mv;
+
+    public ProfilingCompiler(MethodVisitor mv) {
+        this.mv = Objects.requireNonNull(mv);
+    }
+
+    public void compileMethodCounter(String method, int line) {
+        compileCounter("METHOD", method, line, "");
+    }
+
+    /**
+     * Loop counter is incremented at the end of each iteration, including iterations ended with continue.
+     */
+    public void compileLoopCounter(String method, int line) {
+        compileCounter("LOOP", method, line, "");
+    }
+
+    public void compileCallCounter(String method, int line, String target) {
+        compileCounter("CALL", method, line, target);
+    }
+
+    private void compileCounter(String kind, String method, int line, String target) {
+        mv.visitLdcInsn(new ConstantDynamic(
+                "counter", "L" + LONG_ADDER + ";", COUNTER_BOOTSTRAP,
+                kind, method, line, target));
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, LONG_ADDER, "increment", "()V", false);
+    }
+}
@@ -0,0 +1,358 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.bootstrap.support;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import sylect.bootstrap.metadata.ClassMeta;
+import sylect.bootstrap.metadata.FieldMeta;
+import sylect.bootstrap.metadata.MethodMeta;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Generates members of record classes: Record attribute, canonical constructor, accessors and
+ * equals/hashCode/toString methods bootstrapped with {@link java.lang.runtime.ObjectMethods} like javac does.
+ * <p>
+ * Older targets have neither {@code java/lang/Record} nor {@code ObjectMethods}, records are compiled
+ * to plain final classes with the same members there, see {@link #toPlainClass(byte[])}.
+ */
+public class RecordCompiler {
+
+    private static final Handle OBJECT_METHODS_BOOTSTRAP = new Handle(
+            Opcodes.H_INVOKESTATIC,
+            "java/lang/runtime/ObjectMethods",
+            "bootstrap",
+            "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/TypeDescriptor;" +
+                    "Ljava/lang/Class;Ljava/lang/String;[Ljava/lang/invoke/MethodHandle;)Ljava/lang/Object;",
+            false);
+
+    // Records are supported by JVM since Java 16
+    private static final int RECORD_TARGET = 16;
+
+    private final ClassVisitor cv;
+    private final int target;
+
+    public RecordCompiler(ClassVisitor cv, int target) {
+        this.cv = cv;
+        this.target = target;
+    }
+
+    public static boolean isPlainClass(int target) {
+        return target < RECORD_TARGET;
+    }
+
+    /**
+     * Replaces {@code java/lang/Record} base class with {@code java/lang/Object}, including calls of its constructor.
+     */
+    public static byte[] toPlainClass(byte[] bytecode) {
+        var reader = new ClassReader(bytecode);
+        var writer = new ClassWriter(0);
+        reader.accept(new ClassVisitor(Opcodes.ASM9, writer) {
+            @Override
+            public void visit(int version, int access, String name, String signature, String superName,
+                              String[] interfaces) {
+                super.visit(version, access, name, signature, plainClassName(superName), interfaces);
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+                                             String[] exceptions) {
+                var mv = super.visitMethod(access, name, descriptor, signature, exceptions);
+                return new MethodVisitor(Opcodes.ASM9, mv) {
+                    @Override
+                    public void visitMethodInsn(int opcode, String owner, String name, String descriptor,
+                                                boolean isInterface) {
+                        super.visitMethodInsn(opcode, plainClassName(owner), name, descriptor, isInterface);
+                    }
+                };
+            }
+        }, 0);
+        return writer.toByteArray();
+    }
+
+    private static String plainClassName(String className) {
+        return ClassMeta.JAVA_RECORD.equals(className) ? ClassMeta.JAVA_OBJECT : className;
+    }
+
+    /**
+     * @param declaredMethods methods defined in source, they are not generated
+     */
+    public void compile(ClassMeta classMeta, List<FieldMeta> components, Set<MethodMeta> declaredMethods) {
+        if (!isPlainClass(target)) {
+            for (var component : components) {
+                cv.visitRecordComponent(component.name(), component.asDescriptor(), null).visitEnd();
+            }
+        }
+
+        for (var method : ClassMeta.getRecordMethods(components, declaredMethods)) {
+            if ("<init>".equals(method.name())) {
+                compileConstructor(classMeta, components, method);
+            } else {
+                compileAccessor(classMeta, method);
+            }
+        }
+
+        var declaredNames = declaredMethods.stream()
+                .map(method -> method.name() + method.asDescriptor())
+                .collect(Collectors.toSet());
+        var recordType = classMeta.asTypeMeta().asDescriptor();
+        if (!declaredNames.contains("equals(Ljava/lang/Object;)Z")) {
+            if (isPlainClass(target)) {
+                compileEquals(classMeta, components);
+            } else {
+                compileObjectMethod(classMeta, components, "equals", "(Ljava/lang/Object;)Z",
+                        "(" + recordType + "Ljava/lang/Object;)Z");
+            }
+        }
+        if (!declaredNames.contains("hashCode()I")) {
+            if (isPlainClass(target)) {
+                compileHashCode(classMeta, components);
+            } else {
+                compileObjectMethod(classMeta, components, "hashCode", "()I", "(" + recordType + ")I");
+            }
+        }
+        if (!declaredNames.contains("toString()Ljava/lang/String;")) {
+            if (isPlainClass(target)) {
+                compileToString(classMeta, components);
+            } else {
+                compileObjectMethod(classMeta, components, "toString", "()Ljava/lang/String;",
+                        "(" + recordType + ")Ljava/lang/String;");
+            }
+        }
+    }
+
+    private void compileConstructor(ClassMeta classMeta, List<FieldMeta> components, MethodMeta method) {
+        var mv = cv.visitMethod(Opcodes.ACC_PUBLIC, method.name(), method.asDescriptor(), null, null);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, ClassMeta.JAVA_RECORD, "<init>", "()V", false);
+
+        var offset = 1;
+        for (var component : components) {
+            var type = Type.getType(component.asDescriptor());
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            mv.visitVarInsn(type.getOpcode(Opcodes.ILOAD), offset);
+            mv.visitFieldInsn(Opcodes.PUTFIELD, classMeta.name(), component.name(), component.asDescriptor());
+            offset += type.getSize();
+        }
+
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(-1, -1);
+        mv.visitEnd();
+    }
+
+    private void compileAccessor(ClassMeta classMeta, MethodMeta method) {
+        var descriptor = method.returnType().asDescriptor();
+        var mv = cv.visitMethod(Opcodes.ACC_PUBLIC, method.name(), method.asDescriptor(), null, null);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitFieldInsn(Opcodes.GETFIELD, classMeta.name(), method.name(), descriptor);
+        mv.visitInsn(Type.getType(descriptor).getOpcode(Opcodes.IRETURN));
+        mv.visitMaxs(-1, -1);
+        mv.visitEnd();
+    }
+
+    private void compileObjectMethod(
+            ClassMeta classMeta, List<FieldMeta> components,
+            String name, String descriptor, String indyDescriptor) {
+        var mv = cv.visitMethod(Opcodes.ACC_PUBLIC + Opcodes.ACC_FINAL, name, descriptor, null, null);
+
+        var type = Type.getMethodType(descriptor);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        if (type.getArgumentTypes().length > 0) {
+            mv.visitVarInsn(Opcodes.ALOAD, 1);
+        }
+
+        var bootstrapArguments = new Object[components.size() + 2];
+        bootstrapArguments[0] = Type.getType(classMeta.asTypeMeta().asDescriptor());
+        bootstrapArguments[1] = components.stream().map(FieldMeta::name).collect(Collectors.joining(";"));
+        for (int i = 0; i < components.size(); i++) {
+            var component = components.get(i);
+            bootstrapArguments[i + 2] = new Handle(
+                    Opcodes.H_GETFIELD, classMeta.name(), component.name(), component.asDescriptor(), false);
+        }
+        mv.visitInvokeDynamicInsn(name, indyDescriptor, OBJECT_METHODS_BOOTSTRAP, bootstrapArguments);
+
+        mv.visitInsn(type.getReturnType().getOpcode(Opcodes.IRETURN));
+        mv.visitMaxs(-1, -1);
+        mv.visitEnd();
+    }
+
+    /**
+     * Components are compared like {@code ObjectMethods} does: primitives by value, floating point numbers
+     * with {@code compare}, objects with {@code equals}.
+     */
+    private void compileEquals(ClassMeta classMeta, List<FieldMeta> components) {
+        var mv = cv.visitMethod(Opcodes.ACC_PUBLIC + Opcodes.ACC_FINAL, "equals", "(Ljava/lang/Object;)Z", null, null);
+        var notEqual = new Label();
+        var compare = new Label();
+
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        mv.visitJumpInsn(Opcodes.IF_ACMPNE, compare);
+        mv.visitInsn(Opcodes.ICONST_1);
+        mv.visitInsn(Opcodes.IRETURN);
+
+        mv.visitLabel(compare);
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        mv.visitTypeInsn(Opcodes.INSTANCEOF, classMeta.name());
+        mv.visitJumpInsn(Opcodes.IFEQ, notEqual);
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        mv.visitTypeInsn(Opcodes.CHECKCAST, classMeta.name());
+        mv.visitVarInsn(Opcodes.ASTORE, 2);
+
+        for (var component : components) {
+            loadComponent(mv, classMeta, component, 0);
+            loadComponent(mv, classMeta, component, 2);
+            switch (Type.getType(component.asDescriptor()).getSort()) {
+                case Type.LONG -> {
+                    mv.visitInsn(Opcodes.LCMP);
+                    mv.visitJumpInsn(Opcodes.IFNE, notEqual);
+                }
+                case Type.FLOAT -> {
+                    mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Float", "compare", "(FF)I", false);
+                    mv.visitJumpInsn(Opcodes.IFNE, notEqual);
+                }
+                case Type.DOUBLE -> {
+                    mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Double", "compare", "(DD)I", false);
+                    mv.visitJumpInsn(Opcodes.IFNE, notEqual);
+                }
+                case Type.OBJECT, Type.ARRAY -> {
+                    // Same references or this component is not null and equals to the other one
+                    var next = new Label();
+                    mv.visitJumpInsn(Opcodes.IF_ACMPEQ, next);
+                    loadComponent(mv, classMeta, component, 0);
+                    mv.visitJumpInsn(Opcodes.IFNULL, notEqual);
+                    loadComponent(mv, classMeta, component, 0);
+                    loadComponent(mv, classMeta, component, 2);
+                    mv.visitMethodInsn(
+                            Opcodes.INVOKEVIRTUAL, "java/lang/Object", "equals", "(Ljava/lang/Object;)Z", false);
+                    mv.visitJumpInsn(Opcodes.IFEQ, notEqual);
+                    mv.visitLabel(next);
+                }
+                default -> mv.visitJumpInsn(Opcodes.IF_ICMPNE, notEqual);
+            }
+        }
+        mv.visitInsn(Opcodes.ICONST_1);
+        mv.visitInsn(Opcodes.IRETURN);
+
+        mv.visitLabel(notEqual);
+        mv.visitInsn(Opcodes.ICONST_0);
+        mv.visitInsn(Opcodes.IRETURN);
+        mv.visitMaxs(-1, -1);
+        mv.visitEnd();
+    }
+
+    /**
+     * Hash codes of components are combined as {@code 31 * result + hash}, each computed like its wrapper class does.
+     */
+    private void compileHashCode(ClassMeta classMeta, List<FieldMeta> components) {
+        var mv = cv.visitMethod(Opcodes.ACC_PUBLIC + Opcodes.ACC_FINAL, "hashCode", "()I", null, null);
+        mv.visitInsn(Opcodes.ICONST_0);
+        for (var component : components) {
+            mv.visitIntInsn(Opcodes.BIPUSH, 31);
+            mv.visitInsn(Opcodes.IMUL);
+            loadComponent(mv, classMeta, component, 0);
+            switch (Type.getType(component.asDescriptor()).getSort()) {
+                case Type.BOOLEAN -> {
+                    var isFalse = new Label();
+                    var end = new Label();
+                    mv.visitJumpInsn(Opcodes.IFEQ, isFalse);
+                    mv.visitIntInsn(Opcodes.SIPUSH, 1231);
+                    mv.visitJumpInsn(Opcodes.GOTO, end);
+                    mv.visitLabel(isFalse);
+                    mv.visitIntInsn(Opcodes.SIPUSH, 1237);
+                    mv.visitLabel(end);
+                }
+                case Type.LONG -> compileLongHash(mv);
+                case Type.FLOAT -> mv.visitMethodInsn(
+                        Opcodes.INVOKESTATIC, "java/lang/Float", "floatToIntBits", "(F)I", false);
+                case Type.DOUBLE -> {
+                    mv.visitMethodInsn(
+                            Opcodes.INVOKESTATIC, "java/lang/Double", "doubleToLongBits", "(D)J", false);
+                    compileLongHash(mv);
+                }
+                case Type.OBJECT, Type.ARRAY -> {
+                    var isNull = new Label();
+                    var end = new Label();
+                    mv.visitInsn(Opcodes.DUP);
+                    mv.visitJumpInsn(Opcodes.IFNULL, isNull);
+                    mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/Object", "hashCode", "()I", false);
+                    mv.visitJumpInsn(Opcodes.GOTO, end);
+                    mv.visitLabel(isNull);
+                    mv.visitInsn(Opcodes.POP);
+                    mv.visitInsn(Opcodes.ICONST_0);
+                    mv.visitLabel(end);
+                }
+                default -> {
+                    // Narrow integers are hashed by value
+                }
+            }
+            mv.visitInsn(Opcodes.IADD);
+        }
+        mv.visitInsn(Opcodes.IRETURN);
+        mv.visitMaxs(-1, -1);
+        mv.visitEnd();
+    }
+
+    private static void compileLongHash(MethodVisitor mv) {
+        // (int) (value ^ (value >>> 32))
+        mv.visitInsn(Opcodes.DUP2);
+        mv.visitIntInsn(Opcodes.BIPUSH, 32);
+        mv.visitInsn(Opcodes.LUSHR);
+        mv.visitInsn(Opcodes.LXOR);
+        mv.visitInsn(Opcodes.L2I);
+    }
+
+    /**
+     * Formats record as {@code Name[x=1, y=2]}, like {@code ObjectMethods} does.
+     */
+    private void compileToString(ClassMeta classMeta, List<FieldMeta> components) {
+        var mv = cv.visitMethod(Opcodes.ACC_PUBLIC + Opcodes.ACC_FINAL, "toString", "()Ljava/lang/String;", null, null);
+        mv.visitTypeInsn(Opcodes.NEW, "java/lang/StringBuilder");
+        mv.visitInsn(Opcodes.DUP);
+        mv.visitLdcInsn(ClassMeta.shortClassName(classMeta.name()) + "[");
+        mv.visitMethodInsn(
+                Opcodes.INVOKESPECIAL, "java/lang/StringBuilder", "<init>", "(Ljava/lang/String;)V", false);
+
+        for (int i = 0; i < components.size(); i++) {
+            var component = components.get(i);
+            appendString(mv, (i == 0 ? "" : ", ") + component.name() + "=");
+            loadComponent(mv, classMeta, component, 0);
+
+            var type = Type.getType(component.asDescriptor());
+            var appended = switch (type.getSort()) {
+                case Type.BYTE, Type.SHORT -> Type.INT_TYPE;
+                case Type.OBJECT, Type.ARRAY -> Type.getObjectType("java/lang/Object");
+                default -> type;
+            };
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/StringBuilder", "append",
+                    "(" + appended.getDescriptor() + ")Ljava/lang/StringBuilder;", false);
+        }
+
+        appendString(mv, "]");
+        mv.visitMethodInsn(
+                Opcodes.INVOKEVIRTUAL, "java/lang/StringBuilder", "toString", "()Ljava/lang/String;", false);
+        mv.visitInsn(Opcodes.ARETURN);
+        mv.visitMaxs(-1, -1);
+        mv.visitEnd();
+    }
+
+    private static void appendString(MethodVisitor mv, String value) {
+        mv.visitLdcInsn(value);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/StringBuilder", "append",
+                "(Ljava/lang/String;)Ljava/lang/StringBuilder;", false);
+    }
+
+    private static void loadComponent(MethodVisitor mv, ClassMeta classMeta, FieldMeta component, int object) {
+        mv.visitVarInsn(Opcodes.ALOAD, object);
+        mv.visitFieldInsn(Opcodes.GETFIELD, classMeta.name(), component.name(), component.asDescriptor());
+    }
+}
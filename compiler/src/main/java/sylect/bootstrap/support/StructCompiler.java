@@ -0,0 +1,213 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.bootstrap.support;
+
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ConstantDynamic;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import sylect.bootstrap.metadata.ClassMeta;
+import sylect.bootstrap.metadata.FieldMeta;
+import sylect.bootstrap.metadata.MethodMeta;
+import sylect.bootstrap.metadata.TypeMeta;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Generates members of struct classes. Struct object is a flyweight: it holds a memory segment and
+ * the offset of current element, so a single object can be used to walk over millions of elements
+ * stored off-heap without allocations.
+ * <p>
+ * Fields are accessed with var handles of value layouts, which are dynamic constants of struct class,
+ * so JIT treats them as true constants and compiles accessors to plain memory loads and stores.
+ */
+public class StructCompiler {
+
+    private static final String VAR_HANDLE = "java/lang/invoke/VarHandle";
+    private static final String VALUE_LAYOUT = "java/lang/foreign/ValueLayout";
+
+    private static final Handle INVOKE_BOOTSTRAP = new Handle(
+            Opcodes.H_INVOKESTATIC,
+            "java/lang/invoke/ConstantBootstraps",
+            "invoke",
+            "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;" +
+                    "Ljava/lang/invoke/MethodHandle;[Ljava/lang/Object;)Ljava/lang/Object;",
+            false);
+    private static final Handle STATIC_FINAL_BOOTSTRAP = new Handle(
+            Opcodes.H_INVOKESTATIC,
+            "java/lang/invoke/ConstantBootstraps",
+            "getStaticFinal",
+            "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;Ljava/lang/Class;)" +
+                    "Ljava/lang/Object;",
+            false);
+    private static final Handle VAR_HANDLE_FACTORY = new Handle(
+            Opcodes.H_INVOKEINTERFACE,
+            VALUE_LAYOUT,
+            "varHandle",
+            "()L" + VAR_HANDLE + ";",
+            true);
+
+    private static final String SEGMENT_FIELD = "segment";
+    private static final String OFFSET_FIELD = "offset";
+
+    private final ClassVisitor cv;
+
+    public StructCompiler(ClassVisitor cv) {
+        this.cv = cv;
+    }
+
+    /**
+     * @param fields instance fields of struct in order of declaration
+     */
+    public void compile(ClassMeta classMeta, List<FieldMeta> fields) {
+        var layout = ClassMeta.getStructLayout(fields);
+
+        cv.visitField(Opcodes.ACC_PUBLIC + Opcodes.ACC_STATIC + Opcodes.ACC_FINAL,
+                ClassMeta.STRUCT_SIZE_FIELD, "J", null, layout.size()).visitEnd();
+        cv.visitField(Opcodes.ACC_PRIVATE + Opcodes.ACC_FINAL,
+                SEGMENT_FIELD, segmentDescriptor(), null, null).visitEnd();
+        cv.visitField(Opcodes.ACC_PRIVATE, OFFSET_FIELD, "J", null, null).visitEnd();
+
+        for (var method : ClassMeta.getStructMethods(classMeta.name(), fields)) {
+            switch (method.name()) {
+                case "<init>" -> compileConstructor(classMeta, method);
+                case "allocate" -> compileAllocate(classMeta, method, layout);
+                case "at" -> compileAt(classMeta, method, layout);
+                case "count" -> compileCount(classMeta, method, layout);
+                case "segment" -> compileSegment(classMeta, method);
+                default -> {
+                    var index = fields.stream().map(FieldMeta::name).toList().indexOf(method.name());
+                    compileAccessor(classMeta, method, fields.get(index), layout.offsets().get(index));
+                }
+            }
+        }
+    }
+
+    private void compileConstructor(ClassMeta classMeta, MethodMeta method) {
+        var mv = visitMethod(method);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, ClassMeta.JAVA_OBJECT, "<init>", "()V", false);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        mv.visitFieldInsn(Opcodes.PUTFIELD, classMeta.name(), SEGMENT_FIELD, segmentDescriptor());
+        mv.visitInsn(Opcodes.RETURN);
+        visitEnd(mv);
+    }
+
+    /**
+     * Allocates zeroed memory for given number of elements aligned for all fields.
+     */
+    private void compileAllocate(ClassMeta classMeta, MethodMeta method, ClassMeta.StructLayout layout) {
+        var mv = visitMethod(method);
+        mv.visitTypeInsn(Opcodes.NEW, classMeta.name());
+        mv.visitInsn(Opcodes.DUP);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitVarInsn(Opcodes.LLOAD, 1);
+        mv.visitLdcInsn(layout.size());
+        mv.visitInsn(Opcodes.LMUL);
+        mv.visitLdcInsn(layout.alignment());
+        mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, ClassMeta.ARENA, "allocate", "(JJ)" + segmentDescriptor(), true);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, classMeta.name(), "<init>", "(" + segmentDescriptor() + ")V", false);
+        mv.visitInsn(Opcodes.ARETURN);
+        visitEnd(mv);
+    }
+
+    /**
+     * Moves flyweight to element with given index, bounds are checked by var handles on access.
+     */
+    private void compileAt(ClassMeta classMeta, MethodMeta method, ClassMeta.StructLayout layout) {
+        var mv = visitMethod(method);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitVarInsn(Opcodes.LLOAD, 1);
+        mv.visitLdcInsn(layout.size());
+        mv.visitInsn(Opcodes.LMUL);
+        mv.visitFieldInsn(Opcodes.PUTFIELD, classMeta.name(), OFFSET_FIELD, "J");
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitInsn(Opcodes.ARETURN);
+        visitEnd(mv);
+    }
+
+    private void compileCount(ClassMeta classMeta, MethodMeta method, ClassMeta.StructLayout layout) {
+        var mv = visitMethod(method);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitFieldInsn(Opcodes.GETFIELD, classMeta.name(), SEGMENT_FIELD, segmentDescriptor());
+        mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, ClassMeta.MEMORY_SEGMENT, "byteSize", "()J", true);
+        mv.visitLdcInsn(layout.size());
+        mv.visitInsn(Opcodes.LDIV);
+        mv.visitInsn(Opcodes.LRETURN);
+        visitEnd(mv);
+    }
+
+    private void compileSegment(ClassMeta classMeta, MethodMeta method) {
+        var mv = visitMethod(method);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitFieldInsn(Opcodes.GETFIELD, classMeta.name(), SEGMENT_FIELD, segmentDescriptor());
+        mv.visitInsn(Opcodes.ARETURN);
+        visitEnd(mv);
+    }
+
+    /**
+     * Getter has no parameters, setter has the value as its only parameter.
+     */
+    private void compileAccessor(ClassMeta classMeta, MethodMeta method, FieldMeta field, long fieldOffset) {
+        var isSetter = !method.parameters().isEmpty();
+        var type = Type.getType(field.asDescriptor());
+
+        var mv = visitMethod(method);
+        mv.visitLdcInsn(getVarHandle(field));
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitFieldInsn(Opcodes.GETFIELD, classMeta.name(), SEGMENT_FIELD, segmentDescriptor());
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitFieldInsn(Opcodes.GETFIELD, classMeta.name(), OFFSET_FIELD, "J");
+        if (fieldOffset != 0) {
+            mv.visitLdcInsn(fieldOffset);
+            mv.visitInsn(Opcodes.LADD);
+        }
+
+        // Var handle methods are signature polymorphic, descriptors must match coordinates and value type exactly
+        if (isSetter) {
+            mv.visitVarInsn(type.getOpcode(Opcodes.ILOAD), 1);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, VAR_HANDLE, "set",
+                    "(" + segmentDescriptor() + "J" + field.asDescriptor() + ")V", false);
+            mv.visitInsn(Opcodes.RETURN);
+        } else {
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, VAR_HANDLE, "get",
+                    "(" + segmentDescriptor() + "J)" + field.asDescriptor(), false);
+            mv.visitInsn(type.getOpcode(Opcodes.IRETURN));
+        }
+        visitEnd(mv);
+    }
+
+    /**
+     * Var handle of value layout (e.g. {@code ValueLayout.JAVA_INT.varHandle()}), it takes segment and offset.
+     */
+    private static ConstantDynamic getVarHandle(FieldMeta field) {
+        var carrier = Type.getType(field.asDescriptor()).getClassName();
+        var layoutName = "JAVA_" + carrier.toUpperCase(Locale.ROOT);
+        var layoutClass = "Of" + Character.toUpperCase(carrier.charAt(0)) + carrier.substring(1);
+
+        var layout = new ConstantDynamic(
+                layoutName, "L" + VALUE_LAYOUT + "$" + layoutClass + ";",
+                STATIC_FINAL_BOOTSTRAP, Type.getObjectType(VALUE_LAYOUT));
+        return new ConstantDynamic(field.name(), "L" + VAR_HANDLE + ";", INVOKE_BOOTSTRAP, VAR_HANDLE_FACTORY, layout);
+    }
+
+    private MethodVisitor visitMethod(MethodMeta method) {
+        return cv.visitMethod(
+                Opcodes.ACC_PUBLIC + (method.isStatic() ? Opcodes.ACC_STATIC : 0) +
+                        (method.isFinal() ? Opcodes.ACC_FINAL : 0),
+                method.name(), method.asDescriptor(), null, null);
+    }
+
+    private static void visitEnd(MethodVisitor mv) {
+        mv.visitMaxs(-1, -1);
+        mv.visitEnd();
+    }
+
+    private static String segmentDescriptor() {
+        return new TypeMeta(TypeMeta.Kind.CLASS, false, ClassMeta.MEMORY_SEGMENT).asDescriptor();
+    }
+}
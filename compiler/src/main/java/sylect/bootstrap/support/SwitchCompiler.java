@@ -0,0 +1,221 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.bootstrap.support;
+
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import sylect.CompilationException;
+import sylect.SylectParser.WhenKeyContext;
+import sylect.SylectParser.WhenStatementContext;
+import sylect.bootstrap.context.ClassMetaManager;
+import sylect.bootstrap.context.ImportManager;
+import sylect.bootstrap.context.ScopeManager;
+import sylect.bootstrap.metadata.TypeMeta;
+import sylect.bootstrap.metadata.TypeMeta.Kind;
+import sylect.bootstrap.metadata.statement.WhenContext;
+import sylect.bootstrap.util.ClassUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Class that compiles dispatch part of "when" statement. Integer keys are compiled to TABLESWITCH or LOOKUPSWITCH
+ * depending on their density, strings are dispatched by hash code and then checked with equals (like javac does),
+ * enums are dispatched the same way by constant name. Unlike ordinals, names don't change when constants
+ * of the enum are reordered or inserted after the switch was compiled.
+ */
+public class SwitchCompiler {
+
+    private static final String JAVA_STRING = "java/lang/String";
+    private static final String JAVA_ENUM = "java/lang/Enum";
+
+    private final ClassMetaManager classMetaManager;
+    private final ImportManager importManager;
+    private final ScopeManager scopeManager;
+
+    private final MethodVisitor mv;
+
+    public SwitchCompiler(
+            ClassMetaManager classMetaManager,
+            ImportManager importManager,
+            ScopeManager scopeManager,
+            MethodVisitor mv) {
+
+        this.classMetaManager = Objects.requireNonNull(classMetaManager);
+        this.importManager = Objects.requireNonNull(importManager);
+        this.scopeManager = Objects.requireNonNull(scopeManager);
+
+        this.mv = Objects.requireNonNull(mv);
+    }
+
+    public void compile(WhenStatementContext ctx, WhenContext whenContext) {
+        var subjectType = new ExpressionCompiler(classMetaManager, importManager, scopeManager, mv)
+                .compile(ctx.expression());
+
+        // Collect keys preserving source order
+        var keys = new LinkedHashMap<WhenKeyContext, Label>();
+        for (var branch : ctx.whenBranch()) {
+            var label = whenContext.branches().get(branch);
+            branch.whenKey().forEach(key -> keys.put(key, label));
+        }
+
+        if (subjectType.isArray() || subjectType.kind() == Kind.BOOLEAN) {
+            throw new CompilationException("unsupported when subject type: " + subjectType);
+        }
+
+        if (subjectType.kind().isIntBased()) {
+            compileIntSwitch(intKeys(subjectType, keys), whenContext.elseBranch());
+        } else if (subjectType.kind() == Kind.CLASS && JAVA_STRING.equals(subjectType.className())) {
+            compileStringSwitch(subjectType, keys, whenContext.elseBranch());
+        } else if (subjectType.kind() == Kind.CLASS) {
+            compileEnumSwitch(subjectType, keys, whenContext.elseBranch());
+        } else {
+            throw new CompilationException("unsupported when subject type: " + subjectType);
+        }
+    }
+
+    private TreeMap<Integer, Label> intKeys(TypeMeta subjectType, Map<WhenKeyContext, Label> keys) {
+        var cases = new TreeMap<Integer, Label>();
+        keys.forEach((key, label) -> {
+            if (key.LITERAL() == null) {
+                throw new CompilationException("expected integer key: " + key.getText());
+            }
+
+            if (!key.LITERAL().getText().chars().allMatch(Character::isDigit)) {
+                throw new CompilationException("expected integer key: " + key.getText());
+            }
+
+            // Parsed with the sign, since the smallest int can't be negated within int range
+            int intValue;
+            try {
+                intValue = Integer.parseInt(key.getText());
+            } catch (NumberFormatException e) {
+                throw new CompilationException("key " + key.getText() + " does not fit into int", e);
+            }
+            var fits = switch (subjectType.kind()) {
+                case BYTE -> intValue == (byte) intValue;
+                case CHAR -> intValue == (char) intValue;
+                case SHORT -> intValue == (short) intValue;
+                default -> true;
+            };
+            if (!fits) {
+                throw new CompilationException("key " + intValue + " does not fit into " + subjectType);
+            }
+
+            putCase(cases, intValue, label, key);
+        });
+        return cases;
+    }
+
+    private void compileStringSwitch(TypeMeta subjectType, Map<WhenKeyContext, Label> keys, Label defaultLabel) {
+        var cases = new LinkedHashMap<String, Label>();
+        keys.forEach((key, label) -> {
+            if (key.STRING_LITERAL() == null) {
+                throw new CompilationException("expected string key: " + key.getText());
+            }
+
+            var value = new String[1];
+            ClassUtils.visitStringLiteral(key.STRING_LITERAL(), literal -> value[0] = (String) literal);
+            putCase(cases, value[0], label, key);
+        });
+        compileHashSwitch(subjectType, cases, defaultLabel);
+    }
+
+    private void compileEnumSwitch(TypeMeta subjectType, Map<WhenKeyContext, Label> keys, Label defaultLabel) {
+        var classMeta = classMetaManager.resolveClass(subjectType.className());
+        if (!JAVA_ENUM.equals(classMeta.baseClassName())) {
+            throw new CompilationException("unsupported when subject type: " + subjectType);
+        }
+
+        var cases = new LinkedHashMap<String, Label>();
+        keys.forEach((key, label) -> {
+            if (key.IDENTIFIER() == null) {
+                throw new CompilationException("expected enum constant key: " + key.getText());
+            }
+
+            // Enum constants are static final fields of the enum type
+            var constant = key.getText();
+            var isConstant = classMeta.fields().stream().anyMatch(fieldMeta -> fieldMeta.name().equals(constant) &&
+                    fieldMeta.isStatic() && fieldMeta.type().kind() == Kind.CLASS && !fieldMeta.type().isArray() &&
+                    classMeta.name().equals(fieldMeta.type().className()));
+            if (!isConstant) {
+                throw new CompilationException("unknown enum constant: " + constant + " in " + classMeta.name());
+            }
+            putCase(cases, constant, label, key);
+        });
+
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, classMeta.name(), "name", "()Ljava/lang/String;", false);
+        compileHashSwitch(new TypeMeta(Kind.CLASS, false, JAVA_STRING), cases, defaultLabel);
+    }
+
+    /**
+     * Dispatches string on the stack by its hash code, then checks keys with the same hash code with equals.
+     */
+    private void compileHashSwitch(TypeMeta subjectType, Map<String, Label> cases, Label defaultLabel) {
+        var subject = scopeManager.addSyntheticLocal(subjectType);
+        mv.visitVarInsn(Opcodes.ASTORE, subject.offset());
+
+        // Group keys by hash code: there may be collisions
+        var hashGroups = new TreeMap<Integer, Map<String, Label>>();
+        cases.forEach((value, label) ->
+                hashGroups.computeIfAbsent(value.hashCode(), hash -> new LinkedHashMap<>()).put(value, label));
+
+        var hashCases = new TreeMap<Integer, Label>();
+        hashGroups.keySet().forEach(hash -> hashCases.put(hash, new Label()));
+
+        mv.visitVarInsn(Opcodes.ALOAD, subject.offset());
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, JAVA_STRING, "hashCode", "()I", false);
+        compileIntSwitch(hashCases, defaultLabel);
+
+        hashGroups.forEach((hash, group) -> {
+            mv.visitLabel(hashCases.get(hash));
+            group.forEach((value, label) -> {
+                mv.visitVarInsn(Opcodes.ALOAD, subject.offset());
+                mv.visitLdcInsn(value);
+                mv.visitMethodInsn(
+                        Opcodes.INVOKEVIRTUAL, JAVA_STRING, "equals", "(Ljava/lang/Object;)Z", false);
+                mv.visitJumpInsn(Opcodes.IFNE, label);
+            });
+            mv.visitJumpInsn(Opcodes.GOTO, defaultLabel);
+        });
+    }
+
+    private void compileIntSwitch(TreeMap<Integer, Label> cases, Label defaultLabel) {
+        if (cases.isEmpty()) {
+            mv.visitInsn(Opcodes.POP);
+            mv.visitJumpInsn(Opcodes.GOTO, defaultLabel);
+            return;
+        }
+
+        long low = cases.firstKey();
+        long high = cases.lastKey();
+        long count = cases.size();
+
+        // Same cost model as javac uses: prefer table unless it's too sparse
+        var tableSpaceCost = 4 + (high - low + 1);
+        var tableTimeCost = 3;
+        var lookupSpaceCost = 3 + 2 * count;
+        var lookupTimeCost = count;
+
+        if (tableSpaceCost + 3 * tableTimeCost <= lookupSpaceCost + 3 * lookupTimeCost) {
+            var labels = new Label[(int) (high - low + 1)];
+            for (int i = 0; i < labels.length; i++) {
+                labels[i] = cases.getOrDefault((int) (low + i), defaultLabel);
+            }
+            mv.visitTableSwitchInsn((int) low, (int) high, defaultLabel, labels);
+        } else {
+            var keys = cases.keySet().stream().mapToInt(Integer::intValue).toArray();
+            var labels = cases.values().toArray(Label[]::new);
+            mv.visitLookupSwitchInsn(defaultLabel, keys, labels);
+        }
+    }
+
+    private static <K> void putCase(Map<K, Label> cases, K key, Label label, WhenKeyContext ctx) {
+        if (cases.put(key, label) != null) {
+            throw new CompilationException("duplicate when key: " + ctx.getText());
+        }
+    }
+}
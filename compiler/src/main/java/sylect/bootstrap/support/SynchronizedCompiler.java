@@ -0,0 +1,98 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.bootstrap.support;
+
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import sylect.CompilationException;
+import sylect.SylectParser.SynchronizedStatementContext;
+import sylect.bootstrap.context.ClassMetaManager;
+import sylect.bootstrap.context.ImportManager;
+import sylect.bootstrap.context.ScopeManager;
+import sylect.bootstrap.metadata.TypeMeta;
+import sylect.bootstrap.metadata.statement.SynchronizedContext;
+
+import java.util.Objects;
+
+/**
+ * Compiles synchronized blocks the way javac does: monitor is entered with {@code MONITORENTER}
+ * and released with {@code MONITOREXIT} on every path out of the block. Exceptions are caught by a handler
+ * that releases the monitor and rethrows. JIT only compiles methods with balanced locking, then it may elide
+ * or coarsen locks that other threads cannot observe.
+ */
+public class SynchronizedCompiler {
+
+    private final ClassMetaManager classMetaManager;
+    private final ImportManager importManager;
+    private final ScopeManager scopeManager;
+
+    private final MethodVisitor mv;
+
+    public SynchronizedCompiler(
+            ClassMetaManager classMetaManager,
+            ImportManager importManager,
+            ScopeManager scopeManager,
+            MethodVisitor mv) {
+
+        this.classMetaManager = Objects.requireNonNull(classMetaManager);
+        this.importManager = Objects.requireNonNull(importManager);
+        this.scopeManager = Objects.requireNonNull(scopeManager);
+
+        this.mv = Objects.requireNonNull(mv);
+    }
+
+    /**
+     * Evaluates the lock object once, it's stored in a local so that the same object is released.
+     *
+     * @param loopDepth number of loops enclosing the block
+     */
+    public SynchronizedContext compileStart(SynchronizedStatementContext ctx, int loopDepth) {
+        var lockType = new ExpressionCompiler(classMetaManager, importManager, scopeManager, mv)
+                .compile(ctx.expression());
+        if (!lockType.isArray() && lockType.kind() != TypeMeta.Kind.CLASS) {
+            throw new CompilationException("cannot synchronize on primitive type: " + lockType);
+        }
+
+        var lock = scopeManager.addSyntheticLocal(lockType);
+        mv.visitInsn(Opcodes.DUP);
+        mv.visitVarInsn(Opcodes.ASTORE, lock.offset());
+        mv.visitInsn(Opcodes.MONITORENTER);
+
+        var bodyStart = new Label();
+        mv.visitLabel(bodyStart);
+        return new SynchronizedContext(lock, bodyStart, loopDepth);
+    }
+
+    /**
+     * Handlers are registered when blocks end, so handlers of nested blocks precede the outer ones.
+     */
+    public void compileEnd(SynchronizedContext block) {
+        var bodyEnd = new Label();
+        var handler = new Label();
+        var handlerEnd = new Label();
+        var otherCode = new Label();
+
+        compileRelease(block);
+        mv.visitLabel(bodyEnd);
+        mv.visitJumpInsn(Opcodes.GOTO, otherCode);
+
+        // Handler guards itself as well, like in code generated by javac
+        mv.visitTryCatchBlock(block.bodyStart(), bodyEnd, handler, null);
+        mv.visitTryCatchBlock(handler, handlerEnd, handler, null);
+        mv.visitLabel(handler);
+        compileRelease(block);
+        mv.visitLabel(handlerEnd);
+        mv.visitInsn(Opcodes.ATHROW);
+
+        mv.visitLabel(otherCode);
+    }
+
+    /**
+     * Releases the monitor before control leaves the block with return, break or continue.
+     */
+    public void compileRelease(SynchronizedContext block) {
+        mv.visitVarInsn(Opcodes.ALOAD, block.lock().offset());
+        mv.visitInsn(Opcodes.MONITOREXIT);
+    }
+}
@@ -0,0 +1,211 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.bootstrap.support;
+
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import sylect.CompilationException;
+import sylect.SylectParser.SpawnExpressionContext;
+import sylect.bootstrap.context.ClassMetaManager;
+import sylect.bootstrap.context.ImportManager;
+import sylect.bootstrap.context.ScopeManager;
+import sylect.bootstrap.metadata.TypeMeta;
+import sylect.bootstrap.metadata.TypeMeta.Kind;
+import sylect.bootstrap.metadata.statement.TaskScopeContext;
+
+import java.util.Objects;
+
+/**
+ * Compiles spawn expressions and scope blocks. Spawned code block becomes a lambda that runs in a virtual thread
+ * when targeting JDK 21 or higher and in a platform thread otherwise.
+ * <p>
+ * Scope runs tasks spawned inside it with its own executor and waits for all of them at the end of the block.
+ * When the block or any task fails, remaining tasks are interrupted and the failure is rethrown,
+ * like {@code StructuredTaskScope.ShutdownOnFailure} does. That API is still in preview,
+ * so the scope is implemented with {@link java.util.concurrent.ExecutorCompletionService} instead:
+ * it returns tasks in order of completion, so the first failure is noticed without waiting for other tasks.
+ */
+public class TaskCompiler {
+
+    private static final String FUTURE = "java/util/concurrent/Future";
+    private static final String FUTURE_TASK = "java/util/concurrent/FutureTask";
+    private static final String EXECUTORS = "java/util/concurrent/Executors";
+    private static final String EXECUTOR_SERVICE = "java/util/concurrent/ExecutorService";
+    private static final String COMPLETION_SERVICE = "java/util/concurrent/ExecutorCompletionService";
+    private static final String EXECUTION_EXCEPTION = "java/util/concurrent/ExecutionException";
+    private static final String THREAD = "java/lang/Thread";
+    private static final String THROWABLE = "java/lang/Throwable";
+
+    private final ClassMetaManager classMetaManager;
+    private final ImportManager importManager;
+    private final ScopeManager scopeManager;
+
+    private final MethodVisitor mv;
+
+    public TaskCompiler(
+            ClassMetaManager classMetaManager,
+            ImportManager importManager,
+            ScopeManager scopeManager,
+            MethodVisitor mv) {
+
+        this.classMetaManager = Objects.requireNonNull(classMetaManager);
+        this.importManager = Objects.requireNonNull(importManager);
+        this.scopeManager = Objects.requireNonNull(scopeManager);
+
+        this.mv = Objects.requireNonNull(mv);
+    }
+
+    /**
+     * Task spawned outside of scope runs on its own, its completion and failure are observed with the future.
+     */
+    public TypeMeta compileSpawn(SpawnExpressionContext ctx) {
+        var target = scopeManager.getOptions().target();
+        if (target < 8) {
+            throw new CompilationException("spawn requires target 8 or higher");
+        }
+
+        var scope = scopeManager.getTaskScope();
+        if (scope != null) {
+            mv.visitVarInsn(Opcodes.ALOAD, scope.completion().offset());
+            new LambdaCompiler(classMetaManager, importManager, scopeManager, mv).compileRunnable(ctx.codeBlock());
+            mv.visitInsn(Opcodes.ACONST_NULL);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, COMPLETION_SERVICE, "submit",
+                    "(Ljava/lang/Runnable;Ljava/lang/Object;)L" + FUTURE + ";", false);
+            mv.visitIincInsn(scope.count().offset(), 1);
+            return new TypeMeta(Kind.CLASS, false, FUTURE);
+        }
+
+        mv.visitTypeInsn(Opcodes.NEW, FUTURE_TASK);
+        mv.visitInsn(Opcodes.DUP);
+        new LambdaCompiler(classMetaManager, importManager, scopeManager, mv).compileRunnable(ctx.codeBlock());
+        mv.visitInsn(Opcodes.ACONST_NULL);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, FUTURE_TASK, "<init>",
+                "(Ljava/lang/Runnable;Ljava/lang/Object;)V", false);
+
+        mv.visitInsn(Opcodes.DUP);
+        if (target >= 21) {
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, THREAD, "startVirtualThread",
+                    "(Ljava/lang/Runnable;)L" + THREAD + ";", false);
+            mv.visitInsn(Opcodes.POP);
+        } else {
+            mv.visitTypeInsn(Opcodes.NEW, THREAD);
+            mv.visitInsn(Opcodes.DUP_X1);
+            mv.visitInsn(Opcodes.SWAP);
+            mv.visitMethodInsn(Opcodes.INVOKESPECIAL, THREAD, "<init>", "(Ljava/lang/Runnable;)V", false);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, THREAD, "start", "()V", false);
+        }
+
+        return new TypeMeta(Kind.CLASS, false, FUTURE);
+    }
+
+    /**
+     * Creates executor of the scope, spawn expressions submit tasks to it until the scope ends.
+     *
+     * @param loopDepth number of loops enclosing the scope
+     */
+    public void compileScopeStart(int loopDepth) {
+        var executor = scopeManager.addSyntheticLocal(new TypeMeta(Kind.CLASS, false, EXECUTOR_SERVICE));
+        var completion = scopeManager.addSyntheticLocal(new TypeMeta(Kind.CLASS, false, COMPLETION_SERVICE));
+        var count = scopeManager.addSyntheticLocal(new TypeMeta(Kind.INTEGER, false, null));
+
+        // Cached pool creates a thread per task as well, but reuses threads of completed tasks
+        var factory = scopeManager.getOptions().target() >= 21
+                ? "newVirtualThreadPerTaskExecutor"
+                : "newCachedThreadPool";
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, EXECUTORS, factory, "()L" + EXECUTOR_SERVICE + ";", false);
+        mv.visitInsn(Opcodes.DUP);
+        mv.visitVarInsn(Opcodes.ASTORE, executor.offset());
+
+        mv.visitTypeInsn(Opcodes.NEW, COMPLETION_SERVICE);
+        mv.visitInsn(Opcodes.DUP_X1);
+        mv.visitInsn(Opcodes.SWAP);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, COMPLETION_SERVICE, "<init>",
+                "(Ljava/util/concurrent/Executor;)V", false);
+        mv.visitVarInsn(Opcodes.ASTORE, completion.offset());
+
+        mv.visitInsn(Opcodes.ICONST_0);
+        mv.visitVarInsn(Opcodes.ISTORE, count.offset());
+
+        var bodyStart = new Label();
+        mv.visitLabel(bodyStart);
+        scopeManager.enterTaskScope(new TaskScopeContext(executor, completion, count, bodyStart, loopDepth));
+    }
+
+    /**
+     * Takes completed tasks until all of them are done or one of them fails, then shuts the executor down.
+     *
+     * @param hasBody whether the block has statements, empty blocks cannot throw
+     */
+    public void compileScopeEnd(boolean hasBody) {
+        var scope = scopeManager.exitTaskScope();
+        var executor = scope.executor().offset();
+        var completion = scope.completion().offset();
+        var count = scope.count().offset();
+        var failure = scopeManager.addSyntheticLocal(new TypeMeta(Kind.CLASS, false, THROWABLE)).offset();
+
+        // Failure of the block itself is handled like failure of a task
+        var bodyEnd = new Label();
+        var join = new Label();
+        mv.visitLabel(bodyEnd);
+        mv.visitInsn(Opcodes.ACONST_NULL);
+        if (hasBody) {
+            var bodyFailure = new Label();
+            mv.visitTryCatchBlock(scope.bodyStart(), bodyEnd, bodyFailure, null);
+            mv.visitJumpInsn(Opcodes.GOTO, join);
+            mv.visitLabel(bodyFailure);
+        }
+        mv.visitLabel(join);
+        mv.visitVarInsn(Opcodes.ASTORE, failure);
+
+        var loop = new Label();
+        var waitStart = new Label();
+        var waitEnd = new Label();
+        var taskFailure = new Label();
+        var storeFailure = new Label();
+        var shutdown = new Label();
+        var shutdownNow = new Label();
+        mv.visitTryCatchBlock(waitStart, waitEnd, taskFailure, null);
+
+        mv.visitLabel(loop);
+        mv.visitVarInsn(Opcodes.ALOAD, failure);
+        mv.visitJumpInsn(Opcodes.IFNONNULL, shutdown);
+        mv.visitVarInsn(Opcodes.ILOAD, count);
+        mv.visitJumpInsn(Opcodes.IFLE, shutdown);
+        mv.visitIincInsn(count, -1);
+
+        mv.visitLabel(waitStart);
+        mv.visitVarInsn(Opcodes.ALOAD, completion);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, COMPLETION_SERVICE, "take", "()L" + FUTURE + ";", false);
+        mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, FUTURE, "get", "()Ljava/lang/Object;", true);
+        mv.visitInsn(Opcodes.POP);
+        mv.visitLabel(waitEnd);
+        mv.visitJumpInsn(Opcodes.GOTO, loop);
+
+        // Exception thrown by task is wrapped, the scope fails with the original one
+        mv.visitLabel(taskFailure);
+        mv.visitInsn(Opcodes.DUP);
+        mv.visitTypeInsn(Opcodes.INSTANCEOF, EXECUTION_EXCEPTION);
+        mv.visitJumpInsn(Opcodes.IFEQ, storeFailure);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, THROWABLE, "getCause", "()L" + THROWABLE + ";", false);
+        mv.visitLabel(storeFailure);
+        mv.visitVarInsn(Opcodes.ASTORE, failure);
+        mv.visitJumpInsn(Opcodes.GOTO, loop);
+
+        var otherCode = new Label();
+        mv.visitLabel(shutdown);
+        mv.visitVarInsn(Opcodes.ALOAD, executor);
+        mv.visitVarInsn(Opcodes.ALOAD, failure);
+        mv.visitJumpInsn(Opcodes.IFNONNULL, shutdownNow);
+        mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, EXECUTOR_SERVICE, "shutdown", "()V", true);
+        mv.visitJumpInsn(Opcodes.GOTO, otherCode);
+
+        // Running tasks are interrupted
+        mv.visitLabel(shutdownNow);
+        mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, EXECUTOR_SERVICE, "shutdownNow", "()Ljava/util/List;", true);
+        mv.visitInsn(Opcodes.POP);
+        mv.visitVarInsn(Opcodes.ALOAD, failure);
+        mv.visitInsn(Opcodes.ATHROW);
+        mv.visitLabel(otherCode);
+    }
+}
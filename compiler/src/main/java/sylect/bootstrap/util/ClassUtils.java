@@ -1,13 +1,25 @@
 package sylect.bootstrap.util;
 
 import org.antlr.v4.runtime.tree.TerminalNode;
+import org.objectweb.asm.ConstantDynamic;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import sylect.CompilationException;
+import sylect.CompilerOptions;
+import sylect.SylectParser.ConstantValueContext;
+import sylect.bootstrap.metadata.FieldMeta;
 import sylect.bootstrap.metadata.TypeMeta;
 
 import java.util.function.Consumer;
 
 public final class ClassUtils {
+
+    public static final String LOOKUP = "java/lang/invoke/MethodHandles$Lookup";
+    private static final String CONDY_BOOTSTRAP_PARAMETERS =
+            "(L" + LOOKUP + ";Ljava/lang/String;Ljava/lang/Class;)";
+
     private ClassUtils() {
     }
 
@@ -37,6 +49,17 @@ public final class ClassUtils {
         };
     }
 
+    /**
+     * Attributes following instructions to the source line, so that stack traces and profilers can point to it.
+     */
+    public static void visitLineNumber(MethodVisitor mv, CompilerOptions options, int line) {
+        if (options.debugLevel().lineNumbers()) {
+            var label = new Label();
+            mv.visitLabel(label);
+            mv.visitLineNumber(line, label);
+        }
+    }
+
     public static TypeMeta visitLiteral(TerminalNode literalNode, Consumer<Object> block) {
         var kind = (TypeMeta.Kind) null;
 
@@ -65,10 +88,67 @@ public final class ClassUtils {
     }
 
     public static TypeMeta visitStringLiteral(TerminalNode literalNode, Consumer<Object> block) {
-        var literal = literalNode.getText();
-        literal = literal.substring(1, literal.length() - 1);
-        block.accept(literal);
+        block.accept(unquoteStringLiteral(literalNode));
 
         return new TypeMeta(TypeMeta.Kind.CLASS, false, "java/lang/String");
     }
+
+    /**
+     * @return value of string literal without quotes and with escape sequences translated
+     */
+    public static String unquoteStringLiteral(TerminalNode literalNode) {
+        var literal = literalNode.getText();
+        try {
+            return literal.substring(1, literal.length() - 1).translateEscapes();
+        } catch (IllegalArgumentException e) {
+            throw new CompilationException("bad string literal: " + literal, e);
+        }
+    }
+
+    public static TypeMeta visitConstant(ConstantValueContext ctx, Consumer<Object> block) {
+        if (ctx.STRING_LITERAL() != null) {
+            return visitStringLiteral(ctx.STRING_LITERAL(), block);
+        }
+
+        var negative = ctx.getChildCount() > 1;
+        return visitLiteral(ctx.LITERAL(), value -> block.accept(negative ? negate(value) : value));
+    }
+
+    private static Object negate(Object value) {
+        if (value instanceof Integer i) {
+            return -i;
+        } else if (value instanceof Long l) {
+            return -l;
+        } else if (value instanceof Float f) {
+            return -f;
+        } else if (value instanceof Double d) {
+            return -d;
+        }
+        throw new CompilationException("unsupported constant: " + value);
+    }
+
+    /**
+     * Lazy field is backed by the bootstrap method that computes the value and
+     * accessor method that loads it for other classes, both share the same name.
+     */
+    public static String getLazyMethodName(FieldMeta fieldMeta) {
+        return "lazy$" + fieldMeta.name();
+    }
+
+    public static String getLazyBootstrapDescriptor(FieldMeta fieldMeta) {
+        return CONDY_BOOTSTRAP_PARAMETERS + fieldMeta.asDescriptor();
+    }
+
+    /**
+     * Constant resolved by calling bootstrap method once, after that JIT treats it as a true constant.
+     */
+    public static ConstantDynamic getLazyConstant(String owner, FieldMeta fieldMeta) {
+        return new ConstantDynamic(
+                fieldMeta.name(),
+                fieldMeta.asDescriptor(),
+                new Handle(
+                        Opcodes.H_INVOKESTATIC, owner,
+                        getLazyMethodName(fieldMeta), getLazyBootstrapDescriptor(fieldMeta),
+                        false));
+    }
 }
@@ -0,0 +1,205 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.bootstrap.util;
+
+import sylect.CompilationException;
+import sylect.SylectParser.ClassDefinitionContext;
+import sylect.SylectParser.MethodDefinitionContext;
+import sylect.SylectParser.ProgramContext;
+import sylect.SylectParser.TypeArgumentsContext;
+import sylect.SylectParser.TypeContext;
+import sylect.SylectParser.TypeParameterContext;
+import sylect.SylectParser.TypeParametersContext;
+import sylect.bootstrap.context.ClassMetaManager;
+import sylect.bootstrap.context.ImportManager;
+import sylect.bootstrap.metadata.TypeMeta;
+import sylect.bootstrap.metadata.TypeParameterMeta;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Generic classes and methods are monomorphised: they are compiled once for each combination of types
+ * their parameters can take. Instantiations for primitive types get names with type suffixes
+ * (e.g. {@code Box$int}), while all reference types share the erased instantiation that keeps the original name
+ * and has {@code Signature} attribute for Java callers.
+ */
+public final class GenericUtils {
+
+    private static final String REFERENCE_SUFFIX = "ref";
+
+    private GenericUtils() {
+    }
+
+    /**
+     * @return all combinations of types that type parameters can take, single empty binding for non-generic code
+     */
+    public static List<Map<String, TypeMeta>> getBindings(List<TypeParameterMeta> typeParameters) {
+        var result = new ArrayList<Map<String, TypeMeta>>();
+        result.add(Map.of());
+        for (var typeParameter : typeParameters) {
+            var next = new ArrayList<Map<String, TypeMeta>>();
+            for (var binding : result) {
+                for (var type : typeParameter.instantiations()) {
+                    var extended = new LinkedHashMap<>(binding);
+                    extended.put(typeParameter.name(), type);
+                    next.add(extended);
+                }
+            }
+            result = next;
+        }
+        return result;
+    }
+
+    public static List<Map<String, TypeMeta>> getClassBindings(ProgramContext ctx) {
+        var importManager = new ImportManager();
+        importManager.enterSource(ctx);
+        return getBindings(TypeParameterMeta.fromContext(importManager, ctx.classDefinition().typeParameters()));
+    }
+
+    public static String getSpecializedName(String name, List<TypeMeta> typeArguments) {
+        if (typeArguments.stream().allMatch(type -> type.kind() == TypeMeta.Kind.CLASS && !type.isArray())) {
+            return name;
+        }
+
+        return name + typeArguments.stream()
+                .map(type -> {
+                    if (type.isArray()) {
+                        throw new CompilationException("arrays cannot be type arguments: " + name);
+                    }
+                    return "$" + (type.kind() == TypeMeta.Kind.CLASS ? REFERENCE_SUFFIX : type.asKeyword());
+                })
+                .collect(Collectors.joining());
+    }
+
+    /**
+     * Determines name of class or method instantiation from types currently bound to its type parameters.
+     */
+    public static String getSpecializedName(ImportManager importManager, String name, TypeParametersContext ctx) {
+        if (ctx == null) {
+            return name;
+        }
+
+        return getSpecializedName(name, ctx.typeParameter().stream()
+                .map(TypeParameterContext::IDENTIFIER)
+                .map(identifier -> {
+                    var type = importManager.resolveTypeParameter(identifier.getText());
+                    if (type == null) {
+                        throw new CompilationException("unbound type parameter: " + identifier.getText());
+                    }
+                    return type;
+                })
+                .toList());
+    }
+
+    /**
+     * Resolves class name with optional type arguments (e.g. {@code Box<int>}) to the name of instantiation.
+     */
+    public static String resolveClassName(ImportManager importManager, String identifier, TypeArgumentsContext ctx) {
+        var className = importManager.resolveImport(identifier);
+        return ctx == null ? className : getSpecializedName(className, getTypeArguments(importManager, ctx));
+    }
+
+    public static List<TypeMeta> getTypeArguments(ImportManager importManager, TypeArgumentsContext ctx) {
+        return ctx.type().stream()
+                .map(type -> TypeMeta.fromContext(importManager, type))
+                .toList();
+    }
+
+    /**
+     * @return signature of class or null if it's not generic
+     */
+    public static String getClassSignature(
+            ClassMetaManager classMetaManager, ImportManager importManager,
+            ClassDefinitionContext ctx, String baseClassName) {
+
+        var superclass = Optional.ofNullable(ctx.baseClass())
+                .map(base -> getClassTypeSignature(importManager, base.IDENTIFIER().getText(), base.typeArguments()))
+                .orElse("L" + baseClassName + ";");
+        var interfaces = ctx.interfaceClass().stream()
+                .map(iface -> getClassTypeSignature(importManager, iface.IDENTIFIER().getText(), iface.typeArguments()))
+                .collect(Collectors.joining());
+        var signature = getTypeParametersSignature(classMetaManager, importManager, ctx.typeParameters()) +
+                superclass + interfaces;
+        return signature.contains("<") ? signature : null;
+    }
+
+    /**
+     * @return signature of field type or null if it doesn't refer to type variables or generic types
+     */
+    public static String getFieldSignature(ImportManager importManager, TypeContext ctx) {
+        var signature = getTypeSignature(importManager, ctx);
+        return signature.equals(TypeMeta.fromContext(importManager, ctx).asDescriptor()) ? null : signature;
+    }
+
+    /**
+     * @return signature of method or null if it's not generic and doesn't refer to type variables
+     */
+    public static String getMethodSignature(
+            ClassMetaManager classMetaManager, ImportManager importManager,
+            MethodDefinitionContext ctx, String descriptor) {
+
+        var signature = getTypeParametersSignature(classMetaManager, importManager, ctx.typeParameters()) +
+                "(" +
+                ctx.parameter().stream()
+                        .map(parameter -> getTypeSignature(importManager, parameter.type()))
+                        .collect(Collectors.joining()) +
+                ")" +
+                getTypeSignature(importManager, ctx.type());
+        return signature.equals(descriptor) ? null : signature;
+    }
+
+    /**
+     * Declares type variables for parameters bound to reference types, primitive instantiations don't have them.
+     */
+    private static String getTypeParametersSignature(
+            ClassMetaManager classMetaManager, ImportManager importManager, TypeParametersContext ctx) {
+
+        if (ctx == null) {
+            return "";
+        }
+
+        var result = new StringBuilder();
+        for (var parameter : ctx.typeParameter()) {
+            var name = parameter.IDENTIFIER().getText();
+            var type = importManager.resolveTypeParameter(name);
+            if (type != null && type.kind() == TypeMeta.Kind.CLASS) {
+                // Interface bounds are separated with an extra colon
+                var iface = classMetaManager.resolveClass(type.className()).iface();
+                result.append(name).append(iface ? "::" : ":").append(type.asDescriptor());
+            }
+        }
+        return result.isEmpty() ? "" : "<" + result + ">";
+    }
+
+    private static String getTypeSignature(ImportManager importManager, TypeContext ctx) {
+        if (ctx.IDENTIFIER() == null) {
+            return TypeMeta.fromContext(importManager, ctx).asDescriptor();
+        }
+
+        var prefix = ctx.getText().endsWith("[]!") ? "[" : "";
+        return prefix + getClassTypeSignature(importManager, ctx.IDENTIFIER().getText(), ctx.typeArguments());
+    }
+
+    private static String getClassTypeSignature(
+            ImportManager importManager, String identifier, TypeArgumentsContext ctx) {
+
+        var typeParameter = importManager.resolveTypeParameter(identifier);
+        if (typeParameter != null) {
+            return typeParameter.kind() == TypeMeta.Kind.CLASS ? "T" + identifier + ";" : typeParameter.asDescriptor();
+        }
+
+        // Erased instantiation keeps type arguments, e.g. List<String> is java/util/List<Ljava/lang/String;>
+        var className = resolveClassName(importManager, identifier, ctx);
+        if (ctx != null && className.equals(importManager.resolveImport(identifier))) {
+            return "L" + className + "<" + ctx.type().stream()
+                    .map(type -> getTypeSignature(importManager, type))
+                    .collect(Collectors.joining()) + ">;";
+        }
+        return "L" + className + ";";
+    }
+}
@@ -0,0 +1,77 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Logger which initializes the logging backend on first emitted message. Creating slf4j logger
+ * loads and configures logback, which takes a good part of compiler startup, while a usual compilation
+ * emits no messages at all. Whether debug messages are emitted is decided by logback configuration, unless
+ * {@code sylect.log.debug} system property is set: when it's false, checking them doesn't initialize the backend
+ * (the {@code sylectc} launcher sets it so).
+ */
+public final class LazyLogger {
+
+    private static final String DEBUG_PROPERTY = System.getProperty("sylect.log.debug");
+
+    private final Class<?> owner;
+    private volatile Logger logger;
+
+    private LazyLogger(Class<?> owner) {
+        this.owner = owner;
+    }
+
+    public static LazyLogger getLogger(Class<?> owner) {
+        return new LazyLogger(owner);
+    }
+
+    public void debug(String message) {
+        if (isDebugEnabled()) {
+            logger().debug(message);
+        }
+    }
+
+    public void debug(String format, Object argument) {
+        if (isDebugEnabled()) {
+            logger().debug(format, argument);
+        }
+    }
+
+    public void debug(String format, Object first, Object second) {
+        if (isDebugEnabled()) {
+            logger().debug(format, first, second);
+        }
+    }
+
+    public void info(String message) {
+        logger().info(message);
+    }
+
+    public void warn(String format, Object argument) {
+        logger().warn(format, argument);
+    }
+
+    public void warn(String format, Object first, Object second) {
+        logger().warn(format, first, second);
+    }
+
+    public void error(String message) {
+        logger().error(message);
+    }
+
+    private boolean isDebugEnabled() {
+        return DEBUG_PROPERTY == null ? logger().isDebugEnabled() : Boolean.parseBoolean(DEBUG_PROPERTY);
+    }
+
+    private Logger logger() {
+        var result = logger;
+        if (result == null) {
+            // Racing threads get the same logger from the factory
+            result = LoggerFactory.getLogger(owner);
+            logger = result;
+        }
+        return result;
+    }
+}
@@ -7,7 +7,9 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
@@ -19,11 +21,61 @@ abstract public class AbstractCompilerTest {
         compiler = new BootstrapCompiler();
     }
 
-    protected void testCompiler(String name, String fileName, Consumer<Class<?>> tester) {
+    /**
+     * Makes class available to other classes being compiled without compiling it.
+     */
+    protected void addToSourceSet(String fileName) {
+        try (var is = this.getClass().getClassLoader().getResourceAsStream(fileName)) {
+            compiler.generateTree(new String(is.readAllBytes()));
+        } catch (Exception e) {
+            Assertions.fail(e);
+        }
+    }
+
+    /**
+     * Compiles several classes that depend on each other and loads them with the same class loader.
+     */
+    protected ClassLoader compileSourceSet(String... fileNames) {
+        var trees = new ArrayList<SylectParser.ProgramContext>();
+        for (var fileName : fileNames) {
+            try (var is = this.getClass().getClassLoader().getResourceAsStream(fileName)) {
+                trees.add(compiler.generateTree(new String(is.readAllBytes())));
+            } catch (Exception e) {
+                Assertions.fail(e);
+            }
+        }
+
+        var classes = new HashMap<String, byte[]>();
+        for (var tree : trees) {
+            compiler.compileClasses(tree).forEach((name, bytecode) -> classes.put(name.replace('/', '.'), bytecode));
+        }
+
+        return new ClassLoader(this.getClass().getClassLoader()) {
+            @Override
+            protected Class<?> findClass(String name) throws ClassNotFoundException {
+                var bytecode = classes.get(name);
+                if (bytecode == null) {
+                    throw new ClassNotFoundException(name);
+                }
+                return defineClass(name, bytecode, 0, bytecode.length);
+            }
+        };
+    }
+
+    protected byte[] compileBytecode(String fileName) {
         try (var is = this.getClass().getClassLoader().getResourceAsStream(fileName)) {
             var source = new String(is.readAllBytes());
             var tree = compiler.generateTree(source);
-            var bytecode = compiler.compile(tree);
+            return compiler.compile(tree);
+        } catch (Exception e) {
+            Assertions.fail(e);
+            return null;
+        }
+    }
+
+    protected void testCompiler(String name, String fileName, Consumer<Class<?>> tester) {
+        try {
+            var bytecode = compileBytecode(fileName);
             var localClassLoader = new ClassLoader() {
                 public Class<?> getCompiledClass() {
                     return defineClass(name, bytecode, 0, bytecode.length);
@@ -47,8 +99,16 @@ abstract public class AbstractCompilerTest {
         });
     }
 
+    protected Object callStaticMethod(Class<?> clazz, String name, Object... args) {
+        return callMethod(clazz, null, name, args);
+    }
+
     protected Object callMethod(Object obj, String name, Object... args) {
-        var methodOptional = Arrays.stream(obj.getClass().getMethods())
+        return callMethod(obj.getClass(), obj, name, args);
+    }
+
+    private Object callMethod(Class<?> clazz, Object obj, String name, Object... args) {
+        var methodOptional = Arrays.stream(clazz.getMethods())
                 .filter(method -> method.getName().equals(name))
                 .findFirst();
 
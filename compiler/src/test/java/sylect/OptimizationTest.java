@@ -0,0 +1,260 @@
+// SPDX-License-Identifier: MIT
+
+package sylect;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import sylect.bootstrap.BootstrapCompiler;
+import sylect.bootstrap.context.JdkSymbolSnapshot;
+import sylect.bootstrap.metadata.ClassMeta;
+
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+public class OptimizationTest extends AbstractCompilerTest {
+
+    @Test
+    public void tailCallTest() {
+        testCompiler("sylect.optimization.TailCalls", "sylect/optimization/TailCalls.sy", clazz -> {
+            // Would overflow the stack if calls were not eliminated
+            Assertions.assertEquals(500000500000L, callStaticMethod(clazz, "sumTo", 1000000L, 0L));
+            Assertions.assertEquals(6, callStaticMethod(clazz, "gcd", 54, 24));
+            Assertions.assertEquals(0L, callStaticMethod(clazz, "countDown", 1000000));
+            callStaticMethod(clazz, "loop", 1000000, new int[0]);
+        });
+    }
+
+    @Test
+    public void inlineTest() {
+        testCompiler("sylect.optimization.Inlining", "sylect/optimization/Inlining.sy", (clazz, obj) -> {
+            Assertions.assertEquals(25, callStaticMethod(clazz, "sumOfSquares", 3, 4));
+            Assertions.assertEquals(49L, callStaticMethod(clazz, "clampAll", 50L));
+            Assertions.assertEquals(100L, callStaticMethod(clazz, "clampAll", 1000L));
+            Assertions.assertEquals(27, callStaticMethod(clazz, "cube", 3));
+            Assertions.assertEquals("xx", callStaticMethod(clazz, "touchTwice"));
+            Assertions.assertEquals(10L, callMethod(obj, "limit", 50L));
+            Assertions.assertEquals(12, callStaticMethod(clazz, "quadruple", 3));
+        });
+
+        var calls = collectCalls(compileBytecode("sylect/optimization/Inlining.sy"));
+        Assertions.assertEquals(Set.of(), calls.get("sumOfSquares"));
+        Assertions.assertEquals(Set.of("java/lang/Math.min", "java/lang/Math.max"), calls.get("clampAll"));
+        Assertions.assertEquals(Set.of(), calls.get("cube"));
+        Assertions.assertEquals(Set.of("java/lang/StringBuilder.<init>", "java/lang/StringBuilder.append",
+                "java/lang/StringBuilder.toString"), calls.get("touchTwice"));
+        Assertions.assertEquals(Set.of("sylect/optimization/Inlining.twice"), calls.get("quadruple"));
+    }
+
+    @Test
+    public void autoInlineTest() {
+        compiler = new BootstrapCompiler(
+                getClass().getClassLoader(), new CompilerOptions(SylectCompiler.DEFAULT_TARGET, 2));
+        testCompiler("sylect.optimization.Inlining", "sylect/optimization/Inlining.sy", clazz -> {
+            Assertions.assertEquals(12, callStaticMethod(clazz, "quadruple", 3));
+        });
+        var calls = collectCalls(compileBytecode("sylect/optimization/Inlining.sy"));
+        Assertions.assertEquals(Set.of(), calls.get("quadruple"));
+
+        compiler = new BootstrapCompiler(
+                getClass().getClassLoader(), new CompilerOptions(SylectCompiler.DEFAULT_TARGET, 0));
+        calls = collectCalls(compileBytecode("sylect/optimization/Inlining.sy"));
+        Assertions.assertEquals(Set.of("sylect/optimization/Inlining.square"), calls.get("sumOfSquares"));
+    }
+
+    @Test
+    public void memoizationTest() {
+        testCompiler("sylect.optimization.Memoization", "sylect/optimization/Memoization.sy", clazz -> {
+            Assertions.assertEquals(12586269025L, callStaticMethod(clazz, "fib", 50));
+            Assertions.assertEquals(51, callStaticMethod(clazz, "getComputed"));
+            Assertions.assertEquals(2L * 832040L, callStaticMethod(clazz, "twice", 30));
+            Assertions.assertEquals(51, callStaticMethod(clazz, "getComputed"));
+
+            // Sign bits of one argument don't leak into the others
+            Assertions.assertEquals(-903_000 + 1, callStaticMethod(clazz, "pack", (byte) -1, 'a', (short) -1, 2.5f));
+            Assertions.assertEquals(1_097_000 + 3, callStaticMethod(clazz, "pack", (byte) 1, 'a', (short) 1, 2.5f));
+            Assertions.assertEquals(-903_000 + 1, callStaticMethod(clazz, "pack", (byte) -1, 'a', (short) -1, 2.5f));
+            Assertions.assertEquals(53, callStaticMethod(clazz, "getComputed"));
+
+            Assertions.assertEquals(5.0, callStaticMethod(clazz, "hypot", 3.0, 4.0));
+            Assertions.assertEquals(13.0, callStaticMethod(clazz, "hypot", 5.0, 12.0));
+            Assertions.assertEquals(5.0, callStaticMethod(clazz, "hypot", 3.0, 4.0));
+            Assertions.assertEquals(55, callStaticMethod(clazz, "getComputed"));
+            callStaticMethod(clazz, "hypot", 6.0, 8.0);
+            callStaticMethod(clazz, "hypot", 8.0, 6.0);
+            Assertions.assertEquals(5.0, callStaticMethod(clazz, "hypot", 3.0, 4.0));
+            Assertions.assertEquals(58, callStaticMethod(clazz, "getComputed"));
+
+            Assertions.assertEquals("ABC", callStaticMethod(clazz, "upper", "abc"));
+            Assertions.assertEquals("ABC", callStaticMethod(clazz, "upper", "abc"));
+            Assertions.assertEquals("abab", callStaticMethod(clazz, "repeat", "ab", 2));
+            Assertions.assertEquals("abab", callStaticMethod(clazz, "repeat", "ab", 2));
+            Assertions.assertEquals("ababab", callStaticMethod(clazz, "repeat", "ab", 3));
+            Assertions.assertEquals(61, callStaticMethod(clazz, "getComputed"));
+        });
+
+        var calls = collectCalls(compileBytecode("sylect/optimization/Memoization.sy"));
+        Assertions.assertEquals(Set.of("sylect/optimization/Memoization.fib"), calls.get("twice"));
+        Assertions.assertTrue(calls.get("fib").contains("sylect/runtime/LongCache.getLong"));
+        Assertions.assertTrue(calls.get("fib").contains("sylect/optimization/Memoization.memoized$fib"));
+        Assertions.assertTrue(calls.get("hypot").contains("sylect/runtime/ObjectCache.getLong"));
+        Assertions.assertTrue(calls.get("repeat").contains("sylect/runtime/StripedObjectCache.get"));
+
+        var header = "class sylect/optimization/Memoized\n\n";
+        Assertions.assertThrows(CompilationException.class, () -> compiler.compile(compiler.generateTree(
+                header + "run(n:int):int [sylect/Memoize] {\n    return n\n}\n")));
+        Assertions.assertThrows(CompilationException.class, () -> compiler.compile(compiler.generateTree(
+                header + "static run(n:int[]):int [sylect/Memoize] {\n    return 0\n}\n")));
+        Assertions.assertThrows(CompilationException.class, () -> compiler.compile(compiler.generateTree(
+                header + "static run(n:int):int [sylect/Memoize [maxSize{0}]] {\n    return n\n}\n")));
+        Assertions.assertThrows(CompilationException.class, () -> compiler.compile(compiler.generateTree(
+                header + "static run(n:int):int [sylect/Memoize [maxSize{unlimited}]] {\n    return n\n}\n")));
+
+        // Runtime library is compiled for Java 17
+        compiler = new BootstrapCompiler(getClass().getClassLoader(), 11);
+        Assertions.assertThrows(CompilationException.class, () -> compiler.compile(compiler.generateTree(
+                header + "static run(n:int):int [sylect/Memoize] {\n    return n\n}\n")));
+
+        // Caches are runtime library classes, so the project has to depend on it
+        compiler = new BootstrapCompiler(ClassLoader.getPlatformClassLoader(), 17);
+        var exception = Assertions.assertThrows(CompilationException.class, () -> compiler.compile(
+                compiler.generateTree(header + "static run(n:int):int [sylect/Memoize] {\n    return n\n}\n")));
+        Assertions.assertTrue(exception.getMessage().contains("runtime library"));
+    }
+
+    @Test
+    public void constantInliningTest() {
+        addToSourceSet("sylect/optimization/Constants.sy");
+        testCompiler("sylect.optimization.ConstantUser", "sylect/optimization/ConstantUser.sy", clazz -> {
+            Assertions.assertEquals(32.0, callStaticMethod(clazz, "scaledSize"));
+            Assertions.assertEquals("constants", callStaticMethod(clazz, "name"));
+        });
+    }
+
+    @Test
+    public void devirtualizationTest() throws ReflectiveOperationException {
+        var classLoader = compileSourceSet(
+                "sylect/optimization/Shape.sy",
+                "sylect/optimization/Circle.sy",
+                "sylect/optimization/Square.sy",
+                "sylect/optimization/Shapes.sy");
+
+        var shape = classLoader.loadClass("sylect.optimization.Shape");
+        Assertions.assertTrue(shape.isSealed());
+        var circleClass = classLoader.loadClass("sylect.optimization.Circle");
+        Assertions.assertTrue(Modifier.isFinal(circleClass.getModifiers()));
+        var squareClass = classLoader.loadClass("sylect.optimization.Square");
+
+        var circle = circleClass.getConstructor(double.class).newInstance(1.0);
+        var square = squareClass.getConstructor(double.class).newInstance(2.0);
+        Assertions.assertEquals(6.0, callMethod(circle, "twiceArea"));
+        Assertions.assertEquals(12.0, callMethod(square, "describe"));
+        Assertions.assertTrue(Modifier.isFinal(squareClass.getMethod("perimeter").getModifiers()));
+
+        var shapes = classLoader.loadClass("sylect.optimization.Shapes");
+        Assertions.assertEquals(7.0, callStaticMethod(shapes, "totalArea", List.of(circle, square)));
+
+        var calls = collectCalls(compileBytecode("sylect/optimization/Shapes.sy"), opcode -> true);
+        Assertions.assertTrue(calls.get("totalArea").containsAll(Set.of(
+                "sylect/optimization/Circle.area", "sylect/optimization/Square.area")));
+        Assertions.assertEquals(7.0, callStaticMethod(shapes, "sumOfAreas", circle, square));
+        var sumOfAreas = InliningReport.analyze(compileBytecode("sylect/optimization/Shapes.sy")).stream()
+                .filter(method -> method.name().equals("sumOfAreas"))
+                .findFirst()
+                .orElseThrow();
+        Assertions.assertEquals(3, sumOfAreas.maxLocals());
+
+        var specialCalls = collectCalls(
+                compileBytecode("sylect/optimization/Circle.sy"), opcode -> opcode == Opcodes.INVOKESPECIAL);
+        Assertions.assertEquals(Set.of("sylect/optimization/Circle.area"), specialCalls.get("twiceArea"));
+        specialCalls = collectCalls(
+                compileBytecode("sylect/optimization/Square.sy"), opcode -> opcode == Opcodes.INVOKESPECIAL);
+        Assertions.assertEquals(
+                Set.of("sylect/optimization/Square.perimeter", "sylect/optimization/Square.area"),
+                specialCalls.get("describe"));
+    }
+
+    @Test
+    public void inliningReportTest() {
+        var methods = new HashMap<String, InliningReport.MethodSummary>();
+        InliningReport.analyze(compileBytecode("sylect/optimization/HotMethods.sy"))
+                .forEach(method -> methods.put(method.name(), method));
+
+        var square = methods.get("square");
+        Assertions.assertEquals(4, square.codeSize());
+        Assertions.assertEquals(2, square.maxStack());
+        Assertions.assertEquals(1, square.maxLocals());
+        Assertions.assertEquals(List.of(), square.warnings());
+
+        // Both loops jump back, calls of square and Math.abs are counted
+        var sumOfSquares = methods.get("sumOfSquares");
+        Assertions.assertTrue(sumOfSquares.hot());
+        Assertions.assertEquals(2, sumOfSquares.loopCount());
+        Assertions.assertEquals(2, sumOfSquares.invokeCount());
+        Assertions.assertTrue(sumOfSquares.codeSize() > InliningReport.MAX_INLINE_SIZE);
+        Assertions.assertEquals(1, sumOfSquares.warnings().size());
+        Assertions.assertTrue(sumOfSquares.warnings().get(0).contains("MaxInlineSize"));
+
+        var cube = methods.get("cube");
+        Assertions.assertTrue(cube.hot());
+        Assertions.assertEquals(List.of(), cube.warnings());
+        Assertions.assertFalse(methods.get("square").hot());
+
+        // Budget is checked along with limits of JIT
+        Assertions.assertEquals(1, cube.warnings(4).size());
+        var huge = new InliningReport.MethodSummary("a/B", "run", "()V", 9000, 1, 1, 0, 0, false);
+        Assertions.assertEquals(2, huge.warnings().size());
+        Assertions.assertTrue(InliningReport.format(List.of(huge), 8000).contains("a.B.run()V"));
+    }
+
+    @Test
+    public void jdkSymbolSnapshotTest() throws ClassNotFoundException {
+        Assumptions.assumeTrue(JdkSymbolSnapshot.lookup(ClassMeta.JAVA_OBJECT) != null,
+                "no symbol snapshot of JDK " + Runtime.version().feature());
+
+        // Snapshot has to be regenerated if it doesn't match reflection
+        for (var className : JdkSymbolSnapshot.COMMON_CLASSES) {
+            var clazz = Class.forName(ClassMeta.sylectClassNameToJavaClassName(className));
+            Assertions.assertEquals(JdkSymbolSnapshot.fromJavaClass(clazz), JdkSymbolSnapshot.lookup(className));
+        }
+        Assertions.assertNotNull(JdkSymbolSnapshot.lookup("java/io/OutputStream"));
+        Assertions.assertNull(JdkSymbolSnapshot.lookup("java/util/concurrent/ConcurrentHashMap"));
+    }
+
+    private static Map<String, Set<String>> collectCalls(byte[] bytecode) {
+        return collectCalls(bytecode, opcode -> true);
+    }
+
+    /**
+     * Collects methods called by each method of the class.
+     */
+    private static Map<String, Set<String>> collectCalls(byte[] bytecode, IntPredicate opcodeFilter) {
+        var calls = new HashMap<String, Set<String>>();
+        new ClassReader(bytecode).accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public MethodVisitor visitMethod(
+                    int access, String name, String descriptor, String signature, String[] exceptions) {
+                var methodCalls = calls.computeIfAbsent(name, key -> new HashSet<>());
+                return new MethodVisitor(Opcodes.ASM9) {
+                    @Override
+                    public void visitMethodInsn(
+                            int opcode, String owner, String name, String descriptor, boolean isInterface) {
+                        if (opcodeFilter.test(opcode)) {
+                            methodCalls.add(owner + "." + name);
+                        }
+                    }
+                };
+            }
+        }, 0);
+        return calls;
+    }
+}
@@ -4,6 +4,46 @@ package sylect;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ConstantDynamic;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import sylect.bootstrap.BootstrapCompiler;
+import sylect.runtime.Profiler;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.TypeVariable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Supplier;
 
 public class SyntaxTest extends AbstractCompilerTest {
 
@@ -21,10 +61,800 @@ public class SyntaxTest extends AbstractCompilerTest {
         });
     }
 
+    @Test
+    public void valueTypesTest() {
+        testCompiler("sylect.basic.ValueTypes", "sylect/basic/ValueTypes.sy", (clazz, obj) -> {
+            Assertions.assertEquals((byte) -128, callMethod(obj, "overflowByte"));
+            Assertions.assertEquals((short) -1536, callMethod(obj, "shiftShort"));
+            Assertions.assertEquals('B', callMethod(obj, "nextLetter"));
+
+            Assertions.assertEquals(true, callMethod(obj, "isNonZero", 42));
+            Assertions.assertEquals(false, callMethod(obj, "isNonZero", 0));
+            Assertions.assertEquals(1, callMethod(obj, "select", 1, 2));
+
+            Assertions.assertEquals(3, callMethod(obj, "countDigits", "a1b2c3"));
+            Assertions.assertEquals(1, callMethod(obj, "compare", (short) 1, (short) 2));
+            Assertions.assertEquals(1, callMethod(obj, "compare", (short) 2, (short) 2));
+
+            Assertions.assertEquals(true, callMethod(obj, "inRange", 'b', 'a', 'c'));
+            Assertions.assertEquals(false, callMethod(obj, "inRange", 'd', 'a', 'c'));
+            Assertions.assertEquals(true, callMethod(obj, "isLetter", 'Q'));
+            Assertions.assertEquals(true, callMethod(obj, "isLetter", '_'));
+            Assertions.assertEquals(false, callMethod(obj, "isLetter", '['));
+        });
+
+        // Other integer expressions are not bools
+        var header = "class sylect/basic/Bools\n\nstatic test(i:int):bool {\n";
+        Assertions.assertThrows(CompilationException.class, () -> compiler.compile(compiler.generateTree(
+                header + "    return i\n}\n")));
+        Assertions.assertThrows(CompilationException.class, () -> compiler.compile(compiler.generateTree(
+                header + "    return (i > 0) + 1\n}\n")));
+        Assertions.assertThrows(CompilationException.class, () -> compiler.compile(compiler.generateTree(
+                header + "    var b = i > 0\n    return b\n}\n")));
+    }
+
+    @Test
+    public void fieldSyntaxTest() {
+        testCompiler("sylect.basic.FieldSyntax", "sylect/basic/FieldSyntax.sy", (clazz, obj) -> {
+            Assertions.assertEquals(100, callMethod(obj, "getId"));
+            Assertions.assertEquals("Hello", callMethod(obj, "getName"));
+            Assertions.assertEquals(5L, callStaticMethod(clazz, "shift", 10L));
+            Assertions.assertEquals(100, callStaticMethod(clazz, "limit", 1000));
+            Assertions.assertEquals(':', callStaticMethod(clazz, "separator"));
+            Assertions.assertEquals((byte) -128, callStaticMethod(clazz, "mask"));
+            Assertions.assertEquals((short) 8080, callStaticMethod(clazz, "port"));
+
+            try {
+                var obj2 = clazz.getConstructor(int.class, String.class).newInstance(-1, "");
+                Assertions.assertEquals(0, callMethod(obj2, "getId"));
+                Assertions.assertEquals("Hello", callMethod(obj2, "getName"));
+                var obj3 = clazz.getConstructor(int.class, String.class).newInstance(7, "x");
+                Assertions.assertEquals(7, callMethod(obj3, "getId"));
+                Assertions.assertEquals("x", callMethod(obj3, "getName"));
+            } catch (ReflectiveOperationException e) {
+                Assertions.fail(e);
+            }
+
+            try {
+                var limit = clazz.getDeclaredField("LIMIT");
+                Assertions.assertTrue(Modifier.isFinal(limit.getModifiers()));
+                Assertions.assertTrue(Modifier.isStatic(limit.getModifiers()));
+                limit.setAccessible(true);
+                Assertions.assertEquals(100, limit.get(null));
+
+                Assertions.assertTrue(Modifier.isFinal(clazz.getDeclaredField("id").getModifiers()));
+                Assertions.assertFalse(Modifier.isFinal(clazz.getDeclaredField("counter").getModifiers()));
+            } catch (ReflectiveOperationException e) {
+                Assertions.fail(e);
+            }
+        });
+
+        compiler = new BootstrapCompiler(getClass().getClassLoader(), 17);
+        var header = "class sylect/basic/Fields\n\nfinal id:int\n\n";
+        // Final field assigned in one branch only
+        Assertions.assertThrows(CompilationException.class, () -> compiler.compile(compiler.generateTree(
+                header + "constructor(x:int):void {\n    super constructor()\n    if x > 0 {\n        id = x\n" +
+                        "    }\n}\n")));
+        // Final field not assigned on early return
+        Assertions.assertThrows(CompilationException.class, () -> compiler.compile(compiler.generateTree(
+                header + "constructor(x:int):void {\n    super constructor()\n    if x > 0 {\n        return\n" +
+                        "    }\n    id = x\n}\n")));
+        // Final field assigned twice on the same path
+        Assertions.assertThrows(CompilationException.class, () -> compiler.compile(compiler.generateTree(
+                header + "constructor(x:int):void {\n    super constructor()\n    if x > 0 {\n        id = x\n" +
+                        "    }\n    id = 1\n}\n")));
+        // Final field not assigned at all
+        Assertions.assertThrows(CompilationException.class, () -> compiler.compile(compiler.generateTree(
+                header + "constructor():void {\n    super constructor()\n}\n")));
+        // Constant out of range of its type
+        Assertions.assertThrows(CompilationException.class, () -> compiler.compile(compiler.generateTree(
+                "class sylect/basic/Fields\n\nconst B:byte = 128\n")));
+    }
+
+    @Test
+    public void recordSyntaxTest() {
+        testCompiler("sylect.basic.RecordSyntax", "sylect/basic/RecordSyntax.sy", clazz -> {
+            Assertions.assertTrue(clazz.isRecord());
+            Assertions.assertTrue(Modifier.isFinal(clazz.getModifiers()));
+            Assertions.assertEquals(List.of("x", "y", "name"), Arrays.stream(clazz.getRecordComponents())
+                    .map(RecordComponent::getName)
+                    .toList());
+
+            var a = callStaticMethod(clazz, "of", 1, 2L);
+            var b = callStaticMethod(clazz, "of", 1, 2L);
+            var c = callStaticMethod(clazz, "of", 2, 1L);
+            Assertions.assertEquals(a, b);
+            Assertions.assertNotEquals(a, c);
+            Assertions.assertEquals(a.hashCode(), b.hashCode());
+            Assertions.assertEquals("RecordSyntax[x=1, y=2, name=origin]", a.toString());
+
+            Assertions.assertEquals(1, callMethod(a, "x"));
+            Assertions.assertEquals(3L, callMethod(a, "distance"));
+            Assertions.assertEquals(3L, callStaticMethod(clazz, "record", a));
+            Assertions.assertEquals(1, callStaticMethod(clazz, "count", a, b));
+            Assertions.assertEquals(2, callStaticMethod(clazz, "count", a, c));
+        });
+
+        // Older targets get plain final class with the same generated methods
+        compiler = new BootstrapCompiler(getClass().getClassLoader(), 11);
+        testCompiler("sylect.basic.RecordSyntax", "sylect/basic/RecordSyntax.sy", clazz -> {
+            Assertions.assertFalse(clazz.isRecord());
+            Assertions.assertEquals(Object.class, clazz.getSuperclass());
+            Assertions.assertTrue(Modifier.isFinal(clazz.getModifiers()));
+
+            var a = callStaticMethod(clazz, "of", 1, 2L);
+            var b = callStaticMethod(clazz, "of", 1, 2L);
+            var c = callStaticMethod(clazz, "of", 2, 1L);
+            Assertions.assertEquals(a, b);
+            Assertions.assertNotEquals(a, c);
+            Assertions.assertNotEquals(a, "origin");
+            Assertions.assertEquals(Objects.hash(1, 2L, "origin") - 31 * 31 * 31, a.hashCode());
+            Assertions.assertEquals("RecordSyntax[x=1, y=2, name=origin]", a.toString());
+            Assertions.assertEquals(3L, callMethod(a, "distance"));
+            Assertions.assertEquals(2, callStaticMethod(clazz, "count", a, c));
+        });
+    }
+
+    @Test
+    public void genericSyntaxTest() throws ReflectiveOperationException {
+        var classLoader = compileSourceSet("sylect/basic/GenericBox.sy", "sylect/basic/GenericSyntax.sy");
+        var clazz = classLoader.loadClass("sylect.basic.GenericSyntax");
+
+        Assertions.assertEquals(7, callStaticMethod(clazz, "maxInt"));
+        Assertions.assertEquals(2.5, callStaticMethod(clazz, "maxDouble"));
+        Assertions.assertEquals(12L, callStaticMethod(clazz, "gcdLong"));
+        Assertions.assertEquals("a", callStaticMethod(clazz, "firstString"));
+        Assertions.assertEquals(6, callStaticMethod(clazz, "increment", 5));
+        Assertions.assertEquals(0, callStaticMethod(clazz, "size", List.of()));
+
+        // Only listed instantiations are compiled
+        Assertions.assertEquals(int.class, clazz.getMethod("max$int", int.class, int.class).getReturnType());
+        Assertions.assertThrows(NoSuchMethodException.class, () -> clazz.getMethod("max", Object.class, Object.class));
+        Assertions.assertThrows(
+                NoSuchMethodException.class, () -> clazz.getMethod("gcd$double", double.class, double.class));
+
+        // Erased instantiations have signatures for Java callers
+        var first = clazz.getMethod("first", Object.class, Object.class);
+        Assertions.assertEquals("T", first.getTypeParameters()[0].getName());
+        Assertions.assertInstanceOf(TypeVariable.class, first.getGenericReturnType());
+        var size = clazz.getMethod("size", List.class);
+        Assertions.assertEquals("java.util.List<java.lang.String>", size.getGenericParameterTypes()[0].getTypeName());
+
+        // Primitive instantiations of generic class hold unboxed values
+        var box = classLoader.loadClass("sylect.basic.GenericBox");
+        Assertions.assertEquals("T", box.getTypeParameters()[0].getName());
+        Assertions.assertEquals(Object.class, box.getDeclaredField("value").getType());
+        Assertions.assertInstanceOf(TypeVariable.class, box.getDeclaredField("value").getGenericType());
+        for (var type : List.of(int.class, long.class, double.class)) {
+            var instantiation = classLoader.loadClass("sylect.basic.GenericBox$" + type.getName());
+            Assertions.assertEquals(type, instantiation.getDeclaredField("value").getType());
+            Assertions.assertEquals(0, instantiation.getTypeParameters().length);
+        }
+
+        var wrapped = callStaticMethod(clazz, "wrap", "s");
+        Assertions.assertEquals(box, wrapped.getClass());
+        Assertions.assertEquals("s", callMethod(wrapped, "get"));
+    }
+
+    @Test
+    public void structSyntaxTest() {
+        compiler = new BootstrapCompiler(getClass().getClassLoader(), 22);
+        addToSourceSet("sylect/basic/Particle.sy");
+
+        // Memory segments are only available since JDK 22, so we check the bytecode instead of running it
+        var particle = new ClassSummary(compileBytecode("sylect/basic/Particle.sy"));
+        Assertions.assertEquals(Opcodes.V22, particle.version);
+        Assertions.assertTrue((particle.access & Opcodes.ACC_FINAL) != 0);
+
+        // Fields are laid out in declaration order: x@0, y@8, mass@16, id@20, alive@24, padded to 8 bytes
+        Assertions.assertEquals(Set.of("BYTES", "GRAVITY", "segment", "offset"), particle.fields.keySet());
+        Assertions.assertEquals(32L, particle.fields.get("BYTES"));
+
+        Assertions.assertTrue(particle.constants.keySet().containsAll(Set.of(
+                "<init>(Ljava/lang/foreign/MemorySegment;)V",
+                "allocate(Ljava/lang/foreign/Arena;J)Lsylect/basic/Particle;",
+                "at(J)Lsylect/basic/Particle;",
+                "count()J",
+                "x()D", "x(D)V", "mass()F", "mass(F)V", "alive()Z", "alive(Z)V",
+                "fall(D)V")));
+
+        // Accessors use var handles at computed offsets, fields are accessed through accessors
+        Assertions.assertEquals(List.of("Ljava/lang/invoke/VarHandle;", 20L), particle.constants.get("id()I"));
+        Assertions.assertEquals(List.of("Ljava/lang/invoke/VarHandle;"), particle.constants.get("x()D"));
+        Assertions.assertEquals(
+                Set.of("sylect/basic/Particle.y()D", "sylect/basic/Particle.y(D)V",
+                        "sylect/basic/Particle.alive()Z", "sylect/basic/Particle.alive(Z)V"),
+                particle.calls.get("fall(D)V"));
+
+        var user = new ClassSummary(compileBytecode("sylect/basic/StructSyntax.sy"));
+        Assertions.assertEquals(
+                Set.of("sylect/basic/Particle.count()J", "sylect/basic/Particle.at(J)Lsylect/basic/Particle;",
+                        "sylect/basic/Particle.mass()F"),
+                user.calls.get("totalMass(Lsylect/basic/Particle;)D"));
+        Assertions.assertEquals(List.of(32L), user.constants.get("size()J"));
+        Assertions.assertEquals(
+                Set.of("sylect/basic/Particle.count()J"), user.calls.get("struct(Lsylect/basic/Particle;)J"));
+
+        compiler = new BootstrapCompiler(getClass().getClassLoader(), 17);
+        Assertions.assertThrows(CompilationException.class, () -> compiler.compile(compiler.generateTree(
+                "struct sylect/basic/Point\n\nx:int\ny:int\n")));
+    }
+
+    @Test
+    public void foreignSyntaxTest() {
+        compiler = new BootstrapCompiler(getClass().getClassLoader(), 22);
+        var foreign = new ClassSummary(compileBytecode("sylect/basic/ForeignSyntax.sy"));
+
+        // Foreign methods have bodies invoking downcall handles created by generated bootstrap methods
+        Assertions.assertEquals(0, foreign.methodAccess.get("strlen(Ljava/lang/foreign/MemorySegment;)J") &
+                Opcodes.ACC_NATIVE);
+        Assertions.assertEquals(
+                Set.of("java/lang/invoke/MethodHandle.invokeExact(Ljava/lang/foreign/MemorySegment;)J"),
+                foreign.calls.get("strlen(Ljava/lang/foreign/MemorySegment;)J"));
+        Assertions.assertEquals(
+                List.of("Ljava/lang/invoke/MethodHandle;"),
+                foreign.constants.get("absolute(I)I"));
+        Assertions.assertEquals(
+                Set.of("java/lang/invoke/MethodHandle.invokeExact(Ljava/lang/foreign/MemorySegment;)V"),
+                foreign.calls.get("free(Ljava/lang/foreign/MemorySegment;)V"));
+
+        var bootstrapDescriptor =
+                "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;)" +
+                        "Ljava/lang/invoke/MethodHandle;";
+        var strlen = foreign.calls.get("foreign$strlen" + bootstrapDescriptor);
+        Assertions.assertTrue(
+                strlen.contains("java/lang/foreign/Linker.defaultLookup()Ljava/lang/foreign/SymbolLookup;"));
+        Assertions.assertTrue(strlen.stream().noneMatch(call -> call.startsWith("java/lang/foreign/Linker$Option")));
+        Assertions.assertTrue(foreign.constants.get("foreign$strlen" + bootstrapDescriptor).contains("strlen"));
+
+        var absolute = foreign.calls.get("foreign$absolute" + bootstrapDescriptor);
+        Assertions.assertTrue(absolute.contains(
+                "java/lang/foreign/Linker$Option.critical(Z)Ljava/lang/foreign/Linker$Option;"));
+        Assertions.assertTrue(foreign.constants.get("foreign$absolute" + bootstrapDescriptor).contains("abs"));
+
+        var compressBound = foreign.calls.get("foreign$compressBound" + bootstrapDescriptor);
+        Assertions.assertTrue(compressBound.contains("java/lang/foreign/SymbolLookup.libraryLookup" +
+                "(Ljava/lang/String;Ljava/lang/foreign/Arena;)Ljava/lang/foreign/SymbolLookup;"));
+        Assertions.assertTrue(foreign.constants.get("foreign$compressBound" + bootstrapDescriptor)
+                .containsAll(List.of("libzstd.so.1", "ZSTD_compressBound")));
+        Assertions.assertTrue(foreign.constants.get("foreign$versionNumber" + bootstrapDescriptor)
+                .contains("C:\\zstd\\libzstd.dll"));
+
+        compiler = new BootstrapCompiler(getClass().getClassLoader(), 17);
+        Assertions.assertThrows(CompilationException.class, () -> compiler.compile(compiler.generateTree(
+                "class sylect/basic/Foreign\n\nstatic native abs(x:int):int [sylect/Foreign]\n")));
+    }
+
+    @Test
+    public void taskSyntaxTest() {
+        // Platform threads are used below JDK 21
+        testCompiler("sylect.basic.TaskSyntax", "sylect/basic/TaskSyntax.sy", clazz -> {
+            try {
+                var counter = new AtomicLong();
+                var future = (Future<?>) callStaticMethod(clazz, "spawnOne", counter);
+                Assertions.assertNull(future.get(10, TimeUnit.SECONDS));
+                Assertions.assertEquals(1, counter.get());
+
+                Assertions.assertEquals(4950L, callStaticMethod(clazz, "sum", 100L));
+                Assertions.assertEquals(1001L, callStaticMethod(clazz, "nested", new AtomicLong(), new AtomicLong()));
+                Assertions.assertEquals(2L, callStaticMethod(clazz, "scoped", new AtomicLong()));
+
+                // The sleeping task is interrupted instead of being waited for
+                var slept = new AtomicLong();
+                var method = clazz.getMethod("failFast", AtomicLong.class);
+                var start = System.nanoTime();
+                var exception = Assertions.assertThrows(
+                        InvocationTargetException.class, () -> method.invoke(null, slept));
+                Assertions.assertInstanceOf(NumberFormatException.class, exception.getCause());
+                Assertions.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(30));
+                Assertions.assertEquals(0, slept.get());
+            } catch (ReflectiveOperationException | ExecutionException | InterruptedException | TimeoutException e) {
+                Assertions.fail(e);
+            }
+        });
+
+        compiler = new BootstrapCompiler(getClass().getClassLoader(), 21);
+        var tasks = new ClassSummary(compileBytecode("sylect/basic/TaskSyntax.sy"));
+        Assertions.assertTrue(tasks.calls
+                .get("spawnOne(Ljava/util/concurrent/atomic/AtomicLong;)Ljava/util/concurrent/Future;")
+                .contains("java/lang/Thread.startVirtualThread(Ljava/lang/Runnable;)Ljava/lang/Thread;"));
+        Assertions.assertTrue(tasks.calls.get("sum(J)J")
+                .contains("java/util/concurrent/Executors.newVirtualThreadPerTaskExecutor()" +
+                        "Ljava/util/concurrent/ExecutorService;"));
+
+        Assertions.assertThrows(CompilationException.class, () -> compiler.compile(compiler.generateTree(
+                "class sylect/basic/Tasks\n\nstatic run():int {\n    scope {\n        return 1\n    }\n" +
+                        "    return 0\n}\n")));
+        Assertions.assertThrows(CompilationException.class, () -> compiler.compile(compiler.generateTree(
+                "class sylect/basic/Tasks\n\nstatic run():void {\n    while 1 {\n        scope {\n" +
+                        "            break\n        }\n    }\n}\n")));
+    }
+
+    @Test
+    public void parallelSyntaxTest() {
+        testCompiler("sylect.basic.ParallelSyntax", "sylect/basic/ParallelSyntax.sy", clazz -> {
+            var counter = new AtomicLong();
+            callStaticMethod(clazz, "squares", 1000, counter);
+            Assertions.assertEquals(332_833_500L, counter.get());
+            callStaticMethod(clazz, "squares", 3, counter);
+            Assertions.assertEquals(332_833_505L, counter.get());
+
+            Assertions.assertEquals(333_332_833_333_500_000L, callStaticMethod(clazz, "sumOfSquares", 1_000_000L));
+            Assertions.assertEquals(0L, callStaticMethod(clazz, "sumOfSquares", 0L));
+            Assertions.assertEquals(0L, callStaticMethod(clazz, "sumOfSquares", -5L));
+
+            var low = Double.POSITIVE_INFINITY;
+            var high = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < 10_000; i++) {
+                low = Math.min(low, Math.sin(i) + 0.5);
+                high = Math.max(high, Math.sin(i) + 0.5);
+            }
+            var pool = new ForkJoinPool(3);
+            try {
+                Assertions.assertEquals(high - low, callStaticMethod(clazz, "spread", pool, 10_000, 0.5));
+            } finally {
+                pool.shutdown();
+            }
+
+            // Single thread pool splits 5 iterations into 4 chunks of 2, the last one is empty
+            var singlePool = new ForkJoinPool(1);
+            try {
+                Assertions.assertEquals(5L, callStaticMethod(clazz, "countToMax", singlePool, Integer.MAX_VALUE - 5));
+                Assertions.assertEquals(0L, callStaticMethod(clazz, "countToMax", singlePool, Integer.MAX_VALUE));
+            } finally {
+                singlePool.shutdown();
+            }
+
+            Assertions.assertEquals(100, callStaticMethod(clazz, "intSpread", 10_000));
+            Assertions.assertEquals(0, callStaticMethod(clazz, "intSpread", 1));
+            Assertions.assertEquals(998_001L, callStaticMethod(clazz, "longSpread", 1500L));
+            Assertions.assertEquals(90, callStaticMethod(clazz, "parallel", 10));
+
+            try {
+                var obj = clazz.getConstructor(long.class).newInstance(3L);
+                Assertions.assertEquals(751_500L, callMethod(obj, "scaledEvenSum", 1001));
+            } catch (ReflectiveOperationException e) {
+                Assertions.fail(e);
+            }
+        });
+
+        var header = "class sylect/basic/Parallel\n\nstatic run(n:int):int {\n    var total = 0\n";
+        Assertions.assertThrows(CompilationException.class, () -> compiler.compile(compiler.generateTree(
+                header + "    parallel for i in 0..n {\n        break\n    }\n    return total\n}\n")));
+        Assertions.assertThrows(CompilationException.class, () -> compiler.compile(compiler.generateTree(
+                header + "    parallel for i in 0..n {\n        return i\n    }\n    return total\n}\n")));
+        Assertions.assertThrows(CompilationException.class, () -> compiler.compile(compiler.generateTree(
+                header + "    for i in 0..n reduce sum(total) {\n        total = total + i\n    }\n    return total\n}\n")));
+        Assertions.assertThrows(CompilationException.class, () -> compiler.compile(compiler.generateTree(
+                header + "    parallel for i in 0..n reduce avg(total) {\n    }\n    return total\n}\n")));
+    }
+
+    @Test
+    public void concurrencySyntaxTest() {
+        testCompiler("sylect.basic.ConcurrencySyntax", "sylect/basic/ConcurrencySyntax.sy", (clazz, obj) -> {
+            try {
+                Assertions.assertTrue(Modifier.isVolatile(clazz.getDeclaredField("generation").getModifiers()));
+                Assertions.assertTrue(Modifier.isVolatile(clazz.getDeclaredField("instances").getModifiers()));
+                Assertions.assertFalse(Modifier.isVolatile(clazz.getDeclaredField("count").getModifiers()));
+
+                // Updates of both kinds are not lost when threads race
+                var threads = new ArrayList<Thread>();
+                for (int i = 0; i < 4; i++) {
+                    threads.add(new Thread(() -> {
+                        callMethod(obj, "increment", 10_000);
+                        for (int j = 0; j < 10_000; j++) {
+                            callMethod(obj, "add", 1);
+                        }
+                    }));
+                }
+                threads.forEach(Thread::start);
+                for (var thread : threads) {
+                    thread.join();
+                }
+                Assertions.assertEquals(80_000L, callMethod(obj, "increment", 0));
+                var instances = clazz.getDeclaredField("instances");
+                instances.setAccessible(true);
+                Assertions.assertEquals(1L, instances.get(null));
+
+                Assertions.assertEquals(true, callStaticMethod(clazz, "advance", "new", "started"));
+                Assertions.assertEquals(false, callStaticMethod(clazz, "advance", "new", "done"));
+                Assertions.assertEquals("started", callStaticMethod(clazz, "reset"));
+                Assertions.assertEquals("new!", callStaticMethod(clazz, "resetTwice"));
+
+                var lock = callMethod(obj, "getLock");
+                Assertions.assertEquals(20, callMethod(obj, "sumUntil", 9));
+                Assertions.assertEquals(2450, callMethod(obj, "sumUntil", 1000));
+                Assertions.assertEquals(42, callMethod(obj, "parse", "42"));
+                Assertions.assertEquals(true, callMethod(obj, "nested"));
+                Assertions.assertFalse(Thread.holdsLock(lock));
+
+                var method = clazz.getMethod("parse", String.class);
+                var exception = Assertions.assertThrows(InvocationTargetException.class, () -> method.invoke(obj, "x"));
+                Assertions.assertInstanceOf(NumberFormatException.class, exception.getCause());
+                Assertions.assertFalse(Thread.holdsLock(lock));
+            } catch (ReflectiveOperationException | InterruptedException e) {
+                Assertions.fail(e);
+            }
+        });
+
+        var header = "class sylect/basic/Atomics\n\nstatic final total:long\nstatic counter:int\n\n";
+        Assertions.assertThrows(CompilationException.class, () -> compiler.compile(compiler.generateTree(
+                header + "static run():long {\n    return atomic total.getAndAdd(1L)\n}\n")));
+        Assertions.assertThrows(CompilationException.class, () -> compiler.compile(compiler.generateTree(
+                header + "static run():int {\n    return atomic counter.getAndAdd(1L)\n}\n")));
+        Assertions.assertThrows(CompilationException.class, () -> compiler.compile(compiler.generateTree(
+                header + "static run():void {\n    synchronized counter {\n    }\n}\n")));
+    }
+
+    @Test
+    public void measureSyntaxTest() throws Exception {
+        var classLoader = compileSourceSet("sylect/basic/RequestEvent.sy", "sylect/basic/MeasureSyntax.sy");
+
+        // Event classes are instrumented when loaded, so recording is started first
+        var file = Files.createTempFile("measure", ".jfr");
+        try (var recording = new Recording()) {
+            recording.enable("sylect.basic.Request");
+            recording.start();
+
+            var event = classLoader.loadClass("sylect.basic.RequestEvent");
+            Assertions.assertEquals("Status", event.getDeclaredField("status").getAnnotation(jdk.jfr.Label.class).value());
+            Assertions.assertEquals(DataAmount.BYTES, event.getDeclaredField("size").getAnnotation(DataAmount.class).value());
+            Assertions.assertArrayEquals(new String[] {"Sylect", "Test"}, event.getAnnotation(Category.class).value());
+
+            var clazz = classLoader.loadClass("sylect.basic.MeasureSyntax");
+            Assertions.assertEquals(200, callStaticMethod(clazz, "handle", "/index"));
+            Assertions.assertEquals(false, callStaticMethod(clazz, "lookup", ""));
+            Assertions.assertEquals(true, callStaticMethod(clazz, "lookup", "/a"));
+            Assertions.assertEquals(6, callStaticMethod(clazz, "sumUntil", 5));
+            Assertions.assertEquals(304, callStaticMethod(clazz, "nested", "/b"));
+            Assertions.assertEquals(42, callStaticMethod(clazz, "parse", "42"));
+            Assertions.assertEquals(6, callStaticMethod(clazz, "measureTwice", "/ab"));
+
+            var method = clazz.getMethod("parse", String.class);
+            var exception = Assertions.assertThrows(InvocationTargetException.class, () -> method.invoke(null, "x"));
+            Assertions.assertInstanceOf(NumberFormatException.class, exception.getCause());
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        try {
+            var events = RecordingFile.readAllEvents(file);
+            var paths = events.stream().map(event -> event.getString("path")).toList();
+            // Loop commits events of iterations 0..5, the last one is left with break
+            Assertions.assertEquals(List.of("/index", "", "/a", "sum", "sum", "sum", "sum", "sum", "sum", "/b", "/b", "42"),
+                    paths);
+
+            var handled = events.get(paths.indexOf("/index"));
+            Assertions.assertEquals("Request", handled.getEventType().getLabel());
+            Assertions.assertEquals(200, handled.getInt("status"));
+            Assertions.assertEquals(6 * 1024L, handled.getLong("size"));
+            Assertions.assertEquals(0.5, handled.getDouble("ratio"));
+            Assertions.assertTrue(events.stream().anyMatch(event -> event.getBoolean("cached")));
+        } finally {
+            Files.delete(file);
+        }
+
+        var header = "import {\n    java/lang/String\n}\n\nclass sylect/basic/Measure\n\n";
+        Assertions.assertThrows(CompilationException.class, () -> compiler.compile(compiler.generateTree(
+                header + "static run(value:String):void {\n    measure value {\n    }\n}\n")));
+        Assertions.assertThrows(CompilationException.class, () -> compiler.compile(compiler.generateTree(
+                header + "static run(value:int):void {\n    measure value {\n    }\n}\n")));
+    }
+
+    @Test
+    public void debugInfoTest() {
+        testCompiler("sylect.basic.ConcurrencySyntax", "sylect/basic/ConcurrencySyntax.sy", (clazz, obj) -> {
+            try {
+                var method = clazz.getMethod("parse", String.class);
+                var exception = Assertions.assertThrows(InvocationTargetException.class, () -> method.invoke(obj, "x"));
+                var frame = Arrays.stream(exception.getCause().getStackTrace())
+                        .filter(element -> element.getClassName().equals(clazz.getName()))
+                        .findFirst()
+                        .orElseThrow();
+                Assertions.assertEquals("ConcurrencySyntax.sy", frame.getFileName());
+                Assertions.assertEquals(80, frame.getLineNumber());
+            } catch (ReflectiveOperationException e) {
+                Assertions.fail(e);
+            }
+        });
+        Assertions.assertEquals(
+                Set.of("source", "lines", "vars"), collectDebugAttributes("sylect/basic/ConcurrencySyntax.sy"));
+
+        for (var level : CompilerOptions.DebugLevel.values()) {
+            compiler = new BootstrapCompiler(
+                    getClass().getClassLoader(), new CompilerOptions(SylectCompiler.DEFAULT_TARGET, 1, level));
+            var expected = new HashSet<String>();
+            if (level.sourceFile()) {
+                expected.add("source");
+            }
+            if (level.lineNumbers()) {
+                expected.add("lines");
+            }
+            if (level.localVariables()) {
+                expected.add("vars");
+            }
+            Assertions.assertEquals(expected, collectDebugAttributes("sylect/basic/ConcurrencySyntax.sy"));
+        }
+        Assertions.assertEquals(CompilerOptions.DebugLevel.LINES, CompilerOptions.DebugLevel.parse("lines"));
+        Assertions.assertThrows(CompilationException.class, () -> CompilerOptions.DebugLevel.parse("full"));
+
+        var bytecode = compiler.compile(compiler.generateTree("class sylect/basic/Named\n", "Renamed.sy"));
+        var sourceFile = new String[1];
+        new ClassReader(bytecode).accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public void visitSource(String source, String debug) {
+                sourceFile[0] = source;
+            }
+        }, 0);
+        Assertions.assertEquals("Renamed.sy", sourceFile[0]);
+    }
+
+    @Test
+    public void profilingTest() {
+        var bytecode = compileBytecode("sylect/basic/Profiled.sy");
+        compiler = new BootstrapCompiler(getClass().getClassLoader(), new CompilerOptions(
+                SylectCompiler.DEFAULT_TARGET, 1, CompilerOptions.DebugLevel.ALL, false));
+        Assertions.assertArrayEquals(bytecode, compileBytecode("sylect/basic/Profiled.sy"));
+        Assertions.assertFalse(new String(bytecode, StandardCharsets.ISO_8859_1).contains("Profiler"));
+
+        compiler = new BootstrapCompiler(getClass().getClassLoader(), new CompilerOptions(
+                SylectCompiler.DEFAULT_TARGET, 1, CompilerOptions.DebugLevel.ALL, true));
+        testCompiler("sylect.basic.Profiled", "sylect/basic/Profiled.sy", clazz -> {
+            Assertions.assertEquals(285, callStaticMethod(clazz, "sumOfSquares", 10));
+
+            var counts = Profiler.snapshot();
+            var className = clazz.getName();
+            Assertions.assertEquals(1L, counts.get(new Profiler.Site(
+                    className, "sumOfSquares", Profiler.Kind.METHOD, 18, "")));
+            Assertions.assertEquals(10L, counts.get(new Profiler.Site(
+                    className, "square", Profiler.Kind.METHOD, 13, "")));
+            Assertions.assertEquals(10L, counts.get(new Profiler.Site(
+                    className, "sumOfSquares", Profiler.Kind.CALL, 21, "square")));
+            Assertions.assertEquals(10L, counts.get(new Profiler.Site(
+                    className, "sumOfSquares", Profiler.Kind.LOOP, 20, "")));
+            Assertions.assertEquals(10L, counts.get(new Profiler.Site(
+                    className, "sumOfSquares", Profiler.Kind.LOOP, 24, "")));
+            Assertions.assertTrue(Profiler.toJson().contains(
+                    "{\"class\": \"sylect.basic.Profiled\", \"method\": \"square\", \"kind\": \"method\", " +
+                            "\"line\": 13, \"target\": \"\", \"count\": 10}"));
+        });
+
+        // Runtime library is compiled for Java 17
+        compiler = new BootstrapCompiler(getClass().getClassLoader(), new CompilerOptions(11, 1,
+                CompilerOptions.DebugLevel.ALL, true));
+        Assertions.assertThrows(CompilationException.class, () -> compiler.compile(compiler.generateTree(
+                "class sylect/basic/Profiled11\n\nstatic run():void {\n}\n")));
+    }
+
+    /**
+     * Collects kinds of debug attributes present in compiled class.
+     */
+    private Set<String> collectDebugAttributes(String fileName) {
+        var attributes = new HashSet<String>();
+        new ClassReader(compileBytecode(fileName)).accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public void visitSource(String source, String debug) {
+                attributes.add("source");
+            }
+
+            @Override
+            public MethodVisitor visitMethod(
+                    int access, String name, String descriptor, String signature, String[] exceptions) {
+                return new MethodVisitor(Opcodes.ASM9) {
+                    @Override
+                    public void visitLineNumber(int line, Label start) {
+                        attributes.add("lines");
+                    }
+
+                    @Override
+                    public void visitLocalVariable(
+                            String name, String descriptor, String signature, Label start, Label end, int index) {
+                        attributes.add("vars");
+                    }
+                };
+            }
+        }, 0);
+        return attributes;
+    }
+
+    /**
+     * Collects fields, called methods and loaded constants of each method of compiled class.
+     */
+    private static class ClassSummary extends ClassVisitor {
+        private int version;
+        private int access;
+        private final Map<String, Object> fields = new HashMap<>();
+        private final Map<String, Integer> methodAccess = new HashMap<>();
+        private final Map<String, Set<String>> calls = new HashMap<>();
+        private final Map<String, List<Object>> constants = new HashMap<>();
+
+        ClassSummary(byte[] bytecode) {
+            super(Opcodes.ASM9);
+            new ClassReader(bytecode).accept(this, 0);
+        }
+
+        @Override
+        public void visit(
+                int version, int access, String name, String signature, String superName, String[] interfaces) {
+            this.version = version;
+            this.access = access;
+        }
+
+        @Override
+        public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+            fields.put(name, value);
+            return null;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(
+                int access, String name, String descriptor, String signature, String[] exceptions) {
+            methodAccess.put(name + descriptor, access);
+            var methodCalls = calls.computeIfAbsent(name + descriptor, key -> new HashSet<>());
+            var methodConstants = constants.computeIfAbsent(name + descriptor, key -> new ArrayList<>());
+            return new MethodVisitor(Opcodes.ASM9) {
+                @Override
+                public void visitMethodInsn(
+                        int opcode, String owner, String name, String descriptor, boolean isInterface) {
+                    methodCalls.add(owner + "." + name + descriptor);
+                }
+
+                @Override
+                public void visitLdcInsn(Object value) {
+                    methodConstants.add(value instanceof ConstantDynamic condy ? condy.getDescriptor() : value);
+                }
+            };
+        }
+    }
+
+    @Test
+    public void staticSyntaxTest() {
+        testCompiler("sylect.basic.StaticSyntax", "sylect/basic/StaticSyntax.sy", clazz -> {
+            Assertions.assertEquals(1, callStaticMethod(clazz, "getInitCount"));
+            Assertions.assertEquals(1, callStaticMethod(clazz, "name", "one"));
+
+            Assertions.assertEquals(0, callStaticMethod(clazz, "getLazyCount"));
+            Assertions.assertEquals(9, callStaticMethod(clazz, "square", 3));
+            Assertions.assertEquals(16, callStaticMethod(clazz, "square", 4));
+            Assertions.assertEquals(1, callStaticMethod(clazz, "getLazyCount"));
+
+            Assertions.assertEquals(42L, callStaticMethod(clazz, "answer"));
+            // Other classes use accessor that shares the computed value
+            Assertions.assertEquals(42L, callStaticMethod(clazz, "lazy$ANSWER"));
+            Assertions.assertEquals(2, callStaticMethod(clazz, "getLazyCount"));
+            Assertions.assertEquals(1, callStaticMethod(clazz, "getInitCount"));
+
+            Assertions.assertEquals(2, callStaticMethod(clazz, "incrementLazy"));
+            Assertions.assertEquals(4, callStaticMethod(clazz, "incrementLazy"));
+        });
+    }
+
+    @Test
+    public void loopSyntaxTest() {
+        testCompiler("sylect.basic.LoopSyntax", "sylect/basic/LoopSyntax.sy", clazz -> {
+            Assertions.assertEquals(45, callStaticMethod(clazz, "sumRange", 10));
+            Assertions.assertEquals(0, callStaticMethod(clazz, "sumRange", -5));
+            Assertions.assertEquals(12L, callStaticMethod(clazz, "sumLongRange", 3L, 6L));
+            Assertions.assertEquals(16, callStaticMethod(clazz, "sumOdd", 100));
+
+            Assertions.assertEquals("abc", callStaticMethod(clazz, "concat", (Object) new String[]{"a", "b", "c"}));
+            Assertions.assertEquals(2, callStaticMethod(clazz, "countZeros", (Object) new byte[]{0, 1, 0}));
+            Assertions.assertEquals(12, callStaticMethod(clazz, "sumList", List.of(1, 2, 3)));
+        });
+    }
+
+    @Test
+    public void whenSyntaxTest() {
+        testCompiler("sylect.basic.WhenSyntax", "sylect/basic/WhenSyntax.sy", clazz -> {
+            Assertions.assertEquals(10, callStaticMethod(clazz, "classify", 2));
+            Assertions.assertEquals(20, callStaticMethod(clazz, "classify", 4));
+            Assertions.assertEquals(30, callStaticMethod(clazz, "classify", 5));
+            Assertions.assertEquals(-10, callStaticMethod(clazz, "classify", -1));
+            Assertions.assertEquals(-1, callStaticMethod(clazz, "classify", 0));
+
+            Assertions.assertEquals(2, callStaticMethod(clazz, "sparse", 1000));
+            Assertions.assertEquals(0, callStaticMethod(clazz, "sparse", 11));
+
+            Assertions.assertEquals(true, callStaticMethod(clazz, "isVowel", 'e'));
+            Assertions.assertEquals(false, callStaticMethod(clazz, "isVowel", 'x'));
+
+            Assertions.assertEquals(1, callStaticMethod(clazz, "command", "run"));
+            Assertions.assertEquals(2, callStaticMethod(clazz, "command", "stop"));
+            Assertions.assertEquals(3, callStaticMethod(clazz, "command", "Aa"));
+            Assertions.assertEquals(4, callStaticMethod(clazz, "command", "BB"));
+            Assertions.assertEquals(0, callStaticMethod(clazz, "command", "other"));
+
+            Assertions.assertEquals(true, callStaticMethod(clazz, "isWeekend", DayOfWeek.SUNDAY));
+            Assertions.assertEquals(false, callStaticMethod(clazz, "isWeekend", DayOfWeek.MONDAY));
+
+            Assertions.assertEquals(2, callStaticMethod(
+                    clazz, "countUntilStop", (Object) new String[]{"a", "skip", "b", "stop", "c"}));
+
+            Assertions.assertEquals(6, callStaticMethod(clazz, "when", 2));
+            Assertions.assertEquals(6, callStaticMethod(clazz, "when", 3));
+            Assertions.assertEquals(4, callStaticMethod(clazz, "sparse", Integer.MIN_VALUE));
+        });
+
+        var header = "class sylect/basic/When\n\nstatic test(i:int):int {\n    when i {\n";
+        Assertions.assertThrows(CompilationException.class, () -> compiler.compile(compiler.generateTree(
+                header + "        2147483648 { return 1 }\n    }\n    return 0\n}\n")));
+        Assertions.assertThrows(CompilationException.class, () -> compiler.compile(compiler.generateTree(
+                header + "        1L { return 1 }\n    }\n    return 0\n}\n")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void lambdaSyntaxTest() {
+        testCompiler("sylect.basic.LambdaSyntax", "sylect/basic/LambdaSyntax.sy", clazz -> {
+            var adder = (IntBinaryOperator) callStaticMethod(clazz, "adder");
+            Assertions.assertEquals(5, adder.applyAsInt(2, 3));
+            Assertions.assertSame(adder, callStaticMethod(clazz, "adder"));
+
+            var list = new ArrayList<>(List.of("ccc", "a", "bb"));
+            callStaticMethod(clazz, "sortByLength", list);
+            Assertions.assertEquals(List.of("a", "bb", "ccc"), list);
+
+            var greaterThan = (IntPredicate) callStaticMethod(clazz, "greaterThan", 3);
+            Assertions.assertTrue(greaterThan.test(4));
+            Assertions.assertFalse(greaterThan.test(3));
+
+            var lengthOf = (Function<Object, Object>) callStaticMethod(clazz, "lengthOf");
+            Assertions.assertEquals(3, lengthOf.apply("abc"));
+
+            var multiplier = (IntUnaryOperator) callStaticMethod(clazz, "multiplier", 3);
+            Assertions.assertEquals(12, multiplier.applyAsInt(4));
+
+            var curried = (Function<Object, Object>) callStaticMethod(clazz, "curried", 1);
+            Assertions.assertEquals(6, ((IntUnaryOperator) curried.apply(2)).applyAsInt(3));
+
+            var staticReference = (Function<Object, Object>) callStaticMethod(clazz, "staticReference");
+            Assertions.assertEquals(2, staticReference.apply("ab"));
+            var boundReference = (Supplier<Object>) callStaticMethod(clazz, "boundReference", "abcd");
+            Assertions.assertEquals(4, boundReference.get());
+            var unboundReference = (Function<Object, Object>) callStaticMethod(clazz, "unboundReference");
+            Assertions.assertEquals("x", unboundReference.apply(" x "));
+            var constructorReference = (Supplier<Object>) callStaticMethod(clazz, "constructorReference");
+            Assertions.assertEquals(new ArrayList<>(), constructorReference.get());
+
+            callStaticMethod(clazz, "run");
+            Assertions.assertEquals(6, callStaticMethod(clazz, "applyFn"));
+
+            try {
+                var obj = clazz.getConstructor(int.class).newInstance(10);
+                var offset = (IntUnaryOperator) callMethod(obj, "offset");
+                Assertions.assertEquals(15, offset.applyAsInt(5));
+            } catch (ReflectiveOperationException e) {
+                Assertions.fail(e);
+            }
+        });
+
+        // Captured locals should be effectively final, whether they are assigned before or after capture
+        compiler = new BootstrapCompiler(getClass().getClassLoader(), 17);
+        var imports = "import {\n    java/util/function/IntSupplier\n}\n\nclass sylect/basic/Captures\n\n";
+        Assertions.assertThrows(CompilationException.class, () -> compiler.compile(compiler.generateTree(imports +
+                "static run(x:int):IntSupplier {\n    var f = fn IntSupplier() { return x }\n    x = 2\n" +
+                "    return f\n}\n")));
+        Assertions.assertThrows(CompilationException.class, () -> compiler.compile(compiler.generateTree(imports +
+                "static run(x:int):IntSupplier {\n    x = 2\n    return fn IntSupplier() { return x }\n}\n")));
+        Assertions.assertThrows(CompilationException.class, () -> compiler.compile(compiler.generateTree(imports +
+                "static run(x:int):void {\n    spawn { var y = x }\n    x = 2\n}\n")));
+        Assertions.assertThrows(CompilationException.class, () -> compiler.compile(compiler.generateTree(imports +
+                "static run(x:int):int {\n    var total = 0\n    parallel for i in 0..10 reduce sum(total) {\n" +
+                "        total = total + x\n    }\n    x = 2\n    return total\n}\n")));
+    }
+
     @Test
     public void interfaceTest() {
         testCompiler(
                 "sylect.basic.InterfaceSyntax", "sylect/basic/InterfaceSyntax.sy",
-                clazz -> Assertions.assertTrue(clazz.isInterface()));
+                clazz -> {
+                    Assertions.assertTrue(clazz.isInterface());
+                    try {
+                        Assertions.assertEquals(16, clazz.getField("DEFAULT_SIZE").get(null));
+                    } catch (ReflectiveOperationException e) {
+                        Assertions.fail(e);
+                    }
+                });
     }
 }
@@ -0,0 +1,100 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.maven;
+
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+import sylect.AppCdsRunner;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Creates class data archive of the application by its training run, along with a launcher script using it,
+ * see {@link AppCdsRunner}. Optionally compares startup time with and without the archive.
+ */
+@Mojo(
+        name = "cds-archive",
+        defaultPhase = LifecyclePhase.PACKAGE,
+        requiresDependencyCollection = ResolutionScope.RUNTIME,
+        requiresDependencyResolution = ResolutionScope.RUNTIME)
+public class AppCdsMojo extends AbstractMojo {
+
+    @Parameter(required = true, readonly = true, property = "project")
+    protected MavenProject project;
+
+    /**
+     * Class with main method, e.g. {@code sylect.WordCount}.
+     */
+    @Parameter(required = true, property = "sylect.cds.mainClass")
+    protected String mainClass;
+
+    /**
+     * Arguments of the training run, it should load the classes a usual run does.
+     */
+    @Parameter(property = "sylect.cds.trainingArgs")
+    protected List<String> trainingArgs;
+
+    /**
+     * JVM options of the training run, the benchmark runs and the launcher script.
+     */
+    @Parameter(property = "sylect.cds.jvmOptions")
+    protected List<String> jvmOptions;
+
+    /**
+     * Whether to create AOT cache instead of AppCDS archive, requires JDK 24 or higher.
+     */
+    @Parameter(property = "sylect.cds.aot", defaultValue = "false")
+    protected boolean aotCache;
+
+    /**
+     * Number of runs to compare startup time with and without the archive, 0 skips the benchmark.
+     */
+    @Parameter(property = "sylect.cds.benchmarkRuns", defaultValue = "0")
+    protected int benchmarkRuns;
+
+    @Parameter(property = "sylect.cds.java", defaultValue = "${java.home}/bin/java")
+    protected String java;
+
+    @Parameter(property = "sylect.cds.outputDirectory", defaultValue = "${project.build.directory}/cds")
+    protected String outputDirectory;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        List<Path> classPath;
+        try {
+            classPath = project.getRuntimeClasspathElements().stream()
+                    .map(Paths::get)
+                    .map(Path::toAbsolutePath)
+                    .toList();
+        } catch (DependencyResolutionRequiredException e) {
+            throw new MojoExecutionException("failed to resolve class path", e);
+        }
+
+        var options = new AppCdsRunner.ArchiveOptions(
+                Paths.get(java),
+                project.getArtifactId(),
+                mainClass,
+                classPath,
+                trainingArgs == null ? List.of() : trainingArgs,
+                jvmOptions == null ? List.of() : jvmOptions,
+                aotCache,
+                Paths.get(outputDirectory).toAbsolutePath());
+        try {
+            AppCdsRunner.createArchive(options, getLog()::info);
+            if (benchmarkRuns > 0) {
+                AppCdsRunner.benchmark(options, benchmarkRuns, getLog()::info);
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("failed to create archive", e);
+        }
+    }
+}
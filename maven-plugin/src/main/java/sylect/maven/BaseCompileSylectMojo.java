@@ -7,6 +7,7 @@ import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
+import sylect.CompilerOptions;
 import sylect.SylectCompilerRunner;
 import sylect.CompilationException;
 
@@ -27,6 +28,21 @@ abstract public class BaseCompileSylectMojo extends AbstractMojo {
     @Parameter(required = true, readonly = true, property = "sylect.target")
     protected int target;
 
+    @Parameter(property = "sylect.optimization", defaultValue = "1")
+    protected int optimizationLevel;
+
+    /**
+     * Debug attributes written to class files: none, lines, vars or all.
+     */
+    @Parameter(property = "sylect.debug", defaultValue = "all")
+    protected String debugLevel;
+
+    /**
+     * Whether to count method invocations, loop iterations and calls, compiled code then needs runtime library.
+     */
+    @Parameter(property = "sylect.profiling", defaultValue = "false")
+    protected boolean profiling;
+
     protected void compileSylect(boolean tests) throws MojoExecutionException {
         var classPath = new ArrayList<String>();
         try {
@@ -52,7 +68,8 @@ abstract public class BaseCompileSylectMojo extends AbstractMojo {
         try {
             SylectCompilerRunner.compileSourceTrees(
                     classLoader,
-                    target,
+                    new CompilerOptions(
+                            target, optimizationLevel, CompilerOptions.DebugLevel.parse(debugLevel), profiling),
                     sourceRoots.stream()
                             .map(Paths::get)
                             .map(Path::toAbsolutePath)
@@ -0,0 +1,88 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.maven;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import sylect.InliningReport;
+import sylect.InliningReport.MethodSummary;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.stream.Stream;
+
+/**
+ * Writes per-method bytecode report of compiled classes and checks methods against JIT limits,
+ * see {@link InliningReport}. Runs after classes are compiled, so it can fail the build before tests.
+ */
+@Mojo(name = "inlining-report", defaultPhase = LifecyclePhase.PROCESS_CLASSES)
+public class InliningReportMojo extends AbstractMojo {
+
+    @Parameter(required = true, readonly = true, property = "project")
+    protected MavenProject project;
+
+    /**
+     * Budget for bytecode size of any method, limits of JIT are checked regardless of it.
+     */
+    @Parameter(property = "sylect.report.maxMethodSize", defaultValue = "8000")
+    protected int maxMethodSize;
+
+    /**
+     * Whether to fail the build when a method exceeds the budget or JIT limits.
+     */
+    @Parameter(property = "sylect.report.failOnWarning", defaultValue = "false")
+    protected boolean failOnWarning;
+
+    @Parameter(
+            property = "sylect.report.file",
+            defaultValue = "${project.build.directory}/sylect-inlining-report.txt")
+    protected String reportFile;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        var outputDir = Paths.get(project.getBuild().getOutputDirectory());
+        if (!Files.exists(outputDir)) {
+            return;
+        }
+
+        var methods = new ArrayList<MethodSummary>();
+        try (Stream<Path> files = Files.walk(outputDir)) {
+            for (var classFile : files.filter(path -> path.toString().endsWith(".class")).sorted().toList()) {
+                methods.addAll(InliningReport.analyze(Files.readAllBytes(classFile)));
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("failed to read classes", e);
+        }
+
+        var reportPath = Paths.get(reportFile);
+        try {
+            Files.createDirectories(reportPath.toAbsolutePath().getParent());
+            Files.writeString(reportPath, InliningReport.format(methods, maxMethodSize));
+        } catch (IOException e) {
+            throw new MojoExecutionException("failed to write report: " + reportPath, e);
+        }
+        getLog().info("Inlining report: " + reportPath);
+
+        var exceeding = 0;
+        for (var method : methods) {
+            var warnings = method.warnings(maxMethodSize);
+            for (var warning : warnings) {
+                getLog().warn(method + ": " + warning);
+            }
+            if (!warnings.isEmpty()) {
+                exceeding++;
+            }
+        }
+        if (failOnWarning && exceeding > 0) {
+            throw new MojoFailureException(exceeding + " methods exceed bytecode size budget, see " + reportPath);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.runtime;
+
+import java.util.Objects;
+
+/**
+ * Splits range of mapped file into tokens separated by delimiter byte, e.g. lines or fields of records.
+ * Token is described by its start and end positions, so no objects are created while iterating:
+ * <pre>
+ * var lines = file.lines()
+ * var fields = file.split(44)
+ * while lines.next() {
+ *     fields.reset(lines.start() lines.end())
+ *     ...
+ * }
+ * </pre>
+ * Empty tokens between adjacent delimiters are returned, but there is no empty token after the last delimiter.
+ */
+public final class ByteSplitter {
+
+    private final MappedFile file;
+    private final byte delimiter;
+    private final boolean trimCarriageReturn;
+
+    private long position;
+    private long limit;
+    private long start;
+    private long end;
+
+    ByteSplitter(MappedFile file, int delimiter, boolean trimCarriageReturn) {
+        this.file = file;
+        this.delimiter = (byte) delimiter;
+        this.trimCarriageReturn = trimCarriageReturn;
+    }
+
+    /**
+     * Starts splitting another range of the file.
+     */
+    public ByteSplitter reset(long from, long to) {
+        Objects.checkFromToIndex(from, to, file.size());
+        position = from;
+        limit = to;
+        start = from;
+        end = from;
+        return this;
+    }
+
+    /**
+     * Moves to the next token.
+     *
+     * @return false if there are no tokens left
+     */
+    public boolean next() {
+        if (position >= limit) {
+            return false;
+        }
+
+        start = position;
+        var index = file.indexOf(delimiter, position, limit);
+        end = index < 0 ? limit : index;
+        position = index < 0 ? limit : index + 1;
+
+        if (trimCarriageReturn && end > start && file.get(end - 1) == '\r') {
+            end--;
+        }
+        return true;
+    }
+
+    /**
+     * @return position of the first byte of current token in file
+     */
+    public long start() {
+        return start;
+    }
+
+    /**
+     * @return position after the last byte of current token in file
+     */
+    public long end() {
+        return end;
+    }
+
+    public long length() {
+        return end - start;
+    }
+
+    public boolean isEmpty() {
+        return end == start;
+    }
+
+    /**
+     * Parses current token as decimal number with optional sign.
+     */
+    public long parseLong() {
+        if (isEmpty()) {
+            throw new NumberFormatException("empty token at " + start);
+        }
+
+        var position = start;
+        var negative = file.get(position) == '-';
+        if (negative || file.get(position) == '+') {
+            position++;
+            if (position == end) {
+                throw new NumberFormatException("no digits at " + start);
+            }
+        }
+
+        // Accumulating negative value covers Long.MIN_VALUE
+        var result = 0L;
+        for (; position < end; position++) {
+            var digit = file.get(position) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("not a digit at " + position);
+            }
+            if (result < (Long.MIN_VALUE + digit) / 10) {
+                throw new NumberFormatException("number is too large at " + start);
+            }
+            result = result * 10 - digit;
+        }
+
+        if (!negative) {
+            if (result == Long.MIN_VALUE) {
+                throw new NumberFormatException("number is too large at " + start);
+            }
+            return -result;
+        }
+        return result;
+    }
+
+    public int parseInt() {
+        var value = parseLong();
+        if (value != (int) value) {
+            throw new NumberFormatException("number is too large at " + start);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Compares current token with ASCII string without decoding it.
+     */
+    public boolean contentEquals(String ascii) {
+        if (length() != ascii.length()) {
+            return false;
+        }
+        for (int i = 0; i < ascii.length(); i++) {
+            if (file.get(start + i) != (byte) ascii.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes current token as UTF-8 string, unlike other methods it allocates.
+     */
+    public String asString() {
+        return file.getString(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return asString();
+    }
+}
@@ -0,0 +1,108 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.runtime;
+
+import java.util.Arrays;
+
+/**
+ * Base of caches holding at most a fixed number of entries, which are evicted with CLOCK algorithm:
+ * entries are arranged in a circle, and the hand passing by entries clears their referenced flags
+ * until it finds an entry that was not used since the last pass. Unlike LRU, hits only set a flag,
+ * so lookups don't move entries around.
+ * <p>
+ * Entries are stored in parallel arrays, the hash table holds indices of entries.
+ * Values are stored either as bits of primitive values or as objects.
+ */
+abstract class ClockCache {
+
+    // Index of entry plus one, zero marks free slot
+    final int[] table;
+    final int mask;
+
+    final boolean[] referenced;
+    final long[] values;
+    final Object[] objects;
+
+    private int size;
+    private int hand;
+
+    ClockCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("cache size should be positive: " + maxSize);
+        }
+        table = new int[Hashing.tableSize(maxSize)];
+        mask = table.length - 1;
+        referenced = new boolean[maxSize];
+        values = new long[maxSize];
+        objects = new Object[maxSize];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int maxSize() {
+        return referenced.length;
+    }
+
+    public void clear() {
+        Arrays.fill(table, 0);
+        Arrays.fill(referenced, false);
+        Arrays.fill(objects, null);
+        size = 0;
+        hand = 0;
+    }
+
+    /**
+     * @return hash of the key stored in entry, the same one that was used to place it in the table
+     */
+    abstract int hashAt(int entry);
+
+    /**
+     * Takes unused entry or evicts the one the hand stops at. The entry is removed from the table,
+     * so the caller should find a slot for the new key after that.
+     */
+    final int allocate() {
+        if (size < referenced.length) {
+            return size++;
+        }
+
+        while (referenced[hand]) {
+            referenced[hand] = false;
+            hand = hand + 1 == referenced.length ? 0 : hand + 1;
+        }
+        var victim = hand;
+        hand = hand + 1 == referenced.length ? 0 : hand + 1;
+
+        objects[victim] = null;
+        removeFromTable(victim);
+        return victim;
+    }
+
+    /**
+     * Backward shift deletion keeps probe chains intact without tombstones, see {@link LongObjectMap}.
+     */
+    private void removeFromTable(int entry) {
+        var index = hashAt(entry) & mask;
+        while (table[index] != entry + 1) {
+            index = (index + 1) & mask;
+        }
+
+        while (true) {
+            var last = index;
+            index = (index + 1) & mask;
+            while (true) {
+                if (table[index] == 0) {
+                    table[last] = 0;
+                    return;
+                }
+                var home = hashAt(table[index] - 1) & mask;
+                if (last <= index ? last >= home || home > index : last >= home && home > index) {
+                    break;
+                }
+                index = (index + 1) & mask;
+            }
+            table[last] = table[index];
+        }
+    }
+}
@@ -0,0 +1,135 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.runtime;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Growable list of {@code double} values, an unboxed alternative to {@code List<Double>}.
+ * Iterate with {@link #size()} and {@link #get(int)} to avoid allocations.
+ */
+public final class DoubleList {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private double[] elements;
+    private int size;
+
+    public DoubleList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public DoubleList(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("negative capacity: " + capacity);
+        }
+        elements = new double[capacity];
+    }
+
+    public static DoubleList of(double... values) {
+        var list = new DoubleList(values.length);
+        System.arraycopy(values, 0, list.elements, 0, values.length);
+        list.size = values.length;
+        return list;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void add(double value) {
+        if (size == elements.length) {
+            grow(size + 1);
+        }
+        elements[size++] = value;
+    }
+
+    public double get(int index) {
+        Objects.checkIndex(index, size);
+        return elements[index];
+    }
+
+    /**
+     * @return previous value at the index
+     */
+    public double set(int index, double value) {
+        Objects.checkIndex(index, size);
+        var previous = elements[index];
+        elements[index] = value;
+        return previous;
+    }
+
+    public double removeLast() {
+        if (size == 0) {
+            throw new IllegalStateException("list is empty");
+        }
+        return elements[--size];
+    }
+
+    public int indexOf(double value) {
+        for (int i = 0; i < size; i++) {
+            if (Double.compare(elements[i], value) == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean contains(double value) {
+        return indexOf(value) >= 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void sort() {
+        Arrays.sort(elements, 0, size);
+    }
+
+    public void forEach(DoubleConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            consumer.accept(elements[i]);
+        }
+    }
+
+    public double[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    private void grow(int minCapacity) {
+        var capacity = Math.max(minCapacity, elements.length + (elements.length >> 1) + 1);
+        elements = Arrays.copyOf(elements, capacity);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof DoubleList other)) {
+            return false;
+        }
+        return Arrays.equals(elements, 0, size, other.elements, 0, other.size);
+    }
+
+    @Override
+    public int hashCode() {
+        var result = 1;
+        for (int i = 0; i < size; i++) {
+            result = 31 * result + Double.hashCode(elements[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
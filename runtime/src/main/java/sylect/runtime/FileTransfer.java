@@ -0,0 +1,63 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.runtime;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Copies files with {@link FileChannel#transferTo}, so OS moves data between files
+ * (e.g. with copy_file_range or sendfile) without passing it through Java heap.
+ * I/O errors are reported as {@link UncheckedIOException}.
+ */
+public final class FileTransfer {
+
+    private FileTransfer() {
+    }
+
+    /**
+     * Creates target file or replaces its content. When source file shrinks during the copy, only the bytes
+     * still present are copied.
+     *
+     * @return number of bytes copied
+     */
+    public static long copy(String source, String target) {
+        return transfer(source, target, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Appends content of source file to target file, creating it if needed.
+     *
+     * @return number of bytes copied
+     */
+    public static long append(String source, String target) {
+        return transfer(source, target, StandardOpenOption.APPEND);
+    }
+
+    private static long transfer(String source, String target, StandardOpenOption mode) {
+        try (var input = FileChannel.open(Path.of(source), StandardOpenOption.READ);
+             var output = FileChannel.open(
+                     Path.of(target), StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode)) {
+            var size = input.size();
+            var position = 0L;
+            // Single call may transfer fewer bytes than requested
+            while (position < size) {
+                var transferred = input.transferTo(position, size - position, output);
+                if (transferred == 0) {
+                    // Nothing is transferred past the end of source, which may have been truncated meanwhile
+                    size = Math.min(size, input.size());
+                    if (position < size) {
+                        throw new IOException("could not transfer " + source + " at position " + position);
+                    }
+                }
+                position += transferred;
+            }
+            return position;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.runtime;
+
+/**
+ * Helpers shared by open-addressing maps.
+ */
+final class Hashing {
+
+    static final int DEFAULT_CAPACITY = 16;
+
+    private Hashing() {
+    }
+
+    /**
+     * Spreads bits of key, so that sequential keys don't form long probe chains.
+     */
+    static int mix(int key) {
+        var hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    static int mix(long key) {
+        return mix((int) (key ^ (key >>> 32)));
+    }
+
+    /**
+     * @return power of two table size keeping load factor at most 1/2
+     */
+    static int tableSize(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("negative size: " + expectedSize);
+        }
+        var size = Integer.highestOneBit(Math.max(expectedSize * 2 - 1, 1)) << 1;
+        if (size <= 0) {
+            throw new IllegalArgumentException("too large size: " + expectedSize);
+        }
+        return size;
+    }
+}
@@ -0,0 +1,109 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.runtime;
+
+import java.util.Arrays;
+
+/**
+ * Growable set of non-negative {@code int} values stored as bits.
+ * <p>
+ * Values are iterated without allocations:
+ * <pre>
+ * var i = bits.nextSetBit(0)
+ * while i >= 0 {
+ *     use(i)
+ *     i = bits.nextSetBit(i + 1)
+ * }
+ * </pre>
+ */
+public final class IntBitSet {
+
+    private static final int WORD_SHIFT = 6;
+
+    private long[] words;
+
+    public IntBitSet() {
+        this(64);
+    }
+
+    public IntBitSet(int bits) {
+        if (bits < 0) {
+            throw new IllegalArgumentException("negative size: " + bits);
+        }
+        words = new long[wordIndex(bits + 63)];
+    }
+
+    public boolean get(int index) {
+        checkIndex(index);
+        var word = wordIndex(index);
+        return word < words.length && (words[word] & (1L << index)) != 0;
+    }
+
+    public void set(int index) {
+        checkIndex(index);
+        var word = wordIndex(index);
+        if (word >= words.length) {
+            words = Arrays.copyOf(words, Math.max(word + 1, words.length * 2));
+        }
+        words[word] |= 1L << index;
+    }
+
+    public void clear(int index) {
+        checkIndex(index);
+        var word = wordIndex(index);
+        if (word < words.length) {
+            words[word] &= ~(1L << index);
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(words, 0L);
+    }
+
+    /**
+     * @return first set bit at or after the index or -1 if there is none
+     */
+    public int nextSetBit(int index) {
+        checkIndex(index);
+        var word = wordIndex(index);
+        if (word >= words.length) {
+            return -1;
+        }
+
+        var bits = words[word] & (-1L << index);
+        while (bits == 0) {
+            if (++word == words.length) {
+                return -1;
+            }
+            bits = words[word];
+        }
+        return (word << WORD_SHIFT) + Long.numberOfTrailingZeros(bits);
+    }
+
+    public int cardinality() {
+        var result = 0;
+        for (var word : words) {
+            result += Long.bitCount(word);
+        }
+        return result;
+    }
+
+    public boolean isEmpty() {
+        for (var word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int wordIndex(int index) {
+        return index >>> WORD_SHIFT;
+    }
+
+    private static void checkIndex(int index) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("negative index: " + index);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.runtime;
+
+@FunctionalInterface
+public interface IntIntConsumer {
+
+    void accept(int key, int value);
+}
@@ -0,0 +1,231 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.runtime;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from {@code int} to {@code int} with linear probing.
+ * Key 0 marks free slots in the table, so it's stored separately.
+ * <p>
+ * Entries are iterated without allocations using slots:
+ * <pre>
+ * var slot = map.nextSlot(-1)
+ * while slot >= 0 {
+ *     use(map.keyAt(slot) map.valueAt(slot))
+ *     slot = map.nextSlot(slot)
+ * }
+ * </pre>
+ * Slots are invalidated by modification of the map.
+ */
+public final class IntIntMap {
+
+    private static final int FREE_KEY = 0;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+
+    private boolean hasZeroKey;
+    private int zeroValue;
+
+    public IntIntMap() {
+        this(Hashing.DEFAULT_CAPACITY);
+    }
+
+    public IntIntMap(int expectedSize) {
+        allocate(Hashing.tableSize(expectedSize));
+    }
+
+    public int size() {
+        return size + (hasZeroKey ? 1 : 0);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public boolean containsKey(int key) {
+        if (key == FREE_KEY) {
+            return hasZeroKey;
+        }
+        return keys[find(key)] != FREE_KEY;
+    }
+
+    /**
+     * @return value mapped to the key or 0 if there is no mapping
+     */
+    public int get(int key) {
+        return getOrDefault(key, 0);
+    }
+
+    public int getOrDefault(int key, int defaultValue) {
+        if (key == FREE_KEY) {
+            return hasZeroKey ? zeroValue : defaultValue;
+        }
+        var index = find(key);
+        return keys[index] != FREE_KEY ? values[index] : defaultValue;
+    }
+
+    /**
+     * @return previous value mapped to the key or 0 if there was no mapping
+     */
+    public int put(int key, int value) {
+        if (key == FREE_KEY) {
+            var previous = hasZeroKey ? zeroValue : 0;
+            hasZeroKey = true;
+            zeroValue = value;
+            return previous;
+        }
+
+        var index = find(key);
+        if (keys[index] != FREE_KEY) {
+            var previous = values[index];
+            values[index] = value;
+            return previous;
+        }
+
+        keys[index] = key;
+        values[index] = value;
+        if (++size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        return 0;
+    }
+
+    /**
+     * Adds delta to the value mapped to the key, missing values are treated as 0.
+     *
+     * @return new value
+     */
+    public int addTo(int key, int delta) {
+        if (key == FREE_KEY) {
+            var value = (hasZeroKey ? zeroValue : 0) + delta;
+            hasZeroKey = true;
+            zeroValue = value;
+            return value;
+        }
+
+        var index = find(key);
+        if (keys[index] != FREE_KEY) {
+            return values[index] += delta;
+        }
+
+        keys[index] = key;
+        values[index] = delta;
+        if (++size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        return delta;
+    }
+
+    /**
+     * @return removed value or 0 if there was no mapping
+     */
+    public int remove(int key) {
+        if (key == FREE_KEY) {
+            var previous = hasZeroKey ? zeroValue : 0;
+            hasZeroKey = false;
+            zeroValue = 0;
+            return previous;
+        }
+
+        var index = find(key);
+        if (keys[index] == FREE_KEY) {
+            return 0;
+        }
+        var previous = values[index];
+        shiftKeys(index);
+        size--;
+        return previous;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, FREE_KEY);
+        size = 0;
+        hasZeroKey = false;
+        zeroValue = 0;
+    }
+
+    /**
+     * @param slot previous slot or -1 to start iteration
+     * @return next occupied slot or -1 if there are no more entries
+     */
+    public int nextSlot(int slot) {
+        for (int i = slot + 1; i < keys.length; i++) {
+            if (keys[i] != FREE_KEY) {
+                return i;
+            }
+        }
+        return slot < keys.length && hasZeroKey ? keys.length : -1;
+    }
+
+    public int keyAt(int slot) {
+        return slot == keys.length ? FREE_KEY : keys[slot];
+    }
+
+    public int valueAt(int slot) {
+        return slot == keys.length ? zeroValue : values[slot];
+    }
+
+    public void forEach(IntIntConsumer consumer) {
+        for (int slot = nextSlot(-1); slot >= 0; slot = nextSlot(slot)) {
+            consumer.accept(keyAt(slot), valueAt(slot));
+        }
+    }
+
+    /**
+     * @return index of the key or of free slot where it should be placed
+     */
+    private int find(int key) {
+        var index = Hashing.mix(key) & mask;
+        while (keys[index] != FREE_KEY && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    /**
+     * Backward shift deletion keeps probe chains intact without tombstones.
+     */
+    private void shiftKeys(int index) {
+        while (true) {
+            var last = index;
+            index = (index + 1) & mask;
+            while (true) {
+                if (keys[index] == FREE_KEY) {
+                    keys[last] = FREE_KEY;
+                    return;
+                }
+                var home = Hashing.mix(keys[index]) & mask;
+                // Entry may move to the freed slot only if it doesn't jump over its home slot
+                if (last <= index ? last >= home || home > index : last >= home && home > index) {
+                    break;
+                }
+                index = (index + 1) & mask;
+            }
+            keys[last] = keys[index];
+            values[last] = values[index];
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private void rehash(int capacity) {
+        var oldKeys = keys;
+        var oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE_KEY) {
+                var index = find(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+}
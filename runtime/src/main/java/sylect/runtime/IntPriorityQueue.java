@@ -0,0 +1,91 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.runtime;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Binary heap of {@code int} values, an unboxed alternative to {@code PriorityQueue<Integer>}.
+ * Smallest value is polled first, unless queue is created with {@link #maxFirst()}.
+ */
+public final class IntPriorityQueue {
+
+    private int[] heap;
+    private int size;
+    private final boolean maxFirst;
+
+    public IntPriorityQueue() {
+        this(Hashing.DEFAULT_CAPACITY, false);
+    }
+
+    private IntPriorityQueue(int capacity, boolean maxFirst) {
+        this.heap = new int[capacity];
+        this.maxFirst = maxFirst;
+    }
+
+    public static IntPriorityQueue maxFirst() {
+        return new IntPriorityQueue(Hashing.DEFAULT_CAPACITY, true);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void add(int value) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size + (size >> 1) + 1);
+        }
+
+        var index = size++;
+        while (index > 0) {
+            var parent = (index - 1) >>> 1;
+            if (!before(value, heap[parent])) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = value;
+    }
+
+    public int peek() {
+        if (size == 0) {
+            throw new NoSuchElementException("queue is empty");
+        }
+        return heap[0];
+    }
+
+    public int poll() {
+        var result = peek();
+        var value = heap[--size];
+
+        var index = 0;
+        var half = size >>> 1;
+        while (index < half) {
+            var child = 2 * index + 1;
+            if (child + 1 < size && before(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!before(heap[child], value)) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = value;
+        return result;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    private boolean before(int a, int b) {
+        return maxFirst ? a > b : a < b;
+    }
+}
@@ -0,0 +1,90 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.runtime;
+
+/**
+ * Bounded cache with {@code long} keys, used by memoized methods when their arguments fit into 64 bits.
+ * Neither keys nor primitive values are boxed. Values of one cache should be either primitive or objects:
+ * <pre>
+ * var value = cache.getLong(key Long.MIN_VALUE)
+ * if value == Long.MIN_VALUE && !cache.containsKey(key) {
+ *     value = compute(key)
+ *     cache.putLong(key value)
+ * }
+ * </pre>
+ * Least recently used entries are evicted approximately, see {@link ClockCache}. Cache is not thread-safe,
+ * use {@link StripedLongCache} to share it between threads.
+ */
+public final class LongCache extends ClockCache {
+
+    private final long[] keys;
+
+    public LongCache(int maxSize) {
+        super(maxSize);
+        keys = new long[maxSize];
+    }
+
+    public boolean containsKey(long key) {
+        return table[find(key)] != 0;
+    }
+
+    /**
+     * @param absent value returned when key is not cached, a cached value may be equal to it though
+     */
+    public long getLong(long key, long absent) {
+        var entry = table[find(key)] - 1;
+        if (entry < 0) {
+            return absent;
+        }
+        referenced[entry] = true;
+        return values[entry];
+    }
+
+    /**
+     * @return cached object or null if key is not cached
+     */
+    public Object get(long key) {
+        var entry = table[find(key)] - 1;
+        if (entry < 0) {
+            return null;
+        }
+        referenced[entry] = true;
+        return objects[entry];
+    }
+
+    public void putLong(long key, long value) {
+        values[insert(key)] = value;
+    }
+
+    public void put(long key, Object value) {
+        objects[insert(key)] = value;
+    }
+
+    @Override
+    int hashAt(int entry) {
+        return Hashing.mix(keys[entry]);
+    }
+
+    private int insert(long key) {
+        var index = find(key);
+        if (table[index] != 0) {
+            return table[index] - 1;
+        }
+
+        var entry = allocate();
+        keys[entry] = key;
+        table[find(key)] = entry + 1;
+        return entry;
+    }
+
+    /**
+     * @return index of the key or of free slot where it should be placed
+     */
+    private int find(long key) {
+        var index = Hashing.mix(key) & mask;
+        while (table[index] != 0 && keys[table[index] - 1] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+}
@@ -0,0 +1,9 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.runtime;
+
+@FunctionalInterface
+public interface LongObjectConsumer {
+
+    void accept(long key, Object value);
+}
@@ -0,0 +1,168 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.runtime;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Open-addressing hash map from {@code long} to objects with linear probing.
+ * Null values are not allowed, since they mark free slots in the table.
+ * <p>
+ * Entries are iterated without allocations using slots, see {@link IntIntMap}.
+ * Slots are invalidated by modification of the map.
+ */
+public final class LongObjectMap {
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+
+    public LongObjectMap() {
+        this(Hashing.DEFAULT_CAPACITY);
+    }
+
+    public LongObjectMap(int expectedSize) {
+        allocate(Hashing.tableSize(expectedSize));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(long key) {
+        return values[find(key)] != null;
+    }
+
+    /**
+     * @return value mapped to the key or null if there is no mapping
+     */
+    public Object get(long key) {
+        return values[find(key)];
+    }
+
+    public Object getOrDefault(long key, Object defaultValue) {
+        var value = values[find(key)];
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * @return previous value mapped to the key or null if there was no mapping
+     */
+    public Object put(long key, Object value) {
+        Objects.requireNonNull(value, "value");
+
+        var index = find(key);
+        var previous = values[index];
+        keys[index] = key;
+        values[index] = value;
+        if (previous == null && ++size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        return previous;
+    }
+
+    /**
+     * @return removed value or null if there was no mapping
+     */
+    public Object remove(long key) {
+        var index = find(key);
+        var previous = values[index];
+        if (previous != null) {
+            shiftKeys(index);
+            size--;
+        }
+        return previous;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * @param slot previous slot or -1 to start iteration
+     * @return next occupied slot or -1 if there are no more entries
+     */
+    public int nextSlot(int slot) {
+        for (int i = slot + 1; i < values.length; i++) {
+            if (values[i] != null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    public Object valueAt(int slot) {
+        return values[slot];
+    }
+
+    public void forEach(LongObjectConsumer consumer) {
+        for (int slot = nextSlot(-1); slot >= 0; slot = nextSlot(slot)) {
+            consumer.accept(keys[slot], values[slot]);
+        }
+    }
+
+    /**
+     * @return index of the key or of free slot where it should be placed
+     */
+    private int find(long key) {
+        var index = Hashing.mix(key) & mask;
+        while (values[index] != null && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    /**
+     * Backward shift deletion keeps probe chains intact without tombstones.
+     */
+    private void shiftKeys(int index) {
+        while (true) {
+            var last = index;
+            index = (index + 1) & mask;
+            while (true) {
+                if (values[index] == null) {
+                    values[last] = null;
+                    return;
+                }
+                var home = Hashing.mix(keys[index]) & mask;
+                // Entry may move to the freed slot only if it doesn't jump over its home slot
+                if (last <= index ? last >= home || home > index : last >= home && home > index) {
+                    break;
+                }
+                index = (index + 1) & mask;
+            }
+            keys[last] = keys[index];
+            values[last] = values[index];
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    private void rehash(int capacity) {
+        var oldKeys = keys;
+        var oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                var index = find(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+}
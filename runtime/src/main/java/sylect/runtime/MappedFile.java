@@ -0,0 +1,147 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.runtime;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * Read-only memory-mapped file, bytes are read directly from page cache without copying them to Java heap.
+ * Files larger than 2 GB are mapped as several regions, so positions are {@code long}.
+ * Multi-byte values are big-endian like in {@link java.io.DataInput}.
+ * <p>
+ * Mapping stays valid until it's garbage collected, closing the file only releases the channel.
+ * I/O errors are reported as {@link UncheckedIOException}.
+ */
+public final class MappedFile implements AutoCloseable {
+
+    private static final int DEFAULT_REGION_SHIFT = 30;
+
+    // Regions overlap by this number of bytes, so values up to 8 bytes long never cross region boundary
+    private static final int OVERLAP = Long.BYTES;
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] regions;
+    private final int regionShift;
+    private final long regionMask;
+    private final long size;
+
+    MappedFile(Path path, int regionShift) {
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            this.size = channel.size();
+            this.regionShift = regionShift;
+            this.regionMask = (1L << regionShift) - 1;
+
+            var regionCount = (int) ((size + regionMask) >>> regionShift);
+            this.regions = new MappedByteBuffer[regionCount];
+            for (int i = 0; i < regionCount; i++) {
+                var start = (long) i << regionShift;
+                var length = Math.min(size - start, (1L << regionShift) + OVERLAP);
+                regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static MappedFile open(String path) {
+        return new MappedFile(Path.of(path), DEFAULT_REGION_SHIFT);
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public byte get(long position) {
+        Objects.checkIndex(position, size);
+        return regions[(int) (position >>> regionShift)].get((int) (position & regionMask));
+    }
+
+    public int getInt(long position) {
+        Objects.checkFromIndexSize(position, Integer.BYTES, size);
+        return regions[(int) (position >>> regionShift)].getInt((int) (position & regionMask));
+    }
+
+    public long getLong(long position) {
+        Objects.checkFromIndexSize(position, Long.BYTES, size);
+        return regions[(int) (position >>> regionShift)].getLong((int) (position & regionMask));
+    }
+
+    public double getDouble(long position) {
+        return Double.longBitsToDouble(getLong(position));
+    }
+
+    /**
+     * Finds byte in range of file, comparing 8 bytes at a time.
+     *
+     * @param value byte to find, only the lowest 8 bits are used (e.g. 10 for new line)
+     * @return position of the first occurrence, or -1 if there is none
+     */
+    public long indexOf(int value, long from, long to) {
+        Objects.checkFromToIndex(from, to, size);
+        var pattern = ONES * (value & 0xFF);
+
+        var position = from;
+        while (position + Long.BYTES <= to) {
+            // Bytes equal to the value become zero, the expression sets the highest bit only for zero bytes
+            var word = getLong(position) ^ pattern;
+            var zeros = ~(((word & LOW_BITS) + LOW_BITS) | word | LOW_BITS);
+            if (zeros != 0) {
+                return position + (Long.numberOfLeadingZeros(zeros) >>> 3);
+            }
+            position += Long.BYTES;
+        }
+        for (; position < to; position++) {
+            if (get(position) == (byte) value) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return splitter over lines of the whole file, trailing carriage returns are excluded from lines
+     */
+    public ByteSplitter lines() {
+        return new ByteSplitter(this, '\n', true).reset(0, size);
+    }
+
+    /**
+     * @return splitter over tokens of the whole file, use {@link ByteSplitter#reset(long, long)}
+     * to split a part of file like a line
+     */
+    public ByteSplitter split(int delimiter) {
+        return new ByteSplitter(this, delimiter, false).reset(0, size);
+    }
+
+    /**
+     * Decodes range of file as UTF-8 string, it's the only method that copies bytes to heap.
+     */
+    public String getString(long from, long to) {
+        Objects.checkFromToIndex(from, to, size);
+        var bytes = new byte[Math.toIntExact(to - from)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = get(from + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.runtime;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes file sequentially through memory mapping, data is copied to page cache without system calls.
+ * File grows region by region as data is appended and is truncated to the written size on close.
+ * Multi-byte values are big-endian like in {@link java.io.DataOutput}, so {@link MappedFile} can read them back.
+ * <p>
+ * Data reaches the disk when OS flushes page cache, call {@link #force()} to flush it explicitly.
+ * I/O errors are reported as {@link UncheckedIOException}.
+ */
+public final class MappedFileWriter implements AutoCloseable {
+
+    private static final int DEFAULT_REGION_SIZE = 64 << 20;
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    // Unmaps buffer right away instead of waiting for GC, there is no public API for that
+    private static final MethodHandle INVOKE_CLEANER = findInvokeCleaner();
+
+    private final FileChannel channel;
+    private final int regionSize;
+
+    private MappedByteBuffer region;
+    private long regionStart;
+    private long position;
+
+    MappedFileWriter(Path path, int regionSize) {
+        this.regionSize = regionSize;
+        try {
+            this.channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.region = channel.map(FileChannel.MapMode.READ_WRITE, 0, regionSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Creates new file or truncates existing one.
+     */
+    public static MappedFileWriter create(String path) {
+        return new MappedFileWriter(Path.of(path), DEFAULT_REGION_SIZE);
+    }
+
+    /**
+     * @return number of bytes written so far
+     */
+    public long position() {
+        return position;
+    }
+
+    /**
+     * @param value byte to write, only the lowest 8 bits are used
+     */
+    public void put(int value) {
+        ensureRemaining(1);
+        region.put((int) (position - regionStart), (byte) value);
+        position++;
+    }
+
+    public void putInt(int value) {
+        if (ensureRemaining(Integer.BYTES)) {
+            region.putInt((int) (position - regionStart), value);
+            position += Integer.BYTES;
+        } else {
+            for (int shift = Integer.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+                put(value >>> shift);
+            }
+        }
+    }
+
+    public void putLong(long value) {
+        if (ensureRemaining(Long.BYTES)) {
+            region.putLong((int) (position - regionStart), value);
+            position += Long.BYTES;
+        } else {
+            for (int shift = Long.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+                put((int) (value >>> shift));
+            }
+        }
+    }
+
+    public void putDouble(double value) {
+        putLong(Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Writes string as UTF-8, ASCII strings are written without allocations.
+     */
+    public void putString(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                for (var b : value.getBytes(StandardCharsets.UTF_8)) {
+                    put(b);
+                }
+                return;
+            }
+        }
+        for (int i = 0; i < value.length(); i++) {
+            put(value.charAt(i));
+        }
+    }
+
+    /**
+     * Writes number as decimal text without creating a string, so it can be parsed with {@link ByteSplitter}.
+     */
+    public void putDecimal(long value) {
+        if (value < 0) {
+            put('-');
+        } else {
+            value = -value;
+        }
+
+        // Digits are computed from negative value, so that Long.MIN_VALUE is covered too
+        var length = 1;
+        for (var rest = value / 10; rest != 0; rest /= 10) {
+            length++;
+        }
+        for (int i = length - 1; i >= 0; i--) {
+            put((int) ('0' - value / POWERS_OF_TEN[i] % 10));
+        }
+    }
+
+    /**
+     * Flushes written data to the storage device.
+     */
+    public void force() {
+        region.force();
+        try {
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Releases the mapping and truncates the file to the written size. Windows doesn't allow truncating
+     * mapped files, there it fails if the mapping couldn't be released.
+     */
+    @Override
+    public void close() {
+        try (channel) {
+            if (region != null) {
+                // Accessing unmapped buffer would crash JVM, so writer can't be used anymore
+                var mapped = region;
+                region = null;
+                unmap(mapped);
+                channel.truncate(position);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void unmap(MappedByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invokeExact(buffer);
+        } catch (Throwable e) {
+            // Buffer is unmapped when it's garbage collected then
+        }
+    }
+
+    private static MethodHandle findInvokeCleaner() {
+        try {
+            var unsafeClass = Class.forName("sun.misc.Unsafe");
+            var unsafeField = unsafeClass.getDeclaredField("theUnsafe");
+            unsafeField.setAccessible(true);
+            return MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(unsafeField.get(null))
+                    .asType(MethodType.methodType(void.class, MappedByteBuffer.class));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Maps the next region when the current one is full.
+     *
+     * @return whether current region has enough space for a value of given size
+     */
+    private boolean ensureRemaining(int bytes) {
+        if (position - regionStart + bytes <= regionSize) {
+            return true;
+        }
+        if (position - regionStart == regionSize) {
+            try {
+                var next = channel.map(FileChannel.MapMode.READ_WRITE, position, regionSize);
+                // Full region is not accessed anymore
+                unmap(region);
+                region = next;
+                regionStart = position;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,93 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.runtime;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Bounded cache with object keys compared with {@link Object#equals(Object)}, null key is allowed.
+ * Memoized methods use it when their arguments don't fit into {@code long}, the key is then either
+ * the only argument or a list of arguments. Usage is the same as of {@link LongCache}.
+ * <p>
+ * Cache is not thread-safe, use {@link StripedObjectCache} to share it between threads.
+ */
+public final class ObjectCache extends ClockCache {
+
+    private final Object[] keys;
+
+    public ObjectCache(int maxSize) {
+        super(maxSize);
+        keys = new Object[maxSize];
+    }
+
+    public boolean containsKey(Object key) {
+        return table[find(key)] != 0;
+    }
+
+    /**
+     * @param absent value returned when key is not cached, a cached value may be equal to it though
+     */
+    public long getLong(Object key, long absent) {
+        var entry = table[find(key)] - 1;
+        if (entry < 0) {
+            return absent;
+        }
+        referenced[entry] = true;
+        return values[entry];
+    }
+
+    /**
+     * @return cached object or null if key is not cached
+     */
+    public Object get(Object key) {
+        var entry = table[find(key)] - 1;
+        if (entry < 0) {
+            return null;
+        }
+        referenced[entry] = true;
+        return objects[entry];
+    }
+
+    public void putLong(Object key, long value) {
+        values[insert(key)] = value;
+    }
+
+    public void put(Object key, Object value) {
+        objects[insert(key)] = value;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        Arrays.fill(keys, null);
+    }
+
+    @Override
+    int hashAt(int entry) {
+        return Hashing.mix(Objects.hashCode(keys[entry]));
+    }
+
+    private int insert(Object key) {
+        var index = find(key);
+        if (table[index] != 0) {
+            return table[index] - 1;
+        }
+
+        var entry = allocate();
+        keys[entry] = key;
+        table[find(key)] = entry + 1;
+        return entry;
+    }
+
+    /**
+     * @return index of the key or of free slot where it should be placed
+     */
+    private int find(Object key) {
+        var index = Hashing.mix(Objects.hashCode(key)) & mask;
+        while (table[index] != 0 && !Objects.equals(keys[table[index] - 1], key)) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+}
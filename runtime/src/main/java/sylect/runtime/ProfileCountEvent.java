@@ -0,0 +1,67 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.runtime;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+import java.util.Locale;
+
+/**
+ * Count of a profiled site, emitted for every site at the end of each JFR chunk, so the final counts
+ * end up in the recording. See {@link Profiler}.
+ */
+@Name("sylect.ProfileCount")
+@Label("Profile Count")
+@Category("Sylect")
+@Description("Count of method invocations, loop iterations or calls collected by profiling instrumentation")
+@Period("endChunk")
+@StackTrace(false)
+public final class ProfileCountEvent extends Event {
+
+    @Label("Class")
+    String className;
+
+    @Label("Method")
+    String method;
+
+    @Label("Kind")
+    String kind;
+
+    @Label("Line")
+    int line;
+
+    @Label("Target")
+    String target;
+
+    @Label("Count")
+    long count;
+
+    static void register() {
+        try {
+            FlightRecorder.addPeriodicEvent(ProfileCountEvent.class, ProfileCountEvent::emit);
+        } catch (RuntimeException | LinkageError e) {
+            // JFR is not available in this JVM, counts can still be dumped as JSON
+        }
+    }
+
+    private static void emit() {
+        for (var entry : Profiler.snapshot().entrySet()) {
+            var site = entry.getKey();
+            var event = new ProfileCountEvent();
+            event.className = site.className();
+            event.method = site.method();
+            event.kind = site.kind().name().toLowerCase(Locale.ROOT);
+            event.line = site.line();
+            event.target = site.target();
+            event.count = entry.getValue();
+            event.commit();
+        }
+    }
+}
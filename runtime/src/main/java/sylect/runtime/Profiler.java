@@ -0,0 +1,138 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.runtime;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of counters injected into classes compiled in profiling mode. Each counter belongs to a source site:
+ * method entry, loop iteration or call. Counters are striped {@link LongAdder}s, so threads incrementing
+ * the same counter don't contend for a cache line.
+ * <p>
+ * When {@value #OUTPUT_PROPERTY} system property is set, counts are written to that file as JSON when JVM exits.
+ * When JFR is recording, counts are also emitted as {@link ProfileCountEvent} at the end of each chunk.
+ */
+public final class Profiler {
+
+    public static final String OUTPUT_PROPERTY = "sylect.profile";
+
+    private static final Map<Site, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+
+    static {
+        var output = System.getProperty(OUTPUT_PROPERTY);
+        if (output != null && !output.isEmpty()) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> dump(Path.of(output)), "sylect-profile-dump"));
+        }
+        ProfileCountEvent.register();
+    }
+
+    private Profiler() {
+    }
+
+    public enum Kind {
+        // Invocations of method
+        METHOD,
+        // Completed iterations of loop
+        LOOP,
+        // Executions of call site
+        CALL
+    }
+
+    /**
+     * @param className binary name of class containing the site
+     * @param method    name of method containing the site, synthetic methods are attributed to enclosing method
+     * @param line      source line of the site, 0 when unknown
+     * @param target    name of called method for call sites, empty otherwise
+     */
+    public record Site(String className, String method, Kind kind, int line, String target) {
+    }
+
+    /**
+     * Bootstrap of dynamic constants holding counters, so that generated code increments the counter
+     * without looking it up.
+     */
+    public static LongAdder counter(
+            MethodHandles.Lookup lookup, String name, Class<?> type,
+            String kind, String method, int line, String target) {
+        return counter(new Site(lookup.lookupClass().getName(), method, Kind.valueOf(kind), line, target));
+    }
+
+    public static LongAdder counter(Site site) {
+        return COUNTERS.computeIfAbsent(site, key -> new LongAdder());
+    }
+
+    /**
+     * @return current counts, the most frequent sites first
+     */
+    public static Map<Site, Long> snapshot() {
+        var result = new LinkedHashMap<Site, Long>();
+        COUNTERS.entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue().sum()))
+                .sorted(Map.Entry.<Site, Long>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(entry -> entry.getKey().toString()))
+                .forEach(entry -> result.put(entry.getKey(), entry.getValue()));
+        return result;
+    }
+
+    /**
+     * Resets counts to zero, counters stay registered.
+     */
+    public static void reset() {
+        COUNTERS.values().forEach(LongAdder::reset);
+    }
+
+    public static String toJson() {
+        var json = new StringBuilder("[");
+        var first = true;
+        for (var entry : snapshot().entrySet()) {
+            var site = entry.getKey();
+            json.append(first ? "\n" : ",\n")
+                    .append("  {\"class\": ").append(quote(site.className()))
+                    .append(", \"method\": ").append(quote(site.method()))
+                    .append(", \"kind\": ").append(quote(site.kind().name().toLowerCase(Locale.ROOT)))
+                    .append(", \"line\": ").append(site.line())
+                    .append(", \"target\": ").append(quote(site.target()))
+                    .append(", \"count\": ").append(entry.getValue())
+                    .append('}');
+            first = false;
+        }
+        return json.append(first ? "]" : "\n]").append('\n').toString();
+    }
+
+    public static void dump(Path path) {
+        try {
+            Files.writeString(path, toJson());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String quote(String value) {
+        var result = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+            switch (c) {
+                case '"' -> result.append("\\\"");
+                case '\\' -> result.append("\\\\");
+                default -> {
+                    if (c < ' ') {
+                        result.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        result.append(c);
+                    }
+                }
+            }
+        }
+        return result.append('"').toString();
+    }
+}
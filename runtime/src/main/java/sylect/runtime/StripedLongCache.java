@@ -0,0 +1,84 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.runtime;
+
+/**
+ * Thread-safe variant of {@link LongCache}. Entries are split between stripes by hash of the key,
+ * and each stripe is guarded by its own lock, so threads working with different keys rarely contend.
+ * Eviction is done within the stripe, so the cache may hold a bit more than requested number of entries.
+ */
+public final class StripedLongCache {
+
+    private final LongCache[] stripes;
+    private final int mask;
+
+    public StripedLongCache(int maxSize) {
+        var count = Striping.stripeCount(maxSize);
+        stripes = new LongCache[count];
+        for (var i = 0; i < count; i++) {
+            stripes[i] = new LongCache(Striping.stripeSize(maxSize, count));
+        }
+        mask = count - 1;
+    }
+
+    public boolean containsKey(long key) {
+        var stripe = stripe(key);
+        synchronized (stripe) {
+            return stripe.containsKey(key);
+        }
+    }
+
+    public long getLong(long key, long absent) {
+        var stripe = stripe(key);
+        synchronized (stripe) {
+            return stripe.getLong(key, absent);
+        }
+    }
+
+    public Object get(long key) {
+        var stripe = stripe(key);
+        synchronized (stripe) {
+            return stripe.get(key);
+        }
+    }
+
+    public void putLong(long key, long value) {
+        var stripe = stripe(key);
+        synchronized (stripe) {
+            stripe.putLong(key, value);
+        }
+    }
+
+    public void put(long key, Object value) {
+        var stripe = stripe(key);
+        synchronized (stripe) {
+            stripe.put(key, value);
+        }
+    }
+
+    public int size() {
+        var size = 0;
+        for (var stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    public int maxSize() {
+        return stripes.length * stripes[0].maxSize();
+    }
+
+    public void clear() {
+        for (var stripe : stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+
+    private LongCache stripe(long key) {
+        return stripes[Striping.stripe(Hashing.mix(key), mask)];
+    }
+}
@@ -0,0 +1,36 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.runtime;
+
+/**
+ * Helpers shared by striped caches.
+ */
+final class Striping {
+
+    private static final int MAX_STRIPES = 256;
+
+    private Striping() {
+    }
+
+    /**
+     * @return power of two number of stripes, a few per processor, but not more than entries
+     */
+    static int stripeCount(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("cache size should be positive: " + maxSize);
+        }
+        var processors = Runtime.getRuntime().availableProcessors();
+        return Integer.highestOneBit(Math.min(Math.min(processors * 4, MAX_STRIPES), maxSize));
+    }
+
+    static int stripeSize(int maxSize, int stripeCount) {
+        return (maxSize + stripeCount - 1) / stripeCount;
+    }
+
+    /**
+     * Stripe is selected by high bits of the hash, since low bits select slots within the stripe.
+     */
+    static int stripe(int hash, int mask) {
+        return (hash >>> 24) & mask;
+    }
+}
@@ -0,0 +1,131 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.runtime;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class CacheTest {
+
+    @Test
+    public void clockEvictionTest() {
+        var cache = new LongCache(3);
+        cache.putLong(1L, 10L);
+        cache.putLong(2L, 20L);
+        cache.putLong(3L, 30L);
+        Assertions.assertEquals(10L, cache.getLong(1L, -1L));
+
+        // Referenced entry gets second chance, the next one is evicted
+        cache.putLong(4L, 40L);
+        Assertions.assertEquals(3, cache.size());
+        Assertions.assertTrue(cache.containsKey(1L));
+        Assertions.assertFalse(cache.containsKey(2L));
+        Assertions.assertEquals(-1L, cache.getLong(2L, -1L));
+        Assertions.assertEquals(30L, cache.getLong(3L, -1L));
+        Assertions.assertEquals(40L, cache.getLong(4L, -1L));
+
+        cache.putLong(4L, 41L);
+        Assertions.assertEquals(41L, cache.getLong(4L, -1L));
+        Assertions.assertEquals(3, cache.size());
+
+        cache.clear();
+        Assertions.assertEquals(0, cache.size());
+        Assertions.assertFalse(cache.containsKey(1L));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new LongCache(0));
+    }
+
+    @Test
+    public void longCacheTest() {
+        var random = new Random(42);
+        var cache = new LongCache(100);
+
+        for (int i = 0; i < 100_000; i++) {
+            var key = (long) random.nextInt(300) << 40;
+            var value = cache.getLong(key, Long.MIN_VALUE);
+            if (value == Long.MIN_VALUE) {
+                cache.putLong(key, key + 1);
+            } else {
+                Assertions.assertEquals(key + 1, value);
+            }
+            Assertions.assertTrue(cache.size() <= 100);
+        }
+
+        var found = 0;
+        for (long key = 0; key < 300; key++) {
+            if (cache.containsKey(key << 40)) {
+                Assertions.assertNull(cache.get(key << 40));
+                found++;
+            }
+        }
+        Assertions.assertEquals(100, found);
+    }
+
+    @Test
+    public void objectCacheTest() {
+        var cache = new ObjectCache(10);
+        cache.put(null, "null");
+        cache.put(List.of(1, 2), "list");
+        Assertions.assertEquals("null", cache.get(null));
+        Assertions.assertEquals("list", cache.get(new ArrayList<>(List.of(1, 2))));
+        Assertions.assertNull(cache.get(List.of(2, 1)));
+
+        for (int i = 0; i < 1000; i++) {
+            cache.putLong("key" + i, i);
+            Assertions.assertEquals(i, cache.getLong("key" + i, -1L));
+        }
+        Assertions.assertEquals(10, cache.size());
+        Assertions.assertFalse(cache.containsKey(null));
+    }
+
+    @Test
+    public void stripedCacheTest() throws InterruptedException {
+        var longs = new StripedLongCache(1000);
+        var objects = new StripedObjectCache(1000);
+        Assertions.assertTrue(longs.maxSize() >= 1000);
+
+        var threads = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            var seed = t;
+            threads.add(new Thread(() -> {
+                var random = new Random(seed);
+                for (int i = 0; i < 50_000; i++) {
+                    var key = random.nextInt(2000);
+                    var value = longs.getLong(key, Long.MIN_VALUE);
+                    if (value == Long.MIN_VALUE) {
+                        longs.putLong(key, key * 2L);
+                    } else if (value != key * 2L) {
+                        throw new AssertionError("unexpected value " + value + " for " + key);
+                    }
+                    var object = objects.get(String.valueOf(key));
+                    if (object == null) {
+                        objects.put(String.valueOf(key), key);
+                    } else if (!object.equals(key)) {
+                        throw new AssertionError("unexpected object " + object + " for " + key);
+                    }
+                }
+            }));
+        }
+        var failures = new ArrayList<Throwable>();
+        for (var thread : threads) {
+            thread.setUncaughtExceptionHandler((ignored, e) -> {
+                synchronized (failures) {
+                    failures.add(e);
+                }
+            });
+            thread.start();
+        }
+        for (var thread : threads) {
+            thread.join();
+        }
+        Assertions.assertEquals(List.of(), failures);
+        Assertions.assertTrue(longs.size() <= longs.maxSize());
+        Assertions.assertTrue(objects.size() <= objects.maxSize());
+
+        longs.clear();
+        Assertions.assertEquals(0, longs.size());
+    }
+}
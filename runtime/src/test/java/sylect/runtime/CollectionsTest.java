@@ -0,0 +1,148 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.runtime;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+public class CollectionsTest {
+
+    @Test
+    public void listTest() {
+        var ints = new IntList(0);
+        for (int i = 0; i < 100; i++) {
+            ints.add(100 - i);
+        }
+        Assertions.assertEquals(100, ints.size());
+        Assertions.assertEquals(100, ints.get(0));
+        Assertions.assertEquals(1, ints.removeLast());
+        Assertions.assertEquals(5, ints.set(95, 1000));
+        Assertions.assertEquals(95, ints.indexOf(1000));
+        Assertions.assertFalse(ints.contains(1));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> ints.get(99));
+
+        ints.sort();
+        Assertions.assertEquals(2, ints.get(0));
+        var unsorted = IntList.of(3, 1, 2);
+        unsorted.sort();
+        Assertions.assertEquals(IntList.of(1, 2, 3), unsorted);
+
+        Assertions.assertEquals("[1, 2]", LongList.of(1L, 2L).toString());
+        Assertions.assertTrue(DoubleList.of(Double.NaN).contains(Double.NaN));
+
+        var sum = new long[1];
+        LongList.of(1L, 2L, 3L).forEach(value -> sum[0] += value);
+        Assertions.assertEquals(6L, sum[0]);
+    }
+
+    @Test
+    public void intIntMapTest() {
+        var random = new Random(42);
+        var map = new IntIntMap(0);
+        var expected = new HashMap<Integer, Integer>();
+
+        for (int i = 0; i < 100_000; i++) {
+            // Small key range makes both collisions and removals of present keys frequent
+            var key = random.nextInt(512) - 256;
+            var value = random.nextInt();
+            switch (random.nextInt(3)) {
+                case 0 -> Assertions.assertEquals(orZero(expected.put(key, value)), map.put(key, value));
+                case 1 -> Assertions.assertEquals(orZero(expected.remove(key)), map.remove(key));
+                default -> Assertions.assertEquals(orZero(expected.get(key)), map.get(key));
+            }
+            Assertions.assertEquals(expected.containsKey(key), map.containsKey(key));
+        }
+        Assertions.assertEquals(expected.size(), map.size());
+
+        var actual = new HashMap<Integer, Integer>();
+        for (int slot = map.nextSlot(-1); slot >= 0; slot = map.nextSlot(slot)) {
+            actual.put(map.keyAt(slot), map.valueAt(slot));
+        }
+        Assertions.assertEquals(expected, actual);
+
+        Assertions.assertEquals(3, map.addTo(1_000_000, 3));
+        Assertions.assertEquals(5, map.addTo(1_000_000, 2));
+        map.clear();
+        Assertions.assertTrue(map.isEmpty());
+        Assertions.assertEquals(-1, map.nextSlot(-1));
+    }
+
+    private static int orZero(Integer value) {
+        return value != null ? value : 0;
+    }
+
+    @Test
+    public void longObjectMapTest() {
+        var map = new LongObjectMap();
+        for (long i = 0; i < 1000; i++) {
+            Assertions.assertNull(map.put(i << 32, "v" + i));
+        }
+        Assertions.assertEquals(1000, map.size());
+        Assertions.assertEquals("v7", map.get(7L << 32));
+        Assertions.assertNull(map.get(7L));
+
+        for (long i = 0; i < 1000; i += 2) {
+            Assertions.assertEquals("v" + i, map.remove(i << 32));
+        }
+        Assertions.assertEquals(500, map.size());
+
+        var count = new int[1];
+        map.forEach((key, value) -> {
+            Assertions.assertEquals("v" + (key >>> 32), value);
+            count[0]++;
+        });
+        Assertions.assertEquals(500, count[0]);
+        Assertions.assertThrows(NullPointerException.class, () -> map.put(1L, null));
+    }
+
+    @Test
+    public void priorityQueueTest() {
+        var random = new Random(42);
+        var queue = IntPriorityQueue.maxFirst();
+        var expected = new PriorityQueue<Integer>((a, b) -> Integer.compare(b, a));
+
+        for (int i = 0; i < 1000; i++) {
+            var value = random.nextInt(100);
+            queue.add(value);
+            expected.add(value);
+        }
+
+        while (!expected.isEmpty()) {
+            Assertions.assertEquals(expected.poll(), queue.poll());
+        }
+        Assertions.assertTrue(queue.isEmpty());
+        Assertions.assertThrows(NoSuchElementException.class, queue::peek);
+    }
+
+    @Test
+    public void bitSetTest() {
+        var random = new Random(42);
+        var bits = new IntBitSet(0);
+        var expected = new BitSet();
+
+        for (int i = 0; i < 1000; i++) {
+            var index = random.nextInt(5000);
+            if (random.nextBoolean()) {
+                bits.set(index);
+                expected.set(index);
+            } else {
+                bits.clear(index);
+                expected.clear(index);
+            }
+        }
+        Assertions.assertEquals(expected.cardinality(), bits.cardinality());
+
+        for (int i = bits.nextSetBit(0), j = expected.nextSetBit(0); j >= 0 || i >= 0;
+             i = bits.nextSetBit(i + 1), j = expected.nextSetBit(j + 1)) {
+            Assertions.assertEquals(j, i);
+        }
+        Assertions.assertEquals(-1, bits.nextSetBit(100_000));
+        Assertions.assertFalse(bits.get(100_000));
+    }
+}
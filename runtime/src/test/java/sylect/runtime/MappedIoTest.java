@@ -0,0 +1,133 @@
+// SPDX-License-Identifier: MIT
+
+package sylect.runtime;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MappedIoTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void writeReadTest() throws IOException {
+        var path = directory.resolve("data.bin");
+
+        // Tiny regions make values cross region boundaries
+        try (var writer = new MappedFileWriter(path, 16)) {
+            for (int i = 0; i < 100; i++) {
+                writer.put(i);
+                writer.putInt(i * 1000);
+                writer.putLong(-i * 1_000_000_000_000L);
+                writer.putDouble(i / 4.0);
+            }
+            Assertions.assertEquals(2100, writer.position());
+            // Mapping is released on first close
+            writer.close();
+        }
+        Assertions.assertEquals(2100, Files.size(path));
+
+        try (var file = new MappedFile(path, 4)) {
+            Assertions.assertEquals(2100, file.size());
+            for (int i = 0; i < 100; i++) {
+                var position = i * 21L;
+                Assertions.assertEquals((byte) i, file.get(position));
+                Assertions.assertEquals(i * 1000, file.getInt(position + 1));
+                Assertions.assertEquals(-i * 1_000_000_000_000L, file.getLong(position + 5));
+                Assertions.assertEquals(i / 4.0, file.getDouble(position + 13));
+            }
+            Assertions.assertThrows(IndexOutOfBoundsException.class, () -> file.getLong(2095));
+        }
+    }
+
+    @Test
+    public void splitTest() throws IOException {
+        var path = directory.resolve("data.csv");
+        Files.writeString(path,
+                "id,name,value\r\n1,first,-15\n2,,9223372036854775807\n\n3,third,x\n4,last,-9223372036854775808");
+
+        try (var file = new MappedFile(path, 4)) {
+            Assertions.assertEquals(23, file.indexOf('-', 0, file.size()));
+            Assertions.assertEquals(-1, file.indexOf('#', 0, file.size()));
+            Assertions.assertEquals(14, file.indexOf('\n', 0, file.size()));
+
+            var lines = file.lines();
+            var fields = file.split(',');
+            var names = new ArrayList<String>();
+            var values = new ArrayList<Long>();
+
+            Assertions.assertTrue(lines.next());
+            Assertions.assertEquals("id,name,value", lines.asString());
+            while (lines.next()) {
+                if (lines.isEmpty()) {
+                    continue;
+                }
+                fields.reset(lines.start(), lines.end());
+                Assertions.assertTrue(fields.next());
+                var id = fields.parseInt();
+                Assertions.assertTrue(fields.next());
+                names.add(fields.asString());
+                Assertions.assertTrue(fields.next());
+                if (id == 3) {
+                    Assertions.assertThrows(NumberFormatException.class, fields::parseLong);
+                    Assertions.assertTrue(fields.contentEquals("x"));
+                } else {
+                    values.add(fields.parseLong());
+                }
+                Assertions.assertFalse(fields.next());
+            }
+
+            Assertions.assertEquals(List.of("first", "", "third", "last"), names);
+            Assertions.assertEquals(List.of(-15L, Long.MAX_VALUE, Long.MIN_VALUE), values);
+        }
+    }
+
+    @Test
+    public void decimalTest() throws IOException {
+        var path = directory.resolve("numbers.txt");
+        var numbers = List.of(0L, 7L, -7L, 10L, 1234567890L, Long.MAX_VALUE, Long.MIN_VALUE);
+        try (var writer = new MappedFileWriter(path, 8)) {
+            for (var number : numbers) {
+                writer.putDecimal(number);
+                writer.putString("\n");
+            }
+            writer.putString("ünïcode");
+        }
+
+        try (var file = MappedFile.open(path.toString())) {
+            var lines = file.lines();
+            for (var number : numbers) {
+                Assertions.assertTrue(lines.next());
+                Assertions.assertEquals(number, lines.parseLong());
+            }
+            Assertions.assertTrue(lines.next());
+            Assertions.assertEquals("ünïcode", lines.asString());
+            Assertions.assertFalse(lines.next());
+        }
+    }
+
+    @Test
+    public void transferTest() throws IOException {
+        var source = directory.resolve("source.txt");
+        var target = directory.resolve("target.txt");
+        Files.writeString(source, "a".repeat(100_000));
+
+        Assertions.assertEquals(100_000L, FileTransfer.copy(source.toString(), target.toString()));
+        Assertions.assertEquals(100_000L, FileTransfer.append(source.toString(), target.toString()));
+        Assertions.assertEquals(200_000L, Files.size(target));
+        Assertions.assertEquals(100_000L, FileTransfer.copy(source.toString(), target.toString()));
+        Assertions.assertEquals(Files.readString(source), Files.readString(target));
+
+        Files.writeString(source, "");
+        Assertions.assertEquals(0L, FileTransfer.copy(source.toString(), target.toString()));
+        Assertions.assertEquals(0L, Files.size(target));
+    }
+}